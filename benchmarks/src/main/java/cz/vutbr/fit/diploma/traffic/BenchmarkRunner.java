@@ -0,0 +1,28 @@
+package cz.vutbr.fit.diploma.traffic;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Vstupní bod {@code benchmarks.jar}: běžné JMH argumenty + vždy zapnutý {@code -prof gc} (alokace
+ * na operaci) a JSON výsledky (default {@code results/latest.json}).
+ */
+public final class BenchmarkRunner {
+
+  public static void main(String[] args) throws Exception {
+    CommandLineOptions cli = new CommandLineOptions(args);
+    new Runner(
+            new OptionsBuilder()
+                .parent(cli)
+                .addProfiler(GCProfiler.class)
+                .resultFormat(cli.getResultFormat().orElse(ResultFormatType.JSON))
+                .result(cli.getResult().orElse("results/latest.json"))
+                .build())
+        .run();
+  }
+
+  private BenchmarkRunner() {}
+}
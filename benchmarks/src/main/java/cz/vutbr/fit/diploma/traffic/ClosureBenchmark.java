@@ -0,0 +1,50 @@
+package cz.vutbr.fit.diploma.traffic;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** {@link DatexUtil#isAnyClosure} nad reálným mixem hodnot z vygenerovaného feedu. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClosureBenchmark {
+
+  static final int N = 4096;
+
+  DatexRecord[] records;
+
+  @Setup
+  public void setup() {
+    List<DatexRecord> all = new ArrayList<>();
+    byte[] doc = new FeedGenerator(7).generate(FeedGenerator.situationsFor("typical"));
+    DatexParser.parse(new ByteArrayInputStream(doc), all::add);
+    records = new DatexRecord[N];
+    for (int i = 0; i < N; i++) records[i] = all.get(i % all.size());
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(N)
+  public int isAnyClosure() {
+    int n = 0;
+    for (DatexRecord r : records) {
+      if (DatexUtil.isAnyClosure(r)) n++;
+    }
+    return n;
+  }
+}
@@ -0,0 +1,94 @@
+package cz.vutbr.fit.diploma.traffic;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Pohled na aktuální uzavírky ({@link ClosureState}) nad uzavírkami z vygenerovaného feedu: dotazy
+ * tak, jak je obsluhuje {@link ClosureResource} (lookup + hotové tělo ze snapshotu), a postavení
+ * nového snapshotu po běhu se změnou. Indexy a stabilitu ETagu hlídá {@code ClosureStateTest} v
+ * hlavním modulu.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClosureStateBenchmark {
+
+  ClosureState state;
+  List<DatexRecord> closures;
+  String id, road;
+  int flip;
+
+  @Setup
+  public void setup() {
+    closures = new ArrayList<>();
+    byte[] doc = new FeedGenerator(7).generate(FeedGenerator.situationsFor("typical"));
+    DatexParser.parse(new ByteArrayInputStream(doc), ClosureState::isActiveClosure, closures::add);
+    state = ClosureState.of(new ObjectMapper());
+    state.apply(update(closures));
+
+    ClosureState.Snapshot s = state.snapshot();
+    DatexRecord probe =
+        s.all.stream().filter(r -> !ClosureState.roads(r).isEmpty()).findFirst().orElseThrow();
+    id = probe.situationRecordId();
+    road = ClosureState.roads(probe).get(0);
+  }
+
+  /** {@code GET /closures/{id}}. */
+  @Benchmark
+  public ClosureState.Body byId() {
+    ClosureState.Snapshot s = state.snapshot();
+    DatexRecord r = s.byRecordId.get(id);
+    return s.body("id|" + id, x -> r);
+  }
+
+  /** {@code GET /closures?road=...} (tělo už je u snapshotu). */
+  @Benchmark
+  public ClosureState.Body byRoad() {
+    ClosureResource.Query q = query(road, null);
+    ClosureState.Snapshot snapshot = state.snapshot();
+    return snapshot.body(
+        q.key(snapshot),
+        s -> {
+          List<DatexRecord> hits = ClosureResource.select(s, q);
+          return new ClosureState.Listing(hits.size(), hits);
+        });
+  }
+
+  /** Běh feedu s jednou změněnou uzavírkou → nový snapshot i s indexy. */
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  public ClosureState.Snapshot apply() {
+    List<DatexRecord> run = new ArrayList<>(closures);
+    if ((flip ^= 1) == 1) run.remove(run.size() - 1);
+    state.apply(update(run));
+    return state.snapshot();
+  }
+
+  static ClosureResource.Query query(String road, String situation) {
+    return ClosureResource.Query.of(road, situation, null, null, null, null, null, null);
+  }
+
+  static ClosureState.Update update(List<DatexRecord> records) {
+    ClosureState.Update u = new ClosureState.Update("bench", false);
+    for (DatexRecord r : records) u.put(r);
+    return u;
+  }
+}
@@ -0,0 +1,100 @@
+package cz.vutbr.fit.diploma.traffic;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Doplnění Alert-C lokalizací z tabulky ({@link AlertCLocations}) nad záznamy z feedu. Tabulka
+ * (LTEF ZIP, kódy 1000–31005 jako v {@link FeedGenerator}) se vygeneruje a načte v {@code
+ * @Setup}; správnost dohledání hlídá {@code AlertCLocationsTest} v hlavním modulu.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EnrichBenchmark {
+
+  static final int N = 1024;
+  static final int FIRST = 1000, LAST = 31005;
+
+  AlertCLocations locations;
+  DatexRecord[] records;
+
+  @Setup
+  public void setup() throws IOException {
+    Path zip = Files.createTempFile("alertc-", ".zip");
+    try {
+      writeTable(zip);
+      locations = AlertCLocations.of(AlertCIndex.load(zip, StandardCharsets.UTF_8, "2", null));
+    } finally {
+      Files.deleteIfExists(zip);
+    }
+
+    List<DatexRecord> withAlertC = new ArrayList<>();
+    byte[] doc = new FeedGenerator(7).generate(FeedGenerator.situationsFor("typical"));
+    DatexParser.parse(
+        new ByteArrayInputStream(doc),
+        r -> !r.alertCLinear().isEmpty() || !r.alertCPoint().isEmpty(),
+        withAlertC::add);
+    records = new DatexRecord[N];
+    for (int i = 0; i < N; i++) records[i] = withAlertC.get(i % withAlertC.size());
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(N)
+  public void enrich(Blackhole bh) {
+    for (DatexRecord r : records) bh.consume(locations.enrich(r));
+  }
+
+  /** Tabulka ve formátu LTEF: LOCATIONDATASETS (verze), NAMES a LOCATIONS s odkazy na názvy. */
+  static void writeTable(Path zip) throws IOException {
+    try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(zip))) {
+      entry(out, "LOCATIONDATASETS.DAT", "CID;TABCD;DCOMMENT;VERSION\n25;25;CZ;8.0\n");
+
+      StringBuilder names = new StringBuilder("CID;LID;NID;NAME\n");
+      StringBuilder locs =
+          new StringBuilder("CID;TABCD;LCD;CLASS;TCD;STCD;ROADNUMBER;N1ID;N2ID;XCOORD;YCOORD\n");
+      for (int lcd = FIRST; lcd <= LAST; lcd++) {
+        names.append("25;1;").append(lcd).append(";Obec ").append(lcd).append('\n');
+        locs.append("25;25;")
+            .append(lcd)
+            .append(";P;1;1;D")
+            .append(lcd % 90)
+            .append(';')
+            .append(lcd)
+            .append(";;")
+            .append(String.format("%+09d;%+09d\n", 1_250_000 + lcd * 17, 4_880_000 + lcd * 7));
+      }
+      entry(out, "NAMES.DAT", names.toString());
+      entry(out, "LOCATIONS.DAT", locs.toString());
+    }
+  }
+
+  private static void entry(ZipOutputStream out, String name, String text) throws IOException {
+    out.putNextEntry(new ZipEntry(name));
+    out.write(text.getBytes(StandardCharsets.UTF_8));
+    out.closeEntry();
+  }
+}
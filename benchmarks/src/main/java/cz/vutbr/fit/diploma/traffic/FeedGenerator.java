@@ -0,0 +1,314 @@
+package cz.vutbr.fit.diploma.traffic;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.OffsetDateTime;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Deterministický generátor DATEX II SituationPublication ve tvaru, jaký čte {@link DatexParser}.
+ * Stejný seed + mix + počet situací + revize = bajtově stejný dokument. Výchozí mix typů záznamů a
+ * lokalizačních metod odpovídá zhruba reálnému NDIC feedu (většina záznamů nejsou uzavírky).
+ *
+ * <p>Revize simulují další stažení téhož feedu: s každou revizí se změní {@link Mix#changePercent}
+ * procent situací (nová verze, jiný obsah), ostatní zůstanou bajtově stejné.
+ */
+public final class FeedGenerator {
+
+  /** Skladba feedu, vše v procentech (lokalizační metody se losují nezávisle na sobě). */
+  public record Mix(
+      int closurePercent,
+      int alertCLinearPercent,
+      int alertCPointPercent,
+      int globalNetworkPercent,
+      int linearWithinPercent,
+      int changePercent) {
+
+    public static final Mix DEFAULT = new Mix(25, 50, 25, 75, 25, 2);
+  }
+
+  private static final String[] MGMT_TYPES = {
+    "roadClosed",
+    "laneClosures",
+    "carriagewayClosed",
+    "narrowLanes",
+    "contraflow",
+    "singleAlternateLineTraffic"
+  };
+  private static final String[] OTHER_TYPES = {
+    "MaintenanceWorks",
+    "Accident",
+    "AbnormalTraffic",
+    "VehicleObstruction",
+    "AuthorityOperation",
+    "PoorEnvironmentConditions"
+  };
+  private static final String[] VALIDITY = {"active", "planned", "definedByValidityTimeSpec"};
+  private static final String[] DIRECTIONS = {"positive", "negative", "both"};
+  private static final String[] ROADS = {
+    "D1", "D2", "D5", "D8", "I/3", "I/35", "II/150", "III/00311"
+  };
+  private static final String[] COMMENTS = {
+    "Uzavírka z důvodu opravy mostu, objížďka po silnici II/150.",
+    "Práce na vozovce, omezení na jeden jízdní pruh.",
+    "Dopravní nehoda, provoz řízen Policií ČR.",
+    "Pokládka asfaltu, částečná uzavírka.",
+  };
+
+  private static final OffsetDateTime BASE_TIME = OffsetDateTime.parse("2026-01-01T00:00:00+01:00");
+
+  private final long seed;
+  private final Mix mix;
+
+  /** Počet situací pro pojmenované velikosti používané v benchmarcích. */
+  public static int situationsFor(String size) {
+    return switch (size) {
+      case "small" -> 100;
+      case "typical" -> 3_000;
+      case "large" -> 30_000;
+      default -> Integer.parseInt(size);
+    };
+  }
+
+  /**
+   * Generátor z CLI voleb: {@code seed}, {@code closure-percent}, {@code alertc-linear-percent},
+   * {@code alertc-point-percent}, {@code gn-percent}, {@code linear-within-percent}, {@code
+   * change-percent}; chybějící volby = {@link Mix#DEFAULT}.
+   */
+  public static FeedGenerator fromOptions(Map<String, String> o) {
+    Mix d = Mix.DEFAULT;
+    return new FeedGenerator(
+        Long.parseLong(o.getOrDefault("seed", "42")),
+        new Mix(
+            NdicStandInServer.intOpt(o, "closure-percent", d.closurePercent()),
+            NdicStandInServer.intOpt(o, "alertc-linear-percent", d.alertCLinearPercent()),
+            NdicStandInServer.intOpt(o, "alertc-point-percent", d.alertCPointPercent()),
+            NdicStandInServer.intOpt(o, "gn-percent", d.globalNetworkPercent()),
+            NdicStandInServer.intOpt(o, "linear-within-percent", d.linearWithinPercent()),
+            NdicStandInServer.intOpt(o, "change-percent", d.changePercent())));
+  }
+
+  public FeedGenerator(long seed) {
+    this(seed, Mix.DEFAULT);
+  }
+
+  public FeedGenerator(long seed, Mix mix) {
+    this.seed = seed;
+    this.mix = mix;
+  }
+
+  /** Dokument se zadaným počtem situací (každá má 1–3 záznamy). */
+  public byte[] generate(int situations) {
+    return generate(situations, 0);
+  }
+
+  public byte[] generate(int situations, int revision) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream(situations * 4096 + 1024);
+    try (Writer w = new OutputStreamWriter(out, StandardCharsets.UTF_8)) {
+      write(w, situations, revision);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return out.toByteArray();
+  }
+
+  /**
+   * Zápis dokumentu do souboru, např. {@code --situations=30000 --revision=3 --out=feed.xml.gz}
+   * (koncovka {@code .gz} = gzip). Seed a mix viz {@link #fromOptions}.
+   */
+  public static void main(String[] args) throws IOException {
+    Map<String, String> o = NdicStandInServer.parseArgs(args);
+    FeedGenerator g = fromOptions(o);
+    byte[] xml =
+        g.generate(
+            situationsFor(o.getOrDefault("situations", "typical")),
+            NdicStandInServer.intOpt(o, "revision", 0));
+    String out = o.getOrDefault("out", "feed.xml");
+    Files.write(Path.of(out), out.endsWith(".gz") ? NdicStandInServer.gzip(xml) : xml);
+    System.out.printf("Wrote %s (%,d B xml)%n", out, xml.length);
+  }
+
+  /** Čas publikace dané revize (5 minut mezi revizemi). */
+  public static OffsetDateTime publicationTime(int revision) {
+    return BASE_TIME.plusMinutes(5L * revision);
+  }
+
+  public void write(Writer w, int situations, int revision) throws IOException {
+    w.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+    w.write(
+        "<d2LogicalModel xmlns=\"http://datex2.eu/schema/2/2_0\""
+            + " xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\" modelBaseVersion=\"2\">\n");
+    w.write("<exchange><supplierIdentification><country>cz</country>");
+    w.write("<nationalIdentifier>NDIC</nationalIdentifier></supplierIdentification></exchange>\n");
+    w.write("<payloadPublication xsi:type=\"SituationPublication\" lang=\"cs\">\n");
+    w.write("<publicationTime>" + publicationTime(revision) + "</publicationTime>\n");
+    for (int s = 0; s < situations; s++) {
+      int version = lastChange(s, revision);
+      writeSituation(w, new SplittableRandom(hash(seed, s, version)), s, version);
+    }
+    w.write("</payloadPublication>\n</d2LogicalModel>\n");
+  }
+
+  /** Poslední revize ≤ {@code revision}, ve které se situace změnila (0 = původní obsah). */
+  private int lastChange(int s, int revision) {
+    for (int r = revision; r > 0; r--) {
+      if (Long.remainderUnsigned(hash(seed ^ 0x5DEECE66DL, s, r), 100) < mix.changePercent())
+        return r;
+    }
+    return 0;
+  }
+
+  private static long hash(long a, int b, int c) {
+    long h = a * 0x9E3779B97F4A7C15L + b;
+    h = (h ^ (h >>> 31)) * 0xBF58476D1CE4E5B9L + c;
+    return h ^ (h >>> 29);
+  }
+
+  private void writeSituation(Writer w, SplittableRandom rnd, int s, int version)
+      throws IOException {
+    w.write("<situation id=\"S" + s + "\" version=\"" + (1 + version) + "\">");
+    w.write("<overallSeverity>medium</overallSeverity>");
+    w.write("<situationVersionTime>2025-12-" + (10 + rnd.nextInt(20)) + "T08:00:00+01:00");
+    w.write("</situationVersionTime>");
+    w.write("<headerInformation><confidentiality>noRestriction</confidentiality>");
+    w.write("<informationStatus>real</informationStatus><urgency>normalUrgency</urgency>");
+    w.write("</headerInformation>\n");
+    int records = 1 + rnd.nextInt(3);
+    for (int r = 0; r < records; r++) {
+      writeRecord(w, rnd, "R" + s + "_" + r);
+    }
+    w.write("</situation>\n");
+  }
+
+  private void writeRecord(Writer w, SplittableRandom rnd, String id) throws IOException {
+    boolean mgmt = rnd.nextInt(100) < mix.closurePercent();
+    String type = mgmt ? "RoadOrCarriagewayOrLaneManagement" : pick(rnd, OTHER_TYPES);
+    w.write("<situationRecord xsi:type=\"" + type + "\" id=\"" + id + "\" version=\"1\">");
+    w.write("<situationRecordCreationTime>2025-12-01T08:00:00+01:00</situationRecordCreationTime>");
+    w.write("<probabilityOfOccurrence>certain</probabilityOfOccurrence>");
+    w.write("<validity><validityStatus>" + pick(rnd, VALIDITY) + "</validityStatus>");
+    w.write("<validityTimeSpecification><overallStartTime>2025-12-01T00:00:00+01:00");
+    w.write("</overallStartTime><overallEndTime>2026-0" + (1 + rnd.nextInt(9)));
+    w.write("-15T00:00:00+01:00</overallEndTime></validityTimeSpecification></validity>");
+    w.write("<generalPublicComment><comment><values><value lang=\"cs\">");
+    w.write(pick(rnd, COMMENTS));
+    w.write("</value></values></comment></generalPublicComment>\n");
+
+    w.write("<groupOfLocations xsi:type=\"Linear\">");
+    if (rnd.nextInt(100) < mix.alertCLinearPercent()) writeAlertCLinear(w, rnd);
+    if (rnd.nextInt(100) < mix.alertCPointPercent()) writeAlertCPoint(w, rnd);
+    if (rnd.nextInt(100) < mix.globalNetworkPercent()) writeGlobalNetwork(w, rnd);
+    if (rnd.nextInt(100) < mix.linearWithinPercent()) writeLinearWithin(w, rnd);
+    w.write("</groupOfLocations>\n");
+
+    switch (type) {
+      case "RoadOrCarriagewayOrLaneManagement" -> tag(
+          w, "roadOrCarriagewayOrLaneManagementType", pick(rnd, MGMT_TYPES));
+      case "MaintenanceWorks" -> tag(w, "roadMaintenanceType", "roadworks");
+      case "Accident" -> tag(w, "accidentType", "collision");
+      case "VehicleObstruction" -> tag(w, "vehicleObstructionType", "brokenDownVehicle");
+      case "AuthorityOperation" -> tag(w, "authorityOperationType", "policeInvestigation");
+      default -> {}
+    }
+    w.write("</situationRecord>\n");
+  }
+
+  private void writeAlertCLinear(Writer w, SplittableRandom rnd) throws IOException {
+    int primary = 1000 + rnd.nextInt(30000);
+    w.write("<alertCLinear xsi:type=\"AlertCMethod2Linear\">");
+    writeAlertCHeader(w, rnd);
+    w.write("<alertCMethod2PrimaryPointLocation><alertCLocation><specificLocation>");
+    w.write(Integer.toString(primary));
+    w.write("</specificLocation></alertCLocation></alertCMethod2PrimaryPointLocation>");
+    w.write("<alertCMethod2SecondaryPointLocation><alertCLocation><specificLocation>");
+    w.write(Integer.toString(primary + 1 + rnd.nextInt(5)));
+    w.write("</specificLocation></alertCLocation></alertCMethod2SecondaryPointLocation>");
+    w.write("</alertCLinear>");
+  }
+
+  private void writeAlertCPoint(Writer w, SplittableRandom rnd) throws IOException {
+    w.write("<alertCPoint xsi:type=\"AlertCMethod2Point\">");
+    writeAlertCHeader(w, rnd);
+    w.write("<alertCMethod2PrimaryPointLocation><alertCLocation><specificLocation>");
+    w.write(Integer.toString(1000 + rnd.nextInt(30000)));
+    w.write("</specificLocation></alertCLocation></alertCMethod2PrimaryPointLocation>");
+    w.write("</alertCPoint>");
+  }
+
+  private void writeAlertCHeader(Writer w, SplittableRandom rnd) throws IOException {
+    tag(w, "alertCLocationCountryCode", "2");
+    tag(w, "alertCLocationTableNumber", "25");
+    tag(w, "alertCLocationTableVersion", "8.0");
+    w.write("<alertCDirection>");
+    tag(w, "alertCDirectionCoded", pick(rnd, DIRECTIONS));
+    w.write("</alertCDirection>");
+  }
+
+  private void writeGlobalNetwork(Writer w, SplittableRandom rnd) throws IOException {
+    // S-JTSK v rozsahu ČR: X ~ 935–1227 km, Y ~ 431–905 km
+    double x = 990_000 + rnd.nextDouble() * 200_000;
+    double y = 450_000 + rnd.nextDouble() * 400_000;
+    w.write("<linearExtension><globalNetworkLinear>");
+    w.write("<networkVersion><values><value>24.1</value></values></networkVersion>");
+    tag(w, "linearGeometryType", "continuous");
+    w.write("<startPoint><sjtskPointCoordinates>");
+    tag(w, "sjtskX", fmt(x));
+    tag(w, "sjtskY", fmt(y));
+    w.write("</sjtskPointCoordinates></startPoint><endPoint><sjtskPointCoordinates>");
+    tag(w, "sjtskX", fmt(x + rnd.nextDouble() * 3000 - 1500));
+    tag(w, "sjtskY", fmt(y + rnd.nextDouble() * 3000 - 1500));
+    w.write("</sjtskPointCoordinates></endPoint>");
+    int segs = 1 + rnd.nextInt(3);
+    for (int i = 0; i < segs; i++) {
+      w.write("<linearWithinLinearGNElement>");
+      tag(w, "sectionId", Long.toString(100_000 + rnd.nextInt(900_000)));
+      tag(w, "directionRelativeOnLinearSection", rnd.nextBoolean() ? "aligned" : "opposite");
+      tag(w, "orderOfSection", Integer.toString(i + 1));
+      w.write("<fromPoint>");
+      tag(w, "percentageDistanceAlong", Integer.toString(rnd.nextInt(50)));
+      w.write("</fromPoint><toPoint>");
+      tag(w, "percentageDistanceAlong", Integer.toString(50 + rnd.nextInt(51)));
+      w.write("</toPoint></linearWithinLinearGNElement>");
+    }
+    w.write("</globalNetworkLinear></linearExtension>");
+  }
+
+  private void writeLinearWithin(Writer w, SplittableRandom rnd) throws IOException {
+    int from = rnd.nextInt(100_000);
+    w.write("<linearWithinLinearElement><linearElement>");
+    tag(w, "roadNumber", pick(rnd, ROADS));
+    w.write("</linearElement>");
+    tag(w, "directionRelativeOnLinearSection", pick(rnd, DIRECTIONS));
+    w.write("<fromPoint>");
+    tag(w, "distanceAlong", Integer.toString(from));
+    w.write("</fromPoint><toPoint>");
+    tag(w, "distanceAlong", Integer.toString(from + rnd.nextInt(5000)));
+    w.write("</toPoint></linearWithinLinearElement>");
+  }
+
+  private static void tag(Writer w, String name, String value) throws IOException {
+    w.write('<');
+    w.write(name);
+    w.write('>');
+    w.write(value);
+    w.write("</");
+    w.write(name);
+    w.write('>');
+  }
+
+  private static String fmt(double v) {
+    return String.format(Locale.ROOT, "%.2f", v);
+  }
+
+  private static String pick(SplittableRandom rnd, String[] values) {
+    return values[rnd.nextInt(values.length)];
+  }
+}
@@ -0,0 +1,104 @@
+package cz.vutbr.fit.diploma.traffic;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Global Network geometrie: otevření zkompilované sítě ({@link GNStore#open}, mmap) a doplnění
+ * {@code geometry} ({@link GNGeometry#enrich}) nad záznamy z feedu. Síť pokrývá všechna {@code
+ * sectionId}, která generuje {@link FeedGenerator} (900 000 úseků, víc než síť ŘSD), se zdrojem v
+ * S-JTSK jako CSV s WKT; kompiluje se jednou v {@code @Setup}. Správnost sítě a ořezu hlídá {@code
+ * GNGeometryTest} v hlavním modulu.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GNBenchmark {
+
+  static final int N = 1024;
+  static final long FIRST = 100_000, LAST = 999_999;
+
+  Path dir, store;
+  GNGeometry geometry;
+  DatexRecord[] records;
+
+  @Setup
+  public void setup() throws IOException {
+    dir = Files.createTempDirectory("gn-");
+    Path source = dir.resolve("network.csv");
+    store = dir.resolve("network.gnstore");
+    writeNetwork(source);
+    GNStore.compile(source, store, null, 1);
+    geometry = GNGeometry.of(GNStore.open(store));
+
+    List<DatexRecord> withGn = new ArrayList<>();
+    byte[] doc = new FeedGenerator(7).generate(FeedGenerator.situationsFor("typical"));
+    DatexParser.parse(
+        new ByteArrayInputStream(doc), r -> !r.globalNetworkLinear().isEmpty(), withGn::add);
+    records = new DatexRecord[N];
+    for (int i = 0; i < N; i++) records[i] = withGn.get(i % withGn.size());
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    Files.deleteIfExists(store);
+    Files.deleteIfExists(dir.resolve("network.csv"));
+    Files.deleteIfExists(dir);
+  }
+
+  /** Otevření sítě při startu (jen mmap + hlavička). */
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public GNStore open() throws IOException {
+    return GNStore.open(store);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(N)
+  public void enrich(Blackhole bh) {
+    for (DatexRecord r : records) bh.consume(geometry.enrich(r));
+  }
+
+  /** CSV s WKT v S-JTSK (EPSG:5514, záporné): každý úsek přímka o 5 bodech, do ~600 m. */
+  static void writeNetwork(Path file) throws IOException {
+    SplittableRandom rnd = new SplittableRandom(42);
+    try (BufferedWriter w = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+      w.write("ID;WKT\n");
+      for (long id = FIRST; id <= LAST; id++) {
+        long x = 990_000 + rnd.nextInt(200_000), y = 450_000 + rnd.nextInt(400_000);
+        long dx = rnd.nextInt(201) - 100, dy = rnd.nextInt(201) - 100;
+        StringBuilder wkt = new StringBuilder("LINESTRING (");
+        for (int i = 0; i < 5; i++) {
+          if (i > 0) wkt.append(", ");
+          wkt.append(-(y + i * dy)).append(' ').append(-(x + i * dx));
+        }
+        w.write(id + ";" + wkt + ")\n");
+      }
+    }
+  }
+}
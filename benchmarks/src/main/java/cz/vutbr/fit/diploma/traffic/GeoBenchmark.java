@@ -0,0 +1,79 @@
+package cz.vutbr.fit.diploma.traffic;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * S-JTSK → WGS-84: dávkový {@link Krovak#toWgs84} nad body v rozsahu ČR a celý krok {@link
+ * GeoTransform#enrich} nad záznamy z feedu s cache a bez ní. Přesnost převodu a shodu s cache hlídá
+ * {@code KrovakTest}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GeoBenchmark {
+
+  static final int N = 1024;
+
+  final double[] xy = new double[2 * N];
+  final double[] latLon = new double[2 * N];
+  DatexRecord[] records;
+  GeoTransform cached, uncached;
+
+  @Setup
+  public void setup() {
+    SplittableRandom rnd = new SplittableRandom(42);
+    for (int i = 0; i < N; i++) {
+      xy[2 * i] = 990_000 + rnd.nextDouble() * 200_000;
+      xy[2 * i + 1] = 450_000 + rnd.nextDouble() * 400_000;
+    }
+
+    List<DatexRecord> withGn = new ArrayList<>();
+    byte[] doc = new FeedGenerator(7).generate(FeedGenerator.situationsFor("typical"));
+    DatexParser.parse(
+        new ByteArrayInputStream(doc), r -> !r.globalNetworkLinear().isEmpty(), withGn::add);
+    records = new DatexRecord[N];
+    for (int i = 0; i < N; i++) records[i] = withGn.get(i % withGn.size());
+
+    cached = GeoTransform.of(16_384);
+    uncached = GeoTransform.of(0);
+  }
+
+  /** Jen převod souřadnic (bez parse a kopie záznamu), N bodů jednou dávkou. */
+  @Benchmark
+  @OperationsPerInvocation(N)
+  public double[] batch() {
+    Krovak.toWgs84(xy, latLon, N);
+    return latLon;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(N)
+  public void enrichUncached(Blackhole bh) {
+    for (DatexRecord r : records) bh.consume(uncached.enrich(r));
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(N)
+  public void enrichCached(Blackhole bh) {
+    for (DatexRecord r : records) bh.consume(cached.enrich(r));
+  }
+}
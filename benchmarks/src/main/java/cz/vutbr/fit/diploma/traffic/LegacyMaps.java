@@ -0,0 +1,116 @@
+package cz.vutbr.fit.diploma.traffic;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Původní mapový výstup parseru (LinkedHashMap na záznam i každou lokalizaci) – jen jako
+ * srovnávací základ pro {@link SerializeBenchmark}.
+ */
+final class LegacyMaps {
+
+  static Map<String, Object> toMap(DatexRecord r) {
+    Map<String, Object> m = new LinkedHashMap<>();
+    put(m, "situationId", r.situationId());
+    put(m, "situationVersion", r.situationVersion());
+    put(m, "situationVersionTime", r.situationVersionTime());
+    put(m, "informationStatus", r.informationStatus());
+    put(m, "urgency", r.urgency());
+    put(m, "situationRecordId", r.situationRecordId());
+    put(m, "xsiType", r.xsiType());
+    put(m, "validityStatus", r.validityStatus());
+    put(m, "overallStartTime", r.overallStartTime());
+    put(m, "overallEndTime", r.overallEndTime());
+    put(m, "probabilityOfOccurrence", r.probabilityOfOccurrence());
+    put(m, "comment", r.comment());
+    put(m, "networkManagementType", r.networkManagementType());
+    put(m, "roadworksType", r.roadworksType());
+    put(m, "restrictionType", r.restrictionType());
+    put(m, "roadOrCarriagewayOrLaneManagementType", r.roadOrCarriagewayOrLaneManagementType());
+    put(m, "trafficControlType", r.trafficControlType());
+    put(m, "speedLimit", r.speedLimit());
+    put(m, "accidentType", r.accidentType());
+    put(m, "vehicleObstructionType", r.vehicleObstructionType());
+    put(m, "authorityOperationType", r.authorityOperationType());
+    put(m, "road", r.road());
+    put(m, "locationText", r.locationText());
+
+    if (!r.alertCLinear().isEmpty()) {
+      List<Map<String, Object>> arr = new ArrayList<>(r.alertCLinear().size());
+      for (DatexRecord.AlertCLinear a : r.alertCLinear()) {
+        Map<String, Object> x = new LinkedHashMap<>();
+        put(x, "countryCode", a.countryCode());
+        put(x, "tableNumber", a.tableNumber());
+        put(x, "tableVersion", a.tableVersion());
+        put(x, "directionCoded", a.directionCoded());
+        put(x, "primarySpecificLocation", a.primarySpecificLocation());
+        put(x, "secondarySpecificLocation", a.secondarySpecificLocation());
+        arr.add(x);
+      }
+      m.put("alertCLinear", arr);
+    }
+    if (!r.alertCPoint().isEmpty()) {
+      List<Map<String, Object>> arr = new ArrayList<>(r.alertCPoint().size());
+      for (DatexRecord.AlertCPoint a : r.alertCPoint()) {
+        Map<String, Object> x = new LinkedHashMap<>();
+        put(x, "countryCode", a.countryCode());
+        put(x, "tableNumber", a.tableNumber());
+        put(x, "tableVersion", a.tableVersion());
+        put(x, "directionCoded", a.directionCoded());
+        put(x, "primarySpecificLocation", a.primarySpecificLocation());
+        arr.add(x);
+      }
+      m.put("alertCPoint", arr);
+    }
+    if (!r.globalNetworkLinear().isEmpty()) {
+      List<Map<String, Object>> arr = new ArrayList<>(r.globalNetworkLinear().size());
+      for (DatexRecord.GNLinear g : r.globalNetworkLinear()) {
+        Map<String, Object> x = new LinkedHashMap<>();
+        put(x, "networkVersion", g.networkVersion());
+        put(x, "linearGeometryType", g.linearGeometryType());
+        put(x, "startSjtskX", g.startSjtskX());
+        put(x, "startSjtskY", g.startSjtskY());
+        put(x, "endSjtskX", g.endSjtskX());
+        put(x, "endSjtskY", g.endSjtskY());
+        if (!g.segments().isEmpty()) {
+          List<Map<String, Object>> segs = new ArrayList<>(g.segments().size());
+          for (DatexRecord.GNElement s : g.segments()) {
+            Map<String, Object> e = new LinkedHashMap<>();
+            put(e, "sectionId", s.sectionId());
+            put(e, "direction", s.direction());
+            put(e, "order", s.order());
+            put(e, "fromPercent", s.fromPercent());
+            put(e, "toPercent", s.toPercent());
+            segs.add(e);
+          }
+          x.put("segments", segs);
+        }
+        arr.add(x);
+      }
+      m.put("globalNetworkLinear", arr);
+    }
+    if (!r.linearWithinLinearElement().isEmpty()) {
+      List<Map<String, Object>> arr = new ArrayList<>(r.linearWithinLinearElement().size());
+      for (DatexRecord.LinearWithin l : r.linearWithinLinearElement()) {
+        Map<String, Object> x = new LinkedHashMap<>();
+        put(x, "roadNumber", l.roadNumber());
+        put(x, "roadName", l.roadName());
+        put(x, "direction", l.direction());
+        put(x, "fromDistanceAlong", l.fromDistanceAlong());
+        put(x, "toDistanceAlong", l.toDistanceAlong());
+        arr.add(x);
+      }
+      m.put("linearWithinLinearElement", arr);
+    }
+    m.put("isClosure", r.isClosure());
+    return m;
+  }
+
+  private static void put(Map<String, Object> m, String k, String v) {
+    if (v != null && !v.isBlank()) m.put(k, v);
+  }
+
+  private LegacyMaps() {}
+}
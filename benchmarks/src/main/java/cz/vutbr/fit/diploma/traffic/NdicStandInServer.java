@@ -0,0 +1,254 @@
+package cz.vutbr.fit.diploma.traffic;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Lokální náhrada NDIC endpointu pro zátěžové testy {@code NDICFetcher}: basic auth, ETag /
+ * Last-Modified + 304, gzip podle {@code Accept-Encoding}, {@code Range}/{@code If-Range} (jeden
+ * rozsah {@code bytes=N-}), zpoždění prvního bajtu a škrcení rychlosti těla. {@code
+ * --drop-percent} přeruší daný podíl odpovědí uprostřed těla (výpadek spojení). Obsah generuje
+ * {@link FeedGenerator}; revize se volitelně posouvá v čase, takže opakované polly vidí realistické
+ * drobné změny.
+ *
+ * <p>Spuštění (pak {@code NDIC_INIT_URL=http://localhost:8089/Resources/Dynamic/CommonTIDatex/}):
+ *
+ * <pre>
+ * java -cp target/benchmarks.jar cz.vutbr.fit.diploma.traffic.NdicStandInServer \
+ *     --situations=30000 --revision-seconds=60 --rate-kbps=4096 --first-byte-ms=500
+ * </pre>
+ */
+public final class NdicStandInServer {
+
+  private static final DateTimeFormatter HTTP_DATE = DateTimeFormatter.RFC_1123_DATE_TIME;
+
+  /** Jedna revize feedu připravená k odeslání. */
+  private record Snapshot(
+      int revision, byte[] xml, byte[] gzip, String etag, String lastModified) {}
+
+  private final FeedGenerator generator;
+  private final int situations;
+  private final String user, pass;
+  private final long revisionMillis;
+  private final long rateBytesPerSec;
+  private final long firstByteMillis;
+  private final boolean validators;
+  private final boolean ranges;
+  private final int dropPercent;
+  private final long startedAt = System.currentTimeMillis();
+
+  private Snapshot current;
+
+  NdicStandInServer(Map<String, String> o) {
+    this.generator = FeedGenerator.fromOptions(o);
+    this.situations = FeedGenerator.situationsFor(o.getOrDefault("situations", "typical"));
+    this.user = o.getOrDefault("user", "");
+    this.pass = o.getOrDefault("pass", "");
+    this.revisionMillis = 1000L * intOpt(o, "revision-seconds", 0);
+    this.rateBytesPerSec = 1024L * intOpt(o, "rate-kbps", 0);
+    this.firstByteMillis = intOpt(o, "first-byte-ms", 0);
+    this.validators = Boolean.parseBoolean(o.getOrDefault("validators", "true"));
+    this.ranges = Boolean.parseBoolean(o.getOrDefault("ranges", "true"));
+    this.dropPercent = intOpt(o, "drop-percent", 0);
+  }
+
+  public static void main(String[] args) throws IOException {
+    Map<String, String> o = parseArgs(args);
+    NdicStandInServer s = new NdicStandInServer(o);
+    int port = intOpt(o, "port", 8089);
+    String path = o.getOrDefault("path", "/Resources/Dynamic/CommonTIDatex/");
+
+    HttpServer http = HttpServer.create(new InetSocketAddress(port), 64);
+    http.createContext(path, s::handle);
+    http.setExecutor(Executors.newCachedThreadPool());
+    http.start();
+    Snapshot snap = s.snapshot();
+    System.out.printf(
+        "NDIC stand-in on http://localhost:%d%s (%d situations, %,d B xml, %,d B gzip)%n",
+        port, path, s.situations, snap.xml().length, snap.gzip().length);
+  }
+
+  private synchronized Snapshot snapshot() {
+    int revision =
+        revisionMillis > 0 ? (int) ((System.currentTimeMillis() - startedAt) / revisionMillis) : 0;
+    if (current == null || current.revision() != revision) {
+      byte[] xml = generator.generate(situations, revision);
+      current =
+          new Snapshot(
+              revision,
+              xml,
+              gzip(xml),
+              "\"" + sha256(xml).substring(0, 32) + "\"",
+              HTTP_DATE.format(FeedGenerator.publicationTime(revision).toZonedDateTime()));
+    }
+    return current;
+  }
+
+  private void handle(HttpExchange ex) throws IOException {
+    try (ex) {
+      if (!user.isEmpty() && !authorized(ex)) {
+        ex.getResponseHeaders().add("WWW-Authenticate", "Basic realm=\"NDIC\"");
+        ex.sendResponseHeaders(401, -1);
+        return;
+      }
+      Snapshot snap = snapshot();
+      sleep(firstByteMillis);
+
+      if (validators) {
+        ex.getResponseHeaders().add("ETag", snap.etag());
+        ex.getResponseHeaders().add("Last-Modified", snap.lastModified());
+        if (notModified(ex, snap)) {
+          ex.sendResponseHeaders(304, -1);
+          return;
+        }
+      }
+
+      String ae = ex.getRequestHeaders().getFirst("Accept-Encoding");
+      boolean gzip = ae != null && ae.toLowerCase().contains("gzip");
+      byte[] body = gzip ? snap.gzip() : snap.xml();
+      ex.getResponseHeaders().add("Content-Type", "application/xml; charset=utf-8");
+      if (gzip) ex.getResponseHeaders().add("Content-Encoding", "gzip");
+      if (ranges) ex.getResponseHeaders().add("Accept-Ranges", "bytes");
+
+      int from = ranges ? rangeStart(ex, snap, body.length) : 0;
+      if (from < 0) {
+        ex.getResponseHeaders().add("Content-Range", "bytes */" + body.length);
+        ex.sendResponseHeaders(416, -1);
+        return;
+      }
+      if (from > 0) {
+        ex.getResponseHeaders()
+            .add("Content-Range", "bytes " + from + "-" + (body.length - 1) + "/" + body.length);
+      }
+      int to = body.length;
+      if (dropPercent > 0 && ThreadLocalRandom.current().nextInt(100) < dropPercent) {
+        to = from + ThreadLocalRandom.current().nextInt(Math.max(1, body.length - from));
+      }
+      ex.sendResponseHeaders(from > 0 ? 206 : 200, body.length - from);
+      // při výpadku se pošle jen část těla; exchange se zavře s chybějícími bajty → spojení padne
+      writeThrottled(ex.getResponseBody(), body, from, to);
+    }
+  }
+
+  /**
+   * Začátek rozsahu z {@code Range: bytes=N-}; 0 = celé tělo (bez Range, jiný tvar rozsahu, nebo
+   * {@code If-Range} nesedí na aktuální revizi), -1 = rozsah mimo tělo.
+   */
+  private static int rangeStart(HttpExchange ex, Snapshot snap, int length) {
+    String range = ex.getRequestHeaders().getFirst("Range");
+    if (range == null || !range.startsWith("bytes=") || !range.endsWith("-")) return 0;
+    String ifRange = ex.getRequestHeaders().getFirst("If-Range");
+    if (ifRange != null && !ifRange.equals(snap.etag()) && !ifRange.equals(snap.lastModified())) {
+      return 0;
+    }
+    try {
+      int from = Integer.parseInt(range.substring(6, range.length() - 1));
+      return from < length ? from : -1;
+    } catch (NumberFormatException e) {
+      return 0;
+    }
+  }
+
+  private boolean authorized(HttpExchange ex) {
+    String h = ex.getRequestHeaders().getFirst("Authorization");
+    String expected =
+        "Basic "
+            + Base64.getEncoder()
+                .encodeToString((user + ":" + pass).getBytes(StandardCharsets.UTF_8));
+    return expected.equals(h);
+  }
+
+  private static boolean notModified(HttpExchange ex, Snapshot snap) {
+    String inm = ex.getRequestHeaders().getFirst("If-None-Match");
+    if (inm != null) return inm.equals(snap.etag());
+    String ims = ex.getRequestHeaders().getFirst("If-Modified-Since");
+    if (ims == null) return false;
+    try {
+      ZonedDateTime since = ZonedDateTime.parse(ims, HTTP_DATE);
+      return !ZonedDateTime.parse(snap.lastModified(), HTTP_DATE).isAfter(since);
+    } catch (RuntimeException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Zapisuje {@code body[from, to)} po 16 KiB a mezi bloky čeká tak, aby průměrná rychlost
+   * odpovídala limitu.
+   */
+  private void writeThrottled(OutputStream out, byte[] body, int from, int to) throws IOException {
+    long start = System.nanoTime();
+    for (int off = from; off < to; ) {
+      int n = Math.min(16 * 1024, to - off);
+      out.write(body, off, n);
+      off += n;
+      if (rateBytesPerSec > 0) {
+        long dueNanos = (off - from) * 1_000_000_000L / rateBytesPerSec;
+        sleep((dueNanos - (System.nanoTime() - start)) / 1_000_000);
+      }
+    }
+    out.flush();
+  }
+
+  // --- util -----------------------------------------------------------------
+
+  static Map<String, String> parseArgs(String[] args) {
+    Map<String, String> o = new HashMap<>();
+    for (String a : args) {
+      if (!a.startsWith("--")) continue;
+      int eq = a.indexOf('=');
+      if (eq < 0) o.put(a.substring(2), "true");
+      else o.put(a.substring(2, eq), a.substring(eq + 1));
+    }
+    return o;
+  }
+
+  static int intOpt(Map<String, String> o, String key, int def) {
+    String v = o.get(key);
+    return v == null ? def : Integer.parseInt(v);
+  }
+
+  static byte[] gzip(byte[] data) {
+    try {
+      ByteArrayOutputStream bos = new ByteArrayOutputStream(data.length / 8);
+      try (GZIPOutputStream gz = new GZIPOutputStream(bos, 64 * 1024)) {
+        gz.write(data);
+      }
+      return bos.toByteArray();
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static String sha256(byte[] data) {
+    try {
+      return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static void sleep(long millis) {
+    if (millis <= 0) return;
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,99 @@
+package cz.vutbr.fit.diploma.traffic;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Propustnost {@link DatexParser#parse} nad vygenerovaným feedem. Kromě ops/s hlásí i {@code
+ * bytes} (B/s) a {@code records} (záznamů/s) přes aux countery.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParseBenchmark {
+
+  @Param({"small", "typical", "large"})
+  String size;
+
+  byte[] doc;
+
+  static final int CHUNK = 256 * 1024;
+
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  @State(Scope.Thread)
+  public static class Counters {
+    public long bytes;
+    public long records;
+  }
+
+  @Setup
+  public void setup() {
+    doc = new FeedGenerator(42).generate(FeedGenerator.situationsFor(size));
+  }
+
+  /** Celý feed bez filtru (horní mez práce parseru). */
+  @Benchmark
+  public DatexParser.Summary parseAll(Counters c, Blackhole bh) {
+    DatexParser.Summary s =
+        DatexParser.parse(new ByteArrayInputStream(doc), DatexParser.RecordFilter.ALL, bh::consume);
+    c.bytes += doc.length;
+    c.records += s.records();
+    return s;
+  }
+
+  /** Produkční cesta: filtr uzavírek přímo v parseru. */
+  @Benchmark
+  public DatexParser.Summary parseClosures(Counters c, Blackhole bh) {
+    DatexParser.Summary s =
+        DatexParser.parse(new ByteArrayInputStream(doc), DatexUtil.CLOSURES, bh::consume);
+    c.bytes += doc.length;
+    c.records += s.records() + s.dropped();
+    return s;
+  }
+
+  /** Neblokující cesta ({@code ndic.parse.mode=async}): Aalto po 64 KiB kusech, filtr uzavírek. */
+  @Benchmark
+  public DatexParser.Summary parseClosuresIncremental(Counters c, Blackhole bh) {
+    DatexParser.Incremental p = DatexParser.incremental(DatexUtil.CLOSURES, bh::consume);
+    for (int off = 0; off < doc.length; off += 64 * 1024) {
+      p.feed(doc, off, Math.min(64 * 1024, doc.length - off));
+    }
+    DatexParser.Summary s = p.finish();
+    c.bytes += doc.length;
+    c.records += s.records() + s.dropped();
+    return s;
+  }
+
+  /** {@code ndic.parse.mode=parallel}: bloky situací na common poolu, v pořadí dokumentu. */
+  @Benchmark
+  public DatexParser.Summary parseClosuresParallel(Counters c, Blackhole bh) {
+    DatexParser.Summary s =
+        ParallelDatexParser.parse(
+            new ByteArrayInputStream(doc),
+            DatexUtil.CLOSURES,
+            bh::consume,
+            ForkJoinPool.commonPool(),
+            true,
+            CHUNK);
+    c.bytes += doc.length;
+    c.records += s.records() + s.dropped();
+    return s;
+  }
+}
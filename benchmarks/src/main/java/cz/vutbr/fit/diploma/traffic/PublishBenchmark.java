@@ -0,0 +1,74 @@
+package cz.vutbr.fit.diploma.traffic;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link PublishPipeline} proti lokální náhradě brokeru, která potvrzuje každou zprávu po {@code
+ * ackMicros}. {@code window=1} odpovídá původnímu {@code send().await()} po jednom záznamu.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PublishBenchmark {
+
+  static final int N = 2000;
+
+  @Param({"1", "64", "256"})
+  int window;
+
+  @Param({"500"})
+  long ackMicros;
+
+  ScheduledExecutorService broker;
+  final byte[] payload = "x".repeat(1500).getBytes(StandardCharsets.UTF_8);
+
+  @Setup
+  public void setup() {
+    broker = Executors.newScheduledThreadPool(4);
+  }
+
+  @TearDown
+  public void tearDown() {
+    broker.shutdownNow();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(N)
+  public int publish() throws IOException {
+    PublishPipeline p =
+        new PublishPipeline(
+            (key, value) -> {
+              CompletableFuture<Void> ack = new CompletableFuture<>();
+              broker.schedule(() -> ack.complete(null), ackMicros, TimeUnit.MICROSECONDS);
+              return ack;
+            },
+            window,
+            500,
+            Duration.ofMinutes(1));
+    for (int i = 0; i < N; i++) p.submit("R" + i, payload);
+    p.awaitAll();
+    return p.submitted();
+  }
+}
@@ -0,0 +1,123 @@
+package cz.vutbr.fit.diploma.traffic;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Serializace záznamu: typovaný model + ručně psaný serializer ({@link DatexJson}) přes {@code
+ * ObjectMapper} proti původní cestě přes LinkedHashMap + reflexivní Jackson a proti {@link
+ * PayloadWriter} (znovupoužitý generátor a buffer) v JSON, CBOR a Smile. {@code @Setup} vypíše
+ * průměrnou velikost zprávy bez komprese a s gzipem celé dávky (≈ komprese produceru); shodu
+ * výstupu PayloadWriter s ObjectMapper hlídá {@code PayloadWriterTest} v hlavním modulu.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializeBenchmark {
+
+  static final int N = 1024;
+  static final String FETCHED_AT = "2026-01-01T00:05:00Z";
+  static final String PUBLISHED_AT = "2026-01-01T00:00+01:00";
+
+  final ObjectMapper mapper = new ObjectMapper();
+  final PayloadWriter json = new PayloadWriter(PayloadCodec.JSON);
+  final PayloadWriter cbor = new PayloadWriter(PayloadCodec.CBOR);
+  final PayloadWriter smile = new PayloadWriter(PayloadCodec.SMILE);
+  DatexRecord[] closures;
+
+  @Setup
+  public void setup() {
+    List<DatexRecord> all = new ArrayList<>();
+    byte[] doc = new FeedGenerator(7).generate(FeedGenerator.situationsFor("typical"));
+    DatexParser.parse(new ByteArrayInputStream(doc), DatexUtil.CLOSURES, all::add);
+    closures = new DatexRecord[N];
+    for (int i = 0; i < N; i++) closures[i] = all.get(i % all.size());
+
+    System.out.printf(
+        "%nB/record (raw / gzip batch): json %s, cbor %s, smile %s%n",
+        size(json, all), size(cbor, all), size(smile, all));
+  }
+
+  /** ObjectMapper: writer a serializer provider na každou zprávu. */
+  @Benchmark
+  @OperationsPerInvocation(N)
+  public void typed(Blackhole bh) throws JsonProcessingException {
+    for (DatexRecord r : closures) bh.consume(mapper.writeValueAsBytes(envelope(r)));
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(N)
+  public void pooled(Blackhole bh) throws IOException {
+    for (DatexRecord r : closures) bh.consume(json.write(envelope(r)));
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(N)
+  public void cbor(Blackhole bh) throws IOException {
+    for (DatexRecord r : closures) bh.consume(cbor.write(envelope(r)));
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(N)
+  public void smile(Blackhole bh) throws IOException {
+    for (DatexRecord r : closures) bh.consume(smile.write(envelope(r)));
+  }
+
+  /** Původní cesta: mapa z parseru, doplnění obálky a reflexivní serializace mapy. */
+  @Benchmark
+  @OperationsPerInvocation(N)
+  public void mapPath(Blackhole bh) throws JsonProcessingException {
+    for (DatexRecord r : closures) {
+      Map<String, Object> it = LegacyMaps.toMap(r);
+      it.put("_source", "ndic");
+      it.put("_dataset", "roadworks");
+      it.put("_fetchedAt", FETCHED_AT);
+      it.put("publicationTime", PUBLISHED_AT);
+      bh.consume(mapper.writeValueAsString(it));
+    }
+  }
+
+  static DatexJson.Envelope envelope(DatexRecord r) {
+    return new DatexJson.Envelope(r, "ndic", "roadworks", FETCHED_AT, PUBLISHED_AT);
+  }
+
+  /** Průměr na záznam: samotná zpráva a podíl na gzipem zkomprimované dávce všech zpráv. */
+  static String size(PayloadWriter w, List<DatexRecord> records) {
+    ByteArrayOutputStream gz = new ByteArrayOutputStream();
+    long raw = 0;
+    try (GZIPOutputStream out = new GZIPOutputStream(gz)) {
+      for (DatexRecord r : records) {
+        byte[] b = w.write(envelope(r));
+        raw += b.length;
+        out.write(b);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return raw / records.size() + " / " + gz.size() / records.size();
+  }
+}
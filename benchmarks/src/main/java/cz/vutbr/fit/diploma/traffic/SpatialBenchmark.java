@@ -0,0 +1,92 @@
+package cz.vutbr.fit.diploma.traffic;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Prostorový index uzavírek ({@link SpatialIndex}): výřezy mapy po celé ČR (~20 × 15 km), k
+ * nejbližších a okolí bodu, a stavba indexu. Shodu stromu s průchodem všech záznamů hlídá {@code
+ * SpatialIndexTest} v hlavním modulu.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SpatialBenchmark {
+
+  static final int N = 1024;
+  static final double MIN_LON = 12.1, MAX_LON = 18.9, MIN_LAT = 48.55, MAX_LAT = 51.06;
+
+  @Param({"typical", "large"})
+  String size;
+
+  List<DatexRecord> closures;
+  SpatialIndex index;
+  double[] boxes = new double[4 * N], points = new double[2 * N];
+
+  @Setup
+  public void setup() {
+    closures = new ArrayList<>();
+    byte[] doc = new FeedGenerator(7).generate(FeedGenerator.situationsFor(size));
+    DatexParser.parse(new ByteArrayInputStream(doc), ClosureState::isActiveClosure, closures::add);
+    index = SpatialIndex.build(closures);
+    if (index.size() == 0) throw new IllegalStateException("No closures with coordinates");
+
+    SplittableRandom rnd = new SplittableRandom(42);
+    for (int i = 0; i < N; i++) {
+      double lon = MIN_LON + rnd.nextDouble() * (MAX_LON - MIN_LON);
+      double lat = MIN_LAT + rnd.nextDouble() * (MAX_LAT - MIN_LAT);
+      boxes[4 * i] = lon;
+      boxes[4 * i + 1] = lat;
+      boxes[4 * i + 2] = lon + 0.28;
+      boxes[4 * i + 3] = lat + 0.135;
+      points[2 * i] = lat;
+      points[2 * i + 1] = lon;
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(N)
+  public void bbox(Blackhole bh) {
+    for (int i = 0; i < 4 * N; i += 4) {
+      bh.consume(index.bbox(boxes[i], boxes[i + 1], boxes[i + 2], boxes[i + 3]));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(N)
+  public void nearest10(Blackhole bh) {
+    for (int i = 0; i < 2 * N; i += 2) bh.consume(index.nearest(points[i], points[i + 1], 10));
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(N)
+  public void within5km(Blackhole bh) {
+    for (int i = 0; i < 2 * N; i += 2) bh.consume(index.within(points[i], points[i + 1], 5000));
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  public SpatialIndex build() {
+    return SpatialIndex.build(closures);
+  }
+}
@@ -0,0 +1,110 @@
+package cz.vutbr.fit.diploma.traffic;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Časový index uzavírek ({@link ClosureTimeline}): "aktivní v čase T" proti průchodu všech záznamů,
+ * hledání další hranice a stavba indexu. Časy ve vygenerovaném feedu se přepíšou na náhodné
+ * intervaly (hodiny až týdny) během roku 2026. Shodu indexu s průchodem hlídá {@code
+ * ClosureTimelineTest} v hlavním modulu.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TimelineBenchmark {
+
+  static final int N = 256;
+  static final long YEAR_START = Instant.parse("2026-01-01T00:00:00Z").toEpochMilli();
+  static final long YEAR = 365L * 24 * 3600 * 1000;
+
+  private static final Pattern VALIDITY =
+      Pattern.compile("<overallStartTime>[^<]*</overallStartTime><overallEndTime>[^<]*<");
+
+  List<DatexRecord> closures;
+  ClosureTimeline timeline;
+  long[] times = new long[N];
+
+  @Setup
+  public void setup() {
+    SplittableRandom rnd = new SplittableRandom(42);
+    String doc =
+        new String(
+            new FeedGenerator(7).generate(FeedGenerator.situationsFor("typical")),
+            StandardCharsets.UTF_8);
+    Matcher m = VALIDITY.matcher(doc);
+    StringBuilder sb = new StringBuilder(doc.length());
+    while (m.find()) {
+      long start = YEAR_START + rnd.nextLong(YEAR);
+      long end = start + 3_600_000L * (1 + rnd.nextInt(24 * 21));
+      String validity = "<overallStartTime>" + iso(start) + "</overallStartTime>";
+      m.appendReplacement(sb, validity + "<overallEndTime>" + iso(end) + "<");
+    }
+    m.appendTail(sb);
+
+    closures = new ArrayList<>();
+    DatexParser.parse(
+        new ByteArrayInputStream(sb.toString().getBytes(StandardCharsets.UTF_8)),
+        ClosureState::isActiveClosure,
+        closures::add);
+    timeline = ClosureTimeline.build(closures);
+    for (int i = 0; i < N; i++) times[i] = YEAR_START + rnd.nextLong(YEAR);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(N)
+  public void activeAt(Blackhole bh) {
+    for (long t : times) bh.consume(timeline.activeAt(t));
+  }
+
+  /** Totéž průchodem všech záznamů s parsováním časů (bez indexu). */
+  @Benchmark
+  @OperationsPerInvocation(N)
+  public void activeAtScan(Blackhole bh) {
+    for (long t : times) {
+      int n = 0;
+      for (DatexRecord r : closures) if (ClosureTimeline.isActive(r, t)) n++;
+      bh.consume(n);
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(N)
+  public void nextBoundary(Blackhole bh) {
+    for (long t : times) bh.consume(timeline.nextBoundary(t));
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  public ClosureTimeline build() {
+    return ClosureTimeline.build(closures);
+  }
+
+  static String iso(long t) {
+    return Instant.ofEpochMilli(t).atOffset(ZoneOffset.ofHours(1)).toString();
+  }
+}
@@ -0,0 +1,363 @@
+package cz.vutbr.fit.diploma.traffic;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Neměnný index lokalizační tabulky Alert-C mimo heap. Klíč (country code, číslo tabulky, verze,
+ * kód lokace) je zabalený do jednoho {@code long} a klíče leží seřazené v přímém bufferu, lookup je
+ * binární hledání bez alokace. Ke každému klíči patří pět {@code int} (lat/lon v mikrostupních,
+ * offsety názvů a silnice) a řetězce jsou v UTF-8 v jednom sdíleném poolu (duplicitní názvy jen
+ * jednou). Na heapu zůstávají jen lokace, které se opravdu použily ({@link #decoded}).
+ *
+ * <p>Vstup je tabulka ve formátu LTEF ({@code LOCATIONS.DAT}, volitelně {@code NAMES.DAT} a {@code
+ * LOCATIONDATASETS.DAT}) jako ZIP, adresář nebo samostatný soubor, případně plochý CSV se sloupci
+ * {@code LCD;TABCD;FIRSTNAME;SECONDNAME;ROADNUMBER;LAT;LON}. Sloupce se hledají podle hlavičky,
+ * oddělovač je {@code ;} nebo {@code ,}.
+ */
+final class AlertCIndex {
+
+  /** Verze tabulky neznámá (není v souboru ani v konfiguraci) → platí pro libovolnou verzi. */
+  static final int ANY_VERSION = 0xFFFF;
+
+  private static final int INTS = 5; // lat, lon, name, secondName, road
+  private static final int NO_COORD = Integer.MIN_VALUE;
+
+  private final LongBuffer keys;
+  private final IntBuffer values;
+  private final ByteBuffer strings;
+  private final long[] tables; // seřazené (cc, tabulka, verze) = klíč >>> 16
+  private final DatexRecord.AlertCLocation[] decoded;
+  private final long offHeapBytes;
+
+  private AlertCIndex(long[] keys, int[] values, byte[] strings, long[] tables) {
+    this.keys = direct(keys.length * 8L).asLongBuffer().put(keys).flip();
+    this.values = direct(values.length * 4L).asIntBuffer().put(values).flip();
+    this.strings = ByteBuffer.allocateDirect(Math.max(1, strings.length)).put(strings).flip();
+    this.tables = tables;
+    this.decoded = new DatexRecord.AlertCLocation[keys.length];
+    this.offHeapBytes = keys.length * 8L + values.length * 4L + strings.length;
+  }
+
+  int size() {
+    return keys.limit();
+  }
+
+  long offHeapBytes() {
+    return offHeapBytes;
+  }
+
+  /** Lokace podle hodnot z DATEX II (např. {@code "2"}, {@code "25"}, {@code "8.0"}) nebo null. */
+  DatexRecord.AlertCLocation find(
+      String countryCode, String tableNumber, String tableVersion, String locationCode) {
+    int cc = parse(countryCode, 16);
+    int table = parse(tableNumber, 10);
+    int lcd = parse(locationCode, 10);
+    if (cc < 0 || table < 0 || lcd < 0) return null;
+    int version = version(tableVersion);
+    int i = version < 0 ? -1 : indexOf(key(cc, table, version, lcd));
+    if (i < 0) i = indexOf(key(cc, table, ANY_VERSION, lcd));
+    return i < 0 ? null : decode(i);
+  }
+
+  /** Je tabulka (i s verzí) v indexu? Slouží k upozornění na novou verzi, kterou ještě nemáme. */
+  boolean hasTable(String countryCode, String tableNumber, String tableVersion) {
+    int cc = parse(countryCode, 16);
+    int table = parse(tableNumber, 10);
+    int version = version(tableVersion);
+    if (cc < 0 || table < 0) return false;
+    return (version >= 0 && Arrays.binarySearch(tables, key(cc, table, version, 0) >>> 16) >= 0)
+        || Arrays.binarySearch(tables, key(cc, table, ANY_VERSION, 0) >>> 16) >= 0;
+  }
+
+  private int indexOf(long key) {
+    int lo = 0, hi = keys.limit() - 1;
+    while (lo <= hi) {
+      int mid = (lo + hi) >>> 1;
+      long k = keys.get(mid);
+      if (k < key) lo = mid + 1;
+      else if (k > key) hi = mid - 1;
+      else return mid;
+    }
+    return -1;
+  }
+
+  private DatexRecord.AlertCLocation decode(int i) {
+    DatexRecord.AlertCLocation l = decoded[i];
+    if (l != null) return l; // souběžný zápis nevadí, záznam je neměnný
+    int base = i * INTS;
+    int lat = values.get(base), lon = values.get(base + 1);
+    l =
+        new DatexRecord.AlertCLocation(
+            string(values.get(base + 2)),
+            string(values.get(base + 3)),
+            string(values.get(base + 4)),
+            lat == NO_COORD ? Double.NaN : lat / 1e6,
+            lon == NO_COORD ? Double.NaN : lon / 1e6);
+    decoded[i] = l;
+    return l;
+  }
+
+  private String string(int offset) {
+    if (offset < 0) return null;
+    int len = strings.getShort(offset) & 0xFFFF;
+    byte[] b = new byte[len];
+    strings.get(offset + 2, b);
+    return new String(b, StandardCharsets.UTF_8);
+  }
+
+  // --- klíč -------------------------------------------------------------------
+
+  static long key(int cc, int table, int version, int lcd) {
+    return ((long) cc << 48) | ((long) table << 32) | ((long) version << 16) | lcd;
+  }
+
+  /** Verze tabulky {@code major.minor} → {@code major * 100 + minor}; -1 = nečitelná. */
+  static int version(String v) {
+    if (v == null || v.isEmpty()) return -1;
+    int dot = v.indexOf('.');
+    int major = parse(dot < 0 ? v : v.substring(0, dot), 10);
+    int minor = dot < 0 ? 0 : parse(v.substring(dot + 1), 10);
+    if (major < 0 || minor < 0 || minor > 99 || major > 600) return -1;
+    return major * 100 + minor;
+  }
+
+  /** Nezáporné číslo do 0xFFFF bez alokace; -1 = prázdné, nečíselné nebo mimo rozsah. */
+  private static int parse(String s, int radix) {
+    if (s == null || s.isEmpty() || s.length() > 6) return -1;
+    int v = 0;
+    for (int i = 0; i < s.length(); i++) {
+      int d = Character.digit(s.charAt(i), radix);
+      if (d < 0) return -1;
+      v = v * radix + d;
+    }
+    return v > 0xFFFF ? -1 : v;
+  }
+
+  private static ByteBuffer direct(long bytes) {
+    return ByteBuffer.allocateDirect((int) Math.max(1, bytes)).order(ByteOrder.nativeOrder());
+  }
+
+  // --- načtení ----------------------------------------------------------------
+
+  /**
+   * Načte tabulku ze ZIPu, adresáře nebo souboru. {@code countryCode} a {@code tableVersion} se
+   * použijí, když je tabulka sama neobsahuje (LTEF má jen interní CID, ne DATEX country code).
+   */
+  static AlertCIndex load(Path path, Charset charset, String countryCode, String tableVersion)
+      throws IOException {
+    Map<String, String> files = new LinkedHashMap<>();
+    String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+    if (Files.isDirectory(path)) {
+      try (Stream<Path> s = Files.list(path)) {
+        for (Path p : s.sorted().toList()) {
+          if (isTable(p.getFileName().toString())) {
+            files.put(p.getFileName().toString(), Files.readString(p, charset));
+          }
+        }
+      }
+    } else if (name.endsWith(".zip")) {
+      try (ZipInputStream zip = new ZipInputStream(Files.newInputStream(path))) {
+        for (ZipEntry e; (e = zip.getNextEntry()) != null; ) {
+          String entry = Path.of(e.getName()).getFileName().toString();
+          if (!e.isDirectory() && isTable(entry)) {
+            files.put(entry, new String(zip.readAllBytes(), charset));
+          }
+        }
+      }
+    } else {
+      files.put(path.getFileName().toString(), Files.readString(path, charset));
+    }
+    return build(files, countryCode, tableVersion);
+  }
+
+  private static boolean isTable(String file) {
+    String f = file.toLowerCase(Locale.ROOT);
+    return f.endsWith(".dat") || f.endsWith(".csv") || f.endsWith(".txt");
+  }
+
+  private static AlertCIndex build(
+      Map<String, String> files, String defaultCountry, String defaultVersion) throws IOException {
+    String locations = null;
+    Map<String, String> names = new HashMap<>(); // CID:NID → název
+    Map<String, Integer> versions = new HashMap<>(); // CID:TABCD → verze
+    for (Map.Entry<String, String> f : files.entrySet()) {
+      String upper = f.getKey().toUpperCase(Locale.ROOT);
+      if (upper.startsWith("NAMES.")) {
+        for (Map<String, String> row : rows(f.getValue())) {
+          names.putIfAbsent(row.get("CID") + ":" + row.get("NID"), row.get("NAME"));
+        }
+      } else if (upper.startsWith("LOCATIONDATASETS.")) {
+        for (Map<String, String> row : rows(f.getValue())) {
+          int v = version(row.get("VERSION"));
+          if (v >= 0) versions.put(row.get("CID") + ":" + parse(row.get("TABCD"), 10), v);
+        }
+      } else if (upper.startsWith("LOCATIONS.") || files.size() == 1) {
+        locations = f.getValue();
+      }
+    }
+    if (locations == null) throw new IOException("LOCATIONS table not found");
+
+    int defaultCc = parse(defaultCountry, 16);
+    int fallbackVersion = defaultVersion == null ? ANY_VERSION : version(defaultVersion);
+    if (defaultCc < 0) throw new IOException("Invalid Alert-C country code " + defaultCountry);
+    if (fallbackVersion < 0) throw new IOException("Invalid table version " + defaultVersion);
+
+    List<Map<String, String>> rows = rows(locations);
+    long[] keys = new long[rows.size()];
+    int[] values = new int[rows.size() * INTS];
+    Strings pool = new Strings();
+    int n = 0;
+    for (Map<String, String> row : rows) {
+      int lcd = parse(col(row, "LCD", "LOCATIONCODE"), 10);
+      int table = parse(col(row, "TABCD", "TABLENUMBER", "TABLE"), 10);
+      if (lcd < 0 || table < 0) continue;
+      String cid = row.get("CID");
+      String cc = col(row, "CC", "COUNTRYCODE");
+      int version = version(row.get("VERSION"));
+      if (version < 0) version = versions.getOrDefault(cid + ":" + table, fallbackVersion);
+
+      keys[n] = key(cc == null ? defaultCc : parse(cc, 16), table, version, lcd);
+      int base = n * INTS;
+      values[base] = coord(col(row, "LAT", "YCOORD"));
+      values[base + 1] = coord(col(row, "LON", "XCOORD"));
+      values[base + 2] = pool.add(name(row, names, cid, "FIRSTNAME", "NAME1", "N1ID"));
+      values[base + 3] = pool.add(name(row, names, cid, "SECONDNAME", "NAME2", "N2ID"));
+      values[base + 4] = pool.add(col(row, "ROADNUMBER", "ROAD"));
+      n++;
+    }
+    return sorted(keys, values, n, pool.bytes());
+  }
+
+  /** Seřadí klíče (i s hodnotami), duplicitní klíč vyhrává první výskyt. */
+  private static AlertCIndex sorted(long[] keys, int[] values, int n, byte[] strings) {
+    Integer[] order = new Integer[n];
+    for (int i = 0; i < n; i++) order[i] = i;
+    Arrays.sort(order, (a, b) -> Long.compare(keys[a], keys[b]));
+
+    long[] k = new long[n];
+    int[] v = new int[n * INTS];
+    long[] tables = new long[n];
+    int m = 0, t = 0;
+    for (int i = 0; i < n; i++) {
+      int src = order[i];
+      if (m > 0 && k[m - 1] == keys[src]) continue;
+      k[m] = keys[src];
+      System.arraycopy(values, src * INTS, v, m * INTS, INTS);
+      long table = keys[src] >>> 16;
+      if (t == 0 || tables[t - 1] != table) tables[t++] = table;
+      m++;
+    }
+    return new AlertCIndex(
+        Arrays.copyOf(k, m), Arrays.copyOf(v, m * INTS), strings, Arrays.copyOf(tables, t));
+  }
+
+  private static String name(
+      Map<String, String> row, Map<String, String> names, String cid, String... cols) {
+    String direct = col(row, cols[0], cols[1]);
+    if (direct != null) return direct;
+    String id = row.get(cols[2]);
+    return id == null ? null : names.get(cid + ":" + id);
+  }
+
+  /**
+   * Souřadnice v mikrostupních. LTEF zapisuje celé číslo ve stotisícinách stupně se znaménkem
+   * ({@code +01661234}), plochý CSV desetinné stupně.
+   */
+  private static int coord(String s) {
+    if (s == null) return NO_COORD;
+    try {
+      if (s.indexOf('.') >= 0) return (int) Math.round(Double.parseDouble(s) * 1e6);
+      return Math.multiplyExact(Integer.parseInt(s.startsWith("+") ? s.substring(1) : s), 10);
+    } catch (NumberFormatException | ArithmeticException e) {
+      return NO_COORD;
+    }
+  }
+
+  private static String col(Map<String, String> row, String... names) {
+    for (String n : names) {
+      String v = row.get(n);
+      if (v != null) return v;
+    }
+    return null;
+  }
+
+  /** Řádky tabulky jako mapy podle hlavičky (velká písmena); prázdné hodnoty vynechané. */
+  private static List<Map<String, String>> rows(String text) throws IOException {
+    List<Map<String, String>> out = new ArrayList<>();
+    try (BufferedReader r = new BufferedReader(new StringReader(text))) {
+      String header = r.readLine();
+      if (header == null) return out;
+      if (header.startsWith("\uFEFF")) header = header.substring(1);
+      String sep = header.indexOf(';') >= 0 ? ";" : ",";
+      String[] cols = header.split(sep, -1);
+      for (int i = 0; i < cols.length; i++) cols[i] = unquote(cols[i]).toUpperCase(Locale.ROOT);
+
+      for (String line; (line = r.readLine()) != null; ) {
+        if (line.isBlank()) continue;
+        String[] cells = line.split(sep, -1);
+        Map<String, String> row = new HashMap<>(cols.length * 2);
+        for (int i = 0; i < Math.min(cols.length, cells.length); i++) {
+          String v = unquote(cells[i]);
+          if (!v.isEmpty()) row.put(cols[i], v);
+        }
+        out.add(row);
+      }
+    }
+    return out;
+  }
+
+  private static String unquote(String s) {
+    s = s.trim();
+    if (s.length() >= 2 && s.startsWith("\"") && s.endsWith("\"")) {
+      s = s.substring(1, s.length() - 1).trim();
+    }
+    return s;
+  }
+
+  /** Pool řetězců {@code [u16 délka][UTF-8]}; stejný řetězec se uloží jen jednou. */
+  private static final class Strings {
+    private final Map<String, Integer> offsets = new HashMap<>();
+    private byte[] buf = new byte[64 * 1024];
+    private int size;
+
+    int add(String s) {
+      if (s == null) return -1;
+      Integer known = offsets.get(s);
+      if (known != null) return known;
+      byte[] b = s.getBytes(StandardCharsets.UTF_8);
+      int len = Math.min(b.length, 0xFFFF);
+      if (size + 2 + len > buf.length) buf = Arrays.copyOf(buf, (size + 2 + len) * 2);
+      int off = size;
+      buf[size++] = (byte) (len >>> 8);
+      buf[size++] = (byte) len;
+      System.arraycopy(b, 0, buf, size, len);
+      size += len;
+      offsets.put(s, off);
+      return off;
+    }
+
+    byte[] bytes() {
+      return Arrays.copyOf(buf, size);
+    }
+  }
+}
@@ -0,0 +1,143 @@
+package cz.vutbr.fit.diploma.traffic;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+/**
+ * Volitelné doplnění Alert-C lokalizací z lokalizační tabulky ({@code ndic.alertc.table}): k {@code
+ * alertCLinear} / {@code alertCPoint} přidá název, silnici a souřadnice bodu. Bez tabulky záznamy
+ * projdou beze změny.
+ *
+ * <p>Tabulka se drží jako {@link AlertCIndex} mimo heap a při změně souborů (nová verze tabulky) se
+ * na začátku běhu feedu načte znovu a atomicky vymění; rozpracovaný běh dojede se starou. Pokud
+ * záznamy odkazují na verzi tabulky, která v indexu není, zaloguje se to jednou pro každou verzi.
+ */
+@ApplicationScoped
+public class AlertCLocations {
+
+  private static final Logger LOG = Logger.getLogger(AlertCLocations.class);
+
+  /** ZIP / adresář / soubor s tabulkou (LTEF nebo plochý CSV); prázdné = doplňování vypnuté. */
+  @ConfigProperty(name = "ndic.alertc.table")
+  Optional<String> table;
+
+  @ConfigProperty(name = "ndic.alertc.charset", defaultValue = "UTF-8")
+  String charset;
+
+  /** DATEX country code tabulky (LTEF obsahuje jen interní CID). */
+  @ConfigProperty(name = "ndic.alertc.country-code", defaultValue = "2")
+  String countryCode;
+
+  /** Verze, pokud ji tabulka neuvádí (bez ní platí pro každou verzi z feedu). */
+  @ConfigProperty(name = "ndic.alertc.table-version")
+  Optional<String> tableVersion;
+
+  private volatile AlertCIndex index;
+  private long stamp = Long.MIN_VALUE;
+  private final Set<String> reportedVersions = ConcurrentHashMap.newKeySet();
+
+  /** Načte tabulku, pokud se od minula změnila; volá se na začátku běhu feedu. */
+  synchronized void refresh() {
+    if (table.isEmpty()) return;
+    Path path = Path.of(table.get());
+    try {
+      long current = stamp(path);
+      if (current == stamp) return;
+      long start = System.nanoTime();
+      AlertCIndex loaded =
+          AlertCIndex.load(path, Charset.forName(charset), countryCode, tableVersion.orElse(null));
+      index = loaded;
+      stamp = current;
+      reportedVersions.clear();
+      LOG.infof(
+          "Alert-C location table %s loaded: %d locations, %d KiB off-heap, %d ms",
+          path,
+          loaded.size(),
+          loaded.offHeapBytes() / 1024,
+          (System.nanoTime() - start) / 1_000_000);
+    } catch (IOException | RuntimeException e) {
+      LOG.warnf(
+          e,
+          "Failed to load Alert-C location table %s%s",
+          path,
+          index == null ? "" : ", keeping the previous one");
+    }
+  }
+
+  /** Záznam s doplněnými lokalizacemi (nebo tentýž záznam, když není co doplnit). */
+  DatexRecord enrich(DatexRecord r) {
+    AlertCIndex idx = index;
+    if (idx == null || (r.alertCLinear().isEmpty() && r.alertCPoint().isEmpty())) return r;
+
+    DatexRecord.AlertCLinear[] linear = new DatexRecord.AlertCLinear[r.alertCLinear().size()];
+    for (int i = 0; i < linear.length; i++) {
+      DatexRecord.AlertCLinear a = r.alertCLinear().get(i);
+      if (!known(idx, a.countryCode(), a.tableNumber(), a.tableVersion())) {
+        linear[i] = a;
+        continue;
+      }
+      String cc = a.countryCode(), tn = a.tableNumber(), tv = a.tableVersion();
+      linear[i] =
+          a.withLocations(
+              idx.find(cc, tn, tv, a.primarySpecificLocation()),
+              idx.find(cc, tn, tv, a.secondarySpecificLocation()));
+    }
+    DatexRecord.AlertCPoint[] point = new DatexRecord.AlertCPoint[r.alertCPoint().size()];
+    for (int i = 0; i < point.length; i++) {
+      DatexRecord.AlertCPoint a = r.alertCPoint().get(i);
+      point[i] =
+          known(idx, a.countryCode(), a.tableNumber(), a.tableVersion())
+              ? a.withLocation(
+                  idx.find(
+                      a.countryCode(),
+                      a.tableNumber(),
+                      a.tableVersion(),
+                      a.primarySpecificLocation()))
+              : a;
+    }
+    return r.withLocations(List.of(linear), List.of(point), r.globalNetworkLinear());
+  }
+
+  private boolean known(AlertCIndex idx, String cc, String table, String version) {
+    if (idx.hasTable(cc, table, version)) return true;
+    if (reportedVersions.add(cc + "/" + table + "/" + version)) {
+      LOG.warnf(
+          "Alert-C location table %s/%s version %s is not loaded, locations left unresolved",
+          cc, table, version);
+    }
+    return false;
+  }
+
+  /** Otisk souborů tabulky (čas změny + velikost); změna = načíst znovu. */
+  private static long stamp(Path path) throws IOException {
+    if (!Files.isDirectory(path)) {
+      return Files.getLastModifiedTime(path).toMillis() * 31 + Files.size(path);
+    }
+    long h = 17;
+    try (Stream<Path> s = Files.list(path)) {
+      for (Path p : s.sorted().toList()) {
+        h = h * 31 + p.getFileName().hashCode();
+        h = h * 31 + Files.getLastModifiedTime(p).toMillis();
+        h = h * 31 + Files.size(p);
+      }
+    }
+    return h;
+  }
+
+  /** Pro benchmark / ruční načtení mimo CDI. */
+  static AlertCLocations of(AlertCIndex index) {
+    AlertCLocations l = new AlertCLocations();
+    l.index = index;
+    return l;
+  }
+}
@@ -0,0 +1,231 @@
+package cz.vutbr.fit.diploma.traffic;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import org.jboss.logging.Logger;
+
+/**
+ * Rozpracované stažení jednoho feedu: surové tělo (jak přišlo po síti, gzip se nerozbaluje) se
+ * během parsování průběžně připisuje do souboru. Když se spojení uprostřed přenosu přeruší, zůstane
+ * ve spoolu vše přijaté a další pokus si o zbytek řekne přes {@code Range: bytes=<délka>-} s {@code
+ * If-Range} (ETag, jinak Last-Modified). Na {@code 206} se parse spustí znovu od začátku – nejdřív
+ * ze spoolu na disku, pak ze zbytku ze sítě – takže znovu po síti jde jen to, co chybělo.
+ *
+ * <p>Spool se drží jen pro obsah se silným validátorem (slabý ETag If-Range nepřipouští). Stav je
+ * jen v paměti, soubor z minulého procesu se při startu smaže. Volat z jednoho vlákna naráz (běh
+ * feedu je jen jeden).
+ */
+final class BodySpool {
+
+  private static final Logger LOG = Logger.getLogger(BodySpool.class);
+
+  private final String feed;
+  private final Path path;
+
+  private FileChannel out; // null = nespooluje se
+  private String url = "";
+  private String validator = "";
+  private String encoding = "";
+  private long length;
+  private boolean interrupted;
+
+  BodySpool(String feed, Path path) {
+    this.feed = feed;
+    this.path = path;
+    try {
+      Files.deleteIfExists(path);
+    } catch (IOException e) {
+      LOG.warnf(e, "[%s] Failed to delete stale download spool %s", feed, path);
+    }
+  }
+
+  /** Je z čeho navázat: spool má bajty a validátor, ke kterému patří. */
+  boolean resumable() {
+    return length > 0 && !validator.isBlank();
+  }
+
+  long length() {
+    return length;
+  }
+
+  /** URL, ke kterému spool patří ({@code ""} = prázdný). */
+  String url() {
+    return url;
+  }
+
+  String validator() {
+    return validator;
+  }
+
+  String encoding() {
+    return encoding;
+  }
+
+  /** Přenos těla v aktuálním pokusu selhal na síti (ne v parseru ani v publikaci). */
+  boolean interrupted() {
+    return interrupted;
+  }
+
+  /**
+   * 200 OK: celé tělo znovu od začátku. Se silným validátorem odpovědi (ETag, jinak Last-Modified)
+   * se spooluje, bez něj se jen hlídá přerušení přenosu.
+   */
+  InputStream start(HttpResponse<InputStream> resp, String encoding) {
+    clear();
+    String etag = header(resp, "etag");
+    String v = strong(etag) ? etag : header(resp, "last-modified");
+    if (!v.isBlank()) {
+      try {
+        if (path.getParent() != null) Files.createDirectories(path.getParent());
+        out =
+            FileChannel.open(
+                path,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        url = resp.request().uri().toString();
+        validator = v;
+        this.encoding = encoding;
+      } catch (IOException e) {
+        LOG.warnf(e, "[%s] Download spool unavailable in %s, transfer not resumable", feed, path);
+        clear();
+      }
+    }
+    return tee(resp.body());
+  }
+
+  /**
+   * Odpověď {@code 206} navazuje přesně na konec spoolu ({@code Content-Range: bytes <délka>-…}) se
+   * stejným kódováním; jinak se spool zahodí a je třeba celé tělo.
+   */
+  boolean continues(HttpResponse<?> resp) {
+    String range = header(resp, "content-range");
+    String ce = header(resp, "content-encoding");
+    boolean ok =
+        resumable()
+            && range.startsWith("bytes " + length + "-")
+            && (ce.isEmpty() || ce.equalsIgnoreCase(encoding));
+    if (!ok) {
+      LOG.infof(
+          "[%s] Partial response does not continue the spool (%d B, Content-Range '%s') — discarded",
+          feed, length, range);
+      clear();
+    }
+    return ok;
+  }
+
+  /** {@code 206}: tělo = dosud stažené bajty ze spoolu + zbytek ze sítě (ten se dál připisuje). */
+  InputStream resume(InputStream rest) throws IOException {
+    long spooled = length;
+    out = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    out.position(spooled);
+    interrupted = false;
+    InputStream head =
+        new FilterInputStream(Channels.newInputStream(FileChannel.open(path))) {
+          private long remaining = spooled;
+
+          @Override
+          public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) return -1;
+            int n = super.read(b, off, (int) Math.min(len, remaining));
+            if (n > 0) remaining -= n;
+            return n;
+          }
+
+          @Override
+          public int read() throws IOException {
+            if (remaining <= 0) return -1;
+            int c = super.read();
+            if (c >= 0) remaining--;
+            return c;
+          }
+        };
+    return new SequenceInputStream(head, tee(rest));
+  }
+
+  /** Stažení skončilo (úspěšně, nebo tak, že navazovat nemá smysl). */
+  void clear() {
+    closeOut();
+    url = "";
+    validator = "";
+    encoding = "";
+    length = 0;
+    interrupted = false;
+    try {
+      Files.deleteIfExists(path);
+    } catch (IOException e) {
+      LOG.warnf(e, "[%s] Failed to delete download spool %s", feed, path);
+    }
+  }
+
+  private InputStream tee(InputStream net) {
+    interrupted = false;
+    return new FilterInputStream(net) {
+      @Override
+      public int read(byte[] b, int off, int len) throws IOException {
+        int n;
+        try {
+          n = super.read(b, off, len);
+        } catch (IOException e) {
+          interrupted = true;
+          closeOut();
+          throw e;
+        }
+        if (n > 0) append(b, off, n);
+        return n;
+      }
+
+      @Override
+      public int read() throws IOException {
+        byte[] one = new byte[1];
+        return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+      }
+
+      @Override
+      public void close() throws IOException {
+        closeOut();
+        super.close();
+      }
+    };
+  }
+
+  private void append(byte[] b, int off, int len) {
+    if (out == null) return;
+    try {
+      ByteBuffer buf = ByteBuffer.wrap(b, off, len);
+      while (buf.hasRemaining()) out.write(buf);
+      length += len;
+    } catch (IOException e) {
+      LOG.warnf(e, "[%s] Failed to write download spool %s, transfer not resumable", feed, path);
+      clear();
+    }
+  }
+
+  private void closeOut() {
+    if (out == null) return;
+    try {
+      out.close();
+    } catch (IOException e) {
+      LOG.warnf(e, "[%s] Failed to close download spool %s", feed, path);
+    }
+    out = null;
+  }
+
+  /** If-Range připouští jen silný ETag. */
+  private static boolean strong(String etag) {
+    return etag != null && !etag.isBlank() && !etag.startsWith("W/");
+  }
+
+  private static String header(HttpResponse<?> resp, String name) {
+    return resp.headers().firstValue(name).orElse("");
+  }
+}
@@ -0,0 +1,224 @@
+package cz.vutbr.fit.diploma.traffic;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import org.jboss.logging.Logger;
+
+/**
+ * Detekce změn mezi dvěma úspěšnými staženími feedu. Pro každé {@code situationRecordId} si drží
+ * verzi situace, čas verze a 64bit otisk obsahu záznamu; publikovat se pak musí jen nové a změněné
+ * záznamy + tombstony pro ty, které z feedu zmizely.
+ *
+ * <p>Běh: {@link #begin}, {@link #track} pro každý záznam, {@link #removed()} a nakonec {@link
+ * #commit()} (nebo {@link #abort()} při chybě – stav z minula pak zůstává beze změny). Stav se
+ * ukládá do souboru, aby po restartu nepřišel o tombstony pro záznamy zmizelé mezitím.
+ */
+final class ChangeTracker {
+
+  private static final Logger LOG = Logger.getLogger(ChangeTracker.class);
+
+  enum Change {
+    INSERTED,
+    UPDATED,
+    UNCHANGED
+  }
+
+  private record Entry(String version, String versionTime, long fingerprint) {}
+
+  private final Path statePath;
+  private Map<String, Entry> committed = new HashMap<>();
+  private Map<String, Entry> pending;
+
+  ChangeTracker(Path statePath) {
+    this.statePath = statePath;
+  }
+
+  int size() {
+    return committed.size();
+  }
+
+  /**
+   * Začne běh. Rozdílový běh ({@code delta}) nese jen změněné záznamy: vychází ze stavu z minula,
+   * takže nic není „odebrané“ a {@link #commit()} změny do stavu přimíchá.
+   */
+  void begin(boolean delta) {
+    pending =
+        delta
+            ? new HashMap<>(committed)
+            : new HashMap<>(Math.max(16, committed.size() * 4 / 3 + 1));
+  }
+
+  /** Zaznamená výskyt záznamu v aktuálním běhu a vrátí, jestli se od minula změnil. */
+  Change track(DatexRecord r) {
+    String id = r.situationRecordId();
+    if (id == null) return Change.INSERTED; // bez klíče nejde sledovat → vždy publikovat
+
+    Entry now = new Entry(r.situationVersion(), r.situationVersionTime(), fingerprint(r));
+    pending.put(id, now);
+
+    Entry before = committed.get(id);
+    if (before == null) return Change.INSERTED;
+    return before.equals(now) ? Change.UNCHANGED : Change.UPDATED;
+  }
+
+  /** Klíče, které byly v minulém běhu, ale v aktuálním už ne (→ tombstone). */
+  List<String> removed() {
+    List<String> out = new ArrayList<>();
+    for (String id : committed.keySet()) {
+      if (!pending.containsKey(id)) out.add(id);
+    }
+    return out;
+  }
+
+  void commit() {
+    committed = pending;
+    pending = null;
+    save();
+  }
+
+  void abort() {
+    pending = null;
+  }
+
+  // --- persistence ----------------------------------------------------------
+
+  /** Formát: jeden řádek na záznam, {@code id \t version \t versionTime \t otisk(hex)}. */
+  void load() {
+    if (!Files.exists(statePath)) return;
+    Map<String, Entry> m = new HashMap<>();
+    try {
+      for (String line : Files.readAllLines(statePath, StandardCharsets.UTF_8)) {
+        String[] p = line.split("\t", -1);
+        if (p.length < 4 || p[0].isEmpty()) continue;
+        m.put(p[0], new Entry(empty(p[1]), empty(p[2]), Long.parseUnsignedLong(p[3], 16)));
+      }
+      committed = m;
+      LOG.infof("Loaded change-tracking state: %d records", m.size());
+    } catch (IOException | RuntimeException e) {
+      LOG.warnf(e, "Failed to read change-tracking state from %s (starting empty)", statePath);
+    }
+  }
+
+  private void save() {
+    try {
+      if (statePath.getParent() != null) Files.createDirectories(statePath.getParent());
+      Path tmp = statePath.resolveSibling(statePath.getFileName() + ".tmp");
+      try (BufferedWriter w = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+        for (Map.Entry<String, Entry> e : committed.entrySet()) {
+          Entry v = e.getValue();
+          w.write(e.getKey());
+          w.write('\t');
+          w.write(Objects.toString(v.version(), ""));
+          w.write('\t');
+          w.write(Objects.toString(v.versionTime(), ""));
+          w.write('\t');
+          w.write(Long.toHexString(v.fingerprint()));
+          w.write('\n');
+        }
+      }
+      Files.move(tmp, statePath, StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException e) {
+      LOG.warnf(e, "Failed to write change-tracking state to %s", statePath);
+    }
+  }
+
+  private static String empty(String s) {
+    return s.isEmpty() ? null : s;
+  }
+
+  // --- otisk obsahu (FNV-1a 64 přes všechna pole, bez alokací) ---------------
+
+  private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+  private static final long FNV_PRIME = 0x100000001b3L;
+
+  static long fingerprint(DatexRecord r) {
+    long h = FNV_OFFSET;
+    h = mix(h, r.situationId());
+    h = mix(h, r.situationVersion());
+    h = mix(h, r.situationVersionTime());
+    h = mix(h, r.informationStatus());
+    h = mix(h, r.urgency());
+    h = mix(h, r.situationRecordId());
+    h = mix(h, r.xsiType());
+    h = mix(h, r.validityStatus());
+    h = mix(h, r.overallStartTime());
+    h = mix(h, r.overallEndTime());
+    h = mix(h, r.probabilityOfOccurrence());
+    h = mix(h, r.comment());
+    h = mix(h, r.networkManagementType());
+    h = mix(h, r.roadworksType());
+    h = mix(h, r.restrictionType());
+    h = mix(h, r.roadOrCarriagewayOrLaneManagementType());
+    h = mix(h, r.trafficControlType());
+    h = mix(h, r.speedLimit());
+    h = mix(h, r.accidentType());
+    h = mix(h, r.vehicleObstructionType());
+    h = mix(h, r.authorityOperationType());
+    h = mix(h, r.road());
+    h = mix(h, r.locationText());
+    for (DatexRecord.AlertCLinear a : r.alertCLinear()) {
+      h = mix(h, a.countryCode());
+      h = mix(h, a.tableNumber());
+      h = mix(h, a.tableVersion());
+      h = mix(h, a.directionCoded());
+      h = mix(h, a.primarySpecificLocation());
+      h = mix(h, a.secondarySpecificLocation());
+    }
+    h = step(h, 1);
+    for (DatexRecord.AlertCPoint a : r.alertCPoint()) {
+      h = mix(h, a.countryCode());
+      h = mix(h, a.tableNumber());
+      h = mix(h, a.tableVersion());
+      h = mix(h, a.directionCoded());
+      h = mix(h, a.primarySpecificLocation());
+    }
+    h = step(h, 2);
+    for (DatexRecord.GNLinear l : r.globalNetworkLinear()) {
+      h = mix(h, l.networkVersion());
+      h = mix(h, l.linearGeometryType());
+      h = mix(h, l.startSjtskX());
+      h = mix(h, l.startSjtskY());
+      h = mix(h, l.endSjtskX());
+      h = mix(h, l.endSjtskY());
+      for (DatexRecord.GNElement s : l.segments()) {
+        h = mix(h, s.sectionId());
+        h = mix(h, s.direction());
+        h = mix(h, s.order());
+        h = mix(h, s.fromPercent());
+        h = mix(h, s.toPercent());
+      }
+    }
+    h = step(h, 3);
+    for (DatexRecord.LinearWithin l : r.linearWithinLinearElement()) {
+      h = mix(h, l.roadNumber());
+      h = mix(h, l.roadName());
+      h = mix(h, l.direction());
+      h = mix(h, l.fromDistanceAlong());
+      h = mix(h, l.toDistanceAlong());
+    }
+    return h;
+  }
+
+  private static long mix(long h, String s) {
+    if (s == null) return step(h, 0xFFFF);
+    for (int i = 0; i < s.length(); i++) h = step(h, s.charAt(i));
+    return step(h, 0xFFFE); // oddělovač, aby "ab"+"c" != "a"+"bc"
+  }
+
+  private static long step(long h, int c) {
+    h ^= (c & 0xFF);
+    h *= FNV_PRIME;
+    h ^= (c >>> 8);
+    h *= FNV_PRIME;
+    return h;
+  }
+}
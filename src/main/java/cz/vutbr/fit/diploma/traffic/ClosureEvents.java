@@ -0,0 +1,107 @@
+package cz.vutbr.fit.diploma.traffic;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import org.jboss.logging.Logger;
+
+/**
+ * Události {@code activated} / {@code expired} v okamžiku, kdy uzavírka z {@link ClosureState}
+ * začne nebo skončí platit ({@code overallStartTime} / {@code overallEndTime}), nezávisle na pollu
+ * feedu. Jeden časovač čeká vždy na nejbližší hranici z {@link ClosureTimeline} aktuálního
+ * snapshotu; nový snapshot ({@link #reschedule}) dorovná hranice od posledního odpálení a naplánuje
+ * znovu. Po startu se posílají jen hranice od startu (žádná lavina za dobu, kdy služba neběžela).
+ */
+final class ClosureEvents implements AutoCloseable {
+
+  private static final Logger LOG = Logger.getLogger(ClosureEvents.class);
+
+  private final ClosureState state;
+  private final PublishPipeline.Sender sender;
+  private final PayloadWriter payload;
+  private final LongSupplier clock;
+  private final ScheduledExecutorService timer;
+
+  // jen na vlákně časovače
+  private long firedUpTo;
+  private ScheduledFuture<?> next;
+
+  ClosureEvents(
+      ClosureState state,
+      PublishPipeline.Sender sender,
+      PayloadWriter payload,
+      LongSupplier clock) {
+    this.state = state;
+    this.sender = sender;
+    this.payload = payload;
+    this.clock = clock;
+    this.firedUpTo = clock.getAsLong();
+    this.timer =
+        Executors.newSingleThreadScheduledExecutor(
+            r -> {
+              Thread t = new Thread(r, "ndic-closure-events");
+              t.setDaemon(true);
+              return t;
+            });
+  }
+
+  /** Snapshot se změnil: pošle propásnuté hranice a naplánuje nejbližší další. */
+  void reschedule() {
+    timer.execute(this::fire);
+  }
+
+  private void fire() {
+    long now = clock.getAsLong();
+    ClosureState.Snapshot s = state.snapshot();
+    int[] sent = new int[2];
+    s.timeline.boundaries(
+        firedUpTo,
+        now,
+        (r, activated, at) -> {
+          send(s, r, activated, at);
+          sent[activated ? 0 : 1]++;
+        });
+    if (sent[0] + sent[1] > 0) {
+      LOG.infof("Closure events: %d activated, %d expired", sent[0], sent[1]);
+    }
+    firedUpTo = now;
+
+    if (next != null) next.cancel(false);
+    long at = s.timeline.nextBoundary(now);
+    next =
+        at == ClosureTimeline.UNBOUNDED_END
+            ? null
+            : timer.schedule(this::fire, at - now, TimeUnit.MILLISECONDS);
+  }
+
+  private void send(ClosureState.Snapshot s, DatexRecord r, boolean activated, long at) {
+    String key = r.situationRecordId();
+    try {
+      byte[] value =
+          payload.write(
+              new DatexJson.Event(
+                  r,
+                  activated ? "activated" : "expired",
+                  Instant.ofEpochMilli(at).toString(),
+                  "ndic",
+                  s.feedOf(key)));
+      sender
+          .send(key, value)
+          .whenComplete(
+              (ok, e) -> {
+                if (e != null) LOG.warnf(e, "Closure event for %s was not delivered", key);
+              });
+    } catch (IOException | RuntimeException e) {
+      LOG.warnf(e, "Closure event for %s failed", key);
+    }
+  }
+
+  @Override
+  public void close() {
+    timer.shutdownNow();
+  }
+}
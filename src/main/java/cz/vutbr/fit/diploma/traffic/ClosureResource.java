@@ -0,0 +1,247 @@
+package cz.vutbr.fit.diploma.traffic;
+
+import jakarta.inject.Inject;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.HeaderParam;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.PathParam;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Aktuální uzavírky z {@link ClosureState} přes REST. Odpovědi jsou předem serializované u
+ * snapshotu (JSON i gzip), se silným ETagem podle obsahu; {@code If-None-Match} se stejným ETagem
+ * vrátí 304.
+ *
+ * <ul>
+ *   <li>{@code GET /closures} – vše, případně filtr {@code road}, {@code situation}, {@code
+ *       location} (kód Alert-C lokace); prostorově {@code bbox=minLon,minLat,maxLon,maxLat} nebo
+ *       {@code near=lon,lat} s {@code radius} (m) a/nebo {@code k} (výchozí 10 nejbližších,
+ *       seřazeno podle vzdálenosti); časově {@code at=now} nebo ISO čas (platné v daném okamžiku
+ *       podle {@code overallStartTime}/{@code overallEndTime}). Víc filtrů = průnik, neplatné
+ *       hodnoty = 400.
+ *   <li>{@code GET /closures/{situationRecordId}} – jeden záznam, 404 když není aktivní
+ * </ul>
+ */
+@Path("/closures")
+@Produces(MediaType.APPLICATION_JSON)
+public class ClosureResource {
+
+  @Inject ClosureState state;
+
+  @GET
+  public Response list(
+      @QueryParam("road") String road,
+      @QueryParam("situation") String situation,
+      @QueryParam("location") String location,
+      @QueryParam("bbox") String bbox,
+      @QueryParam("near") String near,
+      @QueryParam("radius") String radius,
+      @QueryParam("k") String k,
+      @QueryParam("at") String at,
+      @HeaderParam(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch,
+      @HeaderParam(HttpHeaders.ACCEPT_ENCODING) String acceptEncoding) {
+    Query q;
+    try {
+      q = Query.of(road, situation, location, bbox, near, radius, k, at);
+    } catch (IllegalArgumentException e) {
+      return Response.status(Response.Status.BAD_REQUEST)
+          .entity(e.getMessage())
+          .type(MediaType.TEXT_PLAIN)
+          .build();
+    }
+    ClosureState.Snapshot snapshot = state.snapshot();
+    ClosureState.Body body =
+        snapshot.body(
+            q.key(snapshot),
+            s -> {
+              List<DatexRecord> hits = select(s, q);
+              return new ClosureState.Listing(hits.size(), hits);
+            });
+    return respond(body, ifNoneMatch, acceptEncoding);
+  }
+
+  @GET
+  @Path("/{situationRecordId}")
+  public Response get(
+      @PathParam("situationRecordId") String id,
+      @HeaderParam(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch,
+      @HeaderParam(HttpHeaders.ACCEPT_ENCODING) String acceptEncoding) {
+    ClosureState.Snapshot s = state.snapshot();
+    DatexRecord r = s.byRecordId.get(id);
+    if (r == null) return Response.status(Response.Status.NOT_FOUND).build();
+    return respond(s.body("id|" + id, x -> r), ifNoneMatch, acceptEncoding);
+  }
+
+  /**
+   * Prostorový dotaz přes {@link SpatialIndex}, jinak nejmenší z indexů zadaných filtrů; ostatní
+   * filtry se ověří přímo na záznamech.
+   */
+  static List<DatexRecord> select(ClosureState.Snapshot s, Query q) {
+    Predicate<DatexRecord> filter = q::matches;
+    Predicate<DatexRecord> timed = q.at() == Query.ANY_TIME ? filter : filter.and(q::activeAt);
+    if (q.near() != null) {
+      return s.spatial.nearest(q.near()[1], q.near()[0], q.k(), q.radius(), timed);
+    }
+    List<DatexRecord> base = s.all;
+    if (q.bbox() != null) {
+      double[] b = q.bbox();
+      base = s.spatial.bbox(b[0], b[1], b[2], b[3]);
+    } else {
+      if (q.situation() != null) base = narrower(base, s.bySituation.get(q.situation()));
+      if (q.location() != null) base = narrower(base, s.byLocation.get(q.location()));
+      if (q.roadKey() != null) base = narrower(base, s.byRoad.get(q.roadKey()));
+      if (base == s.all && q.at() != Query.ANY_TIME) {
+        return s.timeline.activeAt(q.at()).stream().filter(filter).toList();
+      }
+    }
+    return base.stream().filter(timed).toList();
+  }
+
+  /**
+   * Parametry {@code GET /closures}; {@code bbox} a {@code near} v pořadí lon, lat (GeoJSON),
+   * {@code at} jako epoch ms ({@link #ANY_TIME} = bez časového filtru).
+   */
+  record Query(
+      String roadKey,
+      String situation,
+      String location,
+      double[] bbox,
+      double[] near,
+      double radius,
+      int k,
+      long at) {
+
+    static final int DEFAULT_K = 10;
+    static final long ANY_TIME = Long.MIN_VALUE;
+
+    static Query of(
+        String road,
+        String situation,
+        String location,
+        String bbox,
+        String near,
+        String radius,
+        String k,
+        String at) {
+      double[] box = numbers("bbox", bbox, 4);
+      double[] point = numbers("near", near, 2);
+      double r = radius == null ? Double.POSITIVE_INFINITY : numbers("radius", radius, 1)[0];
+      int n = k == null ? (radius == null ? DEFAULT_K : Integer.MAX_VALUE) : count(k);
+      if ((radius != null || k != null) && point == null) {
+        throw new IllegalArgumentException("radius and k need near=lon,lat");
+      }
+      if (box != null && point != null) {
+        throw new IllegalArgumentException("Use either bbox or near, not both");
+      }
+      long t = at == null ? ANY_TIME : time(at);
+      return new Query(ClosureState.roadKey(road), situation, location, box, point, r, n, t);
+    }
+
+    /**
+     * Klíč cache odpovědi. Čas se do klíče bere jako pořadí intervalu mezi hranicemi časového
+     * indexu snapshotu: mezi dvěma hranicemi je výsledek stejný, i když {@code at=now}.
+     */
+    String key(ClosureState.Snapshot s) {
+      return String.join(
+          "|",
+          "list",
+          roadKey,
+          situation,
+          location,
+          Arrays.toString(bbox),
+          Arrays.toString(near),
+          Double.toString(radius),
+          Integer.toString(k),
+          at == ANY_TIME ? "-" : "@" + s.timeline.epoch(at));
+    }
+
+    boolean activeAt(DatexRecord r) {
+      return ClosureTimeline.isActive(r, at);
+    }
+
+    boolean matches(DatexRecord r) {
+      return (situation == null || situation.equals(r.situationId()))
+          && (location == null || ClosureState.locations(r).contains(location))
+          && (roadKey == null || ClosureState.roads(r).contains(roadKey));
+    }
+
+    private static double[] numbers(String name, String v, int n) {
+      if (v == null) return null;
+      String[] parts = v.split(",");
+      if (parts.length != n) {
+        throw new IllegalArgumentException(name + ": expected " + n + " numbers");
+      }
+      double[] out = new double[n];
+      for (int i = 0; i < n; i++) {
+        try {
+          out[i] = Double.parseDouble(parts[i].strip());
+        } catch (NumberFormatException e) {
+          throw new IllegalArgumentException(name + ": not a number: " + parts[i]);
+        }
+        if (!Double.isFinite(out[i])) throw new IllegalArgumentException(name + ": not finite");
+      }
+      return out;
+    }
+
+    /** {@code now} nebo ISO čas s posunem. */
+    private static long time(String at) {
+      if (at.equalsIgnoreCase("now")) return System.currentTimeMillis();
+      try {
+        return OffsetDateTime.parse(at.strip()).toInstant().toEpochMilli();
+      } catch (DateTimeParseException e) {
+        throw new IllegalArgumentException("at: expected now or an ISO date-time with offset");
+      }
+    }
+
+    private static int count(String k) {
+      try {
+        int n = Integer.parseInt(k.strip());
+        if (n > 0) return n;
+      } catch (NumberFormatException e) {
+        // níž
+      }
+      throw new IllegalArgumentException("k: expected a positive integer");
+    }
+  }
+
+  private static List<DatexRecord> narrower(List<DatexRecord> a, List<DatexRecord> b) {
+    if (b == null) return List.of();
+    return b.size() < a.size() ? b : a;
+  }
+
+  private static Response respond(ClosureState.Body b, String ifNoneMatch, String acceptEncoding) {
+    boolean gzip = b.gzip() != null && acceptEncoding != null && acceptEncoding.contains("gzip");
+    String etag = gzip ? b.gzipEtag() : b.etag();
+    Response.ResponseBuilder rb;
+    if (matches(ifNoneMatch, etag)) {
+      rb = Response.notModified();
+    } else {
+      rb = Response.ok(gzip ? b.gzip() : b.json(), MediaType.APPLICATION_JSON);
+      if (gzip) rb.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+    }
+    return rb.header(HttpHeaders.ETAG, etag)
+        .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+        .header(HttpHeaders.CACHE_CONTROL, "no-cache")
+        .build();
+  }
+
+  /** {@code If-None-Match}: seznam ETagů nebo {@code *}. */
+  static boolean matches(String ifNoneMatch, String etag) {
+    if (ifNoneMatch == null) return false;
+    for (String t : ifNoneMatch.split(",")) {
+      t = t.strip();
+      if (t.startsWith("W/")) t = t.substring(2); // slabé porovnání, jak RFC 9110 pro GET chce
+      if (t.equals("*") || t.equals(etag)) return true;
+    }
+    return false;
+  }
+}
@@ -0,0 +1,275 @@
+package cz.vutbr.fit.diploma.traffic;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Materializovaný pohled na aktuální uzavírky ze všech feedů (záznamy s {@link
+ * DatexRecord#isClosure()}, ne {@code suspended}), jak je viděl poslední úspěšný běh feedu.
+ *
+ * <p>Copy-on-write: poller po úspěšném běhu ({@link #apply}) postaví nový neměnný {@link Snapshot}
+ * i s indexy a vymění ho přes volatile; čtenáři (REST) pracují se snapshotem bez zámků a poller
+ * nikdy neblokují. Běh beze změny uzavírek snapshot nemění (ETag zůstane stejný).
+ */
+@ApplicationScoped
+public class ClosureState {
+
+  @Inject ObjectMapper mapper;
+
+  // strana zapisovatele (jen pod zámkem this): feed → situationRecordId → záznam
+  private final Map<String, Map<String, DatexRecord>> feeds = new HashMap<>();
+  private volatile Snapshot snapshot = new Snapshot(0, List.of(), this);
+
+  Snapshot snapshot() {
+    return snapshot;
+  }
+
+  /** Pohled už obsahuje data feedu (po restartu ne, dokud feed jednou celý neprojde). */
+  boolean hasFeed(String feed) {
+    return snapshot.feeds.contains(feed);
+  }
+
+  /** Je záznam v pohledu beze změny? (Nezměněný záznam pak není třeba znovu doplňovat.) */
+  boolean contains(String feed, String situationRecordId) {
+    return situationRecordId != null && feed.equals(snapshot.feedOf.get(situationRecordId));
+  }
+
+  /**
+   * Záznamy jednoho běhu feedu; do pohledu se dostanou až {@link #apply}. Rozdílový běh ({@code
+   * delta}) nese jen změněné záznamy, ostatní uzavírky feedu zůstávají.
+   */
+  static final class Update {
+    final String feed;
+    final boolean delta;
+    final Map<String, DatexRecord> records = new HashMap<>();
+    final List<String> kept = new ArrayList<>();
+
+    Update(String feed, boolean delta) {
+      this.feed = feed;
+      this.delta = delta;
+    }
+
+    /** Nový nebo změněný (doplněný) záznam. */
+    void put(DatexRecord r) {
+      if (r.situationRecordId() != null) records.put(r.situationRecordId(), r);
+    }
+
+    /** Záznam beze změny od minula – zůstává v pohledu tak, jak je. */
+    void keep(String situationRecordId) {
+      if (situationRecordId != null) kept.add(situationRecordId);
+    }
+  }
+
+  /**
+   * Nahradí uzavírky feedu těmi z úspěšného běhu; co v běhu nebylo, z pohledu zmizí. Rozdílový běh
+   * jen přidá/aktualizuje své záznamy a odebere ty, které už nejsou aktivní uzavírkou. Vrací, zda
+   * vznikl nový snapshot.
+   */
+  synchronized boolean apply(Update u) {
+    Map<String, DatexRecord> before = feeds.getOrDefault(u.feed, Map.of());
+    Map<String, DatexRecord> after;
+    if (u.delta) {
+      after = new HashMap<>(before);
+    } else {
+      after = new HashMap<>(Math.max(16, before.size() * 4 / 3 + 1));
+      for (String id : u.kept) {
+        DatexRecord r = before.get(id);
+        if (r != null) after.put(id, r);
+      }
+    }
+    for (DatexRecord r : u.records.values()) {
+      if (isActiveClosure(r)) after.put(r.situationRecordId(), r);
+      else if (u.delta) after.remove(r.situationRecordId());
+    }
+    boolean known = feeds.containsKey(u.feed);
+    if (known && after.equals(before)) return false;
+
+    feeds.put(u.feed, after);
+    List<DatexRecord> all = new ArrayList<>();
+    for (Map<String, DatexRecord> f : feeds.values()) all.addAll(f.values());
+    snapshot = new Snapshot(snapshot.generation + 1, all, this);
+    return true;
+  }
+
+  static boolean isActiveClosure(DatexRecord r) {
+    return r.isClosure() && !"suspended".equals(r.validityStatus());
+  }
+
+  /** Klíč silnice pro index a dotaz: velká písmena bez mezer ({@code "d 1"} → {@code "D1"}). */
+  static String roadKey(String road) {
+    if (road == null) return null;
+    String k = road.replace(" ", "").toUpperCase(Locale.ROOT);
+    return k.isEmpty() ? null : k;
+  }
+
+  /** Klíče silnic záznamu (viz {@link #roadKey}). */
+  static List<String> roads(DatexRecord r) {
+    List<String> out = new ArrayList<>(2);
+    addKey(out, roadKey(r.road()));
+    for (DatexRecord.LinearWithin l : r.linearWithinLinearElement()) {
+      addKey(out, roadKey(l.roadNumber()));
+    }
+    for (DatexRecord.AlertCLinear a : r.alertCLinear()) {
+      if (a.primaryLocation() != null) addKey(out, roadKey(a.primaryLocation().road()));
+    }
+    for (DatexRecord.AlertCPoint a : r.alertCPoint()) {
+      if (a.primaryLocation() != null) addKey(out, roadKey(a.primaryLocation().road()));
+    }
+    return out;
+  }
+
+  /** Kódy Alert-C lokací záznamu. */
+  static List<String> locations(DatexRecord r) {
+    List<String> out = new ArrayList<>(2);
+    for (DatexRecord.AlertCLinear a : r.alertCLinear()) {
+      addKey(out, a.primarySpecificLocation());
+      addKey(out, a.secondarySpecificLocation());
+    }
+    for (DatexRecord.AlertCPoint a : r.alertCPoint()) addKey(out, a.primarySpecificLocation());
+    return out;
+  }
+
+  private static void addKey(List<String> out, String k) {
+    if (k != null && !out.contains(k)) out.add(k);
+  }
+
+  /**
+   * Neměnný stav v jednom okamžiku s indexy podle {@code situationRecordId}, {@code situationId},
+   * silnice ({@code road}, {@code roadNumber}, silnice z lokalizační tabulky), kódu Alert-C lokace
+   * a prostorovým ({@link SpatialIndex}) a časovým ({@link ClosureTimeline}) indexem. Serializované
+   * odpovědi se cachují u snapshotu, takže opakovaný dotaz je jen lookup.
+   */
+  static final class Snapshot {
+    /** Max. počet různých dotazů s uloženou odpovědí na jeden snapshot. */
+    private static final int MAX_BODIES = 1024;
+
+    final long generation;
+    final List<DatexRecord> all; // seřazeno podle situationRecordId
+    final Map<String, DatexRecord> byRecordId;
+    final Map<String, List<DatexRecord>> bySituation;
+    final Map<String, List<DatexRecord>> byRoad;
+    final Map<String, List<DatexRecord>> byLocation;
+    final SpatialIndex spatial;
+    final ClosureTimeline timeline;
+    private final Map<String, String> feedOf;
+    private final Set<String> feeds;
+    private final ClosureState owner;
+    private final Map<String, Body> bodies = new ConcurrentHashMap<>();
+
+    private Snapshot(long generation, List<DatexRecord> records, ClosureState owner) {
+      this.generation = generation;
+      this.owner = owner;
+      TreeMap<String, DatexRecord> sorted = new TreeMap<>();
+      for (DatexRecord r : records) sorted.put(r.situationRecordId(), r);
+      this.all = List.copyOf(sorted.values());
+      this.byRecordId = Map.copyOf(sorted);
+
+      Map<String, List<DatexRecord>> situation = new HashMap<>();
+      Map<String, List<DatexRecord>> road = new HashMap<>();
+      Map<String, List<DatexRecord>> location = new HashMap<>();
+      for (DatexRecord r : all) {
+        add(situation, r.situationId(), r);
+        for (String k : roads(r)) add(road, k, r);
+        for (String k : locations(r)) add(location, k, r);
+      }
+      this.bySituation = freeze(situation);
+      this.byRoad = freeze(road);
+      this.byLocation = freeze(location);
+      this.spatial = SpatialIndex.build(all);
+      this.timeline = ClosureTimeline.build(all);
+
+      Map<String, String> feedOf = new HashMap<>();
+      owner.feeds.forEach((f, m) -> m.keySet().forEach(id -> feedOf.put(id, f)));
+      this.feedOf = Map.copyOf(feedOf);
+      this.feeds = Set.copyOf(owner.feeds.keySet());
+    }
+
+    /** Feed, ze kterého záznam pochází (null, když ve snapshotu není). */
+    String feedOf(String situationRecordId) {
+      return feedOf.get(situationRecordId);
+    }
+
+    /**
+     * Serializovaná odpověď pro dotaz {@code key}; při prvním dotazu se spočítá přes {@code select}
+     * a uloží (do {@link #MAX_BODIES}).
+     */
+    Body body(String key, Function<Snapshot, Object> select) {
+      Body b = bodies.get(key);
+      if (b != null) return b;
+      b = Body.of(owner.mapper, select.apply(this));
+      if (bodies.size() < MAX_BODIES) bodies.putIfAbsent(key, b);
+      return b;
+    }
+
+    private static void add(Map<String, List<DatexRecord>> m, String k, DatexRecord r) {
+      if (k != null) m.computeIfAbsent(k, x -> new ArrayList<>(2)).add(r);
+    }
+
+    private static Map<String, List<DatexRecord>> freeze(Map<String, List<DatexRecord>> m) {
+      Map<String, List<DatexRecord>> out = new HashMap<>(m.size() * 4 / 3 + 1);
+      m.forEach((k, v) -> out.put(k, List.copyOf(v)));
+      return Map.copyOf(out);
+    }
+  }
+
+  /** Hotová odpověď: JSON, jeho gzip a silné ETagy (otisk obsahu, pro každé kódování jiný). */
+  record Body(byte[] json, byte[] gzip, String etag, String gzipEtag) {
+
+    /** Menší těla se nekomprimují (gzip hlavička by je zvětšila). */
+    static final int GZIP_MIN = 1024;
+
+    static Body of(ObjectMapper mapper, Object value) {
+      try {
+        byte[] json = mapper.writeValueAsBytes(value);
+        String tag = HexFormat.of().formatHex(sha256(json), 0, 12);
+        if (json.length < GZIP_MIN) return new Body(json, null, '"' + tag + '"', null);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 4);
+        try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+          gz.write(json);
+        }
+        return new Body(json, out.toByteArray(), '"' + tag + '"', '"' + tag + "-gz\"");
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    private static byte[] sha256(byte[] b) {
+      try {
+        return MessageDigest.getInstance("SHA-256").digest(b);
+      } catch (NoSuchAlgorithmException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+  }
+
+  /**
+   * Tvar odpovědi se seznamem: počet a záznamy. Bez generace snapshotu – ETag je otisk těla a změna
+   * v jiném feedu nesmí zneplatnit odpověď, jejíž výsledek se nezměnil.
+   */
+  record Listing(int count, Collection<DatexRecord> closures) {}
+
+  /** Pro benchmark / použití mimo CDI. */
+  static ClosureState of(ObjectMapper mapper) {
+    ClosureState s = new ClosureState();
+    s.mapper = mapper;
+    return s;
+  }
+}
@@ -0,0 +1,164 @@
+package cz.vutbr.fit.diploma.traffic;
+
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Časový index uzavírek: {@code overallStartTime} / {@code overallEndTime} jako epoch ms, záznam je
+ * aktivní v {@code [start, end)}; chybějící nebo nečitelný čas = neomezeno. Intervaly seřazené
+ * podle začátku s maximem konců nad nimi (implicitní intervalový strom) odpoví "aktivní v čase T" v
+ * O(log n + k); seřazené začátky a konce dávají hranice pro události {@code activated} / {@code
+ * expired} ({@link ClosureEvents}).
+ *
+ * <p>Neměnný, staví se s každým snapshotem {@link ClosureState} stejně jako {@link SpatialIndex}.
+ */
+final class ClosureTimeline {
+
+  static final long UNBOUNDED_START = Long.MIN_VALUE, UNBOUNDED_END = Long.MAX_VALUE;
+
+  private final DatexRecord[] records; // podle začátku
+  private final long[] start, end;
+  private final long[] maxEnd; // strom nad records: max konec v podstromu, kořen na indexu 1
+  private final int[] byEnd; // indexy records podle konce
+  private final long[] endSorted;
+
+  private ClosureTimeline(
+      DatexRecord[] records, long[] start, long[] end, int[] byEnd, long[] endSorted) {
+    this.records = records;
+    this.start = start;
+    this.end = end;
+    this.byEnd = byEnd;
+    this.endSorted = endSorted;
+    this.maxEnd = new long[4 * Math.max(1, records.length)];
+    if (records.length > 0) fill(1, 0, records.length);
+  }
+
+  static ClosureTimeline build(Collection<DatexRecord> in) {
+    int n = in.size();
+    DatexRecord[] recs = in.toArray(DatexRecord[]::new);
+    long[] s = new long[n], e = new long[n];
+    for (int i = 0; i < n; i++) {
+      s[i] = start(recs[i]);
+      e[i] = end(recs[i]);
+    }
+    Integer[] order = new Integer[n];
+    for (int i = 0; i < n; i++) order[i] = i;
+    Arrays.sort(order, (a, b) -> Long.compare(s[a], s[b]));
+    DatexRecord[] records = new DatexRecord[n];
+    long[] start = new long[n], end = new long[n];
+    for (int i = 0; i < n; i++) {
+      records[i] = recs[order[i]];
+      start[i] = s[order[i]];
+      end[i] = e[order[i]];
+    }
+    for (int i = 0; i < n; i++) order[i] = i;
+    Arrays.sort(order, (a, b) -> Long.compare(end[a], end[b]));
+    int[] byEnd = new int[n];
+    long[] endSorted = new long[n];
+    for (int i = 0; i < n; i++) {
+      byEnd[i] = order[i];
+      endSorted[i] = end[order[i]];
+    }
+    return new ClosureTimeline(records, start, end, byEnd, endSorted);
+  }
+
+  private long fill(int node, int lo, int hi) {
+    if (hi - lo == 1) return maxEnd[node] = end[lo];
+    int mid = (lo + hi) >>> 1;
+    return maxEnd[node] = Math.max(fill(2 * node, lo, mid), fill(2 * node + 1, mid, hi));
+  }
+
+  int size() {
+    return records.length;
+  }
+
+  /** Záznamy aktivní v čase {@code t} (epoch ms), podle začátku. */
+  List<DatexRecord> activeAt(long t) {
+    List<DatexRecord> out = new ArrayList<>();
+    int p = upper(start, t); // začátek <= t
+    if (p > 0) collect(1, 0, records.length, p, t, out);
+    return out;
+  }
+
+  private void collect(int node, int lo, int hi, int p, long t, List<DatexRecord> out) {
+    if (lo >= p || maxEnd[node] <= t) return;
+    if (hi - lo == 1) {
+      out.add(records[lo]);
+      return;
+    }
+    int mid = (lo + hi) >>> 1;
+    collect(2 * node, lo, mid, p, t, out);
+    collect(2 * node + 1, mid, hi, p, t, out);
+  }
+
+  /**
+   * Počet hranic (začátků a konců) do {@code t} včetně; v čase se mezi dvěma hranicemi množina
+   * aktivních záznamů nemění, takže číslo slouží jako klíč cache dotazu "aktivní v čase".
+   */
+  long epoch(long t) {
+    return upper(start, t) + (long) upper(endSorted, t);
+  }
+
+  /** Nejbližší hranice po {@code t}; {@link #UNBOUNDED_END}, když už žádná není. */
+  long nextBoundary(long t) {
+    int s = upper(start, t), e = upper(endSorted, t);
+    long next = UNBOUNDED_END;
+    if (s < start.length) next = start[s];
+    if (e < endSorted.length) next = Math.min(next, endSorted[e]);
+    return next;
+  }
+
+  /** Příjemce hranice: záznam začal ({@code activated}) nebo skončil v čase {@code at}. */
+  @FunctionalInterface
+  interface BoundaryListener {
+    void on(DatexRecord r, boolean activated, long at);
+  }
+
+  /** Začátky a konce v {@code (from, to]}, začátky první; prázdné intervaly se vynechají. */
+  void boundaries(long from, long to, BoundaryListener l) {
+    for (int i = upper(start, from); i < start.length && start[i] <= to; i++) {
+      if (end[i] > start[i]) l.on(records[i], true, start[i]);
+    }
+    for (int i = upper(endSorted, from); i < endSorted.length && endSorted[i] <= to; i++) {
+      int r = byEnd[i];
+      if (end[r] > start[r]) l.on(records[r], false, end[r]);
+    }
+  }
+
+  /** Aktivní v čase {@code t} (bez indexu, z časů záznamu). */
+  static boolean isActive(DatexRecord r, long t) {
+    return start(r) <= t && t < end(r);
+  }
+
+  static long start(DatexRecord r) {
+    return epochMillis(r.overallStartTime(), UNBOUNDED_START);
+  }
+
+  static long end(DatexRecord r) {
+    return epochMillis(r.overallEndTime(), UNBOUNDED_END);
+  }
+
+  private static long epochMillis(String v, long unbounded) {
+    if (v == null || v.isBlank()) return unbounded;
+    try {
+      return OffsetDateTime.parse(v).toInstant().toEpochMilli();
+    } catch (DateTimeParseException e) {
+      return unbounded;
+    }
+  }
+
+  /** Počet prvků {@code <= t}. */
+  private static int upper(long[] a, long t) {
+    int lo = 0, hi = a.length;
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (a[mid] <= t) lo = mid + 1;
+      else hi = mid;
+    }
+    return lo;
+  }
+}
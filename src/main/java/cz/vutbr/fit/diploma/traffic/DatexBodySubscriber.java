@@ -0,0 +1,166 @@
+package cz.vutbr.fit.diploma.traffic;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+
+/**
+ * Tělo HTTP odpovědi rovnou do {@link DatexParser#incremental}: každý přijatý kus se (případně přes
+ * {@link PushGzipDecoder}) hned parsuje a záznamy jdou do listeneru. Žádné vlákno nečeká na socket
+ * – kusy se zpracují na {@code executor} a další se vyžádá ({@code request(1)}) až po zpracování
+ * předchozího, takže pomalý parser/publikace přirozeně brzdí stahování.
+ *
+ * <p>Úlohy jednoho těla se řetězí za sebe, i na vícevláknovém executoru tedy běží postupně.
+ * Dekomprimované bajty se zároveň započítávají do {@code digest} (otisk obsahu feedu), surové (jak
+ * přišly po síti) jdou do archivu, pokud je zapnutý.
+ */
+final class DatexBodySubscriber implements HttpResponse.BodySubscriber<DatexParser.Summary> {
+
+  private static final int CHUNK = 64 * 1024;
+
+  private final Executor executor;
+  private final DatexParser.Incremental parser;
+  private final PushGzipDecoder gzip; // null = identity
+  private final FeedArchive.Snapshot archive; // null = bez archivu
+  private final MessageDigest digest;
+  private final byte[] chunk = new byte[CHUNK];
+  private final CompletableFuture<DatexParser.Summary> result = new CompletableFuture<>();
+
+  private Flow.Subscription subscription;
+  private CompletableFuture<Void> tail = CompletableFuture.completedFuture(null);
+
+  // čte se až po dokončení result (happens-before přes CompletableFuture)
+  private long wireBytes = 0, decodedBytes = 0;
+  // chyba přišla od HTTP klienta (spojení), ne z parseru/listeneru
+  private volatile boolean transferFailed;
+
+  DatexBodySubscriber(
+      Executor executor,
+      boolean gzipped,
+      FeedArchive.Snapshot archive,
+      MessageDigest digest,
+      DatexParser.RecordFilter filter,
+      DatexParser.Listener listener) {
+    this.executor = executor;
+    this.archive = archive;
+    this.digest = digest;
+    this.parser = DatexParser.incremental(filter, listener);
+    this.gzip = gzipped ? new PushGzipDecoder(this::parse, CHUNK) : null;
+  }
+
+  long wireBytes() {
+    return wireBytes;
+  }
+
+  long decodedBytes() {
+    return decodedBytes;
+  }
+
+  /** Tělo skončilo chybou přenosu (přerušené spojení), ne chybou zpracování. */
+  boolean transferFailed() {
+    return transferFailed;
+  }
+
+  @Override
+  public CompletionStage<DatexParser.Summary> getBody() {
+    return result;
+  }
+
+  @Override
+  public void onSubscribe(Flow.Subscription s) {
+    subscription = s;
+    s.request(1);
+  }
+
+  @Override
+  public void onNext(List<ByteBuffer> items) {
+    then(
+        () -> {
+          for (ByteBuffer b : items) consume(b);
+          subscription.request(1);
+        });
+  }
+
+  @Override
+  public void onError(Throwable t) {
+    transferFailed = !result.isDone();
+    result.completeExceptionally(t);
+    // dekodér může právě používat krok na executoru → uvolnit až za ním
+    tail = tail.whenCompleteAsync((v, e) -> closeGzip(), executor);
+  }
+
+  @Override
+  public void onComplete() {
+    then(
+        () -> {
+          if (gzip != null) gzip.finish();
+          result.complete(parser.finish());
+        });
+  }
+
+  @FunctionalInterface
+  private interface Step {
+    void run() throws IOException;
+  }
+
+  /**
+   * Zařadí krok za předchozí; po první chybě se zbytek těla zahodí a dekodér se uvolní (chyba
+   * parseru, zrušení, předčasný konec při stejné publikaci).
+   */
+  private void then(Step step) {
+    tail =
+        tail.thenRunAsync(
+            () -> {
+              if (result.isDone()) return;
+              try {
+                step.run();
+              } catch (IOException | RuntimeException e) {
+                subscription.cancel();
+                result.completeExceptionally(e);
+                closeGzip();
+              }
+            },
+            executor);
+  }
+
+  private void closeGzip() {
+    if (gzip != null) gzip.close();
+  }
+
+  private void consume(ByteBuffer b) throws IOException {
+    while (b.hasRemaining()) {
+      int n = Math.min(b.remaining(), chunk.length);
+      b.get(chunk, 0, n);
+      wireBytes += n;
+      if (archive != null) archive.write(chunk, 0, n);
+      if (gzip != null) gzip.write(chunk, 0, n);
+      else parse(chunk, 0, n);
+    }
+  }
+
+  private void parse(byte[] b, int off, int len) {
+    decodedBytes += len;
+    digest.update(b, off, len);
+    parser.feed(b, off, len);
+  }
+
+  /** Rozbalí obálky z futures a {@link UncheckedIOException} z listeneru na původní výjimku. */
+  static Exception unwrap(Throwable t) {
+    while ((t instanceof CompletionException || t instanceof ExecutionException)
+        && t.getCause() != null) {
+      t = t.getCause();
+    }
+    if (t instanceof UncheckedIOException u) return u.getCause();
+    if (t instanceof Exception e) return e;
+    return new IOException(t);
+  }
+}
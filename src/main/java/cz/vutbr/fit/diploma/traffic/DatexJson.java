@@ -0,0 +1,246 @@
+package cz.vutbr.fit.diploma.traffic;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Ručně psaná JSON serializace {@link DatexRecord} – pole se zapisují přímo do {@link
+ * JsonGenerator}, bez reflexe a bez mezikroku přes mapy. Pořadí a názvy polí odpovídají původnímu
+ * mapovému výstupu parseru, prázdné hodnoty se vynechávají.
+ */
+public final class DatexJson {
+
+  /** Záznam + obálka publikace ({@code _source}, {@code _dataset}, ...), zapsaná na konec. */
+  @JsonSerialize(using = EnvelopeSerializer.class)
+  public record Envelope(
+      DatexRecord record,
+      String source,
+      String dataset,
+      String fetchedAt,
+      String publicationTime) {}
+
+  /**
+   * Časová událost uzavírky ({@code activated} / {@code expired}) s celým záznamem; {@code at} je
+   * hranice intervalu platnosti (ISO).
+   */
+  @JsonSerialize(using = EventSerializer.class)
+  public record Event(DatexRecord record, String event, String at, String source, String dataset) {}
+
+  public static final class RecordSerializer extends StdSerializer<DatexRecord> {
+    public RecordSerializer() {
+      super(DatexRecord.class);
+    }
+
+    @Override
+    public void serialize(DatexRecord r, JsonGenerator g, SerializerProvider p) throws IOException {
+      g.writeStartObject();
+      writeFields(r, g);
+      g.writeEndObject();
+    }
+  }
+
+  public static final class EnvelopeSerializer extends StdSerializer<Envelope> {
+    public EnvelopeSerializer() {
+      super(Envelope.class);
+    }
+
+    @Override
+    public void serialize(Envelope e, JsonGenerator g, SerializerProvider p) throws IOException {
+      write(e, g);
+    }
+  }
+
+  public static final class EventSerializer extends StdSerializer<Event> {
+    public EventSerializer() {
+      super(Event.class);
+    }
+
+    @Override
+    public void serialize(Event e, JsonGenerator g, SerializerProvider p) throws IOException {
+      write(e, g);
+    }
+  }
+
+  /** Obálka jako celý objekt; obálková pole se zapíšou za pole záznamu. */
+  static void write(Envelope e, JsonGenerator g) throws IOException {
+    g.writeStartObject();
+    writeFields(e.record(), g);
+    str(g, "_source", e.source());
+    str(g, "_dataset", e.dataset());
+    str(g, "_fetchedAt", e.fetchedAt());
+    str(g, "publicationTime", e.publicationTime());
+    g.writeEndObject();
+  }
+
+  static void write(Event e, JsonGenerator g) throws IOException {
+    g.writeStartObject();
+    writeFields(e.record(), g);
+    str(g, "_event", e.event());
+    str(g, "_eventAt", e.at());
+    str(g, "_source", e.source());
+    str(g, "_dataset", e.dataset());
+    g.writeEndObject();
+  }
+
+  /** Zapíše pole záznamu do již otevřeného objektu. */
+  static void writeFields(DatexRecord r, JsonGenerator g) throws IOException {
+    // situation context
+    str(g, "situationId", r.situationId());
+    str(g, "situationVersion", r.situationVersion());
+    str(g, "situationVersionTime", r.situationVersionTime());
+    str(g, "informationStatus", r.informationStatus());
+    str(g, "urgency", r.urgency());
+
+    // record basics
+    str(g, "situationRecordId", r.situationRecordId());
+    str(g, "xsiType", r.xsiType());
+    str(g, "validityStatus", r.validityStatus());
+    str(g, "overallStartTime", r.overallStartTime());
+    str(g, "overallEndTime", r.overallEndTime());
+    str(g, "probabilityOfOccurrence", r.probabilityOfOccurrence());
+    str(g, "comment", r.comment());
+
+    // types
+    str(g, "networkManagementType", r.networkManagementType());
+    str(g, "roadworksType", r.roadworksType());
+    str(g, "restrictionType", r.restrictionType());
+    str(g, "roadOrCarriagewayOrLaneManagementType", r.roadOrCarriagewayOrLaneManagementType());
+    str(g, "trafficControlType", r.trafficControlType());
+    str(g, "speedLimit", r.speedLimit());
+    str(g, "accidentType", r.accidentType());
+    str(g, "vehicleObstructionType", r.vehicleObstructionType());
+    str(g, "authorityOperationType", r.authorityOperationType());
+
+    // simple location labels
+    str(g, "road", r.road());
+    str(g, "locationText", r.locationText());
+
+    // structured locations
+    if (!r.alertCLinear().isEmpty()) {
+      g.writeArrayFieldStart("alertCLinear");
+      for (DatexRecord.AlertCLinear a : r.alertCLinear()) {
+        g.writeStartObject();
+        str(g, "countryCode", a.countryCode());
+        str(g, "tableNumber", a.tableNumber());
+        str(g, "tableVersion", a.tableVersion());
+        str(g, "directionCoded", a.directionCoded());
+        str(g, "primarySpecificLocation", a.primarySpecificLocation());
+        str(g, "secondarySpecificLocation", a.secondarySpecificLocation());
+        location(g, "primaryLocation", a.primaryLocation());
+        location(g, "secondaryLocation", a.secondaryLocation());
+        g.writeEndObject();
+      }
+      g.writeEndArray();
+    }
+    if (!r.alertCPoint().isEmpty()) {
+      g.writeArrayFieldStart("alertCPoint");
+      for (DatexRecord.AlertCPoint a : r.alertCPoint()) {
+        g.writeStartObject();
+        str(g, "countryCode", a.countryCode());
+        str(g, "tableNumber", a.tableNumber());
+        str(g, "tableVersion", a.tableVersion());
+        str(g, "directionCoded", a.directionCoded());
+        str(g, "primarySpecificLocation", a.primarySpecificLocation());
+        location(g, "primaryLocation", a.primaryLocation());
+        g.writeEndObject();
+      }
+      g.writeEndArray();
+    }
+    if (!r.globalNetworkLinear().isEmpty()) {
+      g.writeArrayFieldStart("globalNetworkLinear");
+      for (DatexRecord.GNLinear l : r.globalNetworkLinear()) {
+        g.writeStartObject();
+        str(g, "networkVersion", l.networkVersion());
+        str(g, "linearGeometryType", l.linearGeometryType());
+        str(g, "startSjtskX", l.startSjtskX());
+        str(g, "startSjtskY", l.startSjtskY());
+        str(g, "endSjtskX", l.endSjtskX());
+        str(g, "endSjtskY", l.endSjtskY());
+        num(g, "startLat", l.startLat());
+        num(g, "startLon", l.startLon());
+        num(g, "endLat", l.endLat());
+        num(g, "endLon", l.endLon());
+        writeSegments(l.segments(), g);
+        writeGeometry(l.geometry(), g);
+        g.writeEndObject();
+      }
+      g.writeEndArray();
+    }
+    if (!r.linearWithinLinearElement().isEmpty()) {
+      g.writeArrayFieldStart("linearWithinLinearElement");
+      for (DatexRecord.LinearWithin l : r.linearWithinLinearElement()) {
+        g.writeStartObject();
+        str(g, "roadNumber", l.roadNumber());
+        str(g, "roadName", l.roadName());
+        str(g, "direction", l.direction());
+        str(g, "fromDistanceAlong", l.fromDistanceAlong());
+        str(g, "toDistanceAlong", l.toDistanceAlong());
+        g.writeEndObject();
+      }
+      g.writeEndArray();
+    }
+
+    g.writeBooleanField("isClosure", r.isClosure());
+  }
+
+  private static void writeSegments(List<DatexRecord.GNElement> segments, JsonGenerator g)
+      throws IOException {
+    if (segments.isEmpty()) return;
+    g.writeArrayFieldStart("segments");
+    for (DatexRecord.GNElement s : segments) {
+      g.writeStartObject();
+      str(g, "sectionId", s.sectionId());
+      str(g, "direction", s.direction());
+      str(g, "order", s.order());
+      str(g, "fromPercent", s.fromPercent());
+      str(g, "toPercent", s.toPercent());
+      g.writeEndObject();
+    }
+    g.writeEndArray();
+  }
+
+  /** GeoJSON {@code LineString} úseků sítě; bez geometrie se pole vynechá. */
+  private static void writeGeometry(DatexRecord.LineString line, JsonGenerator g)
+      throws IOException {
+    if (line == null) return;
+    g.writeObjectFieldStart("geometry");
+    g.writeStringField("type", "LineString");
+    g.writeArrayFieldStart("coordinates");
+    double[] c = line.coordinates();
+    for (int i = 0; i < c.length; i += 2) {
+      g.writeStartArray();
+      g.writeNumber(c[i]);
+      g.writeNumber(c[i + 1]);
+      g.writeEndArray();
+    }
+    g.writeEndArray();
+    g.writeEndObject();
+  }
+
+  /** Doplněný bod z lokalizační tabulky; bez doplnění se pole vynechá. */
+  private static void location(JsonGenerator g, String name, DatexRecord.AlertCLocation l)
+      throws IOException {
+    if (l == null) return;
+    g.writeObjectFieldStart(name);
+    str(g, "name", l.name());
+    str(g, "secondName", l.secondName());
+    str(g, "road", l.road());
+    num(g, "lat", l.lat());
+    num(g, "lon", l.lon());
+    g.writeEndObject();
+  }
+
+  private static void num(JsonGenerator g, String name, double v) throws IOException {
+    if (!Double.isNaN(v)) g.writeNumberField(name, v);
+  }
+
+  private static void str(JsonGenerator g, String name, String v) throws IOException {
+    if (v != null) g.writeStringField(name, v);
+  }
+
+  private DatexJson() {}
+}
@@ -1,5 +1,9 @@
 package cz.vutbr.fit.diploma.traffic;
 
+import com.fasterxml.aalto.AsyncByteArrayFeeder;
+import com.fasterxml.aalto.AsyncXMLInputFactory;
+import com.fasterxml.aalto.AsyncXMLStreamReader;
+import com.fasterxml.aalto.stax.InputFactoryImpl;
 import java.io.InputStream;
 import java.time.OffsetDateTime;
 import java.util.*;
@@ -16,566 +20,810 @@ import javax.xml.stream.*;
  */
 public final class DatexParser {
 
-  /** Výsledek: čas publikace + seznam záznamů jako mapy. */
-  public record ParseResult(OffsetDateTime publicationTime, List<Map<String, Object>> items) {}
+  // po konfiguraci je vytváření readerů thread-safe; lookup factory je drahý (ServiceLoader)
+  private static final XMLInputFactory FACTORY = XMLInputFactory.newFactory();
 
-  public static ParseResult parse(InputStream is) {
-    XMLInputFactory f = XMLInputFactory.newFactory();
-    f.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
-
-    OffsetDateTime pubTime = null;
-    List<Map<String, Object>> items = new ArrayList<>(256);
-
-    // --- interní pomocné třídy ---------------------------------------------
-
-    final class AlertCLinear {
-      String country, tableNumber, tableVersion, directionCoded;
-      String primarySpecificLocation, secondarySpecificLocation;
-
-      Map<String, Object> toMap() {
-        Map<String, Object> m = new LinkedHashMap<>();
-        put(m, "countryCode", country);
-        put(m, "tableNumber", tableNumber);
-        put(m, "tableVersion", tableVersion);
-        put(m, "directionCoded", directionCoded);
-        put(m, "primarySpecificLocation", primarySpecificLocation);
-        put(m, "secondarySpecificLocation", secondarySpecificLocation);
-        return m;
-      }
+  static {
+    FACTORY.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+  }
+
+  // hodnoty ze slovníku (kódy, typy, směry) – sdílené napříč parsery i feedy
+  private static final SymbolTable SYMBOLS = new SymbolTable(4096);
+
+  /** Výsledek: čas publikace + seznam záznamů. */
+  public record ParseResult(OffsetDateTime publicationTime, List<DatexRecord> items) {}
+
+  /**
+   * Souhrn streamovaného parsování: čas publikace, počet předaných záznamů a počet záznamů, které
+   * zahodil {@link RecordFilter}.
+   */
+  public record Summary(OffsetDateTime publicationTime, int records, int dropped) {}
+
+  /**
+   * Filtr aplikovaný přímo při čtení. Jakmile některá z metod vrátí {@code false}, parser
+   * rozpracovaný záznam zahodí a zbytek jeho podstromu jen přeskočí (bez sběru lokalizací a bez
+   * alokací).
+   */
+  @FunctionalInterface
+  public interface RecordFilter {
+    RecordFilter ALL = r -> true;
+
+    /** Rané rozhodnutí podle {@code xsi:type} na začátku {@code situationRecord} (i null). */
+    default boolean acceptType(String xsiType) {
+      return true;
     }
 
-    final class AlertCPoint {
-      String country, tableNumber, tableVersion, directionCoded;
-      String primarySpecificLocation;
-
-      Map<String, Object> toMap() {
-        Map<String, Object> m = new LinkedHashMap<>();
-        put(m, "countryCode", country);
-        put(m, "tableNumber", tableNumber);
-        put(m, "tableVersion", tableVersion);
-        put(m, "directionCoded", directionCoded);
-        put(m, "primarySpecificLocation", primarySpecificLocation);
-        return m;
-      }
+    /**
+     * Průběžné rozhodnutí, jakmile je přečten typ řízení provozu ({@code
+     * roadOrCarriagewayOrLaneManagementType} / {@code networkManagementType}).
+     */
+    default boolean acceptManagement(String element, String value) {
+      return true;
     }
 
-    final class GNElement {
-      String sectionId, direction, order, fromPercent, toPercent;
-
-      Map<String, Object> toMap() {
-        Map<String, Object> m = new LinkedHashMap<>();
-        put(m, "sectionId", sectionId);
-        put(m, "direction", direction);
-        put(m, "order", order);
-        put(m, "fromPercent", fromPercent);
-        put(m, "toPercent", toPercent);
-        return m;
-      }
+    /** Finální test nad hotovým záznamem. */
+    boolean test(DatexRecord record);
+  }
+
+  /**
+   * Příjemce záznamů při streamovaném parsování. Každý záznam je předán hned po přečtení konce jeho
+   * {@code situationRecord}, parser si ho dál nedrží.
+   */
+  @FunctionalInterface
+  public interface Listener {
+    /** Čas publikace z hlavičky; přijde dřív než první záznam (pokud v dokumentu je). */
+    default void onPublicationTime(OffsetDateTime publicationTime) {}
+
+    void onRecord(DatexRecord record);
+  }
+
+  /** Celý dokument najednou – pohodlné pro malé vstupy, paměť roste s velikostí feedu. */
+  public static ParseResult parse(InputStream is) {
+    List<DatexRecord> items = new ArrayList<>(256);
+    Summary s = parse(is, RecordFilter.ALL, items::add);
+    return new ParseResult(s.publicationTime(), items);
+  }
+
+  /** Streamované parsování: záznamy jdou průběžně do {@code listener}, v paměti je jen jeden. */
+  public static Summary parse(InputStream is, Listener listener) {
+    return parse(is, RecordFilter.ALL, listener);
+  }
+
+  /** Streamované parsování s filtrem; odmítnuté záznamy se do {@code listener} vůbec nedostanou. */
+  public static Summary parse(InputStream is, RecordFilter filter, Listener listener) {
+    Handler h = new Handler(filter, listener);
+    try {
+      XMLStreamReader r = FACTORY.createXMLStreamReader(is);
+      while (r.hasNext()) h.event(r.next(), r);
+    } catch (XMLStreamException e) {
+      throw new RuntimeException("DATEX II parse error", e);
     }
+    return h.finish();
+  }
 
-    final class GNLinear {
-      String networkVersion, linearGeometryType;
-      String startX, startY, endX, endY;
-      List<GNElement> segments = new ArrayList<>();
-
-      Map<String, Object> toMap() {
-        Map<String, Object> m = new LinkedHashMap<>();
-        put(m, "networkVersion", networkVersion);
-        put(m, "linearGeometryType", linearGeometryType);
-        put(m, "startSjtskX", startX);
-        put(m, "startSjtskY", startY);
-        put(m, "endSjtskX", endX);
-        put(m, "endSjtskY", endY);
-        if (!segments.isEmpty()) {
-          List<Map<String, Object>> segs = new ArrayList<>(segments.size());
-          for (GNElement s : segments) segs.add(s.toMap());
-          m.put("segments", segs);
-        }
-        return m;
-      }
+  /**
+   * Neblokující parsování: bajty se do parseru tlačí po kusech ({@link Incremental#feed}), jak
+   * přicházejí ze sítě, a záznamy jdou do {@code listener} hned, jak jsou celé. Nad Aalto async
+   * tokenizérem – žádné vlákno nečeká na socket.
+   */
+  public static Incremental incremental(RecordFilter filter, Listener listener) {
+    return new Incremental(new Handler(filter, listener));
+  }
+
+  /** Rozpracovaný neblokující parse; volat z jednoho vlákna naráz (ne nutně stále stejného). */
+  public static final class Incremental {
+    private static final AsyncXMLInputFactory FACTORY = new InputFactoryImpl();
+
+    private final Handler handler;
+    private final AsyncXMLStreamReader<AsyncByteArrayFeeder> reader;
+
+    private Incremental(Handler handler) {
+      this.handler = handler;
+      this.reader = FACTORY.createAsyncForByteArray();
     }
 
-    final class LinearWithin {
-      String roadNumber, roadName, direction;
-      String fromDistanceAlong, toDistanceAlong;
-
-      Map<String, Object> toMap() {
-        Map<String, Object> m = new LinkedHashMap<>();
-        put(m, "roadNumber", roadNumber);
-        put(m, "roadName", roadName);
-        put(m, "direction", direction);
-        put(m, "fromDistanceAlong", fromDistanceAlong);
-        put(m, "toDistanceAlong", toDistanceAlong);
-        return m;
+    /** Zpracuje další kus dokumentu; pole lze po návratu znovu použít. */
+    public void feed(byte[] b, int off, int len) {
+      try {
+        reader.getInputFeeder().feedInput(b, off, len); // Aalto: (pole, offset, délka)
+        drain();
+      } catch (XMLStreamException e) {
+        throw new RuntimeException("DATEX II parse error", e);
       }
     }
 
-    final class SituationRecord {
-      // situation header context
-      String situationId, situationVersion, situationVersionTime, informationStatus, urgency;
-
-      // record-level attrs
-      String id,
-          recType /*xsi:type*/,
-          validityStatus,
-          overallStartTime,
-          overallEndTime,
-          probabilityOfOccurrence,
-          comment;
-
-      // management / restrictions / types
-      String networkMgmtType,
-          roadworksType,
-          restrictionType,
-          roadOrCarriagewayOrLaneMgmtType,
-          trafficControlType,
-          speedLimit;
-      String accidentType, vehicleObstructionType, authorityOperationType;
-
-      // simple text location
-      String roadNameOrNumber, locationDescription, areaName;
-
-      // nested location methods
-      List<AlertCLinear> alertCLinears = new ArrayList<>();
-      List<AlertCPoint> alertCPoints = new ArrayList<>();
-      List<GNLinear> gnLinears = new ArrayList<>();
-      List<LinearWithin> linearsWithin = new ArrayList<>();
-
-      boolean isClosure() {
-        String s =
-            (roadOrCarriagewayOrLaneMgmtType != null)
-                ? roadOrCarriagewayOrLaneMgmtType
-                : ((networkMgmtType != null) ? networkMgmtType : "");
-        return s.toLowerCase(Locale.ROOT).contains("closed");
+    /** Konec vstupu: dočte zbytek a vrátí souhrn. */
+    public Summary finish() {
+      try {
+        reader.getInputFeeder().endOfInput();
+        drain();
+        reader.close();
+      } catch (XMLStreamException e) {
+        throw new RuntimeException("DATEX II parse error", e);
       }
+      return handler.finish();
+    }
 
-      Map<String, Object> toMap() {
-        Map<String, Object> m = new LinkedHashMap<>();
-
-        // situation context
-        put(m, "situationId", situationId);
-        put(m, "situationVersion", situationVersion);
-        put(m, "situationVersionTime", situationVersionTime);
-        put(m, "informationStatus", informationStatus);
-        put(m, "urgency", urgency);
-
-        // record basics
-        put(m, "situationRecordId", id);
-        put(m, "xsiType", recType);
-        put(m, "validityStatus", validityStatus);
-        put(m, "overallStartTime", overallStartTime);
-        put(m, "overallEndTime", overallEndTime);
-        put(m, "probabilityOfOccurrence", probabilityOfOccurrence);
-        put(m, "comment", comment);
-
-        // types
-        put(m, "networkManagementType", networkMgmtType);
-        put(m, "roadworksType", roadworksType);
-        put(m, "restrictionType", restrictionType);
-        put(m, "roadOrCarriagewayOrLaneManagementType", roadOrCarriagewayOrLaneMgmtType);
-        put(m, "trafficControlType", trafficControlType);
-        put(m, "speedLimit", speedLimit);
-        put(m, "accidentType", accidentType);
-        put(m, "vehicleObstructionType", vehicleObstructionType);
-        put(m, "authorityOperationType", authorityOperationType);
-
-        // simple location labels
-        put(m, "road", roadNameOrNumber);
-        put(
-            m,
-            "locationText",
-            (areaName != null && !areaName.isBlank()) ? areaName : locationDescription);
-
-        // structured locations
-        if (!alertCLinears.isEmpty()) {
-          List<Map<String, Object>> arr = new ArrayList<>(alertCLinears.size());
-          for (AlertCLinear a : alertCLinears) arr.add(a.toMap());
-          m.put("alertCLinear", arr);
-        }
-        if (!alertCPoints.isEmpty()) {
-          List<Map<String, Object>> arr = new ArrayList<>(alertCPoints.size());
-          for (AlertCPoint a : alertCPoints) arr.add(a.toMap());
-          m.put("alertCPoint", arr);
-        }
-        if (!gnLinears.isEmpty()) {
-          List<Map<String, Object>> arr = new ArrayList<>(gnLinears.size());
-          for (GNLinear g : gnLinears) arr.add(g.toMap());
-          m.put("globalNetworkLinear", arr);
-        }
-        if (!linearsWithin.isEmpty()) {
-          List<Map<String, Object>> arr = new ArrayList<>(linearsWithin.size());
-          for (LinearWithin l : linearsWithin) arr.add(l.toMap());
-          m.put("linearWithinLinearElement", arr);
-        }
-
-        m.put("isClosure", isClosure());
-        return m;
+    private void drain() throws XMLStreamException {
+      while (reader.hasNext()) {
+        int ev = reader.next();
+        if (ev == AsyncXMLStreamReader.EVENT_INCOMPLETE) return;
+        handler.event(ev, reader);
       }
     }
+  }
+
+  /**
+   * Vlastní parsovací stav nad proudem StAX událostí – sdílený blokující ({@link XMLStreamReader})
+   * i neblokující ({@link Incremental}) cestou. Text listových elementů se skládá z {@code
+   * CHARACTERS} událostí (async reader je může libovolně rozdělit), hodnota se zpracuje na jejich
+   * konci.
+   */
+  private static final class Handler {
+    private final RecordFilter filter;
+    private final Listener listener;
+
+    private OffsetDateTime pubTime = null;
+    private int count = 0, dropped = 0;
+
+    // true = přeskakujeme zbytek odmítnutého situationRecord (situationRecord se nevnořuje)
+    private boolean skipping = false;
+
+    // listový element, jehož text se právě sbírá (null = text ignorujeme)
+    private String textElement = null;
+    private final StringBuilder text = new StringBuilder(64);
 
     // --- parsovací stav -----------------------------------------------------
 
-    SituationRecord sr = null;
+    private SituationRecord sr = null;
 
     // situation context
-    String currentSituationId = null,
+    private String currentSituationId = null,
         currentSituationVersion = null,
         currentSituationVersionTime = null;
-    String currentInformationStatus = null, currentUrgency = null;
-    boolean inHeaderInformation = false;
+    private String currentInformationStatus = null, currentUrgency = null;
+    private boolean inHeaderInformation = false;
 
     // komentáře a wrapper value-sekce
-    boolean inGeneralPublicComment = false;
-    boolean inGNNetworkVersion = false;
-    boolean inAreaName = false;
+    private boolean inGeneralPublicComment = false;
+    private boolean inGNNetworkVersion = false;
+    private boolean inAreaName = false;
 
     // Alert-C (stav)
-    AlertCLinear currentAlertCLinear = null;
-    boolean inACPrimary = false, inACSecondary = false;
-    AlertCPoint currentAlertCPoint = null;
+    private AlertCLinear currentAlertCLinear = null;
+    private boolean inACPrimary = false, inACSecondary = false;
+    private AlertCPoint currentAlertCPoint = null;
 
     // GN (stav)
-    GNLinear currentGN = null;
-    GNElement currentGNEl = null;
-    boolean inGNStartPoint = false, inGNEndPoint = false;
-    boolean inGNFromPoint = false, inGNToPoint = false;
+    private GNLinear currentGN = null;
+    private GNElement currentGNEl = null;
+    private boolean inGNStartPoint = false, inGNEndPoint = false;
+    private boolean inGNFromPoint = false, inGNToPoint = false;
 
     // LinearWithin (adresná metoda)
-    LinearWithin currentLW = null;
-    boolean inLWFromPoint = false, inLWToPoint = false;
+    private LinearWithin currentLW = null;
+    private boolean inLWFromPoint = false, inLWToPoint = false;
 
-    // --- vlastní streaming --------------------------------------------------
+    Handler(RecordFilter filter, Listener listener) {
+      this.filter = filter;
+      this.listener = listener;
+    }
 
-    try {
-      XMLStreamReader r = f.createXMLStreamReader(is);
-      while (r.hasNext()) {
-        int ev = r.next();
+    void event(int ev, XMLStreamReader r) {
+      if (skipping) {
+        if (ev != XMLStreamConstants.END_ELEMENT || !"situationRecord".equals(r.getLocalName()))
+          return;
+        // konec odmítnutého záznamu → projde běžným úklidem níže (sr == null)
+        skipping = false;
+      }
 
-        if (ev == XMLStreamConstants.START_ELEMENT) {
+      switch (ev) {
+        case XMLStreamConstants.START_ELEMENT -> start(r.getLocalName(), r);
+        case XMLStreamConstants.CHARACTERS, XMLStreamConstants.CDATA -> {
+          if (textElement != null)
+            text.append(r.getTextCharacters(), r.getTextStart(), r.getTextLength());
+        }
+        case XMLStreamConstants.END_ELEMENT -> {
           String name = r.getLocalName();
-
-          switch (name) {
-              // --- publication header ---
-            case "publicationTime" -> {
-              if (pubTime == null) {
-                try {
-                  pubTime = OffsetDateTime.parse(r.getElementText().trim());
-                } catch (Exception ignored) {
-                }
-              }
+          if (textElement != null) {
+            if (name.equals(textElement)) {
+              textElement = null;
+              text(name, value(name));
             }
+          } else {
+            end(name);
+          }
+        }
+        default -> {}
+      }
+    }
 
-              // --- situation-level context ---
-            case "situation" -> {
-              currentSituationId = attr(r, null, "id");
-              currentSituationVersion = attr(r, null, "version");
-            }
-            case "situationVersionTime" -> currentSituationVersionTime = r.getElementText().trim();
-            case "headerInformation" -> inHeaderInformation = true;
-            case "informationStatus" -> {
-              String v = r.getElementText().trim();
-              if (inHeaderInformation) currentInformationStatus = v;
-            }
-            case "urgency" -> {
-              String v = r.getElementText().trim();
-              if (inHeaderInformation) currentUrgency = v;
-            }
+    Summary finish() {
+      if (sr != null && sr.id != null) {
+        if (emit(sr, filter, listener)) count++;
+        else dropped++;
+      }
+      sr = null;
+      return new Summary(pubTime, count, dropped);
+    }
 
-              // --- situationRecord lifecycle ---
-            case "situationRecord" -> {
-              if (sr != null && sr.id != null) items.add(sr.toMap());
-              sr = new SituationRecord();
-              sr.id = attr(r, null, "id");
-              sr.recType = attr(r, "http://www.w3.org/2001/XMLSchema-instance", "type"); // xsi:type
-              sr.situationId = currentSituationId;
-              sr.situationVersion = currentSituationVersion;
-              sr.situationVersionTime = currentSituationVersionTime;
-              sr.informationStatus = currentInformationStatus;
-              sr.urgency = currentUrgency;
-            }
+    private void collect(String name) {
+      textElement = name;
+      text.setLength(0);
+    }
 
-              // --- validity & timing ---
-            case "validityStatus" -> sr.validityStatus = r.getElementText().trim();
-            case "overallStartTime" -> sr.overallStartTime = r.getElementText().trim();
-            case "overallEndTime" -> sr.overallEndTime = r.getElementText().trim();
-            case "probabilityOfOccurrence" -> sr.probabilityOfOccurrence =
-                r.getElementText().trim();
-
-              // --- comments ---
-            case "generalPublicComment" -> inGeneralPublicComment = true;
-            case "value" -> {
-              // Univerzální handler pro <values><value>... – zapisuje kontextově:
-              String v = r.getElementText().trim();
-              if (v.isEmpty()) break;
-
-              if (inGNNetworkVersion && currentGN != null && currentGN.networkVersion == null) {
-                currentGN.networkVersion = v;
-              } else if (inAreaName
-                  && sr != null
-                  && (sr.areaName == null || sr.areaName.isBlank())) {
-                sr.areaName = v;
-              } else if (inGeneralPublicComment && sr != null && sr.comment == null) {
-                sr.comment = v;
-              }
-              // další <value> (např. sourceName) ignorujeme
-            }
+    /** Oříznutý text elementu; hodnoty ze slovníku jdou přes {@link #SYMBOLS} bez alokace. */
+    private String value(String name) {
+      int from = 0, to = text.length();
+      while (from < to && text.charAt(from) <= ' ') from++;
+      while (to > from && text.charAt(to - 1) <= ' ') to--;
+      return symbol(name) ? SYMBOLS.get(text, from, to) : text.substring(from, to);
+    }
 
-              // --- types / management ---
-            case "networkManagementType" -> sr.networkMgmtType = r.getElementText().trim();
-            case "roadMaintenanceType", "roadworksType" -> sr.roadworksType =
-                r.getElementText().trim();
-            case "restrictionType" -> sr.restrictionType = r.getElementText().trim();
-            case "roadOrCarriagewayOrLaneManagementType" -> sr.roadOrCarriagewayOrLaneMgmtType =
-                r.getElementText().trim();
-            case "trafficControlType" -> sr.trafficControlType = r.getElementText().trim();
-            case "speedLimit" -> sr.speedLimit = r.getElementText().trim();
-
-              // more typed
-            case "accidentType" -> sr.accidentType = r.getElementText().trim();
-            case "vehicleObstructionType" -> sr.vehicleObstructionType = r.getElementText().trim();
-            case "authorityOperationType" -> sr.authorityOperationType = r.getElementText().trim();
-
-              // --- simple location labels (globální i uvnitř LinearWithin) ---
-            case "roadNumber" -> {
-              String v = r.getElementText().trim();
-              if (currentLW != null) {
-                if (currentLW.roadNumber == null || currentLW.roadNumber.isBlank())
-                  currentLW.roadNumber = v;
-              } else if (sr != null) {
-                if (sr.roadNameOrNumber == null || sr.roadNameOrNumber.isBlank())
-                  sr.roadNameOrNumber = v;
-              }
-            }
-            case "roadName" -> {
-              String v = r.getElementText().trim();
-              if (currentLW != null) {
-                if (currentLW.roadName == null || currentLW.roadName.isBlank())
-                  currentLW.roadName = v;
-              } else if (sr != null) {
-                if (sr.roadNameOrNumber == null || sr.roadNameOrNumber.isBlank())
-                  sr.roadNameOrNumber = v;
-              }
-            }
-            case "locationDescriptor" -> {
-              // u NDIC bývá plain text, ale kdyby někdy přišlo přes <values>, rozšíříme podobně
-              // jako areaName
-              String v = r.getElementText().trim();
-              if (sr.locationDescription == null || sr.locationDescription.isBlank())
-                sr.locationDescription = v;
-            }
-            case "areaName" -> {
-              // wrapper, skutečný text přijde v <value>
-              inAreaName = true;
-            }
+    /** Elementy s hodnotou z malého slovníku (enumy DATEX II, kódy Alert-C, čísla silnic). */
+    private boolean symbol(String name) {
+      return switch (name) {
+        case "informationStatus",
+            "urgency",
+            "validityStatus",
+            "probabilityOfOccurrence",
+            "networkManagementType",
+            "roadOrCarriagewayOrLaneManagementType",
+            "roadMaintenanceType",
+            "roadworksType",
+            "restrictionType",
+            "trafficControlType",
+            "accidentType",
+            "vehicleObstructionType",
+            "authorityOperationType",
+            "roadNumber",
+            "alertCLocationCountryCode",
+            "alertCLocationTableNumber",
+            "alertCLocationTableVersion",
+            "alertCDirectionCoded",
+            "linearGeometryType",
+            "directionRelativeOnLinearSection",
+            "orderOfSection" -> true;
+        case "value" -> inGNNetworkVersion; // networkVersion
+        default -> false;
+      };
+    }
 
-              // --- Alert-C Linear ---
-            case "alertCLinear" -> {
-              currentAlertCLinear = new AlertCLinear();
-            }
-            case "alertCLocationCountryCode" -> {
-              String v = r.getElementText().trim();
-              if (currentAlertCLinear != null) currentAlertCLinear.country = v;
-              if (currentAlertCPoint != null) currentAlertCPoint.country = v;
-            }
-            case "alertCLocationTableNumber" -> {
-              String v = r.getElementText().trim();
-              if (currentAlertCLinear != null) currentAlertCLinear.tableNumber = v;
-              if (currentAlertCPoint != null) currentAlertCPoint.tableNumber = v;
-            }
-            case "alertCLocationTableVersion" -> {
-              String v = r.getElementText().trim();
-              if (currentAlertCLinear != null) currentAlertCLinear.tableVersion = v;
-              if (currentAlertCPoint != null) currentAlertCPoint.tableVersion = v;
-            }
-            case "alertCDirectionCoded" -> {
-              String v = r.getElementText().trim();
-              if (currentAlertCLinear != null) currentAlertCLinear.directionCoded = v;
-              if (currentAlertCPoint != null) currentAlertCPoint.directionCoded = v;
-            }
-            case "alertCMethod2PrimaryPointLocation" -> inACPrimary = true;
-            case "alertCMethod2SecondaryPointLocation" -> inACSecondary = true;
-            case "specificLocation" -> {
-              String v = r.getElementText().trim();
-              if (currentAlertCLinear != null) {
-                if (inACPrimary && currentAlertCLinear.primarySpecificLocation == null)
-                  currentAlertCLinear.primarySpecificLocation = v;
-                else if (inACSecondary && currentAlertCLinear.secondarySpecificLocation == null)
-                  currentAlertCLinear.secondarySpecificLocation = v;
-              } else if (currentAlertCPoint != null) {
-                if (currentAlertCPoint.primarySpecificLocation == null)
-                  currentAlertCPoint.primarySpecificLocation = v;
-              }
-            }
+    private void start(String name, XMLStreamReader r) {
+      switch (name) {
+          // --- listové elementy: hodnota až na konci elementu, viz text() ---
+        case "publicationTime",
+            "situationVersionTime",
+            "informationStatus",
+            "urgency",
+            "validityStatus",
+            "overallStartTime",
+            "overallEndTime",
+            "probabilityOfOccurrence",
+            "value",
+            "networkManagementType",
+            "roadOrCarriagewayOrLaneManagementType",
+            "roadMaintenanceType",
+            "roadworksType",
+            "restrictionType",
+            "trafficControlType",
+            "speedLimit",
+            "accidentType",
+            "vehicleObstructionType",
+            "authorityOperationType",
+            "roadNumber",
+            "roadName",
+            "locationDescriptor",
+            "alertCLocationCountryCode",
+            "alertCLocationTableNumber",
+            "alertCLocationTableVersion",
+            "alertCDirectionCoded",
+            "specificLocation",
+            "linearGeometryType",
+            "sjtskX",
+            "sjtskY",
+            "sectionId",
+            "directionRelativeOnLinearSection",
+            "orderOfSection",
+            "percentageDistanceAlong",
+            "distanceAlong" -> collect(name);
+
+          // --- situation-level context ---
+        case "situation" -> {
+          currentSituationId = attr(r, null, "id");
+          currentSituationVersion = attr(r, null, "version");
+        }
+        case "headerInformation" -> inHeaderInformation = true;
 
-              // --- Alert-C Point ---
-            case "alertCPoint" -> {
-              currentAlertCPoint = new AlertCPoint();
-            }
+          // --- situationRecord lifecycle ---
+        case "situationRecord" -> {
+          if (sr != null && sr.id != null) {
+            if (emit(sr, filter, listener)) count++;
+            else dropped++;
+          }
+          String recType = attr(r, "http://www.w3.org/2001/XMLSchema-instance", "type");
+          if (!filter.acceptType(recType)) {
+            sr = null;
+            dropped++;
+            skipping = true;
+            break;
+          }
+          sr = new SituationRecord();
+          sr.id = attr(r, null, "id");
+          sr.recType = recType; // xsi:type
+          sr.situationId = currentSituationId;
+          sr.situationVersion = currentSituationVersion;
+          sr.situationVersionTime = currentSituationVersionTime;
+          sr.informationStatus = currentInformationStatus;
+          sr.urgency = currentUrgency;
+        }
 
-              // --- Global Network Linear ---
-            case "globalNetworkLinear" -> currentGN = new GNLinear();
-            case "networkVersion" -> inGNNetworkVersion = true; // text přijde až v <value>
-            case "linearGeometryType" -> {
-              String v = r.getElementText().trim();
-              if (currentGN != null) currentGN.linearGeometryType = v;
-            }
-            case "startPoint" -> inGNStartPoint = true;
-            case "endPoint" -> inGNEndPoint = true;
-            case "sjtskX" -> {
-              String v = r.getElementText().trim();
-              if (currentGN != null) {
-                if (inGNStartPoint && currentGN.startX == null) currentGN.startX = v;
-                else if (inGNEndPoint && currentGN.endX == null) currentGN.endX = v;
-              }
-            }
-            case "sjtskY" -> {
-              String v = r.getElementText().trim();
-              if (currentGN != null) {
-                if (inGNStartPoint && currentGN.startY == null) currentGN.startY = v;
-                else if (inGNEndPoint && currentGN.endY == null) currentGN.endY = v;
-              }
-            }
-            case "linearWithinLinearGNElement" -> currentGNEl = new GNElement();
-            case "sectionId" -> {
-              String v = r.getElementText().trim();
-              if (currentGNEl != null) currentGNEl.sectionId = v;
-            }
-            case "directionRelativeOnLinearSection" -> {
-              String v = r.getElementText().trim();
-              if (currentGNEl != null) currentGNEl.direction = v;
-              if (currentLW != null && currentLW.direction == null)
-                currentLW.direction = v; // sdílený název
-            }
-            case "orderOfSection" -> {
-              String v = r.getElementText().trim();
-              if (currentGNEl != null) currentGNEl.order = v;
-            }
-            case "fromPoint" -> {
-              inGNFromPoint = (currentGNEl != null);
-              inLWFromPoint = (currentLW != null);
-            }
-            case "toPoint" -> {
-              inGNToPoint = (currentGNEl != null);
-              inLWToPoint = (currentLW != null);
-            }
-            case "percentageDistanceAlong" -> {
-              String v = r.getElementText().trim();
-              if (currentGNEl != null) {
-                if (inGNFromPoint && currentGNEl.fromPercent == null) currentGNEl.fromPercent = v;
-                else if (inGNToPoint && currentGNEl.toPercent == null) currentGNEl.toPercent = v;
-              }
-            }
-            case "distanceAlong" -> {
-              String v = r.getElementText().trim();
-              if (currentLW != null) {
-                if (inLWFromPoint && currentLW.fromDistanceAlong == null)
-                  currentLW.fromDistanceAlong = v;
-                else if (inLWToPoint && currentLW.toDistanceAlong == null)
-                  currentLW.toDistanceAlong = v;
-              }
-            }
+          // --- comments ---
+        case "generalPublicComment" -> inGeneralPublicComment = true;
+        case "areaName" -> {
+          // wrapper, skutečný text přijde v <value>
+          inAreaName = true;
+        }
 
-              // --- LinearWithinLinearElement (adresná metoda) ---
-            case "linearWithinLinearElement" -> currentLW = new LinearWithin();
-            case "linearElement" -> {
-              /* marker */
-            }
+          // --- Alert-C ---
+        case "alertCLinear" -> currentAlertCLinear = new AlertCLinear();
+        case "alertCPoint" -> currentAlertCPoint = new AlertCPoint();
+        case "alertCMethod2PrimaryPointLocation" -> inACPrimary = true;
+        case "alertCMethod2SecondaryPointLocation" -> inACSecondary = true;
+
+          // --- Global Network Linear ---
+        case "globalNetworkLinear" -> currentGN = new GNLinear();
+        case "networkVersion" -> inGNNetworkVersion = true; // text přijde až v <value>
+        case "startPoint" -> inGNStartPoint = true;
+        case "endPoint" -> inGNEndPoint = true;
+        case "linearWithinLinearGNElement" -> currentGNEl = new GNElement();
+        case "fromPoint" -> {
+          inGNFromPoint = (currentGNEl != null);
+          inLWFromPoint = (currentLW != null);
+        }
+        case "toPoint" -> {
+          inGNToPoint = (currentGNEl != null);
+          inLWToPoint = (currentLW != null);
+        }
+
+          // --- LinearWithinLinearElement (adresná metoda) ---
+        case "linearWithinLinearElement" -> currentLW = new LinearWithin();
+        case "linearElement" -> {
+          /* marker */
+        }
 
-            default -> {}
+        default -> {}
+      }
+    }
+
+    /** Hodnota listového elementu {@code name} (už oříznutá). */
+    private void text(String name, String v) {
+      switch (name) {
+          // --- publication header ---
+        case "publicationTime" -> {
+          if (pubTime == null) {
+            try {
+              pubTime = OffsetDateTime.parse(v);
+            } catch (Exception ignored) {
+            }
+            if (pubTime != null) listener.onPublicationTime(pubTime);
           }
+        }
 
-        } else if (ev == XMLStreamConstants.END_ELEMENT) {
-          String name = r.getLocalName();
-          switch (name) {
-            case "situationRecord" -> {
-              if (sr != null && sr.id != null) items.add(sr.toMap());
-              sr = null;
-
-              // cleanup lokálních stavů
-              currentAlertCLinear = null;
-              inACPrimary = inACSecondary = false;
-              currentAlertCPoint = null;
-              currentGN = null;
-              currentGNEl = null;
-              currentLW = null;
-              inGNStartPoint = inGNEndPoint = inGNFromPoint = inGNToPoint = false;
-              inLWFromPoint = inLWToPoint = false;
-              inGeneralPublicComment = false;
-              inGNNetworkVersion = false;
-              inAreaName = false;
-            }
-            case "headerInformation" -> inHeaderInformation = false;
-            case "situation" -> {
-              currentSituationId = null;
-              currentSituationVersion = null;
-              currentSituationVersionTime = null;
-              currentInformationStatus = null;
-              currentUrgency = null;
-            }
+          // --- situation-level context ---
+        case "situationVersionTime" -> currentSituationVersionTime = v;
+        case "informationStatus" -> {
+          if (inHeaderInformation) currentInformationStatus = v;
+        }
+        case "urgency" -> {
+          if (inHeaderInformation) currentUrgency = v;
+        }
 
-              // komentáře & wrappery
-            case "generalPublicComment" -> inGeneralPublicComment = false;
-            case "networkVersion" -> inGNNetworkVersion = false;
-            case "areaName" -> inAreaName = false;
-
-              // Alert-C ends
-            case "alertCMethod2PrimaryPointLocation" -> inACPrimary = false;
-            case "alertCMethod2SecondaryPointLocation" -> inACSecondary = false;
-            case "alertCLinear" -> {
-              if (sr != null && currentAlertCLinear != null)
-                sr.alertCLinears.add(currentAlertCLinear);
-              currentAlertCLinear = null;
-              inACPrimary = inACSecondary = false;
-            }
-            case "alertCPoint" -> {
-              if (sr != null && currentAlertCPoint != null) sr.alertCPoints.add(currentAlertCPoint);
-              currentAlertCPoint = null;
-            }
+          // --- validity & timing ---
+        case "validityStatus" -> sr.validityStatus = v;
+        case "overallStartTime" -> sr.overallStartTime = v;
+        case "overallEndTime" -> sr.overallEndTime = v;
+        case "probabilityOfOccurrence" -> sr.probabilityOfOccurrence = v;
+
+          // --- comments ---
+        case "value" -> {
+          // Univerzální handler pro <values><value>... – zapisuje kontextově:
+          if (v.isEmpty()) break;
+
+          if (inGNNetworkVersion && currentGN != null && currentGN.networkVersion == null) {
+            currentGN.networkVersion = v;
+          } else if (inAreaName && sr != null && (sr.areaName == null || sr.areaName.isBlank())) {
+            sr.areaName = v;
+          } else if (inGeneralPublicComment && sr != null && sr.comment == null) {
+            sr.comment = v;
+          }
+          // další <value> (např. sourceName) ignorujeme
+        }
 
-              // GN ends
-            case "startPoint" -> inGNStartPoint = false;
-            case "endPoint" -> inGNEndPoint = false;
-            case "fromPoint" -> {
-              inGNFromPoint = false;
-              inLWFromPoint = false;
-            }
-            case "toPoint" -> {
-              inGNToPoint = false;
-              inLWToPoint = false;
-            }
-            case "linearWithinLinearGNElement" -> {
-              if (currentGN != null && currentGNEl != null) currentGN.segments.add(currentGNEl);
-              currentGNEl = null;
-            }
-            case "globalNetworkLinear" -> {
-              if (sr != null && currentGN != null) sr.gnLinears.add(currentGN);
-              currentGN = null;
-            }
+          // --- types / management ---
+        case "networkManagementType", "roadOrCarriagewayOrLaneManagementType" -> {
+          if (!filter.acceptManagement(name, v)) {
+            // rozpracovaný stav se zahodí s sr, zbytek záznamu jen přeskočíme
+            sr = null;
+            dropped++;
+            skipping = true;
+          } else if (name.equals("networkManagementType")) {
+            sr.networkMgmtType = v;
+          } else {
+            sr.roadOrCarriagewayOrLaneMgmtType = v;
+          }
+        }
+        case "roadMaintenanceType", "roadworksType" -> sr.roadworksType = v;
+        case "restrictionType" -> sr.restrictionType = v;
+        case "trafficControlType" -> sr.trafficControlType = v;
+        case "speedLimit" -> sr.speedLimit = v;
+
+          // more typed
+        case "accidentType" -> sr.accidentType = v;
+        case "vehicleObstructionType" -> sr.vehicleObstructionType = v;
+        case "authorityOperationType" -> sr.authorityOperationType = v;
+
+          // --- simple location labels (globální i uvnitř LinearWithin) ---
+        case "roadNumber" -> {
+          if (currentLW != null) {
+            if (currentLW.roadNumber == null || currentLW.roadNumber.isBlank())
+              currentLW.roadNumber = v;
+          } else if (sr != null) {
+            if (sr.roadNameOrNumber == null || sr.roadNameOrNumber.isBlank())
+              sr.roadNameOrNumber = v;
+          }
+        }
+        case "roadName" -> {
+          if (currentLW != null) {
+            if (currentLW.roadName == null || currentLW.roadName.isBlank()) currentLW.roadName = v;
+          } else if (sr != null) {
+            if (sr.roadNameOrNumber == null || sr.roadNameOrNumber.isBlank())
+              sr.roadNameOrNumber = v;
+          }
+        }
+        case "locationDescriptor" -> {
+          // u NDIC bývá plain text, ale kdyby někdy přišlo přes <values>, rozšíříme podobně
+          // jako areaName
+          if (sr.locationDescription == null || sr.locationDescription.isBlank())
+            sr.locationDescription = v;
+        }
 
-              // LinearWithin ends
-            case "linearWithinLinearElement" -> {
-              if (sr != null && currentLW != null) sr.linearsWithin.add(currentLW);
-              currentLW = null;
-              inLWFromPoint = inLWToPoint = false;
-            }
+          // --- Alert-C ---
+        case "alertCLocationCountryCode" -> {
+          if (currentAlertCLinear != null) currentAlertCLinear.country = v;
+          if (currentAlertCPoint != null) currentAlertCPoint.country = v;
+        }
+        case "alertCLocationTableNumber" -> {
+          if (currentAlertCLinear != null) currentAlertCLinear.tableNumber = v;
+          if (currentAlertCPoint != null) currentAlertCPoint.tableNumber = v;
+        }
+        case "alertCLocationTableVersion" -> {
+          if (currentAlertCLinear != null) currentAlertCLinear.tableVersion = v;
+          if (currentAlertCPoint != null) currentAlertCPoint.tableVersion = v;
+        }
+        case "alertCDirectionCoded" -> {
+          if (currentAlertCLinear != null) currentAlertCLinear.directionCoded = v;
+          if (currentAlertCPoint != null) currentAlertCPoint.directionCoded = v;
+        }
+        case "specificLocation" -> {
+          if (currentAlertCLinear != null) {
+            if (inACPrimary && currentAlertCLinear.primarySpecificLocation == null)
+              currentAlertCLinear.primarySpecificLocation = v;
+            else if (inACSecondary && currentAlertCLinear.secondarySpecificLocation == null)
+              currentAlertCLinear.secondarySpecificLocation = v;
+          } else if (currentAlertCPoint != null) {
+            if (currentAlertCPoint.primarySpecificLocation == null)
+              currentAlertCPoint.primarySpecificLocation = v;
+          }
+        }
 
-            default -> {}
+          // --- Global Network Linear ---
+        case "linearGeometryType" -> {
+          if (currentGN != null) currentGN.linearGeometryType = v;
+        }
+        case "sjtskX" -> {
+          if (currentGN != null) {
+            if (inGNStartPoint && currentGN.startX == null) currentGN.startX = v;
+            else if (inGNEndPoint && currentGN.endX == null) currentGN.endX = v;
+          }
+        }
+        case "sjtskY" -> {
+          if (currentGN != null) {
+            if (inGNStartPoint && currentGN.startY == null) currentGN.startY = v;
+            else if (inGNEndPoint && currentGN.endY == null) currentGN.endY = v;
           }
         }
+        case "sectionId" -> {
+          if (currentGNEl != null) currentGNEl.sectionId = v;
+        }
+        case "directionRelativeOnLinearSection" -> {
+          if (currentGNEl != null) currentGNEl.direction = v;
+          if (currentLW != null && currentLW.direction == null)
+            currentLW.direction = v; // sdílený název
+        }
+        case "orderOfSection" -> {
+          if (currentGNEl != null) currentGNEl.order = v;
+        }
+        case "percentageDistanceAlong" -> {
+          if (currentGNEl != null) {
+            if (inGNFromPoint && currentGNEl.fromPercent == null) currentGNEl.fromPercent = v;
+            else if (inGNToPoint && currentGNEl.toPercent == null) currentGNEl.toPercent = v;
+          }
+        }
+        case "distanceAlong" -> {
+          if (currentLW != null) {
+            if (inLWFromPoint && currentLW.fromDistanceAlong == null)
+              currentLW.fromDistanceAlong = v;
+            else if (inLWToPoint && currentLW.toDistanceAlong == null)
+              currentLW.toDistanceAlong = v;
+          }
+        }
+
+        default -> {}
       }
+    }
 
-      if (sr != null && sr.id != null) items.add(sr.toMap());
-    } catch (XMLStreamException e) {
-      throw new RuntimeException("DATEX II parse error", e);
+    private void end(String name) {
+      switch (name) {
+        case "situationRecord" -> {
+          if (sr != null && sr.id != null) {
+            if (emit(sr, filter, listener)) count++;
+            else dropped++;
+          }
+          sr = null;
+
+          // cleanup lokálních stavů
+          currentAlertCLinear = null;
+          inACPrimary = inACSecondary = false;
+          currentAlertCPoint = null;
+          currentGN = null;
+          currentGNEl = null;
+          currentLW = null;
+          inGNStartPoint = inGNEndPoint = inGNFromPoint = inGNToPoint = false;
+          inLWFromPoint = inLWToPoint = false;
+          inGeneralPublicComment = false;
+          inGNNetworkVersion = false;
+          inAreaName = false;
+        }
+        case "headerInformation" -> inHeaderInformation = false;
+        case "situation" -> {
+          currentSituationId = null;
+          currentSituationVersion = null;
+          currentSituationVersionTime = null;
+          currentInformationStatus = null;
+          currentUrgency = null;
+        }
+
+          // komentáře & wrappery
+        case "generalPublicComment" -> inGeneralPublicComment = false;
+        case "networkVersion" -> inGNNetworkVersion = false;
+        case "areaName" -> inAreaName = false;
+
+          // Alert-C ends
+        case "alertCMethod2PrimaryPointLocation" -> inACPrimary = false;
+        case "alertCMethod2SecondaryPointLocation" -> inACSecondary = false;
+        case "alertCLinear" -> {
+          if (sr != null && currentAlertCLinear != null)
+            sr.alertCLinears = add(sr.alertCLinears, currentAlertCLinear.build());
+          currentAlertCLinear = null;
+          inACPrimary = inACSecondary = false;
+        }
+        case "alertCPoint" -> {
+          if (sr != null && currentAlertCPoint != null)
+            sr.alertCPoints = add(sr.alertCPoints, currentAlertCPoint.build());
+          currentAlertCPoint = null;
+        }
+
+          // GN ends
+        case "startPoint" -> inGNStartPoint = false;
+        case "endPoint" -> inGNEndPoint = false;
+        case "fromPoint" -> {
+          inGNFromPoint = false;
+          inLWFromPoint = false;
+        }
+        case "toPoint" -> {
+          inGNToPoint = false;
+          inLWToPoint = false;
+        }
+        case "linearWithinLinearGNElement" -> {
+          if (currentGN != null && currentGNEl != null) currentGN.segments.add(currentGNEl);
+          currentGNEl = null;
+        }
+        case "globalNetworkLinear" -> {
+          if (sr != null && currentGN != null) sr.gnLinears = add(sr.gnLinears, currentGN.build());
+          currentGN = null;
+        }
+
+          // LinearWithin ends
+        case "linearWithinLinearElement" -> {
+          if (sr != null && currentLW != null)
+            sr.linearsWithin = add(sr.linearsWithin, currentLW.build());
+          currentLW = null;
+          inLWFromPoint = inLWToPoint = false;
+        }
+
+        default -> {}
+      }
+    }
+  }
+
+  // --- interní pomocné třídy (mutable stav během čtení, na konci build()) -------
+
+  private static final class AlertCLinear {
+    String country, tableNumber, tableVersion, directionCoded;
+    String primarySpecificLocation, secondarySpecificLocation;
+
+    DatexRecord.AlertCLinear build() {
+      return new DatexRecord.AlertCLinear(
+          nz(country),
+          nz(tableNumber),
+          nz(tableVersion),
+          nz(directionCoded),
+          nz(primarySpecificLocation),
+          nz(secondarySpecificLocation),
+          null,
+          null);
+    }
+  }
+
+  private static final class AlertCPoint {
+    String country, tableNumber, tableVersion, directionCoded;
+    String primarySpecificLocation;
+
+    DatexRecord.AlertCPoint build() {
+      return new DatexRecord.AlertCPoint(
+          nz(country),
+          nz(tableNumber),
+          nz(tableVersion),
+          nz(directionCoded),
+          nz(primarySpecificLocation),
+          null);
+    }
+  }
+
+  private static final class GNElement {
+    String sectionId, direction, order, fromPercent, toPercent;
+
+    DatexRecord.GNElement build() {
+      return new DatexRecord.GNElement(
+          nz(sectionId), nz(direction), nz(order), nz(fromPercent), nz(toPercent));
     }
+  }
 
-    return new ParseResult(pubTime, items);
+  private static final class GNLinear {
+    String networkVersion, linearGeometryType;
+    String startX, startY, endX, endY;
+    List<GNElement> segments = new ArrayList<>();
+
+    DatexRecord.GNLinear build() {
+      List<DatexRecord.GNElement> segs;
+      if (segments.isEmpty()) {
+        segs = List.of();
+      } else {
+        DatexRecord.GNElement[] arr = new DatexRecord.GNElement[segments.size()];
+        for (int i = 0; i < arr.length; i++) arr[i] = segments.get(i).build();
+        segs = List.of(arr);
+      }
+      return new DatexRecord.GNLinear(
+          nz(networkVersion),
+          nz(linearGeometryType),
+          nz(startX),
+          nz(startY),
+          nz(endX),
+          nz(endY),
+          segs,
+          Double.NaN,
+          Double.NaN,
+          Double.NaN,
+          Double.NaN,
+          null);
+    }
+  }
+
+  private static final class LinearWithin {
+    String roadNumber, roadName, direction;
+    String fromDistanceAlong, toDistanceAlong;
+
+    DatexRecord.LinearWithin build() {
+      return new DatexRecord.LinearWithin(
+          nz(roadNumber), nz(roadName), nz(direction), nz(fromDistanceAlong), nz(toDistanceAlong));
+    }
+  }
+
+  private static final class SituationRecord {
+    // situation header context
+    String situationId, situationVersion, situationVersionTime, informationStatus, urgency;
+
+    // record-level attrs
+    String id,
+        recType /*xsi:type*/,
+        validityStatus,
+        overallStartTime,
+        overallEndTime,
+        probabilityOfOccurrence,
+        comment;
+
+    // management / restrictions / types
+    String networkMgmtType,
+        roadworksType,
+        restrictionType,
+        roadOrCarriagewayOrLaneMgmtType,
+        trafficControlType,
+        speedLimit;
+    String accidentType, vehicleObstructionType, authorityOperationType;
+
+    // simple text location
+    String roadNameOrNumber, locationDescription, areaName;
+
+    // nested location methods (alokují se až s první položkou)
+    List<DatexRecord.AlertCLinear> alertCLinears;
+    List<DatexRecord.AlertCPoint> alertCPoints;
+    List<DatexRecord.GNLinear> gnLinears;
+    List<DatexRecord.LinearWithin> linearsWithin;
+
+    boolean isClosure() {
+      String s =
+          (roadOrCarriagewayOrLaneMgmtType != null)
+              ? roadOrCarriagewayOrLaneMgmtType
+              : ((networkMgmtType != null) ? networkMgmtType : "");
+      return s.toLowerCase(Locale.ROOT).contains("closed");
+    }
+
+    DatexRecord build() {
+      return new DatexRecord(
+          nz(situationId),
+          nz(situationVersion),
+          nz(situationVersionTime),
+          nz(informationStatus),
+          nz(urgency),
+          nz(id),
+          nz(recType),
+          nz(validityStatus),
+          nz(overallStartTime),
+          nz(overallEndTime),
+          nz(probabilityOfOccurrence),
+          nz(comment),
+          nz(networkMgmtType),
+          nz(roadworksType),
+          nz(restrictionType),
+          nz(roadOrCarriagewayOrLaneMgmtType),
+          nz(trafficControlType),
+          nz(speedLimit),
+          nz(accidentType),
+          nz(vehicleObstructionType),
+          nz(authorityOperationType),
+          nz(roadNameOrNumber),
+          (areaName != null && !areaName.isBlank()) ? areaName : nz(locationDescription),
+          frozen(alertCLinears),
+          frozen(alertCPoints),
+          frozen(gnLinears),
+          frozen(linearsWithin),
+          isClosure());
+    }
   }
 
   // --- util -----------------------------------------------------------------
 
-  private static void put(Map<String, Object> m, String k, String v) {
-    if (v != null && !v.isBlank()) m.put(k, v);
+  /** Dokončí záznam a pokud projde finálním testem filtru, předá ho dál. */
+  private static boolean emit(SituationRecord sr, RecordFilter filter, Listener listener) {
+    DatexRecord rec = sr.build();
+    if (!filter.test(rec)) return false;
+    listener.onRecord(rec);
+    return true;
+  }
+
+  private static String nz(String v) {
+    return (v != null && !v.isBlank()) ? v : null;
+  }
+
+  private static <T> List<T> frozen(List<T> l) {
+    return (l == null) ? List.of() : List.copyOf(l);
+  }
+
+  private static <T> List<T> add(List<T> l, T v) {
+    if (l == null) l = new ArrayList<>(2);
+    l.add(v);
+    return l;
   }
 
   private static String attr(XMLStreamReader r, String ns, String local) {
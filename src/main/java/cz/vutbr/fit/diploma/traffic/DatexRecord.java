@@ -0,0 +1,217 @@
+package cz.vutbr.fit.diploma.traffic;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Jeden SituationRecord z DATEX II feedu. Neměnný, plněný přímo parserem; prázdné hodnoty jsou
+ * {@code null}, chybějící lokalizační metody prázdné seznamy. JSON tvar (názvy polí, vynechávání
+ * prázdných) určuje {@link DatexJson}.
+ */
+@JsonSerialize(using = DatexJson.RecordSerializer.class)
+public record DatexRecord(
+    // situation context
+    String situationId,
+    String situationVersion,
+    String situationVersionTime,
+    String informationStatus,
+    String urgency,
+    // record basics
+    String situationRecordId,
+    String xsiType,
+    String validityStatus,
+    String overallStartTime,
+    String overallEndTime,
+    String probabilityOfOccurrence,
+    String comment,
+    // types
+    String networkManagementType,
+    String roadworksType,
+    String restrictionType,
+    String roadOrCarriagewayOrLaneManagementType,
+    String trafficControlType,
+    String speedLimit,
+    String accidentType,
+    String vehicleObstructionType,
+    String authorityOperationType,
+    // simple location labels
+    String road,
+    String locationText,
+    // structured locations
+    List<AlertCLinear> alertCLinear,
+    List<AlertCPoint> alertCPoint,
+    List<GNLinear> globalNetworkLinear,
+    List<LinearWithin> linearWithinLinearElement,
+    boolean isClosure) {
+
+  /** Kopie záznamu s jinými strukturovanými lokalizacemi (doplnění tabulkou, transformace). */
+  public DatexRecord withLocations(
+      List<AlertCLinear> linear, List<AlertCPoint> point, List<GNLinear> globalNetwork) {
+    return new DatexRecord(
+        situationId,
+        situationVersion,
+        situationVersionTime,
+        informationStatus,
+        urgency,
+        situationRecordId,
+        xsiType,
+        validityStatus,
+        overallStartTime,
+        overallEndTime,
+        probabilityOfOccurrence,
+        comment,
+        networkManagementType,
+        roadworksType,
+        restrictionType,
+        roadOrCarriagewayOrLaneManagementType,
+        trafficControlType,
+        speedLimit,
+        accidentType,
+        vehicleObstructionType,
+        authorityOperationType,
+        road,
+        locationText,
+        linear,
+        point,
+        globalNetwork,
+        linearWithinLinearElement,
+        isClosure);
+  }
+
+  /**
+   * Alert-C lineární lokalizace (method 2: primary + secondary). {@code primaryLocation} / {@code
+   * secondaryLocation} jsou null, dokud je nedoplní {@link AlertCLocations}.
+   */
+  public record AlertCLinear(
+      String countryCode,
+      String tableNumber,
+      String tableVersion,
+      String directionCoded,
+      String primarySpecificLocation,
+      String secondarySpecificLocation,
+      AlertCLocation primaryLocation,
+      AlertCLocation secondaryLocation) {
+
+    public AlertCLinear withLocations(AlertCLocation primary, AlertCLocation secondary) {
+      return new AlertCLinear(
+          countryCode,
+          tableNumber,
+          tableVersion,
+          directionCoded,
+          primarySpecificLocation,
+          secondarySpecificLocation,
+          primary,
+          secondary);
+    }
+  }
+
+  /** Alert-C bodová lokalizace; {@code primaryLocation} viz {@link AlertCLinear}. */
+  public record AlertCPoint(
+      String countryCode,
+      String tableNumber,
+      String tableVersion,
+      String directionCoded,
+      String primarySpecificLocation,
+      AlertCLocation primaryLocation) {
+
+    public AlertCPoint withLocation(AlertCLocation primary) {
+      return new AlertCPoint(
+          countryCode, tableNumber, tableVersion, directionCoded, primarySpecificLocation, primary);
+    }
+  }
+
+  /**
+   * Bod z lokalizační tabulky Alert-C: název (a druhý název, např. směr), číslo silnice a
+   * souřadnice WGS-84 ({@code NaN}, pokud je tabulka nemá).
+   */
+  public record AlertCLocation(
+      String name, String secondName, String road, double lat, double lon) {}
+
+  /**
+   * Global Network lineární lokalizace; souřadnice S-JTSK jsou tak, jak přišly ve feedu, WGS-84
+   * doplňuje {@link GeoTransform} ({@code NaN} = bez transformace / bez souřadnic) a geometrii
+   * úseků {@link GNGeometry} (null = bez sítě).
+   */
+  public record GNLinear(
+      String networkVersion,
+      String linearGeometryType,
+      String startSjtskX,
+      String startSjtskY,
+      String endSjtskX,
+      String endSjtskY,
+      List<GNElement> segments,
+      double startLat,
+      double startLon,
+      double endLat,
+      double endLon,
+      LineString geometry) {
+
+    public GNLinear withWgs84(double startLat, double startLon, double endLat, double endLon) {
+      return new GNLinear(
+          networkVersion,
+          linearGeometryType,
+          startSjtskX,
+          startSjtskY,
+          endSjtskX,
+          endSjtskY,
+          segments,
+          startLat,
+          startLon,
+          endLat,
+          endLon,
+          geometry);
+    }
+
+    public GNLinear withGeometry(LineString geometry) {
+      return new GNLinear(
+          networkVersion,
+          linearGeometryType,
+          startSjtskX,
+          startSjtskY,
+          endSjtskX,
+          endSjtskY,
+          segments,
+          startLat,
+          startLon,
+          endLat,
+          endLon,
+          geometry);
+    }
+  }
+
+  /** Lomená čára ve WGS-84, {@code coordinates} = lon, lat, lon, lat, ... (pořadí GeoJSON). */
+  public record LineString(double[] coordinates) {
+
+    public int size() {
+      return coordinates.length / 2;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof LineString l && Arrays.equals(coordinates, l.coordinates);
+    }
+
+    @Override
+    public int hashCode() {
+      return Arrays.hashCode(coordinates);
+    }
+
+    @Override
+    public String toString() {
+      return "LineString" + Arrays.toString(coordinates);
+    }
+  }
+
+  /** Úsek Global Network (linearWithinLinearGNElement). */
+  public record GNElement(
+      String sectionId, String direction, String order, String fromPercent, String toPercent) {}
+
+  /** Adresná metoda (linearWithinLinearElement). */
+  public record LinearWithin(
+      String roadNumber,
+      String roadName,
+      String direction,
+      String fromDistanceAlong,
+      String toDistanceAlong) {}
+}
@@ -1,30 +1,120 @@
 package cz.vutbr.fit.diploma.traffic;
 
-import java.util.Map;
+import java.util.Locale;
 
 public final class DatexUtil {
 
-  public static boolean isFullClosure(Map<String, Object> rec) {
-    return containsAny(
-            rec.get("roadOrCarriagewayOrLaneManagementType"), "roadClosed", "carriagewayClosed")
-        || containsAny(rec.get("networkManagementType"), "roadClosed", "carriagewayClosed");
+  private static final String[] FULL = {"roadClosed", "carriagewayClosed"};
+  private static final String[] LANE = {"laneClosures"};
+
+  public static boolean isFullClosure(DatexRecord rec) {
+    return containsAny(rec.roadOrCarriagewayOrLaneManagementType(), FULL)
+        || containsAny(rec.networkManagementType(), FULL);
   }
 
-  public static boolean isLaneClosure(Map<String, Object> rec) {
-    return containsAny(rec.get("roadOrCarriagewayOrLaneManagementType"), "laneClosures");
+  public static boolean isLaneClosure(DatexRecord rec) {
+    return containsAny(rec.roadOrCarriagewayOrLaneManagementType(), LANE);
   }
 
   /** Celková „uzavírka?“ (plná nebo pruhová) */
-  public static boolean isAnyClosure(Map<String, Object> rec) {
+  public static boolean isAnyClosure(DatexRecord rec) {
     return isFullClosure(rec) || isLaneClosure(rec);
   }
 
+  /**
+   * {@link #isAnyClosure} jako filtr pro parser. Typ řízení nesou jen záznamy typu {@code
+   * *Management} (RoadOrCarriagewayOrLaneManagement, GeneralNetworkManagement, ...), ostatní se
+   * přeskočí hned podle {@code xsi:type}; záznam nese jediný typ řízení, takže nevyhovující hodnota
+   * rozhoduje rovnou.
+   */
+  public static final DatexParser.RecordFilter CLOSURES =
+      new DatexParser.RecordFilter() {
+        @Override
+        public boolean acceptType(String xsiType) {
+          return xsiType == null || xsiType.isBlank() || xsiType.endsWith("Management");
+        }
+
+        @Override
+        public boolean acceptManagement(String element, String value) {
+          return containsAny(value, FULL)
+              || (element.equals("roadOrCarriagewayOrLaneManagementType")
+                  && containsAny(value, LANE));
+        }
+
+        @Override
+        public boolean test(DatexRecord rec) {
+          return isAnyClosure(rec);
+        }
+      };
+
+  /**
+   * Omezení provozu: záznamy typu řízení provozu ({@code *Management}) a prací na silnici ({@code
+   * MaintenanceWorks}, {@code ConstructionWorks}), tj. uzavírky i částečná omezení.
+   */
+  public static boolean isRestriction(DatexRecord rec) {
+    String t = rec.xsiType();
+    if (t != null && !t.isBlank()) return isRestrictionType(t);
+    return rec.roadOrCarriagewayOrLaneManagementType() != null
+        || rec.networkManagementType() != null
+        || rec.roadworksType() != null
+        || rec.restrictionType() != null
+        || rec.speedLimit() != null;
+  }
+
+  /** {@link #isRestriction} jako filtr; ostatní typy se přeskočí hned podle {@code xsi:type}. */
+  public static final DatexParser.RecordFilter RESTRICTIONS =
+      new DatexParser.RecordFilter() {
+        @Override
+        public boolean acceptType(String xsiType) {
+          return xsiType == null || xsiType.isBlank() || isRestrictionType(xsiType);
+        }
+
+        @Override
+        public boolean test(DatexRecord rec) {
+          return isRestriction(rec);
+        }
+      };
+
+  /** Události (nehody, překážky, počasí, ...) = vše, co není {@link #RESTRICTIONS}. */
+  public static final DatexParser.RecordFilter EVENTS =
+      new DatexParser.RecordFilter() {
+        @Override
+        public boolean acceptType(String xsiType) {
+          return xsiType == null || xsiType.isBlank() || !isRestrictionType(xsiType);
+        }
+
+        @Override
+        public boolean test(DatexRecord rec) {
+          return !isRestriction(rec);
+        }
+      };
+
+  /** Filtr podle jména z konfigurace feedu ({@code all|closures|restrictions|events}). */
+  public static DatexParser.RecordFilter filter(String name) {
+    return switch (name.trim().toLowerCase(Locale.ROOT)) {
+      case "all" -> DatexParser.RecordFilter.ALL;
+      case "closures" -> CLOSURES;
+      case "restrictions" -> RESTRICTIONS;
+      case "events" -> EVENTS;
+      default -> throw new IllegalArgumentException("Unknown record filter: " + name);
+    };
+  }
+
   // --- helpers ---
-  private static boolean containsAny(Object value, String... needles) {
-    if (!(value instanceof String s) || s.isBlank()) return false;
-    String low = s.toLowerCase();
+
+  private static boolean isRestrictionType(String xsiType) {
+    return xsiType.endsWith("Management")
+        || xsiType.endsWith("Works")
+        || xsiType.endsWith("Roadworks");
+  }
+
+  /** Case-insensitive „contains“ bez alokace (žádné toLowerCase kopie). */
+  private static boolean containsAny(String s, String[] needles) {
+    if (s == null || s.isBlank()) return false;
     for (String n : needles) {
-      if (low.contains(n.toLowerCase())) return true;
+      for (int i = 0, last = s.length() - n.length(); i <= last; i++) {
+        if (s.regionMatches(true, i, n, 0, n.length())) return true;
+      }
     }
     return false;
   }
@@ -0,0 +1,279 @@
+package cz.vutbr.fit.diploma.traffic;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import org.jboss.logging.Logger;
+
+/**
+ * Archiv surových těl jednoho feedu tak, jak přišla po síti (gzip se znovu nekomprimuje ani
+ * nerozbaluje). Těla se připojují za sebe do segmentů {@code seg-<čas založení>.dat}; segment se
+ * uzavře po {@code segmentBytes} nebo {@code segmentAge} a nejstarší segmenty nad {@code retain} se
+ * mažou. Ke každému segmentu patří index {@code seg-….idx}, jeden řádek na snapshot:
+ *
+ * <pre>publicationTime \t fetchedAt \t offset \t length \t encoding \t sha256</pre>
+ *
+ * <p>Zápis běží souběžně s parsováním ({@link Snapshot#tee}, {@link Snapshot#write}); do indexu se
+ * snapshot dostane až po {@link Snapshot#commit}, jinak se segment zkrátí zpět. Chyba archivu běh
+ * feedu neshodí, jen se snapshot neuloží. Volat z jednoho vlákna naráz (běh feedu je jen jeden).
+ */
+final class FeedArchive {
+
+  private static final Logger LOG = Logger.getLogger(FeedArchive.class);
+
+  /** Jeden archivovaný snapshot (řádek indexu). */
+  record Entry(
+      String publicationTime,
+      String fetchedAt,
+      Path segment,
+      long offset,
+      long length,
+      String encoding,
+      String sha256) {
+
+    /** Dekomprimované tělo snapshotu. */
+    InputStream open() throws IOException {
+      FileChannel ch = FileChannel.open(segment, StandardOpenOption.READ);
+      ch.position(offset);
+      InputStream raw = new BoundedInputStream(Channels.newInputStream(ch), length);
+      return "gzip".equalsIgnoreCase(encoding) ? new GZIPInputStream(raw, 64 * 1024) : raw;
+    }
+  }
+
+  private final String feed;
+  private final Path dir;
+  private final long segmentBytes;
+  private final long segmentAgeMillis;
+  private final int retain;
+
+  private FileChannel segment;
+  private Path segmentPath;
+  private long segmentCreated;
+
+  FeedArchive(String feed, Path dir, long segmentBytes, Duration segmentAge, int retain) {
+    this.feed = feed;
+    this.dir = dir;
+    this.segmentBytes = segmentBytes;
+    this.segmentAgeMillis = segmentAge.toMillis();
+    this.retain = retain;
+  }
+
+  /** Začne nový snapshot; {@code encoding} je Content-Encoding odpovědi. */
+  Snapshot begin(String encoding) {
+    try {
+      rotateIfNeeded();
+      return new Snapshot(encoding.isBlank() ? "identity" : encoding, segment.size());
+    } catch (IOException e) {
+      LOG.warnf(e, "[%s] Archive unavailable in %s, snapshot not archived", feed, dir);
+      closeSegment();
+      return new Snapshot(encoding, -1);
+    }
+  }
+
+  void close() {
+    closeSegment();
+  }
+
+  /** Rozpracovaný snapshot; bajty se zapisují rovnou za konec aktuálního segmentu. */
+  final class Snapshot {
+    private final String encoding;
+    private final long start;
+    private boolean failed;
+
+    private Snapshot(String encoding, long start) {
+      this.encoding = encoding;
+      this.start = start;
+      this.failed = start < 0;
+    }
+
+    void write(byte[] b, int off, int len) {
+      if (failed) return;
+      try {
+        ByteBuffer buf = ByteBuffer.wrap(b, off, len);
+        while (buf.hasRemaining()) segment.write(buf);
+      } catch (IOException e) {
+        LOG.warnf(e, "[%s] Failed to write archive segment %s", feed, segmentPath);
+        abort();
+      }
+    }
+
+    /** Obalí stream tak, aby se vše přečtené zároveň zapsalo do archivu. */
+    InputStream tee(InputStream in) {
+      return new FilterInputStream(in) {
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+          int n = super.read(b, off, len);
+          if (n > 0) write(b, off, n);
+          return n;
+        }
+
+        @Override
+        public int read() throws IOException {
+          int c = super.read();
+          if (c >= 0) write(new byte[] {(byte) c}, 0, 1);
+          return c;
+        }
+      };
+    }
+
+    /** Celé tělo je v segmentu → zapíše řádek indexu. */
+    void commit(String publicationTime, String fetchedAt, String sha256) {
+      if (failed) return;
+      try {
+        long length = segment.position() - start;
+        segment.force(false);
+        String line =
+            String.join(
+                    "\t",
+                    publicationTime == null ? "" : publicationTime,
+                    fetchedAt,
+                    Long.toString(start),
+                    Long.toString(length),
+                    encoding,
+                    sha256)
+                + "\n";
+        Files.writeString(
+            indexOf(segmentPath),
+            line,
+            StandardCharsets.UTF_8,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.APPEND);
+      } catch (IOException e) {
+        LOG.warnf(e, "[%s] Failed to index archive snapshot in %s", feed, segmentPath);
+        abort();
+      }
+    }
+
+    /** Snapshot se nearchivuje (chyba, stejný obsah); segment se zkrátí na původní délku. */
+    void abort() {
+      if (failed) return;
+      failed = true;
+      try {
+        segment.truncate(start);
+        segment.position(start);
+      } catch (IOException e) {
+        LOG.warnf(e, "[%s] Failed to truncate archive segment %s", feed, segmentPath);
+        closeSegment();
+      }
+    }
+  }
+
+  // --- segmenty ---------------------------------------------------------------
+
+  private void rotateIfNeeded() throws IOException {
+    long now = System.currentTimeMillis();
+    if (segment != null
+        && segment.size() < segmentBytes
+        && now - segmentCreated < segmentAgeMillis) {
+      return;
+    }
+    closeSegment();
+    Files.createDirectories(dir);
+    segmentCreated = now;
+    segmentPath = dir.resolve(String.format("seg-%013d.dat", now));
+    segment =
+        FileChannel.open(
+            segmentPath,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE,
+            StandardOpenOption.APPEND);
+    if (retain > 0) prune();
+  }
+
+  private void closeSegment() {
+    if (segment == null) return;
+    try {
+      segment.close();
+    } catch (IOException e) {
+      LOG.warnf(e, "[%s] Failed to close archive segment %s", feed, segmentPath);
+    }
+    segment = null;
+  }
+
+  /** Smaže nejstarší segmenty (i s indexem) nad limit {@code retain}. */
+  private void prune() throws IOException {
+    List<Path> segments = segments(dir);
+    for (int i = 0; i < segments.size() - retain; i++) {
+      Files.deleteIfExists(indexOf(segments.get(i)));
+      Files.deleteIfExists(segments.get(i));
+      LOG.debugf("[%s] Pruned archive segment %s", feed, segments.get(i));
+    }
+  }
+
+  // --- čtení ------------------------------------------------------------------
+
+  /**
+   * Všechny archivované snapshoty v adresáři feedu, v pořadí archivace (= vzestupně podle
+   * publicationTime); {@code from}/{@code to} (včetně) omezují rozsah, null = bez omezení.
+   * Snapshoty bez publicationTime projdou vždy.
+   */
+  static List<Entry> read(Path dir, OffsetDateTime from, OffsetDateTime to) throws IOException {
+    List<Entry> out = new ArrayList<>();
+    for (Path seg : segments(dir)) {
+      Path idx = indexOf(seg);
+      if (!Files.exists(idx)) continue;
+      for (String line : Files.readAllLines(idx, StandardCharsets.UTF_8)) {
+        String[] p = line.split("\t", -1);
+        if (p.length < 6) continue;
+        String pt = p[0];
+        if (!pt.isEmpty()) {
+          OffsetDateTime t = OffsetDateTime.parse(pt);
+          if ((from != null && t.isBefore(from)) || (to != null && t.isAfter(to))) continue;
+        }
+        out.add(new Entry(pt, p[1], seg, Long.parseLong(p[2]), Long.parseLong(p[3]), p[4], p[5]));
+      }
+    }
+    return out;
+  }
+
+  private static List<Path> segments(Path dir) throws IOException {
+    if (!Files.isDirectory(dir)) return List.of();
+    try (Stream<Path> s = Files.list(dir)) {
+      return s.filter(p -> p.getFileName().toString().matches("seg-\\d+\\.dat")).sorted().toList();
+    }
+  }
+
+  private static Path indexOf(Path segment) {
+    String name = segment.getFileName().toString();
+    return segment.resolveSibling(name.substring(0, name.length() - 4) + ".idx");
+  }
+
+  /** Čte nejvýš {@code remaining} bajtů (jeden snapshot ze segmentu). */
+  private static final class BoundedInputStream extends FilterInputStream {
+    private long remaining;
+
+    BoundedInputStream(InputStream in, long length) {
+      super(in);
+      this.remaining = length;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (remaining <= 0) return -1;
+      int n = super.read(b, off, (int) Math.min(len, remaining));
+      if (n > 0) remaining -= n;
+      return n;
+    }
+
+    @Override
+    public int read() throws IOException {
+      if (remaining <= 0) return -1;
+      int c = super.read();
+      if (c >= 0) remaining--;
+      return c;
+    }
+  }
+}
@@ -0,0 +1,168 @@
+package cz.vutbr.fit.diploma.traffic;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.jboss.logging.Logger;
+
+/**
+ * Stav jednoho feedu mezi polly: HTTP cache (ETag/Last-Modified), otisk obsahu posledního úspěšného
+ * běhu, marker posledního úspěšného stažení, detekce změn, rozpracované stažení ({@link BodySpool})
+ * a odhad periody feedu ({@link PollCadence}). Běh feedu je vždy nejvýš jeden ({@link
+ * #tryStart()}), takže stav mimo {@code etag}/{@code lastMod} nepotřebuje synchronizaci.
+ */
+final class FeedState {
+
+  private static final Logger LOG = Logger.getLogger(FeedState.class);
+
+  final String name;
+  final String url;
+  final String every;
+  final String filterName;
+  final DatexParser.RecordFilter filter;
+  final String topic; // null = topic kanálu
+  final Path markerPath;
+  final Path httpCachePath;
+  final Path digestPath;
+  final ChangeTracker changes;
+  final BodySpool spool;
+  FeedArchive archive; // null = archiv vypnutý
+  PollCadence cadence; // null = pevný interval (Quarkus scheduler)
+  String deltaUrl; // null = jen plné stažení; {since} = čas, od kdy chceme změny
+
+  long lastFullAt; // epoch ms posledního úspěšného plného stažení (0 = od startu žádné)
+  boolean lastDelta; // poslední úspěšný běh byl rozdílový
+  boolean lastRunCommitted; // minulý běh publikace doběhl (commit / stejný publicationTime)
+
+  volatile String etag = "";
+  volatile String lastMod = "";
+
+  // poslední úspěšný běh: SHA-256 dekomprimovaného těla (hex) a publicationTime z hlavičky
+  String lastDigest = "";
+  String lastPublicationTime = "";
+
+  private final AtomicBoolean running = new AtomicBoolean();
+
+  FeedState(
+      String name,
+      String url,
+      String every,
+      String filterName,
+      String topic,
+      Path markerPath,
+      Path httpCachePath,
+      Path deltaPath) {
+    this.name = name;
+    this.url = url;
+    this.every = every;
+    this.filterName = filterName;
+    this.filter = DatexUtil.filter(filterName);
+    this.topic = (topic == null || topic.isBlank()) ? null : topic;
+    this.markerPath = markerPath;
+    this.httpCachePath = httpCachePath;
+    this.digestPath = stateFile(".digest");
+    this.changes = new ChangeTracker(deltaPath);
+    this.spool = new BodySpool(name, stateFile(".partial"));
+  }
+
+  /** Další stavový soubor feedu vedle HTTP cache ({@code <httpcache><suffix>}). */
+  Path stateFile(String suffix) {
+    return httpCachePath.resolveSibling(httpCachePath.getFileName() + suffix);
+  }
+
+  /** Načte HTTP cache, otisk obsahu a stav detekce změn z minulého běhu. */
+  void load() {
+    loadHttpCache();
+    loadDigest();
+    changes.load();
+  }
+
+  boolean hasMarker() {
+    return Files.exists(markerPath);
+  }
+
+  /** Čas posledního úspěšného stažení (ISO), "" = marker není. */
+  String readMarker() {
+    try {
+      if (!Files.exists(markerPath)) return "";
+      return Files.readString(markerPath, StandardCharsets.UTF_8).trim();
+    } catch (IOException e) {
+      LOG.warnf(e, "[%s] Failed to read marker from %s", name, markerPath);
+      return "";
+    }
+  }
+
+  /** {@code false}, pokud tento feed už právě běží (poll se pak přeskočí). */
+  boolean tryStart() {
+    return running.compareAndSet(false, true);
+  }
+
+  void finished() {
+    running.set(false);
+  }
+
+  void writeMarker(String utcIso) {
+    try {
+      if (markerPath.getParent() != null) Files.createDirectories(markerPath.getParent());
+      Files.writeString(markerPath, utcIso, StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      LOG.warnf(e, "[%s] Failed to write marker to %s", name, markerPath);
+    }
+  }
+
+  private void loadHttpCache() {
+    Path p = httpCachePath;
+    try {
+      if (Files.exists(p)) {
+        String txt = Files.readString(p, StandardCharsets.UTF_8);
+        // velmi jednoduchý formát: první řádek etag, druhý řádek last-modified
+        String[] lines = txt.split("\\R", -1);
+        if (lines.length > 0) etag = lines[0] == null ? "" : lines[0].trim();
+        if (lines.length > 1) lastMod = lines[1] == null ? "" : lines[1].trim();
+        if (!etag.isBlank() || !lastMod.isBlank()) {
+          LOG.infof("[%s] Loaded HTTP cache: ETag='%s', Last-Modified='%s'", name, etag, lastMod);
+        }
+      }
+    } catch (IOException e) {
+      LOG.warnf(e, "[%s] Failed to read HTTP cache from %s", name, p);
+    }
+  }
+
+  void saveHttpCache() {
+    Path p = httpCachePath;
+    try {
+      if (p.getParent() != null) Files.createDirectories(p.getParent());
+      String txt = (etag == null ? "" : etag) + "\n" + (lastMod == null ? "" : lastMod) + "\n";
+      Files.writeString(p, txt, StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      LOG.warnf(e, "[%s] Failed to write HTTP cache to %s", name, p);
+    }
+  }
+
+  /** Otisk a publicationTime úspěšného běhu; stejný formát jako HTTP cache (řádek na hodnotu). */
+  void saveDigest(String digest, String publicationTime) {
+    lastDigest = digest == null ? "" : digest;
+    lastPublicationTime = publicationTime == null ? "" : publicationTime;
+    try {
+      if (digestPath.getParent() != null) Files.createDirectories(digestPath.getParent());
+      Files.writeString(
+          digestPath, lastDigest + "\n" + lastPublicationTime + "\n", StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      LOG.warnf(e, "[%s] Failed to write content digest to %s", name, digestPath);
+    }
+  }
+
+  private void loadDigest() {
+    try {
+      if (Files.exists(digestPath)) {
+        String[] lines = Files.readString(digestPath, StandardCharsets.UTF_8).split("\\R", -1);
+        if (lines.length > 0) lastDigest = lines[0].trim();
+        if (lines.length > 1) lastPublicationTime = lines[1].trim();
+      }
+    } catch (IOException e) {
+      LOG.warnf(e, "[%s] Failed to read content digest from %s", name, digestPath);
+    }
+  }
+}
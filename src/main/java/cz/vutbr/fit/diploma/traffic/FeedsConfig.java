@@ -0,0 +1,62 @@
+package cz.vutbr.fit.diploma.traffic;
+
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+import io.smallrye.config.WithParentName;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Seznam stahovaných DATEX II feedů, {@code ndic.feeds.<jméno>.*}. Když není nakonfigurovaný žádný,
+ * {@link NDICFetcher} použije jediný feed {@code roadworks} z původních {@code ndic.init.*}
+ * vlastností.
+ *
+ * <pre>
+ * ndic.feeds.closures.url=https://.../CommonTIDatex/
+ * ndic.feeds.closures.filter=closures
+ * ndic.feeds.closures.topic=raw.ndic.closures
+ * ndic.feeds.events.url=https://.../CommonTIDatex/
+ * ndic.feeds.events.filter=events
+ * ndic.feeds.events.every=60s
+ * ndic.feeds.events.delta-url=https://.../CommonTIDatex/?since={since}
+ * </pre>
+ */
+@ConfigMapping(prefix = "ndic.feeds")
+public interface FeedsConfig {
+
+  @WithParentName
+  Map<String, Feed> feeds();
+
+  interface Feed {
+    String url();
+
+    @WithDefault("true")
+    boolean enabled();
+
+    /**
+     * Interval pollu ({@code 300s}, {@code 5m}); default {@code ndic.poll.seconds}. S {@code
+     * ndic.poll.adaptive} platí jen do odhadu periody feedu.
+     */
+    Optional<String> every();
+
+    /** Filtr záznamů: {@code all}, {@code closures}, {@code restrictions}, {@code events}. */
+    @WithDefault("closures")
+    String filter();
+
+    /**
+     * Rozdílový pull: URL se zástupným {@code {since}} (ISO čas poslední publikace, jinak markeru),
+     * které vrací jen změny od té doby. Nenastaveno = každý poll stahuje celý feed.
+     */
+    Optional<String> deltaUrl();
+
+    /** Cílový Kafka topic; default je topic kanálu {@code ndic-out}. */
+    Optional<String> topic();
+
+    /** Stavové soubory; default {@code <adresář ndic.init.marker.path>/<jméno>.<přípona>}. */
+    Optional<String> markerPath();
+
+    Optional<String> httpcachePath();
+
+    Optional<String> deltaPath();
+  }
+}
@@ -0,0 +1,239 @@
+package cz.vutbr.fit.diploma.traffic;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Metriky jednotlivých fází pollu (stažení → parse → filtr → publikace), vystavené přes {@code
+ * /q/metrics} s tagem {@code feed}. Gauge hodnoty ({@code ratio}, {@code records.per.second})
+ * odpovídají poslednímu úspěšnému běhu feedu; kumulativní čítače a histogramy jsou pro {@code
+ * rate()} / kvantily v Prometheu.
+ */
+@ApplicationScoped
+public class FetchMetrics {
+
+  @Inject MeterRegistry registry;
+
+  private final Map<String, Feed> feeds = new ConcurrentHashMap<>();
+
+  /** Metriky jednoho feedu; zaregistrují se při prvním použití. */
+  Feed feed(String name) {
+    return feeds.computeIfAbsent(name, Feed::new);
+  }
+
+  final class Feed {
+    private final Counter responses200, responses304, responsesOther;
+    private final Counter wireBytes, decodedBytes, resumedBytes;
+    private final Counter retries;
+    private final DistributionSummary throughput;
+    private final Timer timeToFirstByte, parseDuration, publishLatency;
+    private final Counter parsedRecords, filterAccepted, filterDropped;
+    private final Counter unchangedPublication, unchangedDigest;
+
+    // poslední běh (pro gauge); zapisuje jen poll, čte scrape
+    private volatile double gzipRatio = Double.NaN;
+    private volatile double recordsPerSecond = Double.NaN;
+    private volatile double filterHitRatio = Double.NaN;
+    private volatile double cadenceSeconds = Double.NaN;
+    private volatile double nextPollSeconds = Double.NaN;
+    private final AtomicReference<OffsetDateTime> publicationTime = new AtomicReference<>();
+
+    private Feed(String feed) {
+      responses200 = responses(feed, "200");
+      responses304 = responses(feed, "304");
+      responsesOther = responses(feed, "other");
+
+      unchangedPublication = unchangedCounter(feed, "publication-time");
+      unchangedDigest = unchangedCounter(feed, "digest");
+
+      wireBytes = bytes(feed, "wire");
+      decodedBytes = bytes(feed, "decoded");
+      resumedBytes = bytes(feed, "resumed");
+      retries =
+          Counter.builder("ndic.fetch.retries")
+              .description("Opakované pokusy o stažení v rámci jednoho pollu")
+              .tag("feed", feed)
+              .register(registry);
+      throughput =
+          DistributionSummary.builder("ndic.download.throughput")
+              .description("Propustnost stažení těla odpovědi (po síti)")
+              .baseUnit("bytes.per.second")
+              .tag("feed", feed)
+              .register(registry);
+      timeToFirstByte =
+          Timer.builder("ndic.download.ttfb")
+              .description("Čas od odeslání požadavku po přijetí hlaviček odpovědi")
+              .tag("feed", feed)
+              .publishPercentileHistogram()
+              .register(registry);
+      Gauge.builder("ndic.download.gzip.ratio", this, m -> m.gzipRatio)
+          .description("Poměr dekomprimované a stažené velikosti posledního těla")
+          .tag("feed", feed)
+          .register(registry);
+
+      parseDuration =
+          Timer.builder("ndic.parse.duration")
+              .description("Doba streamového parse + publikace jednoho feedu")
+              .tag("feed", feed)
+              .publishPercentileHistogram()
+              .register(registry);
+      parsedRecords =
+          Counter.builder("ndic.parse.records")
+              .description("Přečtené situationRecord (před filtrem)")
+              .tag("feed", feed)
+              .register(registry);
+      Gauge.builder("ndic.parse.records.per.second", this, m -> m.recordsPerSecond)
+          .description("Rychlost parse posledního feedu")
+          .tag("feed", feed)
+          .register(registry);
+
+      filterAccepted = filterCounter(feed, "accepted");
+      filterDropped = filterCounter(feed, "dropped");
+      Gauge.builder("ndic.filter.hit.ratio", this, m -> m.filterHitRatio)
+          .description("Podíl záznamů, které v posledním běhu prošly filtrem feedu")
+          .tag("feed", feed)
+          .register(registry);
+
+      publishLatency =
+          Timer.builder("ndic.publish.latency")
+              .description("Doba od odeslání záznamu do Kafky po potvrzení")
+              .tag("feed", feed)
+              .publishPercentileHistogram()
+              .minimumExpectedValue(Duration.ofMillis(1))
+              .maximumExpectedValue(Duration.ofSeconds(30))
+              .register(registry);
+
+      Gauge.builder("ndic.poll.cadence", this, m -> m.cadenceSeconds)
+          .description("Odhadnutá perioda publikace feedu (adaptivní poll)")
+          .baseUnit("seconds")
+          .tag("feed", feed)
+          .register(registry);
+      Gauge.builder("ndic.poll.next", this, m -> m.nextPollSeconds)
+          .description("Za kolik se feed stáhne znovu (naplánováno po posledním pollu)")
+          .baseUnit("seconds")
+          .tag("feed", feed)
+          .register(registry);
+
+      Gauge.builder("ndic.feed.staleness", this, Feed::stalenessSeconds)
+          .description("Stáří posledního publicationTime feedu")
+          .baseUnit("seconds")
+          .tag("feed", feed)
+          .register(registry);
+    }
+
+    // --- záznam -------------------------------------------------------------
+
+    void response(int status, long ttfbNanos) {
+      timeToFirstByte.record(ttfbNanos, TimeUnit.NANOSECONDS);
+      if (status == 200) responses200.increment();
+      else if (status == 304) responses304.increment();
+      else responsesOther.increment();
+    }
+
+    /** Feed stejný jako při minulém běhu (200 OK, ale bez nových dat). */
+    void unchanged(boolean byPublicationTime) {
+      (byPublicationTime ? unchangedPublication : unchangedDigest).increment();
+    }
+
+    /** Další pokus o stažení v rámci pollu (síťová chyba, 5xx). */
+    void retry() {
+      retries.increment();
+    }
+
+    /** Bajty, které se díky spoolu nemusely stahovat znovu. */
+    void resumed(long bytes) {
+      resumedBytes.increment(bytes);
+    }
+
+    void download(long wire, long decoded, long bodyNanos) {
+      wireBytes.increment(wire);
+      decodedBytes.increment(decoded);
+      if (wire > 0) gzipRatio = (double) decoded / wire;
+      if (bodyNanos > 0) throughput.record(wire * 1e9 / bodyNanos);
+    }
+
+    void parsed(int accepted, int dropped, long nanos) {
+      int total = accepted + dropped;
+      parseDuration.record(nanos, TimeUnit.NANOSECONDS);
+      parsedRecords.increment(total);
+      filterAccepted.increment(accepted);
+      filterDropped.increment(dropped);
+      if (nanos > 0) recordsPerSecond = total * 1e9 / nanos;
+      if (total > 0) filterHitRatio = (double) accepted / total;
+    }
+
+    /** Adaptivní poll: odhad periody (0 = zatím neznámá) a naplánovaný další poll. */
+    void scheduled(long cadenceMillis, long delayMillis) {
+      cadenceSeconds = cadenceMillis > 0 ? cadenceMillis / 1000.0 : Double.NaN;
+      nextPollSeconds = delayMillis / 1000.0;
+    }
+
+    void publicationTime(OffsetDateTime t) {
+      if (t != null) publicationTime.set(t);
+    }
+
+    /** Obalí sender tak, aby se u každé zprávy měřila latence potvrzení. */
+    PublishPipeline.Sender timed(PublishPipeline.Sender sender) {
+      return (key, value) -> {
+        long start = System.nanoTime();
+        return sender
+            .send(key, value)
+            .whenComplete(
+                (ok, err) ->
+                    publishLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+      };
+    }
+
+    private double stalenessSeconds() {
+      OffsetDateTime t = publicationTime.get();
+      if (t == null) return Double.NaN;
+      return Duration.between(t.toInstant(), Instant.now()).toMillis() / 1000.0;
+    }
+  }
+
+  private Counter responses(String feed, String status) {
+    return Counter.builder("ndic.fetch.responses")
+        .description("HTTP odpovědi NDIC podle stavu")
+        .tag("feed", feed)
+        .tag("status", status)
+        .register(registry);
+  }
+
+  private Counter unchangedCounter(String feed, String detectedBy) {
+    return Counter.builder("ndic.fetch.unchanged")
+        .description("Odpovědi 200 se stejným obsahem jako minulý běh (podle čeho poznáno)")
+        .tag("feed", feed)
+        .tag("detected", detectedBy)
+        .register(registry);
+  }
+
+  private Counter bytes(String feed, String stage) {
+    return Counter.builder("ndic.download.bytes")
+        .description(
+            "Stažené bajty (wire = po síti, decoded = XML po dekompresi, resumed = ze spoolu)")
+        .baseUnit("bytes")
+        .tag("feed", feed)
+        .tag("stage", stage)
+        .register(registry);
+  }
+
+  private Counter filterCounter(String feed, String result) {
+    return Counter.builder("ndic.filter.records")
+        .description("Záznamy po filtru feedu")
+        .tag("feed", feed)
+        .tag("result", result)
+        .register(registry);
+  }
+}
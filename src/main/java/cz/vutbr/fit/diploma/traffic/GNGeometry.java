@@ -0,0 +1,195 @@
+package cz.vutbr.fit.diploma.traffic;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+/**
+ * Geometrie Global Network lokalizací: každý úsek ({@code sectionId}) se vyhledá v síti ŘSD ({@link
+ * GNStore}), ořízne podle {@code fromPercent}/{@code toPercent} a úseky v pořadí {@code order} se
+ * spojí do jedné GeoJSON {@code LineString} na {@link DatexRecord.GNLinear#geometry()}.
+ *
+ * <p>Zdrojová síť ({@code ndic.gn.network}) se při první potřebě zkompiluje do binárního souboru
+ * vedle ní ({@code ndic.gn.store}); další starty už jen soubor namapují. Při změně zdroje se na
+ * začátku běhu feedu zkompiluje a vymění znovu, stejně jako {@link AlertCLocations}.
+ */
+@ApplicationScoped
+public class GNGeometry {
+
+  private static final Logger LOG = Logger.getLogger(GNGeometry.class);
+
+  /** Zdrojová síť (GeoJSON nebo CSV s WKT); prázdné = bez geometrie. */
+  @ConfigProperty(name = "ndic.gn.network")
+  Optional<String> network;
+
+  /** Zkompilovaný soubor; výchozí {@code <network>.gnstore}. */
+  @ConfigProperty(name = "ndic.gn.store")
+  Optional<String> storePath;
+
+  /** Atribut s ID úseku ve zdroji; výchozí zkusí {@code sectionId}, {@code ID}, ... */
+  @ConfigProperty(name = "ndic.gn.id-field")
+  Optional<String> idField;
+
+  private volatile GNStore store;
+
+  /** Otevře (a případně nejdřív zkompiluje) síť, pokud se zdroj změnil; volá se před během. */
+  synchronized void refresh() {
+    if (network.isEmpty()) return;
+    Path source = Path.of(network.get());
+    Path target = Path.of(storePath.orElse(network.get() + ".gnstore"));
+    try {
+      long stamp = Files.getLastModifiedTime(source).toMillis() * 31 + Files.size(source);
+      GNStore current = store;
+      if (current != null && current.sourceStamp() == stamp) return;
+
+      long start = System.nanoTime();
+      boolean compiled = false;
+      if (GNStore.sourceStamp(target) != stamp) {
+        GNStore.compile(source, target, idField.orElse(null), stamp);
+        compiled = true;
+      }
+      GNStore opened = GNStore.open(target);
+      store = opened;
+      LOG.infof(
+          "Global Network %s %s: %d sections, %d ms",
+          target,
+          compiled ? "compiled from " + source : "mapped",
+          opened.size(),
+          (System.nanoTime() - start) / 1_000_000);
+    } catch (IOException | RuntimeException e) {
+      LOG.warnf(
+          e,
+          "Failed to open Global Network %s%s",
+          source,
+          store == null ? "" : ", keeping the previous one");
+    }
+  }
+
+  /** Záznam s doplněnou geometrií GN lokalizací (nebo tentýž, když není co doplnit). */
+  DatexRecord enrich(DatexRecord r) {
+    GNStore s = store;
+    List<DatexRecord.GNLinear> gn = r.globalNetworkLinear();
+    if (s == null || gn.isEmpty()) return r;
+
+    DatexRecord.GNLinear[] out = new DatexRecord.GNLinear[gn.size()];
+    for (int i = 0; i < out.length; i++) out[i] = gn.get(i).withGeometry(line(s, gn.get(i)));
+    return r.withLocations(r.alertCLinear(), r.alertCPoint(), List.of(out));
+  }
+
+  /** Ořezané úseky za sebou; null, pokud se žádný úsek v síti nenašel. */
+  static DatexRecord.LineString line(GNStore s, DatexRecord.GNLinear l) {
+    List<DatexRecord.GNElement> segs = l.segments();
+    if (segs.size() > 1) {
+      segs = new ArrayList<>(segs);
+      segs.sort(Comparator.comparingInt(e -> integer(e.order())));
+    }
+    double[] acc = new double[0];
+    int n = 0;
+    for (DatexRecord.GNElement e : segs) {
+      long id;
+      try {
+        id = Long.parseLong(e.sectionId());
+      } catch (NumberFormatException | NullPointerException ex) {
+        continue;
+      }
+      double[] pts = s.section(id);
+      if (pts == null) continue;
+      double from = percent(e.fromPercent(), 0), to = percent(e.toPercent(), 100);
+      double[] piece = cut(pts, Math.min(from, to), Math.max(from, to));
+      if ("opposite".equals(e.direction())) reverse(piece);
+
+      if (acc.length < n + piece.length) acc = Arrays.copyOf(acc, 2 * (n + piece.length));
+      int skip = n >= 2 && acc[n - 2] == piece[0] && acc[n - 1] == piece[1] ? 2 : 0; // spoj
+      System.arraycopy(piece, skip, acc, n, piece.length - skip);
+      n += piece.length - skip;
+    }
+    return n < 4 ? null : new DatexRecord.LineString(Arrays.copyOf(acc, n));
+  }
+
+  /**
+   * Část lomené čáry mezi {@code from} a {@code to} procenty délky. Délky se počítají v
+   * ekvidistantní aproximaci (úseky jsou krátké, chyba je zanedbatelná).
+   */
+  static double[] cut(double[] pts, double from, double to) {
+    int n = pts.length / 2;
+    double k = Math.cos(Math.toRadians(pts[1]));
+    double[] cum = new double[n];
+    for (int i = 1; i < n; i++) {
+      double dx = (pts[2 * i] - pts[2 * i - 2]) * k, dy = pts[2 * i + 1] - pts[2 * i - 1];
+      cum[i] = cum[i - 1] + Math.sqrt(dx * dx + dy * dy);
+    }
+    double total = cum[n - 1];
+    if (total == 0 || (from <= 0 && to >= 100)) return pts.clone();
+    double a = total * Math.max(0, from) / 100, b = total * Math.min(100, to) / 100;
+
+    double[] out = new double[2 * (n + 2)];
+    int m = 0;
+    m = point(pts, cum, a, out, m);
+    for (int i = 0; i < n; i++) {
+      if (cum[i] > a && cum[i] < b) {
+        out[m++] = pts[2 * i];
+        out[m++] = pts[2 * i + 1];
+      }
+    }
+    m = point(pts, cum, b, out, m);
+    return Arrays.copyOf(out, m);
+  }
+
+  /** Interpolovaný bod ve vzdálenosti {@code d} od začátku. */
+  private static int point(double[] pts, double[] cum, double d, double[] out, int m) {
+    int i = 1;
+    while (i < cum.length - 1 && cum[i] < d) i++;
+    double len = cum[i] - cum[i - 1];
+    double t = len == 0 ? 0 : (d - cum[i - 1]) / len;
+    out[m++] = round(pts[2 * i - 2] + t * (pts[2 * i] - pts[2 * i - 2]));
+    out[m++] = round(pts[2 * i - 1] + t * (pts[2 * i + 1] - pts[2 * i - 1]));
+    return m;
+  }
+
+  /** Na přesnost sítě (1e-7°, ~1 cm), ať interpolované body nemají šum v posledních řádech. */
+  private static double round(double v) {
+    return Math.round(v * 1e7) / 1e7;
+  }
+
+  private static void reverse(double[] pts) {
+    for (int i = 0, j = pts.length - 2; i < j; i += 2, j -= 2) {
+      double x = pts[i], y = pts[i + 1];
+      pts[i] = pts[j];
+      pts[i + 1] = pts[j + 1];
+      pts[j] = x;
+      pts[j + 1] = y;
+    }
+  }
+
+  private static double percent(String v, double def) {
+    if (v == null) return def;
+    try {
+      return Double.parseDouble(v);
+    } catch (NumberFormatException e) {
+      return def;
+    }
+  }
+
+  private static int integer(String v) {
+    try {
+      return v == null ? Integer.MAX_VALUE : Integer.parseInt(v);
+    } catch (NumberFormatException e) {
+      return Integer.MAX_VALUE;
+    }
+  }
+
+  /** Pro benchmark / použití mimo CDI. */
+  static GNGeometry of(GNStore store) {
+    GNGeometry g = new GNGeometry();
+    g.store = store;
+    return g;
+  }
+}
@@ -0,0 +1,318 @@
+package cz.vutbr.fit.diploma.traffic;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Locale;
+import org.jboss.logging.Logger;
+
+/**
+ * Binární úložiště Global Network (úsek → lomená čára ve WGS-84), otevírané přes {@code mmap}:
+ * otevření je jen namapování souboru, na heapu nezůstává nic a stránky načítá OS podle potřeby.
+ *
+ * <pre>
+ * hlavička  int magic, int verze, int počet úseků, int 0, long otisk zdroje
+ * index     počet × (long sectionId, int první bod, int počet bodů), seřazeno podle sectionId
+ * body      int lon × 1e7, int lat × 1e7
+ * </pre>
+ *
+ * <p>Soubor vzniká {@link #compile} ze zdrojové sítě ŘSD – GeoJSON (LineString / MultiLineString)
+ * nebo CSV (oddělovač {@code ;} / tab) se sloupcem WKT. Souřadnice S-JTSK se převedou při kompilaci
+ * ({@link Krovak}), WGS-84 projdou beze změny.
+ */
+final class GNStore {
+
+  private static final Logger LOG = Logger.getLogger(GNStore.class);
+
+  private static final int MAGIC = 0x474E5331; // "GNS1"
+  private static final int VERSION = 1;
+  private static final int HEADER = 24;
+  private static final int ENTRY = 16;
+  private static final double SCALE = 1e7;
+
+  private final MappedByteBuffer map;
+  private final int count;
+  private final long sourceStamp;
+  private final long pointsAt;
+
+  private GNStore(MappedByteBuffer map) throws IOException {
+    map.order(ByteOrder.LITTLE_ENDIAN);
+    if (map.limit() < HEADER || map.getInt(0) != MAGIC || map.getInt(4) != VERSION) {
+      throw new IOException("Not a Global Network store");
+    }
+    this.map = map;
+    this.count = map.getInt(8);
+    this.sourceStamp = map.getLong(16);
+    this.pointsAt = HEADER + (long) count * ENTRY;
+  }
+
+  /** Namapuje hotový soubor (čte se jen hlavička). */
+  static GNStore open(Path store) throws IOException {
+    try (FileChannel ch = FileChannel.open(store, StandardOpenOption.READ)) {
+      return new GNStore(ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size()));
+    }
+  }
+
+  /** Otisk zdroje, ze kterého byl soubor zkompilován (viz {@link #compile}). */
+  static long sourceStamp(Path store) {
+    try (FileChannel ch = FileChannel.open(store, StandardOpenOption.READ)) {
+      ByteBuffer h = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+      ch.read(h, 0);
+      return h.position() == HEADER && h.getInt(0) == MAGIC ? h.getLong(16) : Long.MIN_VALUE;
+    } catch (IOException e) {
+      return Long.MIN_VALUE;
+    }
+  }
+
+  int size() {
+    return count;
+  }
+
+  long sourceStamp() {
+    return sourceStamp;
+  }
+
+  /** Body úseku (lon, lat, lon, lat, ...) ve směru digitalizace, nebo null. */
+  double[] section(long sectionId) {
+    int lo = 0, hi = count - 1;
+    while (lo <= hi) {
+      int mid = (lo + hi) >>> 1;
+      long id = map.getLong(HEADER + mid * ENTRY);
+      if (id < sectionId) lo = mid + 1;
+      else if (id > sectionId) hi = mid - 1;
+      else return points(HEADER + mid * ENTRY);
+    }
+    return null;
+  }
+
+  private double[] points(int entry) {
+    int first = map.getInt(entry + 8), n = map.getInt(entry + 12);
+    double[] out = new double[2 * n];
+    int at = (int) (pointsAt + first * 8L);
+    for (int i = 0; i < 2 * n; i++) out[i] = map.getInt(at + i * 4) / SCALE;
+    return out;
+  }
+
+  // --- kompilace --------------------------------------------------------------
+
+  /**
+   * Převede zdrojovou síť do binárního souboru (přes dočasný soubor a atomický přesun, běžící
+   * čtenáři starého mapování nevadí). {@code idField} = název atributu s ID úseku, null = zkusí
+   * obvyklé názvy.
+   */
+  static void compile(Path source, Path store, String idField, long stamp) throws IOException {
+    Builder b = new Builder();
+    String name = source.getFileName().toString().toLowerCase(Locale.ROOT);
+    if (name.endsWith(".geojson") || name.endsWith(".json")) readGeoJson(source, idField, b);
+    else readWkt(source, idField, b);
+    if (b.skipped > 0) {
+      LOG.warnf("Global Network %s: %d sections without numeric id or geometry", source, b.skipped);
+    }
+    Path tmp = store.resolveSibling(store.getFileName() + ".tmp");
+    b.write(tmp, stamp);
+    Files.move(tmp, store, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  private static final String[] ID_FIELDS = {"sectionId", "SECTION_ID", "ID", "id", "ID_USEKU"};
+
+  private static void readGeoJson(Path source, String idField, Builder b) throws IOException {
+    ObjectMapper mapper = new ObjectMapper();
+    try (JsonParser p = mapper.getFactory().createParser(source.toFile())) {
+      // stream přes "features", každý feature zvlášť jako strom
+      while (p.nextToken() != null) {
+        if (p.currentToken() == JsonToken.FIELD_NAME && "features".equals(p.currentName())) {
+          if (p.nextToken() != JsonToken.START_ARRAY) break;
+          while (p.nextToken() == JsonToken.START_OBJECT) {
+            JsonNode f = mapper.readTree(p);
+            b.add(id(f.path("properties"), idField), lines(f.path("geometry")));
+          }
+          return;
+        }
+      }
+    }
+  }
+
+  private static String id(JsonNode props, String idField) {
+    if (idField != null) return props.path(idField).asText(null);
+    for (String n : ID_FIELDS) {
+      if (props.has(n)) return props.get(n).asText();
+    }
+    return null;
+  }
+
+  private static double[] lines(JsonNode geometry) {
+    String type = geometry.path("type").asText();
+    JsonNode c = geometry.path("coordinates");
+    JsonNode[] parts =
+        switch (type) {
+          case "LineString" -> new JsonNode[] {c};
+          case "MultiLineString" -> {
+            JsonNode[] all = new JsonNode[c.size()];
+            for (int i = 0; i < all.length; i++) all[i] = c.get(i);
+            yield all;
+          }
+          default -> new JsonNode[0];
+        };
+    int n = 0;
+    for (JsonNode part : parts) n += part.size();
+    double[] out = new double[2 * n];
+    int i = 0;
+    for (JsonNode part : parts) {
+      for (JsonNode pt : part) {
+        out[i++] = pt.path(0).asDouble(Double.NaN);
+        out[i++] = pt.path(1).asDouble(Double.NaN);
+      }
+    }
+    return out;
+  }
+
+  private static void readWkt(Path source, String idField, Builder b) throws IOException {
+    try (BufferedReader r = Files.newBufferedReader(source, StandardCharsets.UTF_8)) {
+      String header = r.readLine();
+      if (header == null) return;
+      String sep = header.indexOf('\t') >= 0 ? "\t" : ";";
+      String[] cols = header.replace("\uFEFF", "").split(sep, -1);
+      int idCol = -1, wktCol = -1;
+      for (int i = 0; i < cols.length; i++) {
+        String c = cols[i].trim().replace("\"", "");
+        if (idField != null ? c.equals(idField) : Arrays.asList(ID_FIELDS).contains(c)) idCol = i;
+        if (c.equalsIgnoreCase("WKT") || c.equalsIgnoreCase("GEOMETRY")) wktCol = i;
+      }
+      if (idCol < 0 || wktCol < 0) {
+        throw new IOException("Global Network CSV needs an id and a WKT column: " + header);
+      }
+      for (String line; (line = r.readLine()) != null; ) {
+        String[] cells = line.split(sep, -1);
+        if (cells.length <= Math.max(idCol, wktCol)) continue;
+        b.add(cells[idCol].trim().replace("\"", ""), wkt(cells[wktCol]));
+      }
+    }
+  }
+
+  /** Body z WKT {@code LINESTRING} / {@code MULTILINESTRING} (části za sebou). */
+  private static double[] wkt(String wkt) {
+    String body = wkt.replaceAll("(?i)[A-Z\"]|\\(|\\)", " ").trim();
+    if (body.isEmpty()) return new double[0];
+    String[] pts = body.split(",");
+    double[] out = new double[2 * pts.length];
+    for (int i = 0; i < pts.length; i++) {
+      String[] xy = pts[i].trim().split("\\s+");
+      out[2 * i] = xy.length > 1 ? Double.parseDouble(xy[0]) : Double.NaN;
+      out[2 * i + 1] = xy.length > 1 ? Double.parseDouble(xy[1]) : Double.NaN;
+    }
+    return out;
+  }
+
+  /** Sbírá úseky; souřadnice převádí na WGS-84 a ukládá jako int × 1e7. */
+  private static final class Builder {
+    long[] ids = new long[1024];
+    int[] first = new int[1024], counts = new int[1024];
+    int[] points = new int[16 * 1024];
+    int sections, nPoints, skipped;
+    final double[] one = new double[2];
+
+    void add(String id, double[] xy) {
+      long sectionId;
+      try {
+        sectionId = Long.parseLong(id);
+      } catch (NumberFormatException | NullPointerException e) {
+        skipped++;
+        return;
+      }
+      if (xy.length < 4) {
+        skipped++;
+        return;
+      }
+      if (sections == ids.length) {
+        ids = Arrays.copyOf(ids, sections * 2);
+        first = Arrays.copyOf(first, sections * 2);
+        counts = Arrays.copyOf(counts, sections * 2);
+      }
+      if (2 * nPoints + xy.length > points.length) {
+        points = Arrays.copyOf(points, Math.max(points.length * 2, 2 * nPoints + xy.length));
+      }
+      ids[sections] = sectionId;
+      first[sections] = nPoints;
+      counts[sections] = xy.length / 2;
+      for (int i = 0; i < xy.length; i += 2) {
+        lonLat(xy[i], xy[i + 1]);
+        points[2 * nPoints] = (int) Math.round(one[0] * SCALE);
+        points[2 * nPoints + 1] = (int) Math.round(one[1] * SCALE);
+        nPoints++;
+      }
+      sections++;
+    }
+
+    /**
+     * WGS-84 zůstává; S-JTSK (|souřadnice| > 180) v libovolném pořadí os a znaménku – v ČR je X
+     * (jižník) vždy větší než Y (západník), takže stačí porovnat absolutní hodnoty.
+     */
+    private void lonLat(double a, double b) {
+      if (Math.abs(a) <= 180 && Math.abs(b) <= 180) {
+        one[0] = a;
+        one[1] = b;
+        return;
+      }
+      one[0] = Math.max(Math.abs(a), Math.abs(b));
+      one[1] = Math.min(Math.abs(a), Math.abs(b));
+      Krovak.toWgs84(one, one, 1);
+      double lat = one[0];
+      one[0] = one[1];
+      one[1] = lat;
+    }
+
+    void write(Path file, long stamp) throws IOException {
+      Integer[] order = new Integer[sections];
+      for (int i = 0; i < sections; i++) order[i] = i;
+      Arrays.sort(order, (x, y) -> Long.compare(ids[x], ids[y]));
+
+      ByteBuffer buf =
+          ByteBuffer.allocate(HEADER + sections * ENTRY + nPoints * 8)
+              .order(ByteOrder.LITTLE_ENDIAN);
+      buf.putInt(MAGIC).putInt(VERSION).putInt(0).putInt(0).putLong(stamp);
+      int written = 0;
+      ByteBuffer pts = buf.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+      pts.position(HEADER + sections * ENTRY);
+      int next = 0;
+      for (int k = 0; k < sections; k++) {
+        int s = order[k];
+        if (written > 0 && buf.getLong(buf.position() - ENTRY) == ids[s]) continue; // duplicita
+        buf.putLong(ids[s]).putInt(next).putInt(counts[s]);
+        for (int i = 0; i < 2 * counts[s]; i++) pts.putInt(points[2 * first[s] + i]);
+        next += counts[s];
+        written++;
+      }
+      // index se zkrátil o duplicity → body posunout hned za něj
+      int pointsAt = HEADER + written * ENTRY;
+      if (written < sections) {
+        byte[] moved = new byte[next * 8];
+        buf.get(HEADER + sections * ENTRY, moved);
+        buf.put(pointsAt, moved);
+      }
+      buf.putInt(8, written);
+      buf.limit(pointsAt + next * 8).position(0);
+      try (FileChannel ch =
+          FileChannel.open(
+              file,
+              StandardOpenOption.CREATE,
+              StandardOpenOption.WRITE,
+              StandardOpenOption.TRUNCATE_EXISTING)) {
+        while (buf.hasRemaining()) ch.write(buf);
+        ch.force(true);
+      }
+    }
+  }
+}
@@ -0,0 +1,127 @@
+package cz.vutbr.fit.diploma.traffic;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import java.util.List;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+/**
+ * Doplnění WGS-84 ke Global Network lokalizacím: S-JTSK řetězce z feedu se jednou naparsují a
+ * všechny body záznamu se převedou jednou dávkou ({@link Krovak#toWgs84}). Stejné body se mezi
+ * polly opakují (feed posílá stále tytéž situace), proto je před převodem volitelná omezená cache
+ * ({@code ndic.geo.cache-size}, 0 = vypnuto) mapovaná přímo podle hashe souřadnic.
+ */
+@ApplicationScoped
+public class GeoTransform {
+
+  @ConfigProperty(name = "ndic.geo.wgs84", defaultValue = "true")
+  boolean enabled;
+
+  @ConfigProperty(name = "ndic.geo.cache-size", defaultValue = "16384")
+  int cacheSize;
+
+  private Cache cache;
+
+  @PostConstruct
+  void init() {
+    cache = cacheSize > 0 ? new Cache(cacheSize) : null;
+  }
+
+  /** Záznam s doplněnými {@code startLat/startLon/endLat/endLon} (nebo tentýž, není-li co). */
+  DatexRecord enrich(DatexRecord r) {
+    List<DatexRecord.GNLinear> gn = r.globalNetworkLinear();
+    if (!enabled || gn.isEmpty()) return r;
+
+    int n = gn.size() * 2;
+    double[] xy = new double[2 * n];
+    double[] latLon = new double[2 * n];
+    for (int i = 0; i < gn.size(); i++) {
+      DatexRecord.GNLinear l = gn.get(i);
+      xy[4 * i] = number(l.startSjtskX());
+      xy[4 * i + 1] = number(l.startSjtskY());
+      xy[4 * i + 2] = number(l.endSjtskX());
+      xy[4 * i + 3] = number(l.endSjtskY());
+    }
+    if (cache == null) Krovak.toWgs84(xy, latLon, n);
+    else cache.toWgs84(xy, latLon, n);
+
+    DatexRecord.GNLinear[] out = new DatexRecord.GNLinear[gn.size()];
+    for (int i = 0; i < out.length; i++) {
+      out[i] =
+          gn.get(i)
+              .withWgs84(latLon[4 * i], latLon[4 * i + 1], latLon[4 * i + 2], latLon[4 * i + 3]);
+    }
+    return r.withLocations(r.alertCLinear(), r.alertCPoint(), List.of(out));
+  }
+
+  static double number(String s) {
+    if (s == null) return Double.NaN;
+    try {
+      return Double.parseDouble(s);
+    } catch (NumberFormatException e) {
+      return Double.NaN;
+    }
+  }
+
+  /** Pro benchmark / použití mimo CDI. */
+  static GeoTransform of(int cacheSize) {
+    GeoTransform t = new GeoTransform();
+    t.enabled = true;
+    t.cacheSize = cacheSize;
+    t.init();
+    return t;
+  }
+
+  /**
+   * Přímo mapovaná cache bod → WGS-84; kolize prostě přepíše slot. Sloty drží neměnné záznamy,
+   * takže souběžné čtení/zápis bez zámků nevadí (nejhůř se bod spočítá znovu).
+   */
+  static final class Cache {
+    private record Slot(double x, double y, double lat, double lon) {}
+
+    private final Slot[] slots;
+    private final int mask;
+
+    Cache(int capacity) {
+      int size = Integer.highestOneBit(Math.max(16, capacity - 1)) << 1;
+      slots = new Slot[size];
+      mask = size - 1;
+    }
+
+    /** Jako {@link Krovak#toWgs84}, jen body, které v cache nejsou, se převedou dávkou. */
+    void toWgs84(double[] xy, double[] latLon, int n) {
+      int[] miss = new int[n];
+      int m = 0;
+      for (int i = 0; i < 2 * n; i += 2) {
+        Slot s = slots[index(xy[i], xy[i + 1])];
+        if (s != null && s.x == xy[i] && s.y == xy[i + 1]) {
+          latLon[i] = s.lat;
+          latLon[i + 1] = s.lon;
+        } else {
+          miss[m++] = i;
+        }
+      }
+      if (m == 0) return;
+
+      double[] batch = new double[2 * m];
+      for (int j = 0; j < m; j++) {
+        batch[2 * j] = xy[miss[j]];
+        batch[2 * j + 1] = xy[miss[j] + 1];
+      }
+      Krovak.toWgs84(batch, batch, m);
+      for (int j = 0; j < m; j++) {
+        int i = miss[j];
+        latLon[i] = batch[2 * j];
+        latLon[i + 1] = batch[2 * j + 1];
+        slots[index(xy[i], xy[i + 1])] = new Slot(xy[i], xy[i + 1], latLon[i], latLon[i + 1]);
+      }
+    }
+
+    private int index(double x, double y) {
+      long h = Double.doubleToLongBits(x) * 0x9E3779B97F4A7C15L ^ Double.doubleToLongBits(y);
+      h ^= h >>> 29;
+      h *= 0xBF58476D1CE4E5B9L;
+      return (int) (h ^ (h >>> 32)) & mask;
+    }
+  }
+}
@@ -0,0 +1,121 @@
+package cz.vutbr.fit.diploma.traffic;
+
+/**
+ * S-JTSK (Křovákovo zobrazení, EPSG:5514) → WGS-84. Inverzní Křovák podle EPSG Guidance Note 7-2
+ * (metoda 9819) na Besselově elipsoidu a sedmiprvková Helmertova transformace (position vector,
+ * EPSG:1623, přesnost ~1 m). Konstanty jsou předpočítané, převod nealokuje.
+ *
+ * <p>Souřadnice jsou v konvenci feedu: X = jižník, Y = západník, obojí kladné (EPSG:5514 s
+ * obrácenými znaménky se přijme také – počítá se s absolutními hodnotami).
+ */
+final class Krovak {
+
+  // Bessel 1841
+  private static final double A = 6377397.155;
+  private static final double E2 = 0.006674372230614;
+  private static final double E = Math.sqrt(E2);
+
+  // parametry zobrazení
+  private static final double PHI_C = Math.toRadians(49.5);
+  private static final double LAMBDA_0 = Math.toRadians(24 + 50 / 60.0); // 42°30' východně od Ferra
+  private static final double ALPHA_C = Math.toRadians(30 + 17 / 60.0 + 17.30311 / 3600);
+  private static final double PHI_P = Math.toRadians(78.5);
+  private static final double K_P = 0.9999;
+
+  private static final double B = Math.sqrt(1 + E2 * Math.pow(Math.cos(PHI_C), 4) / (1 - E2));
+  private static final double A_BAR =
+      A * Math.sqrt(1 - E2) / (1 - E2 * Math.sin(PHI_C) * Math.sin(PHI_C));
+  private static final double GAMMA_0 = Math.asin(Math.sin(PHI_C) / B);
+  private static final double T_0 =
+      Math.tan(Math.PI / 4 + GAMMA_0 / 2)
+          * Math.pow((1 + E * Math.sin(PHI_C)) / (1 - E * Math.sin(PHI_C)), E * B / 2)
+          / Math.pow(Math.tan(Math.PI / 4 + PHI_C / 2), B);
+  private static final double N = Math.sin(PHI_P);
+  private static final double R_0 = K_P * A_BAR / Math.tan(PHI_P);
+  private static final double TAN_P = Math.tan(Math.PI / 4 + PHI_P / 2);
+  private static final double SIN_ALPHA = Math.sin(ALPHA_C), COS_ALPHA = Math.cos(ALPHA_C);
+  private static final double T_0_INV_B = Math.pow(T_0, -1 / B);
+
+  // konformní → geodetická šířka (řada do e^8, chyba pod 1e-10 rad)
+  private static final double E4 = E2 * E2, E6 = E4 * E2, E8 = E4 * E4;
+  private static final double C2 = E2 / 2 + 5 * E4 / 24 + E6 / 12 + 13 * E8 / 360;
+  private static final double C4 = 7 * E4 / 48 + 29 * E6 / 240 + 811 * E8 / 11520;
+  private static final double C6 = 7 * E6 / 120 + 81 * E8 / 1120;
+  private static final double C8 = 4279 * E8 / 161280;
+
+  // S-JTSK → WGS 84 (EPSG:1623), rotace v radiánech, měřítko jako 1 + ppm
+  private static final double TX = 570.8, TY = 85.7, TZ = 462.8;
+  private static final double RX = arcsec(4.998), RY = arcsec(1.587), RZ = arcsec(5.261);
+  private static final double SCALE = 1 + 3.56e-6;
+
+  // WGS 84
+  private static final double WGS_A = 6378137.0;
+  private static final double WGS_E2 = 0.00669437999014;
+  private static final double WGS_B = WGS_A * Math.sqrt(1 - WGS_E2);
+  private static final double WGS_EP2 = WGS_E2 / (1 - WGS_E2);
+
+  private Krovak() {}
+
+  /**
+   * Převede {@code n} bodů: {@code xy[2i], xy[2i+1]} (X, Y v metrech) → {@code latLon[2i],
+   * latLon[2i+1]} (stupně). Neplatný bod (NaN, nula) dá NaN.
+   */
+  static void toWgs84(double[] xy, double[] latLon, int n) {
+    for (int i = 0; i < 2 * n; i += 2) {
+      double x = Math.abs(xy[i]), y = Math.abs(xy[i + 1]);
+      if (!(x > 0 && y > 0)) {
+        latLon[i] = latLon[i + 1] = Double.NaN;
+        continue;
+      }
+      toBessel(x, y, latLon, i);
+      besselToWgs84(latLon, i);
+    }
+  }
+
+  /** Inverzní Křovák: X, Y → zeměpisné souřadnice na Besselově elipsoidu (radiány). */
+  static void toBessel(double x, double y, double[] out, int off) {
+    double r = Math.sqrt(x * x + y * y);
+    double theta = Math.atan2(y, x);
+    double d = theta / N;
+    double t = 2 * (Math.atan(Math.pow(R_0 / r, 1 / N) * TAN_P) - Math.PI / 4);
+    double u = Math.asin(COS_ALPHA * Math.sin(t) - SIN_ALPHA * Math.cos(t) * Math.cos(d));
+    double v = Math.asin(Math.cos(t) * Math.sin(d) / Math.cos(u));
+
+    // konformní šířka na elipsoidu; místo iterace z GN 7-2 řada konformní → geodetická šířka
+    double chi = 2 * Math.atan(T_0_INV_B * Math.pow(Math.tan(u / 2 + Math.PI / 4), 1 / B));
+    chi -= Math.PI / 2;
+    double s2 = Math.sin(2 * chi), c2 = Math.cos(2 * chi);
+    double s4 = 2 * s2 * c2, c4 = 1 - 2 * s2 * s2;
+    double s6 = s4 * c2 + c4 * s2, s8 = 2 * s4 * c4;
+    out[off] = chi + C2 * s2 + C4 * s4 + C6 * s6 + C8 * s8;
+    out[off + 1] = LAMBDA_0 - v / B;
+  }
+
+  /** Bessel (radiány) → WGS-84 (stupně) přes geocentrické souřadnice, na místě v {@code p}. */
+  private static void besselToWgs84(double[] p, int off) {
+    double phi = p[off], lambda = p[off + 1];
+    double sinPhi = Math.sin(phi), cosPhi = Math.cos(phi);
+    double nu = A / Math.sqrt(1 - E2 * sinPhi * sinPhi);
+    double x = nu * cosPhi * Math.cos(lambda);
+    double y = nu * cosPhi * Math.sin(lambda);
+    double z = nu * (1 - E2) * sinPhi;
+
+    double x2 = TX + SCALE * (x - RZ * y + RY * z);
+    double y2 = TY + SCALE * (RZ * x + y - RX * z);
+    double z2 = TZ + SCALE * (-RY * x + RX * y + z);
+
+    // Bowring: jeden krok bez iterace, u povrchu přesnost pod 1 mm
+    double pr = Math.sqrt(x2 * x2 + y2 * y2);
+    double q = Math.atan2(z2 * WGS_A, pr * WGS_B);
+    double sinQ = Math.sin(q), cosQ = Math.cos(q);
+    double lat =
+        Math.atan2(
+            z2 + WGS_EP2 * WGS_B * sinQ * sinQ * sinQ, pr - WGS_E2 * WGS_A * cosQ * cosQ * cosQ);
+    p[off] = Math.toDegrees(lat);
+    p[off + 1] = Math.toDegrees(Math.atan2(y2, x2));
+  }
+
+  private static double arcsec(double v) {
+    return Math.toRadians(v / 3600);
+  }
+}
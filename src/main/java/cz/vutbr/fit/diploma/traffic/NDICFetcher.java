@@ -1,34 +1,58 @@
 package cz.vutbr.fit.diploma.traffic;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import io.quarkus.scheduler.Scheduled;
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.runtime.configuration.DurationConverter;
+import io.quarkus.scheduler.Scheduler;
 import io.smallrye.reactive.messaging.MutinyEmitter;
 import io.smallrye.reactive.messaging.kafka.Record;
-import jakarta.annotation.PostConstruct;
+import io.smallrye.reactive.messaging.kafka.api.OutgoingKafkaRecordMetadata;
+import jakarta.annotation.PreDestroy;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
 import jakarta.inject.Inject;
 import java.io.BufferedInputStream;
 import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.net.Authenticator;
 import java.net.PasswordAuthentication;
 import java.net.URI;
+import java.net.URLEncoder;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.Duration;
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
 import java.util.List;
-import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.zip.GZIPInputStream;
+import org.apache.kafka.common.header.internals.RecordHeader;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.eclipse.microprofile.reactive.messaging.Channel;
+import org.eclipse.microprofile.reactive.messaging.Message;
+import org.eclipse.microprofile.reactive.messaging.OnOverflow;
 import org.jboss.logging.Logger;
 
 @ApplicationScoped
@@ -42,6 +66,7 @@ public class NDICFetcher {
   @ConfigProperty(name = "ndic.pass")
   String ndicPass;
 
+  /** Jediný feed, když není nastaven {@code ndic.feeds.*}; adresář markeru platí pro všechny. */
   @ConfigProperty(name = "ndic.init.url")
   String initUrl;
 
@@ -49,29 +74,206 @@ public class NDICFetcher {
   @ConfigProperty(name = "ndic.init.marker.path")
   String initMarkerPath;
 
+  /** Rozdílový pull jediného feedu (viz {@link FeedsConfig.Feed#deltaUrl()}). */
+  @ConfigProperty(name = "ndic.init.delta-url")
+  Optional<String> initDeltaUrl;
+
+  /**
+   * Rozdílové polly se mísí do stavu z minula; nejpozději po této době se feed stáhne znovu celý
+   * (tombstony pro zmizelé záznamy, oprava odchylek).
+   */
+  @ConfigProperty(name = "ndic.delta.resync", defaultValue = "1h")
+  Duration deltaResync;
+
   /**
    * Volitelné: kam uložit HTTP cache (ETag/Last-Modified). Default je markerPath + ".httpcache".
    */
   @ConfigProperty(name = "ndic.httpcache.path", defaultValue = "")
   String httpCachePathCfg;
 
+  /** Volitelné: kam uložit stav detekce změn. Default je markerPath + ".delta". */
+  @ConfigProperty(name = "ndic.delta.path", defaultValue = "")
+  String deltaPathCfg;
+
+  /** Default interval pollu feedu; POZOR: config musí být celé např. '5s'. */
+  @ConfigProperty(name = "ndic.poll.seconds")
+  String pollEvery;
+
+  /**
+   * Adaptivní poll ({@link PollCadence}): další stažení těsně po očekávané publikaci feedu (+{@code
+   * lag}, náhodně až {@code jitter}), v mezích {@code min-interval}..{@code max-interval}; dokud
+   * perioda není odhadnutá, po pevném intervalu feedu ({@code every}, {@code ndic.poll.seconds}),
+   * potom se {@code every} neuplatní. Vypnuto = jen pevný interval.
+   */
+  @ConfigProperty(name = "ndic.poll.adaptive", defaultValue = "false")
+  boolean adaptivePoll;
+
+  @ConfigProperty(name = "ndic.poll.min-interval", defaultValue = "30s")
+  Duration pollMin;
+
+  @ConfigProperty(name = "ndic.poll.max-interval", defaultValue = "15m")
+  Duration pollMax;
+
+  @ConfigProperty(name = "ndic.poll.lag", defaultValue = "15s")
+  Duration pollLag;
+
+  @ConfigProperty(name = "ndic.poll.jitter", defaultValue = "10s")
+  Duration pollJitter;
+
+  /** Max. počet souběžně stahovaných feedů (sdílí jeden HttpClient a jeho spojení). */
+  @ConfigProperty(name = "ndic.fetch.max-concurrent", defaultValue = "2")
+  int maxConcurrent;
+
+  /**
+   * 200 OK se stejným publicationTime jako minulý úspěšný běh = stejný feed: přenos i parse se
+   * ukončí hned po hlavičce (pro servery, které ignorují If-None-Match / If-Modified-Since).
+   */
+  @ConfigProperty(name = "ndic.fetch.skip-same-publication", defaultValue = "true")
+  boolean skipSamePublication;
+
+  /**
+   * Přerušený přenos, chyba spojení, 5xx nebo 429 se v rámci pollu zkusí znovu nejvýš {@code
+   * retries}×, po {@code retry-backoff} · 2<sup>n</sup> (strop {@code retry-max-backoff}) s
+   * jitterem. V režimech blocking/parallel další pokus navazuje přes HTTP Range ({@link
+   * BodySpool}).
+   */
+  @ConfigProperty(name = "ndic.fetch.retries", defaultValue = "3")
+  int fetchRetries;
+
+  @ConfigProperty(name = "ndic.fetch.retry-backoff", defaultValue = "1s")
+  Duration retryBackoff;
+
+  @ConfigProperty(name = "ndic.fetch.retry-max-backoff", defaultValue = "30s")
+  Duration retryMaxBackoff;
+
+  /**
+   * Archiv surových těl ({@link FeedArchive}) v {@code <dir>/<feed>/}; nenastaveno = vypnuto.
+   * Segment se uzavře po {@code segment-bytes} nebo {@code segment-age}, drží se {@code retain}
+   * posledních (0 = všechny).
+   */
+  @ConfigProperty(name = "ndic.archive.dir")
+  Optional<String> archiveDir;
+
+  @ConfigProperty(name = "ndic.archive.segment-bytes", defaultValue = "268435456")
+  long archiveSegmentBytes;
+
+  @ConfigProperty(name = "ndic.archive.segment-age", defaultValue = "6h")
+  Duration archiveSegmentAge;
+
+  @ConfigProperty(name = "ndic.archive.retain", defaultValue = "0")
+  int archiveRetain;
+
+  /**
+   * Místo pollu přehraje archiv každého feedu přes parse → filtr → publikace. {@code speed} 0 = co
+   * nejrychleji, 1 = v reálném čase podle publicationTime, 10 = 10× rychleji; {@code from} / {@code
+   * to} (ISO publicationTime) omezují rozsah.
+   */
+  @ConfigProperty(name = "ndic.replay.enabled", defaultValue = "false")
+  boolean replayEnabled;
+
+  @ConfigProperty(name = "ndic.replay.speed", defaultValue = "0")
+  double replaySpeed;
+
+  @ConfigProperty(name = "ndic.replay.from")
+  Optional<OffsetDateTime> replayFrom;
+
+  @ConfigProperty(name = "ndic.replay.to")
+  Optional<OffsetDateTime> replayTo;
+
+  /**
+   * Topic pro časové události uzavírek ({@code activated} / {@code expired}, {@link
+   * ClosureEvents}); nenastaveno = bez událostí.
+   */
+  @ConfigProperty(name = "ndic.events.topic")
+  Optional<String> eventsTopic;
+
+  @Inject FeedsConfig feedsConfig;
+
+  @Inject Scheduler scheduler;
+
+  /**
+   * Max. počet nepotvrzených zpráv v letu na jeden běh feedu. Všechny feedy i časové události sdílí
+   * jeden emitter ({@link #EMITTER_BUFFER}), okno se proto při startu zmenší na podíl bufferu.
+   */
+  @ConfigProperty(name = "ndic.publish.window", defaultValue = "256")
+  int publishWindow;
+
+  /** Buffer emitteru {@code ndic-out}; {@link #EVENTS_RESERVE} z něj zůstává časovým událostem. */
+  static final int EMITTER_BUFFER = 4096;
+
+  static final int EVENTS_RESERVE = 256;
+
+  /** Velikost dávky, po které se sbírají a hlásí chyby publikace. */
+  @ConfigProperty(name = "ndic.publish.batch", defaultValue = "500")
+  int publishBatch;
+
+  /** Jak dlouho čekat na potvrzení od Kafky, než se běh prohlásí za neúspěšný. */
+  @ConfigProperty(name = "ndic.publish.timeout", defaultValue = "2m")
+  Duration publishTimeout;
+
+  /**
+   * Kódování hodnot zpráv ({@link PayloadCodec}): {@code json}, {@code cbor} nebo {@code smile};
+   * binární kódování nese hlavičku {@code content-type}.
+   */
+  @ConfigProperty(name = "ndic.publish.encoding", defaultValue = "json")
+  String publishEncoding;
+
   @Inject
   @Channel("ndic-out")
-  MutinyEmitter<Record<String, String>> emitter;
+  @OnOverflow(value = OnOverflow.Strategy.BUFFER, bufferSize = EMITTER_BUFFER)
+  MutinyEmitter<Record<String, byte[]>> emitter;
 
-  @Inject ObjectMapper mapper;
+  /**
+   * {@code blocking} = StAX nad {@link InputStream} (vlákno čeká na síť), {@code async} = tělo po
+   * kusech do neblokujícího parseru na {@code ndic.parse.threads} vláknech, {@code parallel} = jako
+   * blocking, ale bloky situací se parsují na více jádrech ({@link ParallelDatexParser}).
+   */
+  @ConfigProperty(name = "ndic.parse.mode", defaultValue = "blocking")
+  String parseMode;
 
-  private HttpClient client;
-  private volatile String etag = "";
-  private volatile String lastMod = "";
+  @ConfigProperty(name = "ndic.parse.threads", defaultValue = "2")
+  int parseThreads;
 
-  private Path httpCachePath() {
-    if (httpCachePathCfg != null && !httpCachePathCfg.isBlank()) return Path.of(httpCachePathCfg);
-    return Path.of(initMarkerPath + ".httpcache");
-  }
+  /** Režim parallel: počet jader (0 = common pool), velikost bloku a zachování pořadí. */
+  @ConfigProperty(name = "ndic.parse.parallelism", defaultValue = "0")
+  int parseParallelism;
+
+  @ConfigProperty(name = "ndic.parse.chunk", defaultValue = "262144")
+  int parseChunk;
+
+  @ConfigProperty(name = "ndic.parse.ordered", defaultValue = "true")
+  boolean parseOrdered;
+
+  @Inject FetchMetrics metrics;
+
+  @Inject AlertCLocations alertC;
+
+  @Inject GeoTransform geo;
+
+  @Inject GNGeometry gnGeometry;
+
+  @Inject ClosureState closures;
+
+  private HttpClient client;
+  private ExecutorService fetchPool;
+  private ScheduledExecutorService pollTimer; // adaptivní poll
+  private ExecutorService parsePool;
+  private ForkJoinPool parallelPool;
+  private Semaphore downloads;
+  private int window; // efektivní ndic.publish.window
+  private final List<FeedState> feeds = new ArrayList<>();
+  private ClosureEvents events;
+  private PayloadCodec codec;
+  private List<RecordHeader> payloadHeaders;
 
-  @PostConstruct
-  void boot() {
+  void onStart(@Observes StartupEvent ev) {
+    codec = PayloadCodec.of(publishEncoding);
+    payloadHeaders =
+        codec == PayloadCodec.JSON
+            ? List.of()
+            : List.of(
+                new RecordHeader(
+                    "content-type", codec.contentType.getBytes(StandardCharsets.UTF_8)));
     client =
         HttpClient.newBuilder()
             .version(HttpClient.Version.HTTP_1_1)
@@ -85,35 +287,305 @@ public class NDICFetcher {
                 })
             .build();
 
-    // Načti případný HTTP cache marker z minulého běhu
-    loadHttpCache();
+    if (asyncParse()) parsePool = daemonPool("ndic-parse-", parseThreads);
+    if ("parallel".equalsIgnoreCase(parseMode)) {
+      parallelPool =
+          parseParallelism > 0 ? new ForkJoinPool(parseParallelism) : ForkJoinPool.commonPool();
+    }
 
-    // Jednorázový init (pokud marker neexistuje), ale už s Conditional GET
-    if (!Files.exists(Path.of(initMarkerPath))) {
-      try {
-        int n = fetchFrom(initUrl);
-        LOG.infof("Initial pull done, published %d records", n);
-      } catch (Exception e) {
-        LOG.info("Initial pull failed (continuing)", e);
+    alertC.refresh();
+    gnGeometry.refresh();
+    feeds.addAll(configuredFeeds());
+    downloads = new Semaphore(Math.max(1, maxConcurrent));
+    window = publishWindow(feeds.size());
+    fetchPool = daemonPool("ndic-fetch-", feeds.size());
+    if (adaptivePoll && !replayEnabled) {
+      pollTimer =
+          Executors.newSingleThreadScheduledExecutor(
+              r -> {
+                Thread t = new Thread(r, "ndic-poll");
+                t.setDaemon(true);
+                return t;
+              });
+    }
+
+    if (replayEnabled) {
+      if (archiveDir.isEmpty()) {
+        throw new IllegalStateException("ndic.replay.enabled requires ndic.archive.dir");
+      }
+      for (FeedState feed : feeds) fetchPool.execute(() -> replay(feed));
+      return;
+    }
+    if (eventsTopic.isPresent()) {
+      events =
+          new ClosureEvents(
+              closures,
+              sender(eventsTopic.get()),
+              new PayloadWriter(codec),
+              System::currentTimeMillis);
+    }
+    for (FeedState feed : feeds) {
+      // HTTP cache a stav detekce změn z minulého běhu
+      feed.load();
+      if (archiveDir.isPresent()) {
+        feed.archive =
+            new FeedArchive(
+                feed.name,
+                Path.of(archiveDir.get(), feed.name),
+                archiveSegmentBytes,
+                archiveSegmentAge,
+                archiveRetain);
       }
+      if (adaptivePoll) {
+        feed.cadence =
+            new PollCadence(
+                feed.name,
+                feed.stateFile(".cadence"),
+                pollMin,
+                pollMax,
+                DurationConverter.parseDuration(feed.every),
+                pollLag,
+                pollJitter);
+        feed.cadence.load();
+        LOG.infof(
+            "[%s] Polling %s adaptively every %s..%s, every %s until the cadence is known"
+                + " (filter=%s)",
+            feed.name, feed.url, pollMin, pollMax, feed.every, feed.filterName);
+        // po restartu je pohled uzavírek prázdný → první poll hned
+        schedule(feed, 0);
+        continue;
+      }
+      // job jen předá běh do fetchPool; překryv běhů téhož feedu hlídá feed.tryStart()
+      scheduler
+          .newJob("ndic-" + feed.name)
+          .setInterval(feed.every)
+          .setTask(ctx -> fetchPool.execute(() -> run(feed)))
+          .schedule();
+      LOG.infof(
+          "[%s] Polling %s every %s (filter=%s)", feed.name, feed.url, feed.every, feed.filterName);
+
+      // jednorázový init (pokud marker neexistuje), ale už s Conditional GET
+      if (!feed.hasMarker()) fetchPool.execute(() -> run(feed));
+    }
+  }
+
+  @PreDestroy
+  void shutdown() {
+    if (pollTimer != null) pollTimer.shutdownNow();
+    for (FeedState feed : feeds) {
+      if (feed.cadence == null) scheduler.unscheduleJob("ndic-" + feed.name);
+    }
+    if (fetchPool != null) fetchPool.shutdownNow();
+    if (events != null) events.close();
+    for (FeedState feed : feeds) {
+      if (feed.archive != null) feed.archive.close();
+    }
+    if (parsePool != null) parsePool.shutdownNow();
+    if (parallelPool != null && parallelPool != ForkJoinPool.commonPool()) {
+      parallelPool.shutdownNow();
+    }
+  }
+
+  /** Feedy z {@code ndic.feeds.*}; bez nich jediný {@code roadworks} z {@code ndic.init.*}. */
+  private List<FeedState> configuredFeeds() {
+    Path dir = Path.of(initMarkerPath).toAbsolutePath().getParent();
+    List<FeedState> out = new ArrayList<>();
+    feedsConfig
+        .feeds()
+        .forEach(
+            (name, f) -> {
+              if (!f.enabled()) return;
+              FeedState feed =
+                  new FeedState(
+                      name,
+                      f.url(),
+                      f.every().orElse(pollEvery),
+                      f.filter(),
+                      f.topic().orElse(null),
+                      f.markerPath().map(Path::of).orElse(dir.resolve(name + ".marker")),
+                      f.httpcachePath().map(Path::of).orElse(dir.resolve(name + ".httpcache")),
+                      f.deltaPath().map(Path::of).orElse(dir.resolve(name + ".delta")));
+              feed.deltaUrl = f.deltaUrl().orElse(null);
+              out.add(feed);
+            });
+    if (out.isEmpty()) {
+      out.add(
+          new FeedState(
+              "roadworks",
+              initUrl,
+              pollEvery,
+              "closures",
+              null,
+              Path.of(initMarkerPath),
+              httpCachePath(),
+              deltaPath()));
+      out.get(0).deltaUrl = initDeltaUrl.orElse(null);
+    }
+    return out;
+  }
+
+  private Path httpCachePath() {
+    if (httpCachePathCfg != null && !httpCachePathCfg.isBlank()) return Path.of(httpCachePathCfg);
+    return Path.of(initMarkerPath + ".httpcache");
+  }
+
+  private Path deltaPath() {
+    if (deltaPathCfg != null && !deltaPathCfg.isBlank()) return Path.of(deltaPathCfg);
+    return Path.of(initMarkerPath + ".delta");
+  }
+
+  private static ExecutorService daemonPool(String prefix, int threads) {
+    AtomicInteger n = new AtomicInteger();
+    return Executors.newFixedThreadPool(
+        Math.max(1, threads),
+        r -> {
+          Thread t = new Thread(r, prefix + n.incrementAndGet());
+          t.setDaemon(true);
+          return t;
+        });
+  }
+
+  /**
+   * Adaptivní poll: další běh feedu se naplánuje až po dokončení předchozího (podle výsledku a
+   * odhadu periody), takže dva běhy téhož feedu se nikdy nepřekryjí.
+   */
+  private void schedule(FeedState feed, long delayMillis) {
+    pollTimer.schedule(
+        () -> fetchPool.execute(() -> poll(feed)), delayMillis, TimeUnit.MILLISECONDS);
+  }
+
+  private void poll(FeedState feed) {
+    PollCadence cadence = feed.cadence;
+    long delay;
+    try {
+      if (run(feed)) cadence.polled(feed.lastPublicationTime, feed.lastMod);
+      else cadence.failed();
+    } finally {
+      delay = cadence.nextDelayMillis(System.currentTimeMillis());
+      metrics.feed(feed.name).scheduled(cadence.cadenceMillis(), delay);
+      if (!pollTimer.isShutdown()) schedule(feed, delay);
     }
+    LOG.debugf("[%s] Next poll in %,d ms", feed.name, delay);
   }
 
-  /** Poll podle configu; POZOR: config musí být celé např. '5s'. */
-  @Scheduled(every = "{ndic.poll.seconds}")
-  void poll() {
+  /** Jeden poll feedu. {@code false} = chyba (nebo feed už běží). */
+  private boolean run(FeedState feed) {
+    if (!feed.tryStart()) return false; // předchozí běh (např. init) ještě neskončil
     try {
-      int recordsSend = fetchFrom(initUrl);
+      // nová verze lokalizační tabulky / sítě → načíst před během
+      alertC.refresh();
+      gnGeometry.refresh();
+      int recordsSend = fetchFrom(feed);
       if (recordsSend > 0) {
-        LOG.infof("Published %d roadworks", recordsSend);
+        LOG.infof("[%s] Published %d records", feed.name, recordsSend);
       }
+      return true;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
     } catch (Exception e) {
-      LOG.warn("poll error", e);
+      LOG.warnf(e, "[%s] poll error", feed.name);
+      return false;
+    } finally {
+      feed.finished();
+    }
+  }
+
+  /**
+   * STREAMING fetch + parse; při úspěchu zapíše marker (čas) i HTTP cache (ETag/Last-Modified).
+   * Feed s {@code delta-url} stahuje jen změny od poslední publikace ({@link #deltaSince}); server,
+   * který rozdílový pull odmítne (4xx), dostane od té doby jen plné polly.
+   */
+  int fetchFrom(FeedState feed) throws Exception {
+    String since = deltaSince(feed);
+    if (since == null) return fetchFrom(feed, feed.url, false);
+    try {
+      return fetchFrom(feed, feed.deltaUrl.replace("{since}", urlEncode(since)), true);
+    } catch (HttpStatus e) {
+      if (e.retryable()) throw e;
+      LOG.warnf("[%s] Delta pull rejected (%s) — full fetches only from now on", feed.name, e);
+      feed.deltaUrl = null;
+      return fetchFrom(feed, feed.url, false);
+    }
+  }
+
+  /**
+   * Od kdy stáhnout změny (ISO čas: publicationTime posledního úspěšného běhu, jinak marker), nebo
+   * null = plné stažení: feed nemá {@code delta-url}, pohled uzavírek / stav detekce změn je po
+   * restartu prázdný, nebo je čas na pravidelný plný resync.
+   */
+  private String deltaSince(FeedState feed) {
+    if (feed.deltaUrl == null || feed.changes.size() == 0 || !closures.hasFeed(feed.name)) {
+      return null;
+    }
+    if (feed.lastFullAt == 0
+        || System.currentTimeMillis() - feed.lastFullAt >= deltaResync.toMillis()) {
+      return null;
+    }
+    String since =
+        feed.lastPublicationTime.isBlank() ? feed.readMarker() : feed.lastPublicationTime;
+    return since.isBlank() ? null : since;
+  }
+
+  private static String urlEncode(String s) {
+    return URLEncoder.encode(s, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Jedno stažení {@code url} (plné, nebo rozdílové). Přerušený přenos ({@link TransferFailed}) a
+   * dočasné chyby serveru se zkusí znovu ještě v tomto pollu; spool přerušeného přenosu zůstane i
+   * po vyčerpání pokusů, takže naváže i další poll. Slot {@link #downloads} drží jen samotný pokus,
+   * během backoffu mohou stahovat ostatní feedy.
+   */
+  private int fetchFrom(FeedState feed, String url, boolean delta) throws Exception {
+    BodySpool spool = feed.spool;
+    if (!url.equals(spool.url())) spool.clear();
+    for (int attempt = 0; ; attempt++) {
+      try {
+        HttpRequest req = request(feed, url, delta);
+        int published;
+        downloads.acquire();
+        try {
+          published = asyncParse() ? fetchAsync(feed, req, delta) : fetchBlocking(feed, req, delta);
+        } finally {
+          downloads.release();
+        }
+        spool.clear();
+        return published;
+      } catch (TransferFailed | HttpStatus e) {
+        if (e instanceof HttpStatus) spool.clear();
+        boolean retryable = !(e instanceof HttpStatus h) || h.retryable();
+        if (!retryable || attempt >= fetchRetries) throw e;
+        long delay = backoffMillis(attempt);
+        metrics.feed(feed.name).retry();
+        LOG.warnf(
+            "[%s] Download failed (%s) — retry %d/%d in %d ms%s",
+            feed.name,
+            e.getMessage(),
+            attempt + 1,
+            fetchRetries,
+            delay,
+            spool.resumable() ? String.format(" from byte %,d", spool.length()) : "");
+        Thread.sleep(delay);
+      } catch (Exception e) {
+        spool.clear();
+        throw e;
+      }
     }
   }
 
-  /** STREAMING fetch + parse; při úspěchu zapíše marker (čas) i HTTP cache (ETag/Last-Modified). */
-  int fetchFrom(String url) throws Exception {
+  /** Exponenciální backoff s jitterem: náhodně v [d/2, d], d = base · 2^attempt ≤ max. */
+  private long backoffMillis(int attempt) {
+    long d = Math.min(retryMaxBackoff.toMillis(), retryBackoff.toMillis() << Math.min(attempt, 20));
+    return d / 2 + ThreadLocalRandom.current().nextLong(d / 2 + 1);
+  }
+
+  /**
+   * GET feedu. Rozpracovaný spool → {@code Range} od jeho konce s {@code If-Range} (změněný obsah
+   * přijde rovnou celý jako 200); jinak conditional GET podle HTTP cache (jen plné stažení, cache
+   * patří k plnému feedu).
+   */
+  private HttpRequest request(FeedState feed, String url, boolean delta) {
     HttpRequest.Builder rb =
         HttpRequest.newBuilder()
             .uri(URI.create(url))
@@ -122,127 +594,524 @@ public class NDICFetcher {
             .header("Accept-Encoding", "gzip")
             .GET();
 
-    // Conditional GET
-    if (!etag.isBlank()) rb.header("If-None-Match", etag);
-    if (!lastMod.isBlank()) rb.header("If-Modified-Since", lastMod);
+    BodySpool spool = feed.spool;
+    if (spool.resumable()) {
+      rb.header("Range", "bytes=" + spool.length() + "-");
+      rb.header("If-Range", spool.validator());
+    } else if (!delta && closures.hasFeed(feed.name)) {
+      // Conditional GET; po restartu je pohled uzavírek prázdný → jednou celé tělo
+      if (!feed.etag.isBlank()) rb.header("If-None-Match", feed.etag);
+      if (!feed.lastMod.isBlank()) rb.header("If-Modified-Since", feed.lastMod);
+    }
+    return rb.build();
+  }
 
-    HttpResponse<InputStream> resp =
-        client.send(rb.build(), HttpResponse.BodyHandlers.ofInputStream());
+  private boolean asyncParse() {
+    return "async".equalsIgnoreCase(parseMode);
+  }
+
+  /**
+   * Blokující režim: tělo jako {@link InputStream}, StAX parser čte na volajícím vlákně (v režimu
+   * parallel jen skenuje hranice situací, parsuje pool). Surové tělo se zároveň spooluje; {@code
+   * 206} navazuje na spool z přerušeného pokusu a parse jde znovu od začátku spoolu.
+   */
+  private int fetchBlocking(FeedState feed, HttpRequest req, boolean delta) throws Exception {
+    FetchMetrics.Feed m = metrics.feed(feed.name);
+    BodySpool spool = feed.spool;
+    long sentAt = System.nanoTime();
+    HttpResponse<InputStream> resp;
+    try {
+      resp = client.send(req, HttpResponse.BodyHandlers.ofInputStream());
+    } catch (IOException e) {
+      throw new TransferFailed(e);
+    }
+    long headersAt = System.nanoTime();
 
     int sc = resp.statusCode();
-    if (sc == 304) {
-      LOG.info("Not modified (304) — skipping download/parse/publish; marker not updated");
-      return 0;
+    m.response(sc, headersAt - sentAt);
+    boolean resumed = sc == 206 && spool.continues(resp);
+    if (sc == 206 && !resumed) {
+      resp.body().close();
+      throw new HttpStatus(sc, "partial content does not continue the download spool");
+    }
+    if (sc != 200 && !resumed) {
+      try (InputStream body = resp.body()) {
+        return notOk(feed, sc, body.readNBytes(2048));
+      }
+    }
+    String ce = accept(feed, resp, resumed, delta);
+    if (resumed) {
+      m.resumed(spool.length());
+      LOG.infof("[%s] Resuming download at byte %,d", feed.name, spool.length());
+    }
+    FeedArchive.Snapshot archived = archive(feed, ce, delta);
+
+    return publish(
+        feed,
+        delta,
+        archived,
+        pub -> {
+          InputStream net = resumed ? spool.resume(resp.body()) : spool.start(resp, ce);
+          InputStream body = archived == null ? net : archived.tee(net);
+          try (CountingInputStream raw = new CountingInputStream(body);
+              InputStream decoded =
+                  ce.toLowerCase().contains("gzip") ? new GZIPInputStream(raw, 64 * 1024) : raw;
+              ProgressInputStream in = progress(decoded, pub)) {
+            DatexParser.Summary summary = parse(feed, in, pub);
+            m.download(raw.count(), in.count(), System.nanoTime() - headersAt);
+            return summary;
+          } catch (IOException | RuntimeException e) {
+            // parser/GZIP obalí chybu sítě po svém → rozhoduje, jestli selhal přenos
+            if (spool.interrupted()) throw new TransferFailed(e);
+            throw e;
+          }
+        });
+  }
+
+  /** Dekomprimované tělo → otisk obsahu ({@code pub.digest}) + buffer + progress log. */
+  private static ProgressInputStream progress(InputStream decoded, RecordPublisher pub) {
+    return new ProgressInputStream(
+        new BufferedInputStream(new DigestInputStream(decoded, pub.digest), 128 * 1024));
+  }
+
+  /** StAX parse na volajícím vlákně, v režimu parallel jen sken hranic situací (parsuje pool). */
+  private DatexParser.Summary parse(FeedState feed, InputStream in, RecordPublisher pub) {
+    return parallelPool != null
+        ? ParallelDatexParser.parse(in, feed.filter, pub, parallelPool, parseOrdered, parseChunk)
+        : DatexParser.parse(in, feed.filter, pub);
+  }
+
+  /**
+   * Neblokující režim: tělo jde po kusech do {@link DatexBodySubscriber} (async gzip + Aalto) na
+   * {@link #parsePool}; žádné vlákno nečeká na síť. Volající jen čeká na výsledek běhu. Tělo se
+   * nespooluje, přerušený přenos se opakuje celý.
+   */
+  private int fetchAsync(FeedState feed, HttpRequest req, boolean delta) throws Exception {
+    FetchMetrics.Feed m = metrics.feed(feed.name);
+    long sentAt = System.nanoTime();
+    HttpResponse<Flow.Publisher<List<ByteBuffer>>> resp;
+    try {
+      resp = client.sendAsync(req, HttpResponse.BodyHandlers.ofPublisher()).get();
+    } catch (ExecutionException e) {
+      Exception cause = DatexBodySubscriber.unwrap(e);
+      throw cause instanceof IOException ? new TransferFailed(cause) : cause;
     }
+    long headersAt = System.nanoTime();
+
+    int sc = resp.statusCode();
+    m.response(sc, headersAt - sentAt);
     if (sc != 200) {
-      String msg = "(no body)";
-      try (InputStream err = resp.body()) {
-        byte[] buf = err.readNBytes(2048);
-        msg = new String(buf, StandardCharsets.UTF_8);
-      } catch (IOException ignored) {
+      HttpResponse.BodySubscriber<byte[]> err = HttpResponse.BodySubscribers.ofByteArray();
+      resp.body().subscribe(err);
+      byte[] body;
+      try {
+        body = err.getBody().toCompletableFuture().get(30, TimeUnit.SECONDS);
+      } catch (ExecutionException | TimeoutException e) {
+        body = new byte[0];
       }
-      throw new IOException("HTTP " + sc + ": " + msg);
+      return notOk(feed, sc, Arrays.copyOf(body, Math.min(body.length, 2048)));
     }
+    String ce = accept(feed, resp, false, delta);
+    FeedArchive.Snapshot archived = archive(feed, ce, delta);
 
-    // 200 OK – uložíme ETag/Last-Modified (case-insensitive lookup)
-    etag = resp.headers().firstValue("etag").orElse(resp.headers().firstValue("ETag").orElse(""));
-    lastMod =
-        resp.headers()
-            .firstValue("last-modified")
-            .orElse(resp.headers().firstValue("Last-Modified").orElse(""));
+    return publish(
+        feed,
+        delta,
+        archived,
+        pub -> {
+          DatexBodySubscriber body =
+              new DatexBodySubscriber(
+                  parsePool,
+                  ce.toLowerCase().contains("gzip"),
+                  archived,
+                  pub.digest,
+                  feed.filter,
+                  pub);
+          resp.body().subscribe(body);
+          try {
+            DatexParser.Summary summary = body.getBody().toCompletableFuture().get();
+            m.download(body.wireBytes(), body.decodedBytes(), System.nanoTime() - headersAt);
+            return summary;
+          } catch (ExecutionException e) {
+            Exception cause = DatexBodySubscriber.unwrap(e);
+            throw body.transferFailed() ? new TransferFailed(cause) : cause;
+          }
+        });
+  }
+
+  /**
+   * 304 → nic nedělat (vrací 0), jiný stav než 200 → výjimka se začátkem těla. Conditional GET
+   * posílá jen plné stažení, 304 tedy potvrzuje i plný resync.
+   */
+  private static int notOk(FeedState feed, int sc, byte[] body) throws IOException {
+    if (sc == 304) {
+      fullOrDelta(feed, false);
+      LOG.infof(
+          "[%s] Not modified (304) — skipping download/parse/publish; marker not updated",
+          feed.name);
+      return 0;
+    }
+    String msg = body.length == 0 ? "(no body)" : new String(body, StandardCharsets.UTF_8);
+    throw new HttpStatus(sc, msg);
+  }
 
+  /**
+   * 200 OK (nebo 206 navazující na spool) – převezme ETag/Last-Modified a vrátí Content-Encoding; u
+   * 206 platí kódování spoolu a chybějící validátory zůstávají. Validátory rozdílové odpovědi se
+   * nepřebírají, HTTP cache patří k plnému feedu.
+   */
+  private String accept(FeedState feed, HttpResponse<?> resp, boolean resumed, boolean delta) {
     String ce =
+        resumed
+            ? feed.spool.encoding()
+            : resp.headers()
+                .firstValue("content-encoding")
+                .orElse(resp.headers().firstValue("Content-Encoding").orElse(""));
+    LOG.infof(
+        "[%s] Downloading DATEX II %s(encoding=%s, parse=%s)",
+        feed.name, delta ? "delta " : "", ce.isBlank() ? "identity" : ce, parseMode);
+    if (delta) return ce;
+
+    // case-insensitive lookup
+    feed.etag =
         resp.headers()
-            .firstValue("content-encoding")
-            .orElse(resp.headers().firstValue("Content-Encoding").orElse(""));
-    LOG.infof("Downloading DATEX II (encoding=%s)", ce.isBlank() ? "identity" : ce);
-
-    // úspěšný pars + (potenciálně) publikace
-    try (InputStream raw = resp.body();
-        InputStream decoded =
-            ce.toLowerCase().contains("gzip") ? new GZIPInputStream(raw, 64 * 1024) : raw;
-        InputStream in = new ProgressInputStream(new BufferedInputStream(decoded, 128 * 1024))) {
-
-      DatexParser.ParseResult pr = DatexParser.parse(in);
-
-      List<Map<String, Object>> filtered = new ArrayList<>();
-      for (Map<String, Object> it : pr.items()) {
-        if (DatexUtil.isAnyClosure(it)) {
-          filtered.add(it);
-        }
-      }
+            .firstValue("etag")
+            .orElse(resp.headers().firstValue("ETag").orElse(resumed ? feed.etag : ""));
+    feed.lastMod =
+        resp.headers()
+            .firstValue("last-modified")
+            .orElse(resp.headers().firstValue("Last-Modified").orElse(resumed ? feed.lastMod : ""));
+    return ce;
+  }
+
+  /**
+   * Snapshot archivu pro tělo, nebo null. Rozdílová těla se nearchivují: replay přehrává snapshoty
+   * jako plné feedy.
+   */
+  private static FeedArchive.Snapshot archive(FeedState feed, String ce, boolean delta) {
+    return feed.archive == null || delta ? null : feed.archive.begin(ce);
+  }
 
-      String now = OffsetDateTime.now(ZoneOffset.UTC).toString();
+  /** Jeden krok parsování: záznamy předává {@code pub}, vrací souhrn. */
+  @FunctionalInterface
+  private interface ParseStep {
+    DatexParser.Summary parse(RecordPublisher pub) throws Exception;
+  }
 
-      if (!filtered.isEmpty()) {
-        for (Map<String, Object> it : filtered) {
-          it.put("_source", "ndic");
-          it.put("_dataset", "roadworks");
-          it.put("_fetchedAt", now);
-          if (pr.publicationTime() != null) {
-            it.put("publicationTime", pr.publicationTime().toString());
-          }
+  /**
+   * Odeslání do topicu (feedu); bez vlastního topicu jde zpráva do topicu kanálu. Binární kódování
+   * přidá ke každé zprávě hlavičku {@code content-type}.
+   */
+  /**
+   * Okno publikace tak, aby se zprávy všech souběžně publikujících feedů vešly do bufferu emitteru
+   * (replay pouští všechny feedy naráz, jinak je omezuje {@code ndic.fetch.max-concurrent}).
+   */
+  private int publishWindow(int feedCount) {
+    int concurrent = replayEnabled ? feedCount : Math.min(feedCount, Math.max(1, maxConcurrent));
+    int fit = Math.max(1, (EMITTER_BUFFER - EVENTS_RESERVE) / Math.max(1, concurrent));
+    if (publishWindow > fit) {
+      LOG.warnf(
+          "ndic.publish.window=%d × %d concurrent feeds exceeds the emitter buffer (%d) — using %d",
+          publishWindow, concurrent, EMITTER_BUFFER, fit);
+      return fit;
+    }
+    return publishWindow;
+  }
 
-          String key = String.valueOf(it.getOrDefault("situationRecordId", ""));
-          if (key.isBlank()) key = "roadworks-" + System.nanoTime();
+  private PublishPipeline.Sender sender(String topic) {
+    if (topic == null && payloadHeaders.isEmpty()) {
+      return (key, value) -> emitter.send(Record.of(key, value)).subscribeAsCompletionStage();
+    }
+    OutgoingKafkaRecordMetadata<String> route =
+        OutgoingKafkaRecordMetadata.<String>builder()
+            .withTopic(topic)
+            .withHeaders(payloadHeaders)
+            .build();
+    return (key, value) ->
+        emitter
+            .sendMessage(Message.of(Record.of(key, value)).addMetadata(route))
+            .subscribeAsCompletionStage();
+  }
 
-          String json = mapper.writeValueAsString(it);
-          emitter.send(Record.of(key, json)).await().indefinitely();
-        }
+  /**
+   * Parse + publikace jednoho staženého feedu; záznamy se publikují průběžně, jak je parser čte.
+   * Marker, HTTP cache, otisk obsahu i stav detekce změn se posunou až po potvrzení všech zpráv z
+   * běhu. Stejný publicationTime jako minule ukončí běh hned po hlavičce ({@link SamePublication}).
+   * Archivovaný snapshot ({@code archived}, může být null) se uloží jen u úspěšného běhu s novým
+   * obsahem.
+   */
+  private int publish(FeedState feed, boolean delta, FeedArchive.Snapshot archived, ParseStep step)
+      throws Exception {
+    FetchMetrics.Feed m = metrics.feed(feed.name);
+    String now = OffsetDateTime.now(ZoneOffset.UTC).toString();
+    PublishPipeline pipeline =
+        new PublishPipeline(m.timed(sender(feed.topic)), window, publishBatch, publishTimeout);
+    RecordPublisher pub = new RecordPublisher(feed, delta, now, pipeline);
+    ChangeTracker changes = feed.changes;
+    changes.begin(delta);
+    boolean committed = false, same = false, keepArchived = false;
+    try {
+      long parseStart = System.nanoTime();
+      DatexParser.Summary summary = step.parse(pub);
+      m.parsed(summary.records(), summary.dropped(), System.nanoTime() - parseStart);
+
+      // záznamy, které z feedu zmizely → tombstone (null value) pro compacted topic; rozdílový běh
+      // nic neodebírá, to dorovná až plný resync
+      List<String> removed = changes.removed();
+      for (String key : removed) {
+        pipeline.submit(key, null);
       }
+      pipeline.awaitAll();
 
       // marker: poslední úspěšné STAŽENÍ (HTTP 200 + bez výjimky při parsování)
-      writeMarker(now);
+      feed.writeMarker(now);
       // ulož HTTP cache marker (po úspěšném zpracování)
-      saveHttpCache();
+      feed.saveHttpCache();
+
+      // bajtově stejné tělo a nic k publikaci → stav detekce změn je stejný, nepřepisovat
+      String digest = HexFormat.of().formatHex(pub.digest.digest());
+      int published = pub.inserted + pub.updated + removed.size();
+      if (published == 0 && digest.equals(feed.lastDigest)) {
+        m.unchanged(false);
+        LOG.infof("[%s] Identical payload (sha256 %s) — nothing to publish", feed.name, digest);
+      } else {
+        changes.commit();
+        keepArchived = true;
+      }
+      committed = true;
+      fullOrDelta(feed, delta);
+      if (closures.apply(pub.closureUpdate) && events != null) events.reschedule();
+      if (archived != null && keepArchived) archived.commit(pub.publicationTime, now, digest);
+      feed.saveDigest(digest, pub.publicationTime);
+      m.publicationTime(summary.publicationTime());
 
-      LOG.infof("Parsed %d items, published %d roadworks", pr.items().size(), filtered.size());
-      return filtered.size();
+      LOG.infof(
+          "[%s] Parsed %d %sitems, %d matched: published %d (%d new, %d updated), %d removed",
+          feed.name,
+          summary.records() + summary.dropped(),
+          delta ? "delta " : "",
+          summary.records(),
+          pub.inserted + pub.updated,
+          pub.inserted,
+          pub.updated,
+          removed.size());
+      return published;
+    } catch (SamePublication e) {
+      same = true;
+      m.unchanged(true);
+      fullOrDelta(feed, delta);
+      // validátory z této odpovědi patří ke stejnému obsahu → příště snad 304
+      feed.saveHttpCache();
+      LOG.infof(
+          "[%s] Same publicationTime %s as last run — transfer stopped, nothing to publish",
+          feed.name, e.getMessage());
+      return 0;
+    } finally {
+      if (!committed) changes.abort();
+      feed.lastRunCommitted = committed || same;
+      if (archived != null && !keepArchived) archived.abort();
     }
   }
 
-  private void writeMarker(String utcIso) {
+  /** Úspěšný běh: plný posouvá čas posledního resyncu ({@link #deltaSince}). */
+  private static void fullOrDelta(FeedState feed, boolean delta) {
+    feed.lastDelta = delta;
+    if (!delta) feed.lastFullAt = System.currentTimeMillis();
+  }
+
+  /**
+   * Režim replay: archivované snapshoty feedu jdou stejnou cestou jako stažené (parse → filtr →
+   * detekce změn → publikace), jen místo HTTP se čtou ze segmentů. Stav detekce změn začíná prázdný
+   * a ukládá se do {@code <archiv>/replay/}, živý stav feedu se nemění.
+   */
+  private void replay(FeedState live) {
+    Path dir = Path.of(archiveDir.get(), live.name);
+    FeedState feed =
+        new FeedState(
+            live.name,
+            live.url,
+            live.every,
+            live.filterName,
+            live.topic,
+            dir.resolve("replay").resolve("marker"),
+            dir.resolve("replay").resolve("httpcache"),
+            dir.resolve("replay").resolve("delta"));
     try {
-      Path p = Path.of(initMarkerPath);
-      if (p.getParent() != null) Files.createDirectories(p.getParent());
-      Files.writeString(p, utcIso, StandardCharsets.UTF_8);
-    } catch (IOException e) {
-      LOG.warnf(e, "Failed to write marker to %s", initMarkerPath);
+      List<FeedArchive.Entry> entries =
+          FeedArchive.read(dir, replayFrom.orElse(null), replayTo.orElse(null));
+      LOG.infof(
+          "[%s] Replaying %d archived snapshots from %s (speed=%s)",
+          feed.name, entries.size(), dir, replaySpeed > 0 ? replaySpeed + "x" : "max");
+
+      long started = System.nanoTime();
+      int published = 0;
+      OffsetDateTime previous = null;
+      for (FeedArchive.Entry e : entries) {
+        OffsetDateTime t =
+            e.publicationTime().isBlank() ? null : OffsetDateTime.parse(e.publicationTime());
+        if (replaySpeed > 0 && previous != null && t != null && t.isAfter(previous)) {
+          Thread.sleep((long) (Duration.between(previous, t).toMillis() / replaySpeed));
+        }
+        if (t != null) previous = t;
+        try (InputStream decoded = e.open()) {
+          published += publish(feed, false, null, pub -> parse(feed, progress(decoded, pub), pub));
+        } catch (Exception ex) {
+          LOG.warnf(
+              ex, "[%s] Replay of snapshot %s failed (skipped)", feed.name, e.publicationTime());
+        }
+      }
+      LOG.infof(
+          "[%s] Replay done: %d snapshots, %d records published in %d ms",
+          feed.name, entries.size(), published, (System.nanoTime() - started) / 1_000_000);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (IOException | RuntimeException e) {
+      LOG.warnf(e, "[%s] Replay failed", feed.name);
     }
   }
 
-  private void loadHttpCache() {
-    Path p = httpCachePath();
-    try {
-      if (Files.exists(p)) {
-        String txt = Files.readString(p, StandardCharsets.UTF_8);
-        // velmi jednoduchý formát: první řádek etag, druhý řádek last-modified
-        String[] lines = txt.split("\\R", -1);
-        if (lines.length > 0) etag = lines[0] == null ? "" : lines[0].trim();
-        if (lines.length > 1) lastMod = lines[1] == null ? "" : lines[1].trim();
-        if (!etag.isBlank() || !lastMod.isBlank()) {
-          LOG.infof("Loaded HTTP cache: ETag='%s', Last-Modified='%s'", etag, lastMod);
+  /** Stav odpovědi jiný než 200/304; 5xx, 429 a nepoužitelný rozsah (206/416) se zkusí znovu. */
+  private static final class HttpStatus extends IOException {
+    final int status;
+
+    HttpStatus(int status, String message) {
+      super("HTTP " + status + ": " + message);
+      this.status = status;
+    }
+
+    boolean retryable() {
+      return status >= 500 || status == 429 || status == 416 || status == 206;
+    }
+  }
+
+  /** Chyba sítě při odeslání požadavku nebo během přenosu těla (ne v parseru ani v publikaci). */
+  private static final class TransferFailed extends IOException {
+    TransferFailed(Throwable cause) {
+      super(cause.getMessage(), cause);
+    }
+  }
+
+  /** Feed má stejný publicationTime jako minulý úspěšný běh; přeruší parse i přenos těla. */
+  private static final class SamePublication extends RuntimeException {
+    SamePublication(String publicationTime) {
+      super(publicationTime, null, false, false);
+    }
+  }
+
+  /**
+   * Publikace záznamů feedu přímo z parseru (filtr běží už v parseru, bez mezibufferu feedu).
+   * Záznamy beze změny od minulého běhu se nepublikují.
+   */
+  private final class RecordPublisher implements DatexParser.Listener {
+    private final FeedState feed;
+    private final boolean delta;
+    private final String fetchedAt;
+    private final PublishPipeline pipeline;
+    private String publicationTime;
+    int inserted = 0, updated = 0;
+    // SHA-256 dekomprimovaného těla, plní ho stream/subscriber během parsování
+    final MessageDigest digest = sha256();
+    // uzavírky z běhu pro ClosureState, použijí se jen po úspěšném běhu
+    final ClosureState.Update closureUpdate;
+    // generátor + buffer zpráv, sdílený všemi záznamy běhu
+    private final PayloadWriter payload = new PayloadWriter(codec);
+
+    RecordPublisher(FeedState feed, boolean delta, String fetchedAt, PublishPipeline pipeline) {
+      this.feed = feed;
+      this.delta = delta;
+      this.closureUpdate = new ClosureState.Update(feed.name, delta);
+      this.fetchedAt = fetchedAt;
+      this.pipeline = pipeline;
+    }
+
+    @Override
+    public void onPublicationTime(OffsetDateTime t) {
+      publicationTime = t.toString();
+      // minulý běh nedoběhl (chyba publikace, první běh po startu) → vždy celý parse a publikace;
+      // plný resync po rozdílových bězích taky (stejný publicationTime nic nezaručuje). Prázdný
+      // stav detekce změn (filtr nic nevybral) je platný stav, ne důvod parsovat znovu.
+      if (skipSamePublication
+          && (delta || !feed.lastDelta)
+          && feed.lastRunCommitted
+          && closures.hasFeed(feed.name)
+          && publicationTime.equals(feed.lastPublicationTime)) {
+        throw new SamePublication(publicationTime);
+      }
+    }
+
+    @Override
+    public void onRecord(DatexRecord rec) {
+      ChangeTracker.Change change = feed.changes.track(rec);
+      if (change == ChangeTracker.Change.UNCHANGED) {
+        // v pohledu už je doplněný; chybí jen po restartu
+        if (closures.contains(feed.name, rec.situationRecordId())) {
+          closureUpdate.keep(rec.situationRecordId());
+        } else if (ClosureState.isActiveClosure(rec)) {
+          closureUpdate.put(enrich(rec));
         }
+        return;
       }
-    } catch (IOException e) {
-      LOG.warnf(e, "Failed to read HTTP cache from %s", p);
+
+      String key = rec.situationRecordId();
+      if (key == null) key = feed.name + "-" + System.nanoTime();
+      rec = enrich(rec);
+      closureUpdate.put(rec);
+
+      try {
+        pipeline.submit(
+            key,
+            payload.write(
+                new DatexJson.Envelope(rec, "ndic", feed.name, fetchedAt, publicationTime)));
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      if (change == ChangeTracker.Change.INSERTED) inserted++;
+      else updated++;
     }
   }
 
-  private void saveHttpCache() {
-    Path p = httpCachePath();
+  private DatexRecord enrich(DatexRecord rec) {
+    return gnGeometry.enrich(geo.enrich(alertC.enrich(rec)));
+  }
+
+  private static MessageDigest sha256() {
     try {
-      if (p.getParent() != null) Files.createDirectories(p.getParent());
-      String txt = (etag == null ? "" : etag) + "\n" + (lastMod == null ? "" : lastMod) + "\n";
-      Files.writeString(p, txt, StandardCharsets.UTF_8);
-    } catch (IOException e) {
-      LOG.warnf(e, "Failed to write HTTP cache to %s", p);
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e); // povinný algoritmus každé JVM
+    }
+  }
+
+  /** Počítá přečtené bajty (pro metriky stažení). */
+  static class CountingInputStream extends FilterInputStream {
+    long read = 0;
+
+    CountingInputStream(InputStream in) {
+      super(in);
+    }
+
+    long count() {
+      return read;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      int n = super.read(b, off, len);
+      if (n > 0) read += n;
+      return n;
+    }
+
+    @Override
+    public int read() throws IOException {
+      int n = super.read();
+      if (n >= 0) read++;
+      return n;
     }
   }
 
   /** Jednoduchý progress logger (každých ~5 MiB) */
-  static final class ProgressInputStream extends FilterInputStream {
-    private long read = 0, nextLog = 5L << 20; // 5 MiB
+  static final class ProgressInputStream extends CountingInputStream {
+    private long nextLog = 5L << 20; // 5 MiB
 
     ProgressInputStream(InputStream in) {
       super(in);
@@ -252,7 +1121,6 @@ public class NDICFetcher {
     public int read(byte[] b, int off, int len) throws IOException {
       int n = super.read(b, off, len);
       if (n > 0) {
-        read += n;
         if (read >= nextLog) {
           Logger.getLogger(NDICFetcher.class).infof("Downloaded %,d MiB", read >> 20);
           nextLog += 5L << 20;
@@ -265,7 +1133,6 @@ public class NDICFetcher {
     public int read() throws IOException {
       int n = super.read();
       if (n >= 0) {
-        read++;
         if (read >= nextLog) {
           Logger.getLogger(NDICFetcher.class).infof("Downloaded %,d MiB", read >> 20);
           nextLog += 5L << 20;
@@ -0,0 +1,348 @@
+package cz.vutbr.fit.diploma.traffic;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Paralelní varianta {@link DatexParser#parse(InputStream, DatexParser.RecordFilter,
+ * DatexParser.Listener)} pro velké SituationPublication. Elementy {@code situation} jsou na sobě
+ * nezávislé (kromě hlavičky publikace), takže volající vlákno jen proskenuje dekódované bajty na
+ * jejich hranice, poskládá je do bloků o ~{@code chunkBytes} a ty parsuje {@link ForkJoinPool}
+ * stejnou logikou jako sekvenční parser. Blok se obalí XML deklarací a všemi {@code xmlns} z
+ * prologu, aby prefixy (např. {@code xsi:type}) platily stejně jako v celém dokumentu.
+ *
+ * <p>Listener se volá vždy z volajícího vlákna (nemusí být thread-safe), filtr z vláken poolu (musí
+ * být bezstavový). V režimu {@code ordered} přicházejí záznamy v pořadí dokumentu, jinak v pořadí
+ * dokončení bloků. V paměti je nejvýš {@code 2 × parallelism} bloků.
+ */
+public final class ParallelDatexParser {
+
+  private static final byte[] SITUATION = "situation".getBytes(StandardCharsets.US_ASCII);
+  private static final Pattern XMLNS =
+      Pattern.compile("\\sxmlns(:[\\w.\\-]+)?\\s*=\\s*(\"[^\"]*\"|'[^']*')");
+
+  /** Výsledek jednoho bloku. */
+  private record Part(List<DatexRecord> records, int dropped) {}
+
+  private final DatexParser.RecordFilter filter;
+  private final DatexParser.Listener listener;
+  private final ForkJoinPool pool;
+  private final boolean ordered;
+  private final int chunkBytes;
+  private final int maxInFlight;
+
+  // vstup (okno nad streamem)
+  private final InputStream in;
+  private byte[] buf = new byte[1 << 20];
+  private int pos = 0, end = 0;
+  private boolean eof = false;
+
+  // prolog = vše před první situation; null, dokud ji nenajdeme
+  private byte[] prolog;
+  private byte[] wrapStart, wrapEnd;
+  private int situationStart = -1;
+  // rozpracovaný blok, vždy začíná wrapStart
+  private final ByteArrayOutputStream chunk;
+
+  // rozpracované bloky (v obou režimech, ať je jde při chybě zrušit), bez ordered i fronta hotových
+  private final Deque<CompletableFuture<Part>> pending = new ArrayDeque<>();
+  private final BlockingQueue<CompletableFuture<Part>> completed = new LinkedBlockingQueue<>();
+  private int inFlight = 0;
+
+  private OffsetDateTime publicationTime;
+  private int count = 0, dropped = 0;
+
+  private ParallelDatexParser(
+      InputStream in,
+      DatexParser.RecordFilter filter,
+      DatexParser.Listener listener,
+      ForkJoinPool pool,
+      boolean ordered,
+      int chunkBytes) {
+    this.in = in;
+    this.filter = filter;
+    this.listener = listener;
+    this.pool = pool;
+    this.ordered = ordered;
+    this.chunkBytes = Math.max(4 * 1024, chunkBytes);
+    this.maxInFlight = Math.max(2, 2 * pool.getParallelism());
+    this.chunk = new ByteArrayOutputStream(this.chunkBytes + this.chunkBytes / 4);
+  }
+
+  /**
+   * Parsuje dokument paralelně na {@code pool}; výsledek (počty, záznamy v listeneru) je stejný
+   * jako u sekvenčního parseru, s {@code ordered = false} se liší jen pořadí záznamů.
+   */
+  public static DatexParser.Summary parse(
+      InputStream in,
+      DatexParser.RecordFilter filter,
+      DatexParser.Listener listener,
+      ForkJoinPool pool,
+      boolean ordered,
+      int chunkBytes) {
+    ParallelDatexParser p =
+        new ParallelDatexParser(in, filter, listener, pool, ordered, chunkBytes);
+    try {
+      return p.run();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } finally {
+      for (CompletableFuture<Part> f : p.pending) f.cancel(false);
+    }
+  }
+
+  private DatexParser.Summary run() throws IOException {
+    scan();
+
+    if (prolog == null) {
+      // žádná situation → malý dokument, stačí sekvenční parser (vč. publicationTime)
+      return DatexParser.parse(new ByteArrayInputStream(buf, 0, end), filter, listener);
+    }
+    if (chunk.size() > wrapStart.length) submit();
+    while (inFlight > 0) deliver(true);
+    return new DatexParser.Summary(publicationTime, count, dropped);
+  }
+
+  // --- skenování hranic situation ---------------------------------------------
+
+  private void scan() throws IOException {
+    while (true) {
+      int lt = indexOf((byte) '<', pos, end);
+      if (lt < 0) {
+        pos = end;
+        if (!fill()) return;
+        continue;
+      }
+      pos = lt;
+      if (!ensure(2)) return;
+
+      byte c = buf[pos + 1];
+      if (c == '!') {
+        if (startsWith("<!--")) skipPast("-->");
+        else if (startsWith("<![CDATA[")) skipPast("]]>");
+        else pos++;
+        continue;
+      }
+      if (c == '?') {
+        skipPast("?>");
+        continue;
+      }
+
+      boolean close = c == '/';
+      int nameFrom = pos + (close ? 2 : 1);
+      int nameTo = nameFrom;
+      while (true) {
+        if (nameTo >= end) {
+          int shift = pos;
+          if (!fill()) return;
+          shift -= pos; // fill() mohl posunout okno
+          nameFrom -= shift;
+          nameTo -= shift;
+          continue;
+        }
+        byte b = buf[nameTo];
+        if (b == '>' || b == '/' || b == ' ' || b == '\t' || b == '\n' || b == '\r') break;
+        nameTo++;
+      }
+
+      if (isSituation(nameFrom, nameTo)) {
+        if (!close && situationStart < 0) {
+          if (prolog == null) startBody(pos);
+          situationStart = pos;
+        } else if (close && situationStart >= 0) {
+          pos = nameTo;
+          int gt;
+          while ((gt = indexOf((byte) '>', pos, end)) < 0) {
+            pos = end;
+            if (!fill()) return;
+          }
+          chunk.write(buf, situationStart, gt + 1 - situationStart);
+          situationStart = -1;
+          pos = gt + 1;
+          if (chunk.size() - wrapStart.length >= chunkBytes) submit();
+          continue;
+        }
+      }
+      pos = nameTo;
+    }
+  }
+
+  /** Lokální jméno tagu (bez prefixu) je přesně {@code situation}? */
+  private boolean isSituation(int from, int to) {
+    for (int i = from; i < to; i++) {
+      if (buf[i] == ':') from = i + 1;
+    }
+    return to - from == SITUATION.length
+        && Arrays.equals(buf, from, to, SITUATION, 0, SITUATION.length);
+  }
+
+  /** První situation: prolog → hlavička (publicationTime) a obálka pro bloky. */
+  private void startBody(int at) {
+    prolog = Arrays.copyOf(buf, at);
+
+    // publicationTime z hlavičky: neúplný dokument zvládne jen neblokující parser
+    DatexParser.Incremental header =
+        DatexParser.incremental(
+            DatexParser.RecordFilter.ALL,
+            new DatexParser.Listener() {
+              @Override
+              public void onPublicationTime(OffsetDateTime t) {
+                publicationTime = t;
+                listener.onPublicationTime(t);
+              }
+
+              @Override
+              public void onRecord(DatexRecord r) {}
+            });
+    header.feed(prolog, 0, prolog.length);
+
+    String text = new String(prolog, StandardCharsets.ISO_8859_1); // ASCII-kompatibilní
+    String decl = "";
+    int from = text.startsWith("\u00EF\u00BB\u00BF") ? 3 : 0; // UTF-8 BOM
+    if (text.startsWith("<?xml", from)) decl = text.substring(from, text.indexOf("?>", from) + 2);
+
+    Map<String, String> ns = new LinkedHashMap<>();
+    Matcher m = XMLNS.matcher(text);
+    while (m.find()) ns.put(m.group(1) == null ? "" : m.group(1), m.group());
+    StringBuilder sb = new StringBuilder(decl).append("<chunk");
+    ns.values().forEach(sb::append);
+    wrapStart = sb.append('>').toString().getBytes(StandardCharsets.ISO_8859_1);
+    wrapEnd = "</chunk>".getBytes(StandardCharsets.ISO_8859_1);
+    chunk.writeBytes(wrapStart);
+  }
+
+  // --- bloky ----------------------------------------------------------------
+
+  private void submit() {
+    chunk.writeBytes(wrapEnd);
+    byte[] doc = chunk.toByteArray();
+    chunk.reset();
+    chunk.writeBytes(wrapStart);
+
+    CompletableFuture<Part> f =
+        CompletableFuture.supplyAsync(
+            () -> {
+              List<DatexRecord> out = new ArrayList<>();
+              DatexParser.Summary s =
+                  DatexParser.parse(new ByteArrayInputStream(doc), filter, out::add);
+              return new Part(out, s.dropped());
+            },
+            pool);
+    inFlight++;
+    pending.addLast(f);
+    if (!ordered) f.whenComplete((p, e) -> completed.add(f));
+
+    // předej, co je hotové; při plném okně čekej
+    while (inFlight > 0 && (inFlight >= maxInFlight || ready())) deliver(inFlight >= maxInFlight);
+  }
+
+  private boolean ready() {
+    return ordered ? pending.peekFirst().isDone() : !completed.isEmpty();
+  }
+
+  /** Předá listeneru výsledek dalšího bloku (v pořadí dokumentu, nebo prvního hotového). */
+  private void deliver(boolean block) {
+    CompletableFuture<Part> f;
+    if (ordered) {
+      f = pending.pollFirst();
+    } else {
+      try {
+        f = block ? completed.take() : completed.poll();
+        if (f != null) pending.remove(f); // nejvýš maxInFlight prvků
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while parsing", e);
+      }
+    }
+    if (f == null) return;
+    inFlight--;
+    Part p;
+    try {
+      p = f.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException r) throw r;
+      throw e;
+    }
+    for (DatexRecord r : p.records()) listener.onRecord(r);
+    count += p.records().size();
+    dropped += p.dropped();
+  }
+
+  // --- buffer ---------------------------------------------------------------
+
+  /** Dočte další data; okno se posune tak, aby zůstal prolog / rozpracovaná situation. */
+  private boolean fill() throws IOException {
+    if (eof) return false;
+    int keep = situationStart >= 0 ? situationStart : (prolog == null ? 0 : pos);
+    if (keep > 0) {
+      System.arraycopy(buf, keep, buf, 0, end - keep);
+      end -= keep;
+      pos -= keep;
+      if (situationStart >= 0) situationStart -= keep;
+    }
+    if (end == buf.length) buf = Arrays.copyOf(buf, buf.length * 2);
+    int n = in.read(buf, end, buf.length - end);
+    if (n < 0) {
+      eof = true;
+      return false;
+    }
+    end += n;
+    return true;
+  }
+
+  private boolean ensure(int n) throws IOException {
+    while (end - pos < n) {
+      if (!fill()) return false;
+    }
+    return true;
+  }
+
+  private boolean startsWith(String s) throws IOException {
+    if (!ensure(s.length())) return false;
+    for (int i = 0; i < s.length(); i++) {
+      if (buf[pos + i] != s.charAt(i)) return false;
+    }
+    return true;
+  }
+
+  private void skipPast(String terminator) throws IOException {
+    pos += 2;
+    while (true) {
+      if (!ensure(terminator.length())) {
+        pos = end;
+        return;
+      }
+      if (startsWith(terminator)) {
+        pos += terminator.length();
+        return;
+      }
+      pos++;
+    }
+  }
+
+  private int indexOf(byte b, int from, int to) {
+    for (int i = from; i < to; i++) {
+      if (buf[i] == b) return i;
+    }
+    return -1;
+  }
+}
@@ -0,0 +1,45 @@
+package cz.vutbr.fit.diploma.traffic;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonFactoryBuilder;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import java.util.Locale;
+
+/**
+ * Kódování hodnot zpráv do Kafky: {@code json} (výchozí, stejné bajty jako dřív), {@code cbor} (RFC
+ * 8949) nebo {@code smile} (binární JSON se sdílenými názvy polí i krátkými řetězci v rámci
+ * zprávy). Všechny jdou přes stejné ručně psané zápisy {@link DatexJson} ({@link PayloadWriter}),
+ * takže struktura zprávy je ve všech kódováních stejná. Binární zprávy nesou hlavičku {@code
+ * content-type}, bez ní jde o JSON.
+ */
+enum PayloadCodec {
+  // bez oddělovače kořenových hodnot: jeden generátor píše zprávy za sebou do sdíleného bufferu
+  JSON("application/json", new JsonFactoryBuilder().rootValueSeparator((String) null).build()),
+  CBOR("application/cbor", new CBORFactory()),
+  SMILE("application/x-jackson-smile", new SmileFactory());
+
+  final String contentType;
+  final JsonFactory factory;
+
+  PayloadCodec(String contentType, JsonFactory factory) {
+    this.contentType = contentType;
+    this.factory = factory;
+  }
+
+  static PayloadCodec of(String name) {
+    try {
+      return valueOf(name.trim().toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Unknown ndic.publish.encoding: " + name, e);
+    }
+  }
+
+  /**
+   * Jeden generátor na více zpráv; Smile píše hlavičku a drží tabulky sdílených názvů od začátku
+   * proudu, každá zpráva proto potřebuje vlastní generátor.
+   */
+  boolean reusableGenerator() {
+    return this != SMILE;
+  }
+}
@@ -0,0 +1,68 @@
+package cz.vutbr.fit.diploma.traffic;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import java.io.IOException;
+
+/**
+ * Zápis hodnot zpráv přímo do bajtů: jeden {@link JsonGenerator} nad znovupoužívaným bufferem volá
+ * {@link DatexJson} bez {@code ObjectMapper} (žádný provider, writer ani String). Na zprávu vznikne
+ * jen výsledné pole, které si Kafka drží do potvrzení.
+ *
+ * <p>Není thread-safe: jeden na běh feedu (parser předává záznamy z jednoho vlákna), resp. na
+ * vlákno časovače {@link ClosureEvents}.
+ */
+final class PayloadWriter {
+
+  private static final int INITIAL_BUFFER = 8192;
+
+  private final PayloadCodec codec;
+  private final ByteArrayBuilder buf = new ByteArrayBuilder(INITIAL_BUFFER);
+  private JsonGenerator shared; // jen u kódování s reusableGenerator()
+
+  PayloadWriter(PayloadCodec codec) {
+    this.codec = codec;
+  }
+
+  byte[] write(DatexJson.Envelope e) throws IOException {
+    JsonGenerator g = generator();
+    try {
+      DatexJson.write(e, g);
+      return finish(g);
+    } catch (IOException | RuntimeException ex) {
+      discard();
+      throw ex;
+    }
+  }
+
+  byte[] write(DatexJson.Event e) throws IOException {
+    JsonGenerator g = generator();
+    try {
+      DatexJson.write(e, g);
+      return finish(g);
+    } catch (IOException | RuntimeException ex) {
+      discard();
+      throw ex;
+    }
+  }
+
+  private JsonGenerator generator() throws IOException {
+    if (!codec.reusableGenerator()) return codec.factory.createGenerator(buf);
+    if (shared == null) shared = codec.factory.createGenerator(buf);
+    return shared;
+  }
+
+  private byte[] finish(JsonGenerator g) throws IOException {
+    if (g == shared) g.flush();
+    else g.close();
+    byte[] out = buf.toByteArray();
+    buf.reset();
+    return out;
+  }
+
+  /** Generátor uprostřed objektu už nejde použít; další zpráva začne s novým. */
+  private void discard() {
+    shared = null;
+    buf.reset();
+  }
+}
@@ -0,0 +1,189 @@
+package cz.vutbr.fit.diploma.traffic;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import org.jboss.logging.Logger;
+
+/**
+ * Adaptivní interval pollu jednoho feedu. Z posledních {@value #HISTORY} okamžiků publikace
+ * (publicationTime nového obsahu, bez něj Last-Modified) odhadne periodu feedu jako medián
+ * rozestupů a další poll naplánuje těsně po očekávané další publikaci ({@code lag} + náhodně až
+ * {@code jitter}). Když publikace v očekávaný čas nepřijde (304, stejný obsah), zkouší to znovu po
+ * {@code min} · 2<sup>n</sup>, nejdál do dalšího očekávaného cyklu; chyby ustupují stejně. Výsledek
+ * je vždy v mezích {@code [min, max]}.
+ *
+ * <p>Dokud nejsou aspoň dva rozestupy, polluje se po {@code fallback} (pevný interval feedu) a ani
+ * backoff ho nepřekročí – učení tedy nikdy nestojí víc požadavků než pevný interval. Poll jednou za
+ * periodu ale vidí jen nejnovější publikaci, kratší skutečnou periodu nepozná (vidí její násobek).
+ * Proto se každý {@value #PROBE_EVERY}. cyklus poll zkusí už v polovině periody; najde-li tam novou
+ * publikaci, odhad se zahodí a učí se znovu.
+ *
+ * <p>Historie publikací se ukládá do souboru (řádek = epoch ms), takže odhad přežije restart. Volat
+ * z jednoho vlákna naráz (poll feedu je vždy nejvýš jeden).
+ */
+final class PollCadence {
+
+  private static final Logger LOG = Logger.getLogger(PollCadence.class);
+
+  static final int HISTORY = 16;
+  static final int PROBE_EVERY = 8;
+
+  private final String feed;
+  private final Path statePath;
+  private final long min, max, fallback, lag, jitter;
+
+  // vzestupně, bez duplicit
+  private final List<Long> updates = new ArrayList<>();
+  private int misses, errors, cycles;
+  private boolean probing;
+
+  PollCadence(
+      String feed,
+      Path statePath,
+      Duration min,
+      Duration max,
+      Duration fallback,
+      Duration lag,
+      Duration jitter) {
+    this.feed = feed;
+    this.statePath = statePath;
+    this.min = Math.max(1, min.toMillis());
+    this.max = Math.max(this.min, max.toMillis());
+    this.fallback = Math.max(this.min, Math.min(this.max, fallback.toMillis()));
+    this.lag = lag.toMillis();
+    this.jitter = jitter.toMillis();
+  }
+
+  /**
+   * Úspěšný poll; {@code publicationTime} (ISO) a {@code lastModified} (RFC 1123) jsou hodnoty
+   * posledního úspěšně zpracovaného obsahu. Novější než poslední známá publikace = nový obsah.
+   */
+  void polled(String publicationTime, String lastModified) {
+    boolean probe = probing;
+    probing = false;
+    errors = 0;
+    long at = updateTime(publicationTime, lastModified);
+    if (at > last()) {
+      if (probe) {
+        // publikace dřív než v půlce odhadnuté periody → periodu přeceňujeme, učit znovu
+        LOG.infof("[%s] Feed published earlier than expected — relearning cadence", feed);
+        updates.subList(0, updates.size() - 1).clear();
+      }
+      updates.add(at);
+      if (updates.size() > HISTORY) updates.remove(0);
+      misses = 0;
+      save();
+    } else {
+      misses++;
+    }
+  }
+
+  void failed() {
+    probing = false;
+    errors++;
+  }
+
+  /** Odhad periody feedu v ms; 0 = zatím neznámá. */
+  long cadenceMillis() {
+    if (updates.size() < 3) return 0;
+    long[] gaps = new long[updates.size() - 1];
+    for (int i = 1; i < updates.size(); i++) gaps[i - 1] = updates.get(i) - updates.get(i - 1);
+    Arrays.sort(gaps);
+    return gaps[gaps.length / 2];
+  }
+
+  /** Za kolik ms poll znovu, počítáno od {@code now} (epoch ms, konec tohoto pollu). */
+  long nextDelayMillis(long now) {
+    long c = cadenceMillis();
+    long delay;
+    if (c <= 0) {
+      // učení periody: pevný interval, backoff po chybě nejvýš do něj
+      delay = errors > 0 ? Math.min(backoff(errors), fallback) : fallback;
+    } else if (errors > 0) {
+      delay = backoff(errors);
+    } else {
+      long due = last() + c + lag;
+      if (due > now && misses == 0 && ++cycles >= PROBE_EVERY && c / 2 >= min) {
+        cycles = 0;
+        probing = true;
+        delay = Math.max(0, last() + c / 2 + lag - now);
+      } else if (due > now) {
+        delay = due - now;
+      } else {
+        // publikace se opozdila (nebo jsme ji propásli): častěji, ale ne přes další cyklus
+        long nextCycle = due + c * ((now - due) / c + 1);
+        delay = Math.min(backoff(Math.max(1, misses)), nextCycle - now);
+      }
+    }
+    if (jitter > 0) delay += ThreadLocalRandom.current().nextLong(jitter + 1);
+    return Math.max(min, Math.min(max, delay));
+  }
+
+  private long backoff(int attempt) {
+    return min << Math.min(attempt - 1, 20);
+  }
+
+  private long last() {
+    return updates.isEmpty() ? Long.MIN_VALUE : updates.get(updates.size() - 1);
+  }
+
+  private static long updateTime(String publicationTime, String lastModified) {
+    try {
+      if (publicationTime != null && !publicationTime.isBlank()) {
+        return OffsetDateTime.parse(publicationTime).toInstant().toEpochMilli();
+      }
+      if (lastModified != null && !lastModified.isBlank()) {
+        return ZonedDateTime.parse(lastModified, DateTimeFormatter.RFC_1123_DATE_TIME)
+            .toInstant()
+            .toEpochMilli();
+      }
+    } catch (RuntimeException e) {
+      // neparsovatelný čas = jako by ho feed neměl
+    }
+    return Long.MIN_VALUE;
+  }
+
+  // --- persistence ----------------------------------------------------------
+
+  void load() {
+    try {
+      if (!Files.exists(statePath)) return;
+      for (String line : Files.readAllLines(statePath, StandardCharsets.UTF_8)) {
+        if (line.isBlank()) continue;
+        long at = Long.parseLong(line.trim());
+        if (at > last()) updates.add(at);
+      }
+      while (updates.size() > HISTORY) updates.remove(0);
+      long c = cadenceMillis();
+      if (c > 0) {
+        LOG.infof(
+            "[%s] Loaded %d publication times, estimated cadence %s",
+            feed, updates.size(), Duration.ofMillis(c));
+      }
+    } catch (IOException | RuntimeException e) {
+      LOG.warnf(e, "[%s] Failed to read publication history from %s", feed, statePath);
+      updates.clear();
+    }
+  }
+
+  private void save() {
+    StringBuilder sb = new StringBuilder();
+    for (long at : updates) sb.append(at).append('\n');
+    try {
+      if (statePath.getParent() != null) Files.createDirectories(statePath.getParent());
+      Files.writeString(statePath, sb, StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      LOG.warnf(e, "[%s] Failed to write publication history to %s", feed, statePath);
+    }
+  }
+}
@@ -0,0 +1,111 @@
+package cz.vutbr.fit.diploma.traffic;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import org.jboss.logging.Logger;
+
+/**
+ * Pipelinovaná publikace jednoho běhu: najednou smí být rozesláno nejvýš {@code window}
+ * nepotvrzených zpráv, další {@link #submit} čeká (→ backpressure až do parseru). Chyby se sbírají
+ * po dávkách ({@code batchSize} po sobě jdoucích zpráv) a {@link #awaitAll} je nahlásí najednou, až
+ * doběhnou všechna potvrzení – marker a HTTP cache se smí uložit až potom.
+ */
+final class PublishPipeline {
+
+  private static final Logger LOG = Logger.getLogger(PublishPipeline.class);
+
+  /** Odeslání jedné zprávy; stage se dokončí potvrzením od brokeru. */
+  @FunctionalInterface
+  interface Sender {
+    CompletionStage<Void> send(String key, byte[] value);
+  }
+
+  private record BatchFailure(int failed, Throwable first) {}
+
+  private final Sender sender;
+  private final int window;
+  private final int batchSize;
+  private final Duration timeout;
+  private final Semaphore inFlight;
+
+  private final Map<Integer, BatchFailure> failures = new TreeMap<>(); // guarded by itself
+  private int submitted = 0;
+
+  PublishPipeline(Sender sender, int window, int batchSize, Duration timeout) {
+    this.sender = sender;
+    this.window = Math.max(1, window);
+    this.batchSize = Math.max(1, batchSize);
+    this.timeout = timeout;
+    this.inFlight = new Semaphore(this.window);
+  }
+
+  int submitted() {
+    return submitted;
+  }
+
+  /** Odešle zprávu ({@code value == null} = tombstone); blokuje, dokud je plné okno. */
+  void submit(String key, byte[] value) throws IOException {
+    acquire(1);
+    int batch = submitted++ / batchSize;
+    CompletionStage<Void> cs;
+    try {
+      cs = sender.send(key, value);
+    } catch (RuntimeException e) {
+      inFlight.release();
+      fail(batch, e);
+      return;
+    }
+    cs.whenComplete(
+        (ok, err) -> {
+          inFlight.release();
+          if (err != null) fail(batch, err);
+        });
+  }
+
+  /** Počká na potvrzení všech odeslaných zpráv; pokud některá selhala, vyhodí výjimku. */
+  void awaitAll() throws IOException {
+    acquire(window);
+    inFlight.release(window);
+
+    synchronized (failures) {
+      if (failures.isEmpty()) return;
+      int total = 0;
+      Throwable first = null;
+      for (Map.Entry<Integer, BatchFailure> e : failures.entrySet()) {
+        BatchFailure f = e.getValue();
+        // poslední dávka může být neúplná
+        int size = Math.min(batchSize, submitted - e.getKey() * batchSize);
+        LOG.warnf(
+            "Publish batch #%d: %d of %d records failed (%s)",
+            e.getKey(), f.failed(), size, f.first().toString());
+        total += f.failed();
+        if (first == null) first = f.first();
+      }
+      throw new IOException(
+          "Kafka publish failed for " + total + " of " + submitted + " records", first);
+    }
+  }
+
+  private void acquire(int permits) throws IOException {
+    try {
+      if (!inFlight.tryAcquire(permits, timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+        throw new IOException("Kafka publish stalled: no ack within " + timeout);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while publishing", e);
+    }
+  }
+
+  private void fail(int batch, Throwable err) {
+    synchronized (failures) {
+      failures.merge(
+          batch, new BatchFailure(1, err), (a, b) -> new BatchFailure(a.failed() + 1, a.first()));
+    }
+  }
+}
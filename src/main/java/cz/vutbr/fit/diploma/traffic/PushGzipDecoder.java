@@ -0,0 +1,188 @@
+package cz.vutbr.fit.diploma.traffic;
+
+import java.io.EOFException;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Gzip dekodér pro „push“ režim: komprimované bajty přicházejí po libovolných kusech ({@link
+ * #write}), dekomprimovaná data jdou průběžně do {@link Sink}. Protějšek {@code GZIPInputStream}
+ * bez blokujícího čtení – hlavička i patička se mohou rozpadnout přes hranice kusů. Podporuje více
+ * členů za sebou; nesmyslná data za posledním členem ignoruje (stejně jako {@code
+ * GZIPInputStream}).
+ */
+final class PushGzipDecoder {
+
+  /** Příjemce dekomprimovaných dat; pole je platné jen po dobu volání. */
+  @FunctionalInterface
+  interface Sink {
+    void write(byte[] b, int off, int len);
+  }
+
+  private static final int FHCRC = 2, FEXTRA = 4, FNAME = 8, FCOMMENT = 16;
+
+  private enum State {
+    HEADER,
+    BODY,
+    TRAILER,
+    DONE
+  }
+
+  // kroky hlavičky (pořadí dle RFC 1952)
+  private static final int H_FIXED = 0, H_XLEN = 1, H_EXTRA = 2, H_NAME = 3, H_COMMENT = 4;
+  private static final int H_HCRC = 5, H_END = 6;
+
+  private final Sink sink;
+  private final Inflater inflater = new Inflater(true);
+  private final CRC32 crc = new CRC32();
+  private final byte[] out;
+
+  private State state = State.HEADER;
+  private int members = 0;
+
+  // hlavička
+  private int step = H_FIXED, pos = 0, flags = 0, remaining = 0;
+
+  // patička: CRC32 + ISIZE (little-endian)
+  private final byte[] trailer = new byte[8];
+  private long size = 0;
+
+  PushGzipDecoder(Sink sink, int bufferSize) {
+    this.sink = sink;
+    this.out = new byte[bufferSize];
+  }
+
+  void write(byte[] b, int off, int len) throws ZipException {
+    int end = off + len;
+    while (off < end) {
+      switch (state) {
+        case HEADER -> off = header(b, off, end);
+        case BODY -> off = body(b, off, end);
+        case TRAILER -> off = trailer(b, off, end);
+        case DONE -> off = end;
+      }
+    }
+  }
+
+  /** Konec vstupu; vyhodí výjimku, pokud poslední člen nebyl celý. */
+  void finish() throws EOFException {
+    close();
+    boolean between = state == State.HEADER && step == H_FIXED && pos == 0;
+    if (members == 0 || !(between || state == State.DONE)) {
+      throw new EOFException("Unexpected end of GZIP input");
+    }
+  }
+
+  /** Uvolní nativní paměť zlib; volat na každém konci (i po chybě). Opakované volání nevadí. */
+  void close() {
+    inflater.end();
+  }
+
+  private int header(byte[] b, int off, int end) throws ZipException {
+    while (off < end && state == State.HEADER) {
+      int c = b[off++] & 0xFF;
+      switch (step) {
+        case H_FIXED -> {
+          if (pos == 0 && c != 0x1f && members > 0) {
+            state = State.DONE; // smetí za posledním členem
+            return end;
+          }
+          if ((pos == 0 && c != 0x1f) || (pos == 1 && c != 0x8b)) {
+            throw new ZipException("Not in GZIP format");
+          }
+          if (pos == 2 && c != 8) throw new ZipException("Unsupported compression method");
+          if (pos == 3) flags = c;
+          if (++pos == 10) next(H_XLEN);
+        }
+        case H_XLEN -> {
+          remaining |= c << (8 * pos);
+          if (++pos == 2) next(H_EXTRA);
+        }
+        case H_EXTRA -> {
+          if (--remaining == 0) next(H_NAME);
+        }
+        case H_NAME -> {
+          if (c == 0) next(H_COMMENT);
+        }
+        case H_COMMENT -> {
+          if (c == 0) next(H_HCRC);
+        }
+        case H_HCRC -> {
+          if (++pos == 2) next(H_END);
+        }
+        default -> throw new IllegalStateException();
+      }
+    }
+    return off;
+  }
+
+  /** Přejde na první krok od {@code from}, který je podle příznaků v hlavičce přítomen. */
+  private void next(int from) {
+    pos = 0;
+    for (step = from; step < H_END; step++) {
+      boolean present =
+          switch (step) {
+            case H_XLEN -> (flags & FEXTRA) != 0;
+            case H_EXTRA -> (flags & FEXTRA) != 0 && remaining > 0;
+            case H_NAME -> (flags & FNAME) != 0;
+            case H_COMMENT -> (flags & FCOMMENT) != 0;
+            case H_HCRC -> (flags & FHCRC) != 0;
+            default -> false;
+          };
+      if (present) return;
+    }
+    state = State.BODY;
+  }
+
+  private int body(byte[] b, int off, int end) throws ZipException {
+    inflater.setInput(b, off, end - off);
+    try {
+      while (true) {
+        int n = inflater.inflate(out);
+        if (n > 0) {
+          crc.update(out, 0, n);
+          size += n;
+          sink.write(out, 0, n);
+        }
+        if (inflater.finished()) {
+          state = State.TRAILER;
+          pos = 0;
+          return end - inflater.getRemaining();
+        }
+        if (n == 0) {
+          if (inflater.needsInput()) return end;
+          throw new ZipException("Unexpected deflate state (dictionary required)");
+        }
+      }
+    } catch (DataFormatException e) {
+      throw new ZipException("Invalid GZIP data: " + e.getMessage());
+    }
+  }
+
+  private int trailer(byte[] b, int off, int end) throws ZipException {
+    while (off < end && pos < 8) trailer[pos++] = b[off++];
+    if (pos < 8) return off;
+
+    long expectedCrc = le32(0), expectedSize = le32(4);
+    if (expectedCrc != crc.getValue() || expectedSize != (size & 0xFFFFFFFFL)) {
+      throw new ZipException("Corrupt GZIP trailer");
+    }
+    members++;
+    inflater.reset();
+    crc.reset();
+    size = 0;
+    state = State.HEADER;
+    step = H_FIXED;
+    pos = flags = remaining = 0;
+    return off;
+  }
+
+  private long le32(int i) {
+    return (trailer[i] & 0xFFL)
+        | (trailer[i + 1] & 0xFFL) << 8
+        | (trailer[i + 2] & 0xFFL) << 16
+        | (trailer[i + 3] & 0xFFL) << 24;
+  }
+}
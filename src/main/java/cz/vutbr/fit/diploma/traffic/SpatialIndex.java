@@ -0,0 +1,305 @@
+package cz.vutbr.fit.diploma.traffic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Predicate;
+
+/**
+ * Prostorový index uzavírek: zabalený R-strom (Sort-Tile-Recursive) nad obdélníky záznamů ve
+ * WGS-84, vše v primitivních polích. Každý záznam je jedna položka s body ze všech lokalizací
+ * (geometrie GN úseků, začátek a konec GN lokalizace, body Alert-C tabulky); bez WGS-84 se GN
+ * začátek/konec převede z S-JTSK přímo.
+ *
+ * <p>Index je neměnný a staví se s každým snapshotem {@link ClosureState}; dotazy jsou bez zámků.
+ * Vzdálenosti jsou v metrech v ekvidistantní aproximaci kolem bodu dotazu (pro ČR pod 0,5 %).
+ */
+final class SpatialIndex {
+
+  /** Max. počet potomků uzlu. */
+  static final int M = 16;
+
+  private static final double M_PER_DEG = 6_371_008.8 * Math.PI / 180;
+
+  private final DatexRecord[] records; // položky v pořadí listů
+  private final double[] pts; // lon, lat
+  private final boolean[] joined; // bod navazuje na předchozí (úsek lomené čáry)
+  private final int[] first; // body položky i: first[i] .. first[i + 1]
+  private final double[][] levels; // [0] = obdélníky položek, poslední = kořen; minLon, minLat, ...
+
+  private SpatialIndex(
+      DatexRecord[] records, double[] pts, boolean[] joined, int[] first, double[][] levels) {
+    this.records = records;
+    this.pts = pts;
+    this.joined = joined;
+    this.first = first;
+    this.levels = levels;
+  }
+
+  /** Záznamy bez souřadnic se přeskočí. */
+  static SpatialIndex build(Collection<DatexRecord> in) {
+    List<DatexRecord> recs = new ArrayList<>(in.size());
+    Points p = new Points();
+    List<int[]> spans = new ArrayList<>(in.size());
+    for (DatexRecord r : in) {
+      int from = p.n;
+      p.add(r);
+      if (p.n > from) {
+        recs.add(r);
+        spans.add(new int[] {from, p.n});
+      }
+    }
+    int n = recs.size();
+    double[] box = new double[4 * n];
+    for (int i = 0; i < n; i++) p.box(spans.get(i)[0], spans.get(i)[1], box, 4 * i);
+
+    // STR: řezy podle středu v délce, v každém řezu podle středu v šířce
+    Integer[] order = new Integer[n];
+    for (int i = 0; i < n; i++) order[i] = i;
+    Arrays.sort(order, (a, b) -> Double.compare(center(box, a, 0), center(box, b, 0)));
+    int slices = (int) Math.ceil(Math.sqrt(Math.ceil(n / (double) M)));
+    int perSlice = slices * M;
+    for (int s = 0; s < n; s += perSlice) {
+      Arrays.sort(
+          order,
+          s,
+          Math.min(n, s + perSlice),
+          (a, b) -> Double.compare(center(box, a, 1), center(box, b, 1)));
+    }
+
+    DatexRecord[] records = new DatexRecord[n];
+    double[] leaf = new double[4 * n];
+    int[] first = new int[n + 1];
+    int total = 0;
+    for (int[] s : spans) total += s[1] - s[0];
+    double[] pts = new double[2 * total];
+    boolean[] joined = new boolean[total];
+    for (int i = 0, k = 0; i < n; i++) {
+      int j = order[i];
+      records[i] = recs.get(j);
+      System.arraycopy(box, 4 * j, leaf, 4 * i, 4);
+      int from = spans.get(j)[0], to = spans.get(j)[1];
+      first[i] = k;
+      System.arraycopy(p.xy, 2 * from, pts, 2 * k, 2 * (to - from));
+      System.arraycopy(p.joined, from, joined, k, to - from);
+      k += to - from;
+      first[i + 1] = k;
+    }
+
+    // vyšší úrovně: po M sousedních uzlech (po STR jsou prostorově blízko)
+    List<double[]> levels = new ArrayList<>();
+    levels.add(leaf);
+    double[] cur = leaf;
+    while (cur.length > 4 * M) {
+      int count = cur.length / 4, parents = (count + M - 1) / M;
+      double[] up = new double[4 * parents];
+      for (int i = 0; i < parents; i++) {
+        up[4 * i] = up[4 * i + 1] = Double.POSITIVE_INFINITY;
+        up[4 * i + 2] = up[4 * i + 3] = Double.NEGATIVE_INFINITY;
+        for (int c = i * M; c < Math.min(count, (i + 1) * M); c++) union(up, 4 * i, cur, 4 * c);
+      }
+      levels.add(up);
+      cur = up;
+    }
+    return new SpatialIndex(records, pts, joined, first, levels.toArray(double[][]::new));
+  }
+
+  int size() {
+    return records.length;
+  }
+
+  /** Záznamy, jejichž obdélník protíná zadaný (stupně WGS-84), v pořadí listů. */
+  List<DatexRecord> bbox(double minLon, double minLat, double maxLon, double maxLat) {
+    List<DatexRecord> out = new ArrayList<>();
+    if (records.length == 0) return out;
+    int top = levels.length - 1;
+    int[] stack = new int[2 * M * levels.length];
+    int sp = 0;
+    for (int c = 0; c < levels[top].length / 4; c++) {
+      stack[sp++] = top;
+      stack[sp++] = c;
+    }
+    while (sp > 0) {
+      int node = stack[--sp], level = stack[--sp];
+      double[] b = levels[level];
+      int o = 4 * node;
+      if (b[o] > maxLon || b[o + 2] < minLon || b[o + 1] > maxLat || b[o + 3] < minLat) continue;
+      if (level == 0) {
+        out.add(records[node]);
+        continue;
+      }
+      int count = levels[level - 1].length / 4;
+      for (int c = node * M; c < Math.min(count, (node + 1) * M); c++) {
+        stack[sp++] = level - 1;
+        stack[sp++] = c;
+      }
+    }
+    return out;
+  }
+
+  /** Záznamy do {@code radius} metrů od bodu, od nejbližšího. */
+  List<DatexRecord> within(double lat, double lon, double radius) {
+    return nearest(lat, lon, Integer.MAX_VALUE, radius, r -> true);
+  }
+
+  /** {@code k} nejbližších záznamů k bodu, od nejbližšího. */
+  List<DatexRecord> nearest(double lat, double lon, int k) {
+    return nearest(lat, lon, k, Double.POSITIVE_INFINITY, r -> true);
+  }
+
+  /**
+   * Nejvýš {@code k} nejbližších záznamů splňujících {@code filter} do {@code radius} metrů, od
+   * nejbližšího. Best-first průchod stromem: uzly ve frontě podle vzdálenosti obdélníku (dolní
+   * mez), položky s přesnou vzdáleností k bodům a úsekům.
+   */
+  List<DatexRecord> nearest(
+      double lat, double lon, int k, double radius, Predicate<DatexRecord> filter) {
+    List<DatexRecord> out = new ArrayList<>();
+    if (records.length == 0 || k <= 0) return out;
+    double kx = Math.cos(Math.toRadians(lat)) * M_PER_DEG;
+    PriorityQueue<Entry> queue = new PriorityQueue<>();
+    expand(queue, levels.length, 0, lat, lon, kx, radius, filter); // kořenové uzly
+    while (!queue.isEmpty() && out.size() < k) {
+      Entry e = queue.poll();
+      if (e.distance > radius) break;
+      if (e.level == 0) out.add(records[e.node]);
+      else expand(queue, e.level, e.node, lat, lon, kx, radius, filter);
+    }
+    return out;
+  }
+
+  /**
+   * Do fronty přidá potomky uzlu ({@code level == levels.length}: uzly kořenové úrovně); položky
+   * (úroveň 0) rovnou s přesnou vzdáleností.
+   */
+  private void expand(
+      PriorityQueue<Entry> queue,
+      int level,
+      int node,
+      double lat,
+      double lon,
+      double kx,
+      double radius,
+      Predicate<DatexRecord> filter) {
+    double[] b = levels[level - 1];
+    int from = level == levels.length ? 0 : node * M;
+    int to = level == levels.length ? b.length / 4 : Math.min(b.length / 4, (node + 1) * M);
+    for (int c = from; c < to; c++) {
+      double d = boxDistance(b, c, lat, lon, kx);
+      if (d > radius) continue;
+      if (level - 1 == 0) {
+        if (!filter.test(records[c])) continue;
+        d = distance(c, lat, lon, kx);
+        if (d > radius) continue;
+      }
+      queue.add(new Entry(d, level - 1, c));
+    }
+  }
+
+  private record Entry(double distance, int level, int node) implements Comparable<Entry> {
+    @Override
+    public int compareTo(Entry o) {
+      return Double.compare(distance, o.distance);
+    }
+  }
+
+  private static double boxDistance(double[] b, int i, double lat, double lon, double kx) {
+    int o = 4 * i;
+    double dx = Math.max(0, Math.max(b[o] - lon, lon - b[o + 2])) * kx;
+    double dy = Math.max(0, Math.max(b[o + 1] - lat, lat - b[o + 3])) * M_PER_DEG;
+    return Math.sqrt(dx * dx + dy * dy);
+  }
+
+  /** Vzdálenost k nejbližšímu bodu nebo úseku položky. */
+  private double distance(int item, double lat, double lon, double kx) {
+    double best = Double.POSITIVE_INFINITY;
+    for (int p = first[item]; p < first[item + 1]; p++) {
+      double x = (pts[2 * p] - lon) * kx, y = (pts[2 * p + 1] - lat) * M_PER_DEG;
+      if (!joined[p]) {
+        best = Math.min(best, x * x + y * y);
+        continue;
+      }
+      double x0 = (pts[2 * p - 2] - lon) * kx, y0 = (pts[2 * p - 1] - lat) * M_PER_DEG;
+      double dx = x - x0, dy = y - y0, len = dx * dx + dy * dy;
+      double t = len == 0 ? 0 : Math.max(0, Math.min(1, -(x0 * dx + y0 * dy) / len));
+      double px = x0 + t * dx, py = y0 + t * dy;
+      best = Math.min(best, px * px + py * py);
+    }
+    return Math.sqrt(best);
+  }
+
+  private static double center(double[] box, int i, int axis) {
+    return box[4 * i + axis] + box[4 * i + 2 + axis];
+  }
+
+  private static void union(double[] to, int t, double[] from, int f) {
+    to[t] = Math.min(to[t], from[f]);
+    to[t + 1] = Math.min(to[t + 1], from[f + 1]);
+    to[t + 2] = Math.max(to[t + 2], from[f + 2]);
+    to[t + 3] = Math.max(to[t + 3], from[f + 3]);
+  }
+
+  /** Body záznamů při stavbě (lon, lat). */
+  private static final class Points {
+    double[] xy = new double[256];
+    boolean[] joined = new boolean[128];
+    int n;
+
+    void add(DatexRecord r) {
+      for (DatexRecord.GNLinear l : r.globalNetworkLinear()) {
+        if (l.geometry() != null) {
+          double[] c = l.geometry().coordinates();
+          for (int i = 0; i < c.length; i += 2) point(c[i + 1], c[i], i > 0);
+          continue;
+        }
+        double[] ll = {l.startLat(), l.startLon(), l.endLat(), l.endLon()};
+        if (Double.isNaN(ll[0]) && Double.isNaN(ll[2])) {
+          double[] xy = new double[4];
+          xy[0] = GeoTransform.number(l.startSjtskX());
+          xy[1] = GeoTransform.number(l.startSjtskY());
+          xy[2] = GeoTransform.number(l.endSjtskX());
+          xy[3] = GeoTransform.number(l.endSjtskY());
+          Krovak.toWgs84(xy, ll, 2);
+        }
+        boolean start = point(ll[0], ll[1], false);
+        point(ll[2], ll[3], start);
+      }
+      for (DatexRecord.AlertCLinear a : r.alertCLinear()) {
+        boolean start = location(a.primaryLocation(), false);
+        location(a.secondaryLocation(), start);
+      }
+      for (DatexRecord.AlertCPoint a : r.alertCPoint()) location(a.primaryLocation(), false);
+    }
+
+    private boolean location(DatexRecord.AlertCLocation l, boolean joinPrevious) {
+      return l != null && point(l.lat(), l.lon(), joinPrevious);
+    }
+
+    /** Přidá bod, pokud je platný; vrací, zda se přidal. */
+    private boolean point(double lat, double lon, boolean joinPrevious) {
+      if (Double.isNaN(lat) || Double.isNaN(lon)) return false;
+      if (2 * n + 2 > xy.length) {
+        xy = Arrays.copyOf(xy, 2 * xy.length);
+        joined = Arrays.copyOf(joined, 2 * joined.length);
+      }
+      joined[n] = joinPrevious;
+      xy[2 * n] = lon;
+      xy[2 * n + 1] = lat;
+      n++;
+      return true;
+    }
+
+    void box(int from, int to, double[] box, int o) {
+      box[o] = box[o + 1] = Double.POSITIVE_INFINITY;
+      box[o + 2] = box[o + 3] = Double.NEGATIVE_INFINITY;
+      for (int i = from; i < to; i++) {
+        box[o] = Math.min(box[o], xy[2 * i]);
+        box[o + 1] = Math.min(box[o + 1], xy[2 * i + 1]);
+        box[o + 2] = Math.max(box[o + 2], xy[2 * i]);
+        box[o + 3] = Math.max(box[o + 3], xy[2 * i + 1]);
+      }
+    }
+  }
+}
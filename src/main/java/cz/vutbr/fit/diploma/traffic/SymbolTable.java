@@ -0,0 +1,58 @@
+package cz.vutbr.fit.diploma.traffic;
+
+/**
+ * Omezená kanonizační tabulka pro hodnoty z malého slovníku (kódy Alert-C, typy řízení provozu,
+ * směry, ...). {@link #get} hledá přímo nad znaky bufferu, takže známá hodnota nestojí žádnou
+ * alokaci a všechny záznamy sdílí jednu instanci {@link String}.
+ *
+ * <p>Otevřené adresování s krátkým sondováním; když je okolí slotu plné, vrátí se obyčejná kopie
+ * (neznámé/unikátní hodnoty tabulku nezahltí). Sdílení mezi vlákny bez zámků je bezpečné: sloty
+ * obsahují jen neměnné {@code String} a ztracený zápis při souběhu znamená jen jednu kopii navíc.
+ */
+final class SymbolTable {
+
+  private static final int MAX_PROBE = 8;
+
+  /** Delší hodnoty už nejsou „symboly“ (komentáře, popisy) → rovnou kopie. */
+  static final int MAX_LENGTH = 48;
+
+  private final String[] slots;
+  private final int mask;
+
+  SymbolTable(int capacity) {
+    int n = Integer.highestOneBit(Math.max(16, capacity - 1)) << 1;
+    this.slots = new String[n];
+    this.mask = n - 1;
+  }
+
+  /** Kanonická instance {@code s[from, to)}. */
+  String get(CharSequence s, int from, int to) {
+    int len = to - from;
+    if (len == 0) return "";
+    if (len > MAX_LENGTH) return s.subSequence(from, to).toString();
+
+    int h = 0;
+    for (int i = from; i < to; i++) h = 31 * h + s.charAt(i);
+    h ^= h >>> 16;
+
+    for (int probe = 0; probe < MAX_PROBE; probe++) {
+      int idx = (h + probe) & mask;
+      String cur = slots[idx];
+      if (cur == null) {
+        String v = s.subSequence(from, to).toString();
+        slots[idx] = v;
+        return v;
+      }
+      if (matches(cur, s, from, len)) return cur;
+    }
+    return s.subSequence(from, to).toString();
+  }
+
+  private static boolean matches(String cur, CharSequence s, int from, int len) {
+    if (cur.length() != len) return false;
+    for (int i = 0; i < len; i++) {
+      if (cur.charAt(i) != s.charAt(from + i)) return false;
+    }
+    return true;
+  }
+}
@@ -0,0 +1,111 @@
+package cz.vutbr.fit.diploma.traffic;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Doplnění Alert-C lokalizací z tabulky LTEF (ZIP) nad {@code feed-150.xml.gz}: každý kód z feedu,
+ * který tabulka zná, dostane svůj název, silnici a souřadnice; kód, který v tabulce chybí, zůstane
+ * bez lokalizace.
+ */
+class AlertCLocationsTest {
+
+  /** Kódy jako ve {@code FeedGenerator}; každý {@link #MISSING}-tý v tabulce chybí. */
+  private static final int FIRST = 1000, LAST = 31005, MISSING = 11;
+
+  @Test
+  void resolvesEveryKnownCode(@TempDir Path dir) throws IOException {
+    Path zip = dir.resolve("alertc.zip");
+    writeTable(zip);
+    AlertCLocations locations =
+        AlertCLocations.of(AlertCIndex.load(zip, StandardCharsets.UTF_8, "2", null));
+
+    List<DatexRecord> withAlertC = new ArrayList<>();
+    try (InputStream in =
+        new GZIPInputStream(AlertCLocationsTest.class.getResourceAsStream("/feed-150.xml.gz"))) {
+      DatexParser.parse(
+          in, r -> !r.alertCLinear().isEmpty() || !r.alertCPoint().isEmpty(), withAlertC::add);
+    }
+    assertFalse(withAlertC.isEmpty());
+
+    int resolved = 0, missing = 0;
+    for (DatexRecord r : withAlertC) {
+      DatexRecord e = locations.enrich(r);
+      List<String> codes = new ArrayList<>();
+      List<DatexRecord.AlertCLocation> found = new ArrayList<>();
+      for (DatexRecord.AlertCLinear a : e.alertCLinear()) {
+        codes.add(a.primarySpecificLocation());
+        found.add(a.primaryLocation());
+        codes.add(a.secondarySpecificLocation());
+        found.add(a.secondaryLocation());
+      }
+      for (DatexRecord.AlertCPoint a : e.alertCPoint()) {
+        codes.add(a.primarySpecificLocation());
+        found.add(a.primaryLocation());
+      }
+      for (int i = 0; i < codes.size(); i++) {
+        int lcd = Integer.parseInt(codes.get(i));
+        DatexRecord.AlertCLocation l = found.get(i);
+        if (lcd % MISSING == 0) {
+          assertNull(l, codes.get(i));
+          missing++;
+          continue;
+        }
+        assertNotNull(l, codes.get(i));
+        assertEquals("Obec " + lcd, l.name());
+        assertEquals("D" + lcd % 90, l.road());
+        assertEquals((4_880_000 + lcd * 7) / 1e5, l.lat(), 1e-9);
+        assertEquals((1_250_000 + lcd * 17) / 1e5, l.lon(), 1e-9);
+        resolved++;
+      }
+    }
+    assertTrue(resolved > 0 && missing > 0, resolved + " resolved, " + missing + " missing");
+  }
+
+  /** Tabulka ve formátu LTEF: LOCATIONDATASETS (verze), NAMES a LOCATIONS s odkazy na názvy. */
+  private static void writeTable(Path zip) throws IOException {
+    try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(zip))) {
+      entry(out, "LOCATIONDATASETS.DAT", "CID;TABCD;DCOMMENT;VERSION\n25;25;CZ;8.0\n");
+
+      StringBuilder names = new StringBuilder("CID;LID;NID;NAME\n");
+      StringBuilder locs =
+          new StringBuilder("CID;TABCD;LCD;CLASS;TCD;STCD;ROADNUMBER;N1ID;N2ID;XCOORD;YCOORD\n");
+      for (int lcd = FIRST; lcd <= LAST; lcd++) {
+        if (lcd % MISSING == 0) continue;
+        names.append("25;1;").append(lcd).append(";Obec ").append(lcd).append('\n');
+        locs.append("25;25;")
+            .append(lcd)
+            .append(";P;1;1;D")
+            .append(lcd % 90)
+            .append(';')
+            .append(lcd)
+            .append(";;")
+            .append(String.format("%+09d;%+09d\n", 1_250_000 + lcd * 17, 4_880_000 + lcd * 7));
+      }
+      entry(out, "NAMES.DAT", names.toString());
+      entry(out, "LOCATIONS.DAT", locs.toString());
+    }
+  }
+
+  private static void entry(ZipOutputStream out, String name, String text) throws IOException {
+    out.putNextEntry(new ZipEntry(name));
+    out.write(text.getBytes(StandardCharsets.UTF_8));
+    out.closeEntry();
+  }
+}
@@ -0,0 +1,124 @@
+package cz.vutbr.fit.diploma.traffic;
+
+import static cz.vutbr.fit.diploma.traffic.TestRecords.record;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import cz.vutbr.fit.diploma.traffic.ChangeTracker.Change;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ChangeTrackerTest {
+
+  @TempDir Path dir;
+
+  private static final DatexRecord A = record("A", "1", "2026-01-01T08:00:00+01:00", "a");
+  private static final DatexRecord B = record("B", "1", "2026-01-01T08:00:00+01:00", "b");
+  private static final DatexRecord C = record("C", "1", "2026-01-01T08:00:00+01:00", "c");
+
+  private ChangeTracker seeded() {
+    ChangeTracker t = new ChangeTracker(dir.resolve("state.delta"));
+    t.begin(false);
+    t.track(A);
+    t.track(B);
+    t.track(C);
+    t.commit();
+    return t;
+  }
+
+  @Test
+  void firstRunInsertsEverything() {
+    ChangeTracker t = new ChangeTracker(dir.resolve("state.delta"));
+    t.begin(false);
+    assertEquals(Change.INSERTED, t.track(A));
+    assertEquals(Change.INSERTED, t.track(B));
+    assertEquals(List.of(), t.removed());
+    t.commit();
+    assertEquals(2, t.size());
+  }
+
+  @Test
+  void classifiesByVersionVersionTimeAndContent() {
+    ChangeTracker t = seeded();
+    t.begin(false);
+    assertEquals(Change.UNCHANGED, t.track(A));
+    assertEquals(Change.UPDATED, t.track(record("B", "2", "2026-01-01T08:00:00+01:00", "b")));
+    assertEquals(Change.UPDATED, t.track(record("C", "1", "2026-01-02T08:00:00+01:00", "c")));
+    assertEquals(Change.INSERTED, t.track(record("D", "1", "2026-01-01T08:00:00+01:00", "d")));
+    t.commit();
+
+    // stejná verze i čas verze, jiný obsah → pozná otisk
+    t.begin(false);
+    assertEquals(Change.UPDATED, t.track(record("A", "1", "2026-01-01T08:00:00+01:00", "a2")));
+  }
+
+  @Test
+  void missingRecordsAreRemoved() {
+    ChangeTracker t = seeded();
+    t.begin(false);
+    t.track(A);
+    assertEquals(List.of("B", "C"), t.removed().stream().sorted().toList());
+    t.commit();
+    assertEquals(1, t.size());
+  }
+
+  @Test
+  void abortKeepsPreviousState() {
+    ChangeTracker t = seeded();
+    t.begin(false);
+    t.track(A);
+    t.abort();
+
+    t.begin(false);
+    assertEquals(Change.UNCHANGED, t.track(B));
+    assertEquals(List.of("A", "C"), t.removed().stream().sorted().toList());
+  }
+
+  @Test
+  void deltaRunMergesWithoutRemovals() {
+    ChangeTracker t = seeded();
+    t.begin(true);
+    assertEquals(Change.UPDATED, t.track(record("B", "2", "2026-01-01T08:00:00+01:00", "b")));
+    assertEquals(Change.INSERTED, t.track(record("D", "1", "2026-01-01T08:00:00+01:00", "d")));
+    assertEquals(List.of(), t.removed());
+    t.commit();
+    assertEquals(4, t.size());
+
+    // další plný běh vidí sloučený stav
+    t.begin(false);
+    assertEquals(Change.UNCHANGED, t.track(A));
+    assertEquals(Change.UNCHANGED, t.track(record("B", "2", "2026-01-01T08:00:00+01:00", "b")));
+    assertEquals(List.of("C", "D"), t.removed().stream().sorted().toList());
+  }
+
+  @Test
+  void recordWithoutIdIsAlwaysPublished() {
+    ChangeTracker t = seeded();
+    t.begin(false);
+    DatexRecord noId = record(null, "1", null, "x");
+    assertEquals(Change.INSERTED, t.track(noId));
+    assertEquals(Change.INSERTED, t.track(noId));
+  }
+
+  @Test
+  void stateSurvivesRestart() {
+    seeded();
+    DatexRecord noVersion = record("E", null, null, "e");
+    ChangeTracker t = new ChangeTracker(dir.resolve("state.delta"));
+    t.load();
+    assertEquals(3, t.size());
+    t.begin(true);
+    t.track(noVersion);
+    t.commit();
+
+    ChangeTracker restarted = new ChangeTracker(dir.resolve("state.delta"));
+    restarted.load();
+    assertEquals(4, restarted.size());
+    restarted.begin(false);
+    assertEquals(Change.UNCHANGED, restarted.track(A));
+    assertEquals(Change.UNCHANGED, restarted.track(noVersion));
+    assertTrue(restarted.removed().containsAll(List.of("B", "C")));
+  }
+}
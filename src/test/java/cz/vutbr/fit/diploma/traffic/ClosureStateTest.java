@@ -0,0 +1,144 @@
+package cz.vutbr.fit.diploma.traffic;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.zip.GZIPInputStream;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Pohled na uzavírky nad aktivními uzavírkami z {@code feed-150.xml.gz}: indexy snapshotu musí dát
+ * totéž co průchod všemi záznamy a běh beze změny nesmí změnit snapshot ani ETag odpovědi.
+ */
+class ClosureStateTest {
+
+  private static List<DatexRecord> closures;
+
+  @BeforeAll
+  static void load() throws IOException {
+    closures = new ArrayList<>();
+    try (InputStream in =
+        new GZIPInputStream(ClosureStateTest.class.getResourceAsStream("/feed-150.xml.gz"))) {
+      DatexParser.parse(in, ClosureState::isActiveClosure, closures::add);
+    }
+    assertFalse(closures.isEmpty());
+  }
+
+  @Test
+  void indexesMatchScan() {
+    ClosureState state = ClosureState.of(new ObjectMapper());
+    assertTrue(state.apply(update("feed", closures)));
+    ClosureState.Snapshot s = state.snapshot();
+    assertTrue(state.hasFeed("feed"));
+
+    assertEquals(
+        closures.stream().map(DatexRecord::situationRecordId).distinct().count(), s.all.size());
+    for (DatexRecord r : s.all) {
+      assertEquals(r, s.byRecordId.get(r.situationRecordId()));
+      assertEquals("feed", s.feedOf(r.situationRecordId()));
+    }
+
+    assertFalse(s.byRoad.isEmpty());
+    for (String road : s.byRoad.keySet()) {
+      assertEquals(
+          scan(s, r -> ClosureState.roads(r).contains(road)), select(s, road, null, null), road);
+    }
+    for (String situation : s.bySituation.keySet()) {
+      assertEquals(
+          scan(s, r -> situation.equals(r.situationId())),
+          select(s, null, situation, null),
+          situation);
+    }
+    for (String location : s.byLocation.keySet()) {
+      assertEquals(
+          scan(s, r -> ClosureState.locations(r).contains(location)),
+          select(s, null, null, location),
+          location);
+    }
+
+    // kombinace filtrů = průnik
+    DatexRecord probe =
+        s.all.stream().filter(r -> !ClosureState.roads(r).isEmpty()).findFirst().orElseThrow();
+    String road = ClosureState.roads(probe).get(0);
+    List<DatexRecord> both = select(s, road, probe.situationId(), null);
+    assertTrue(both.contains(probe));
+    assertEquals(
+        scan(
+            s,
+            r ->
+                ClosureState.roads(r).contains(road)
+                    && probe.situationId().equals(r.situationId())),
+        both);
+  }
+
+  @Test
+  void unchangedRunKeepsSnapshotAndEtag() {
+    ClosureState state = ClosureState.of(new ObjectMapper());
+    state.apply(update("feed", closures));
+    ClosureState.Snapshot first = state.snapshot();
+    String etag = listing(first).etag();
+
+    assertFalse(state.apply(update("feed", closures)));
+    assertEquals(first.generation, state.snapshot().generation);
+
+    // změna → nový snapshot i ETag; návrat ke stejnému obsahu → zase stejný ETag
+    assertTrue(state.apply(update("feed", closures.subList(1, closures.size()))));
+    assertNotEquals(first.generation, state.snapshot().generation);
+    assertNotEquals(etag, listing(state.snapshot()).etag());
+    assertTrue(state.apply(update("feed", closures)));
+    assertEquals(etag, listing(state.snapshot()).etag());
+  }
+
+  /** Listing nemá generaci: změna jiného feedu nezmění ETag odpovědi se stejným výsledkem. */
+  @Test
+  void otherFeedDoesNotChangeUnrelatedEtag() {
+    ClosureState state = ClosureState.of(new ObjectMapper());
+    state.apply(update("feed", closures));
+    String road =
+        closures.stream().flatMap(r -> ClosureState.roads(r).stream()).findFirst().orElseThrow();
+    ClosureState.Snapshot before = state.snapshot();
+    String etag = byRoad(before, road).etag();
+
+    DatexRecord other =
+        TestRecords.closure("X-1", "1", null, null, "active", null, null, "X99", true);
+    assertTrue(state.apply(update("other", List.of(other))));
+    ClosureState.Snapshot after = state.snapshot();
+    assertNotEquals(before.generation, after.generation);
+    assertEquals(etag, byRoad(after, road).etag());
+    assertEquals(List.of(other), select(after, "X99", null, null));
+  }
+
+  private static List<DatexRecord> scan(ClosureState.Snapshot s, Predicate<DatexRecord> p) {
+    return s.all.stream().filter(p).toList();
+  }
+
+  private static List<DatexRecord> select(
+      ClosureState.Snapshot s, String road, String situation, String location) {
+    return ClosureResource.select(
+        s, ClosureResource.Query.of(road, situation, location, null, null, null, null, null));
+  }
+
+  private static ClosureState.Body listing(ClosureState.Snapshot s) {
+    return s.body("all", x -> new ClosureState.Listing(x.all.size(), x.all));
+  }
+
+  private static ClosureState.Body byRoad(ClosureState.Snapshot s, String road) {
+    List<DatexRecord> hits = select(s, road, null, null);
+    return s.body("road|" + road, x -> new ClosureState.Listing(hits.size(), hits));
+  }
+
+  private static ClosureState.Update update(String feed, List<DatexRecord> records) {
+    ClosureState.Update u = new ClosureState.Update(feed, false);
+    for (DatexRecord r : records) u.put(r);
+    return u;
+  }
+}
@@ -0,0 +1,133 @@
+package cz.vutbr.fit.diploma.traffic;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Časový index {@link ClosureTimeline} proti průchodu všech záznamů: náhodné intervaly (hodiny až
+ * týdny) během roku 2026 včetně neomezených, nečitelných a prázdných a dotazy i přesně na
+ * hranicích.
+ */
+class ClosureTimelineTest {
+
+  private static final long YEAR_START = Instant.parse("2026-01-01T00:00:00Z").toEpochMilli();
+  private static final long YEAR = 365L * 24 * 3600 * 1000;
+  private static final long HOUR = 3_600_000L;
+
+  private static List<DatexRecord> closures;
+  private static ClosureTimeline timeline;
+  private static long[] times;
+  // časy záznamů pro průchod (parsované jednou)
+  private static long[] starts, ends;
+
+  @BeforeAll
+  static void build() {
+    SplittableRandom rnd = new SplittableRandom(42);
+    closures = new ArrayList<>();
+    List<Long> probes = new ArrayList<>();
+    for (int i = 0; i < 2000; i++) {
+      long start = YEAR_START + rnd.nextLong(YEAR) / HOUR * HOUR; // celé hodiny → shodné hranice
+      long end = start + HOUR * (1 + rnd.nextInt(24 * 21));
+      String s = iso(start), e = iso(end);
+      switch (i % 20) {
+        case 0 -> s = null; // od nepaměti
+        case 1 -> e = null; // do odvolání
+        case 2 -> e = "zítra"; // nečitelné = neomezeno
+        case 3 -> e = s; // prázdný interval
+        default -> {}
+      }
+      closures.add(TestRecords.closure("C" + i, "1", null, null, "active", s, e, "D1", true));
+      probes.add(start);
+      probes.add(end);
+    }
+    timeline = ClosureTimeline.build(closures);
+    starts = closures.stream().mapToLong(ClosureTimeline::start).toArray();
+    ends = closures.stream().mapToLong(ClosureTimeline::end).toArray();
+    for (int i = 0; i < 500; i++) probes.add(YEAR_START + rnd.nextLong(YEAR));
+    probes.add(YEAR_START - YEAR);
+    probes.add(YEAR_START + 2 * YEAR);
+    times = probes.stream().mapToLong(Long::longValue).toArray();
+  }
+
+  @Test
+  void activeAtMatchesScan() {
+    assertEquals(closures.size(), timeline.size());
+    for (long t : times) {
+      Set<DatexRecord> expected = new HashSet<>();
+      for (int i = 0; i < starts.length; i++) {
+        if (starts[i] <= t && t < ends[i]) expected.add(closures.get(i));
+      }
+      List<DatexRecord> got = timeline.activeAt(t);
+      assertEquals(expected.size(), got.size(), iso(t));
+      assertEquals(expected, new HashSet<>(got), iso(t));
+    }
+  }
+
+  @Test
+  void nextBoundaryMatchesScan() {
+    for (long t : times) {
+      long expected = ClosureTimeline.UNBOUNDED_END;
+      for (int i = 0; i < starts.length; i++) {
+        if (starts[i] > t) expected = Math.min(expected, starts[i]);
+        if (ends[i] > t) expected = Math.min(expected, ends[i]);
+      }
+      long next = timeline.nextBoundary(t);
+      assertEquals(expected, next, iso(t));
+      if (next == ClosureTimeline.UNBOUNDED_END) continue;
+
+      // hranice v (t, next] jsou přesně záznamy s neprázdným intervalem, které v next začnou/skončí
+      Set<String> boundaries = new HashSet<>(), scan = new HashSet<>();
+      timeline.boundaries(
+          t,
+          next,
+          (r, activated, at) -> {
+            assertEquals(next, at);
+            boundaries.add((activated ? "+" : "-") + r.situationRecordId());
+          });
+      for (int i = 0; i < starts.length; i++) {
+        if (ends[i] <= starts[i]) continue;
+        if (starts[i] == next) scan.add("+" + closures.get(i).situationRecordId());
+        if (ends[i] == next) scan.add("-" + closures.get(i).situationRecordId());
+      }
+      assertEquals(scan, boundaries, iso(t));
+
+      // mezi hranicemi se množina aktivních nemění → stejná epocha
+      assertEquals(timeline.epoch(t), timeline.epoch(next - 1), iso(t));
+      assertTrue(timeline.epoch(next) > timeline.epoch(t), iso(t));
+    }
+  }
+
+  @Test
+  void isActiveIsHalfOpen() {
+    DatexRecord r =
+        TestRecords.closure(
+            "X", "1", null, null, "active", iso(YEAR_START), iso(YEAR_START + HOUR), "D1", true);
+    assertFalse(ClosureTimeline.isActive(r, YEAR_START - 1));
+    assertTrue(ClosureTimeline.isActive(r, YEAR_START));
+    assertTrue(ClosureTimeline.isActive(r, YEAR_START + HOUR - 1));
+    assertFalse(ClosureTimeline.isActive(r, YEAR_START + HOUR));
+  }
+
+  @Test
+  void emptyTimeline() {
+    ClosureTimeline empty = ClosureTimeline.build(List.of());
+    assertEquals(List.of(), empty.activeAt(YEAR_START));
+    assertEquals(ClosureTimeline.UNBOUNDED_END, empty.nextBoundary(YEAR_START));
+    assertEquals(0, empty.epoch(YEAR_START));
+  }
+
+  private static String iso(long t) {
+    return Instant.ofEpochMilli(t).atOffset(ZoneOffset.ofHours(1)).toString();
+  }
+}
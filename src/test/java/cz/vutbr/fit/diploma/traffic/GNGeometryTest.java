@@ -0,0 +1,135 @@
+package cz.vutbr.fit.diploma.traffic;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.TreeSet;
+import java.util.zip.GZIPInputStream;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Zkompilovaná síť Global Network ({@link GNStore}) a ořez úseků do geometrie ({@link GNGeometry}).
+ * Síť se generuje jen pro úseky z {@code feed-150.xml.gz}, každý {@link #MISSING}-tý v ní chybí.
+ */
+class GNGeometryTest {
+
+  private static final int MISSING = 7;
+
+  @TempDir static Path dir;
+  private static List<DatexRecord> withGn;
+  private static GNStore store;
+  private static int written;
+
+  @BeforeAll
+  static void compile() throws IOException {
+    withGn = new ArrayList<>();
+    try (InputStream in =
+        new GZIPInputStream(GNGeometryTest.class.getResourceAsStream("/feed-150.xml.gz"))) {
+      DatexParser.parse(in, r -> !r.globalNetworkLinear().isEmpty(), withGn::add);
+    }
+    TreeSet<Long> ids = new TreeSet<>();
+    for (DatexRecord r : withGn) {
+      for (DatexRecord.GNLinear l : r.globalNetworkLinear()) {
+        for (DatexRecord.GNElement e : l.segments()) ids.add(Long.parseLong(e.sectionId()));
+      }
+    }
+    ids.removeIf(id -> id % MISSING == 0);
+    written = ids.size();
+
+    Path source = dir.resolve("network.csv");
+    writeNetwork(source, ids);
+    Path compiled = dir.resolve("network.gnstore");
+    GNStore.compile(source, compiled, null, 42);
+    store = GNStore.open(compiled);
+    assertEquals(42, GNStore.sourceStamp(compiled));
+  }
+
+  @Test
+  void storeHasEverySection() {
+    assertTrue(written > 0);
+    assertEquals(written, store.size());
+    for (DatexRecord r : withGn) {
+      for (DatexRecord.GNLinear l : r.globalNetworkLinear()) {
+        for (DatexRecord.GNElement e : l.segments()) {
+          long id = Long.parseLong(e.sectionId());
+          double[] pts = store.section(id);
+          if (id % MISSING == 0) {
+            assertNull(pts, e.sectionId());
+            continue;
+          }
+          assertEquals(10, pts.length, e.sectionId());
+          for (int i = 0; i < pts.length; i += 2) {
+            assertTrue(pts[i] > 12 && pts[i] < 19, "lon " + pts[i]); // ČR ve WGS-84
+            assertTrue(pts[i + 1] > 48.5 && pts[i + 1] < 51.1, "lat " + pts[i + 1]);
+          }
+        }
+      }
+    }
+  }
+
+  /** Přímka o 5 bodech: ořez musí začít a skončit přesně v daném podílu délky. */
+  @Test
+  void cutOfStraightLine() {
+    double[] pts = {14.0, 50.0, 14.001, 50.001, 14.002, 50.002, 14.003, 50.003, 14.004, 50.004};
+    assertArrayEquals(
+        new double[] {14.001, 50.001, 14.002, 50.002, 14.003, 50.003},
+        GNGeometry.cut(pts, 25, 75),
+        1e-7);
+    assertArrayEquals(
+        new double[] {14.0004, 50.0004, 14.0008, 50.0008}, GNGeometry.cut(pts, 10, 20), 1e-7);
+    assertArrayEquals(pts, GNGeometry.cut(pts, 0, 100));
+  }
+
+  @Test
+  void enrichAddsGeometryForKnownSections() {
+    GNGeometry geometry = GNGeometry.of(store);
+    int with = 0;
+    for (DatexRecord r : withGn) {
+      for (DatexRecord.GNLinear l : geometry.enrich(r).globalNetworkLinear()) {
+        boolean known = false;
+        for (DatexRecord.GNElement e : l.segments()) {
+          known |= Long.parseLong(e.sectionId()) % MISSING != 0;
+        }
+        if (known) {
+          assertNotNull(l.geometry(), r.situationRecordId());
+          with++;
+        } else {
+          assertNull(l.geometry(), r.situationRecordId());
+        }
+      }
+    }
+    assertTrue(with > 0);
+  }
+
+  /** CSV s WKT v S-JTSK (EPSG:5514, záporné): každý úsek přímka o 5 bodech, do ~600 m. */
+  private static void writeNetwork(Path file, Iterable<Long> ids) throws IOException {
+    try (BufferedWriter w = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+      w.write("ID;WKT\n");
+      for (long id : ids) {
+        SplittableRandom rnd = new SplittableRandom(id);
+        long x = 990_000 + rnd.nextInt(200_000), y = 450_000 + rnd.nextInt(400_000);
+        long dx = rnd.nextInt(201) - 100, dy = rnd.nextInt(201) - 100;
+        StringBuilder wkt = new StringBuilder("LINESTRING (");
+        for (int i = 0; i < 5; i++) {
+          if (i > 0) wkt.append(", ");
+          wkt.append(-(y + i * dy)).append(' ').append(-(x + i * dx));
+        }
+        w.write(id + ";" + wkt + ")\n");
+      }
+    }
+  }
+}
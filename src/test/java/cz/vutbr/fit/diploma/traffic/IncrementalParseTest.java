@@ -0,0 +1,45 @@
+package cz.vutbr.fit.diploma.traffic;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * {@link DatexParser#incremental} po kusech z jednoho pole (nenulový offset, tokeny přes hranice
+ * kusů) musí dát totéž co blokující {@link DatexParser#parse}.
+ */
+class IncrementalParseTest {
+
+  private static byte[] doc;
+
+  @BeforeAll
+  static void load() throws IOException {
+    try (InputStream in =
+        new GZIPInputStream(IncrementalParseTest.class.getResourceAsStream("/feed-150.xml.gz"))) {
+      doc = in.readAllBytes();
+    }
+  }
+
+  @ParameterizedTest
+  @ValueSource(ints = {7, 1000, 4096, 64 * 1024})
+  void sameAsBlocking(int chunk) {
+    List<DatexRecord> expected = new ArrayList<>(), actual = new ArrayList<>();
+    DatexParser.Summary s1 =
+        DatexParser.parse(new ByteArrayInputStream(doc), DatexUtil.CLOSURES, expected::add);
+
+    DatexParser.Incremental p = DatexParser.incremental(DatexUtil.CLOSURES, actual::add);
+    for (int off = 0; off < doc.length; off += chunk) {
+      p.feed(doc, off, Math.min(chunk, doc.length - off));
+    }
+    assertEquals(s1, p.finish());
+    assertEquals(expected, actual);
+  }
+}
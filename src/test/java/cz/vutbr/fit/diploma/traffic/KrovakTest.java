@@ -0,0 +1,79 @@
+package cz.vutbr.fit.diploma.traffic;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Přesnost S-JTSK → WGS-84 na referenčních bodech a shoda {@link GeoTransform} s cache a bez ní.
+ */
+class KrovakTest {
+
+  /** Tolerance ve stupních (~0,1 m). */
+  private static final double EPS = 1e-6;
+
+  /** EPSG Guidance Note 7-2, příklad Křovákova zobrazení (jen zobrazení, Besselův elipsoid). */
+  @Test
+  void epsgExampleOnBessel() {
+    double[] out = new double[2];
+    Krovak.toBessel(1_050_538.643, 568_990.997, out, 0);
+    assertNear(50 + 12 / 60.0 + 32.442 / 3600, Math.toDegrees(out[0]));
+    assertNear(16 + 50 / 60.0 + 59.179 / 3600, Math.toDegrees(out[1]));
+  }
+
+  /**
+   * WGS-84 po transformaci EPSG:1623 (regresní body; od tříprvkové sady 589/76/480 se liší do 5 m).
+   */
+  @Test
+  void wgs84RegressionPoints() {
+    double[][] points = {
+      {1_050_538.63, 568_991.00, 50.2082972, 16.8483275},
+      {-1_050_538.63, -568_991.00, 50.2082972, 16.8483275}, // EPSG:5514 (záporné)
+      {1_043_000.00, 743_000.00, 50.0873465, 14.4185946}
+    };
+    double[] out = new double[2];
+    for (double[] p : points) {
+      Krovak.toWgs84(new double[] {p[0], p[1]}, out, 1);
+      assertNear(p[2], out[0]);
+      assertNear(p[3], out[1]);
+    }
+  }
+
+  @Test
+  void invalidPointIsNaN() {
+    double[] out = new double[4];
+    Krovak.toWgs84(new double[] {0, 0, Double.NaN, 743_000}, out, 2);
+    for (double v : out) assertTrue(Double.isNaN(v));
+  }
+
+  /** Cache (i malá, s kolizemi) nesmí změnit výsledek, ani při opakovaném dotazu na tentýž bod. */
+  @Test
+  void cachedSameAsUncached() throws IOException {
+    List<DatexRecord> withGn = new ArrayList<>();
+    try (InputStream in =
+        new GZIPInputStream(KrovakTest.class.getResourceAsStream("/feed-150.xml.gz"))) {
+      DatexParser.parse(in, r -> !r.globalNetworkLinear().isEmpty(), withGn::add);
+    }
+    assertFalse(withGn.isEmpty());
+
+    GeoTransform uncached = GeoTransform.of(0);
+    for (GeoTransform cached : List.of(GeoTransform.of(16_384), GeoTransform.of(8))) {
+      for (int pass = 0; pass < 2; pass++) {
+        for (DatexRecord r : withGn) {
+          assertEquals(uncached.enrich(r), cached.enrich(r), r.situationRecordId());
+        }
+      }
+    }
+  }
+
+  private static void assertNear(double expected, double actual) {
+    assertEquals(expected, actual, EPS);
+  }
+}
@@ -0,0 +1,107 @@
+package cz.vutbr.fit.diploma.traffic;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+/**
+ * {@link ParallelDatexParser} musí dát stejné záznamy i souhrn jako sekvenční {@link
+ * DatexParser#parse}. Vstup {@code feed-150.xml.gz} je z {@code FeedGenerator} (benchmarks, seed
+ * 42, 150 situací, výchozí mix):
+ *
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar cz.vutbr.fit.diploma.traffic.FeedGenerator \
+ *     --situations=150 --out=src/test/resources/feed-150.xml.gz
+ * </pre>
+ */
+class ParallelDatexParserTest {
+
+  private static byte[] doc;
+  // víc vláken než jader, ať se bloky skutečně předbíhají i na jednojádrovém CI
+  private static ForkJoinPool pool;
+
+  @BeforeAll
+  static void load() throws IOException {
+    try (InputStream in =
+        new GZIPInputStream(
+            ParallelDatexParserTest.class.getResourceAsStream("/feed-150.xml.gz"))) {
+      doc = in.readAllBytes();
+    }
+    pool = new ForkJoinPool(4);
+  }
+
+  @AfterAll
+  static void shutdown() {
+    pool.shutdown();
+  }
+
+  static Stream<Arguments> modes() {
+    Stream.Builder<Arguments> out = Stream.builder();
+    for (boolean ordered : new boolean[] {true, false}) {
+      for (String filter : new String[] {"all", "closures"}) {
+        for (int chunk : new int[] {4 * 1024, 256 * 1024}) {
+          for (boolean randomReads : new boolean[] {false, true}) {
+            out.add(Arguments.of(ordered, filter, chunk, randomReads));
+          }
+        }
+      }
+    }
+    return out.build();
+  }
+
+  @ParameterizedTest(name = "ordered={0} filter={1} chunk={2} randomReads={3}")
+  @MethodSource("modes")
+  void sameAsSequential(boolean ordered, String filterName, int chunk, boolean randomReads) {
+    DatexParser.RecordFilter filter =
+        filterName.equals("closures") ? DatexUtil.CLOSURES : DatexParser.RecordFilter.ALL;
+
+    List<DatexRecord> seq = new ArrayList<>(), par = new ArrayList<>();
+    DatexParser.Summary expected =
+        DatexParser.parse(new ByteArrayInputStream(doc), filter, seq::add);
+    InputStream in = new ByteArrayInputStream(doc);
+    if (randomReads) in = new RandomReads(in, new SplittableRandom(chunk));
+    DatexParser.Summary actual =
+        ParallelDatexParser.parse(in, filter, par::add, pool, ordered, chunk);
+
+    assertTrue(expected.records() > 0);
+    assertEquals(expected, actual);
+    if (!ordered) {
+      // pořadí dokončení bloků není dané
+      Comparator<DatexRecord> byId = Comparator.comparing(DatexRecord::situationRecordId);
+      seq.sort(byId);
+      par.sort(byId);
+    }
+    assertEquals(seq, par);
+  }
+
+  /** Vrací po každém čtení náhodně 1 B – 8 KiB (hranice situací i tagů kdekoli). */
+  private static final class RandomReads extends FilterInputStream {
+    private final SplittableRandom random;
+
+    RandomReads(InputStream in, SplittableRandom random) {
+      super(in);
+      this.random = random;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      return super.read(b, off, Math.min(len, 1 + random.nextInt(8 * 1024)));
+    }
+  }
+}
@@ -0,0 +1,86 @@
+package cz.vutbr.fit.diploma.traffic;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+/**
+ * {@link PayloadWriter} nad záznamy z {@code feed-150.xml.gz} (s doplněným WGS-84): v JSON bajtově
+ * stejný výstup jako {@code ObjectMapper}, v CBOR / Smile stejný strom; znovupoužitý generátor ani
+ * chyba uprostřed zprávy nesmí ovlivnit další zprávy.
+ */
+class PayloadWriterTest {
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+  private static List<DatexRecord> records;
+
+  @BeforeAll
+  static void load() throws IOException {
+    records = new ArrayList<>();
+    GeoTransform geo = GeoTransform.of(0);
+    try (InputStream in =
+        new GZIPInputStream(PayloadWriterTest.class.getResourceAsStream("/feed-150.xml.gz"))) {
+      DatexParser.parse(in, DatexParser.RecordFilter.ALL, r -> records.add(geo.enrich(r)));
+    }
+    assertFalse(records.isEmpty());
+  }
+
+  @Test
+  void jsonSameBytesAsObjectMapper() throws IOException {
+    PayloadWriter json = new PayloadWriter(PayloadCodec.JSON);
+    for (DatexRecord r : records) {
+      DatexJson.Envelope e = envelope(r);
+      assertArrayEquals(MAPPER.writeValueAsBytes(e), json.write(e), r.situationRecordId());
+      DatexJson.Event ev = event(r);
+      assertArrayEquals(MAPPER.writeValueAsBytes(ev), json.write(ev), r.situationRecordId());
+    }
+  }
+
+  @ParameterizedTest
+  @EnumSource(PayloadCodec.class)
+  void sameTreeAsJson(PayloadCodec codec) throws IOException {
+    ObjectMapper reader = new ObjectMapper(codec.factory);
+    PayloadWriter w = new PayloadWriter(codec);
+    for (DatexRecord r : records) {
+      assertEquals(
+          MAPPER.valueToTree(envelope(r)),
+          reader.readTree(w.write(envelope(r))),
+          r.situationRecordId());
+      assertEquals(
+          MAPPER.valueToTree(event(r)), reader.readTree(w.write(event(r))), r.situationRecordId());
+    }
+  }
+
+  /** Zpráva, jejíž zápis selže uprostřed objektu, nesmí zanechat nic v bufferu ani generátoru. */
+  @ParameterizedTest
+  @EnumSource(PayloadCodec.class)
+  void failedWriteDoesNotLeak(PayloadCodec codec) throws IOException {
+    PayloadWriter w = new PayloadWriter(codec);
+    DatexJson.Envelope e = envelope(records.get(0));
+    byte[] expected = w.write(e);
+    assertThrows(RuntimeException.class, () -> w.write(envelope(null)));
+    assertArrayEquals(expected, w.write(e));
+    assertArrayEquals(expected, w.write(e));
+  }
+
+  private static DatexJson.Envelope envelope(DatexRecord r) {
+    return new DatexJson.Envelope(
+        r, "ndic", "roadworks", "2026-01-01T00:05:00Z", "2026-01-01T00:00+01:00");
+  }
+
+  private static DatexJson.Event event(DatexRecord r) {
+    return new DatexJson.Event(r, "activated", "2026-01-01T00:00+01:00", "ndic", "roadworks");
+  }
+}
@@ -0,0 +1,177 @@
+package cz.vutbr.fit.diploma.traffic;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * {@link PollCadence} nad syntetickými časy publikace (bez jitteru): učení po pevném intervalu,
+ * medián rozestupů, sonda v polovině periody každý {@value PollCadence#PROBE_EVERY}. cyklus,
+ * backoff po 304 / stejném obsahu a po chybách a meze {@code [min, max]}.
+ */
+class PollCadenceTest {
+
+  private static final long T0 = Instant.parse("2026-01-01T00:00:00Z").toEpochMilli();
+  private static final long S = 1000, M = 60 * S;
+  private static final Duration MIN = Duration.ofSeconds(30), MAX = Duration.ofMinutes(15);
+  private static final Duration EVERY = Duration.ofMinutes(5), LAG = Duration.ofSeconds(15);
+
+  @TempDir Path dir;
+
+  @Test
+  void learnsAtFeedInterval() {
+    PollCadence c = cadence(EVERY);
+    assertEquals(0, c.cadenceMillis());
+    assertEquals(5 * M, c.nextDelayMillis(T0));
+    c.polled(pub(0), null);
+    c.polled(pub(5 * M), null);
+    assertEquals(0, c.cadenceMillis()); // jeden rozestup nestačí
+    assertEquals(5 * M, c.nextDelayMillis(T0 + 5 * M));
+
+    // chyby při učení: backoff od min, nejvýš do pevného intervalu
+    long[] expected = {30 * S, 60 * S, 120 * S, 240 * S, 5 * M, 5 * M};
+    for (long e : expected) {
+      c.failed();
+      assertEquals(e, c.nextDelayMillis(T0 + 5 * M));
+    }
+
+    // pevný interval mimo meze se do nich ořízne
+    assertEquals(15 * M, cadence(Duration.ofHours(1)).nextDelayMillis(T0));
+    assertEquals(30 * S, cadence(Duration.ofSeconds(10)).nextDelayMillis(T0));
+  }
+
+  @Test
+  void cadenceIsMedianGap() {
+    PollCadence c = cadence(EVERY);
+    c.polled(pub(0), null);
+    c.polled(pub(60 * S), null);
+    c.polled(null, lastModified(120 * S)); // bez publicationTime platí Last-Modified
+    c.polled(pub(300 * S), null); // vynechaná publikace: rozestup 180 s
+    c.polled(pub(360 * S), null);
+    assertEquals(60 * S, c.cadenceMillis());
+    // další poll těsně po očekávané publikaci: 360 + 60 + 15 s
+    assertEquals(55 * S, c.nextDelayMillis(T0 + 380 * S));
+
+    // starší nebo stejná publikace odhad nemění
+    c.polled(pub(300 * S), null);
+    c.polled(pub(360 * S), null);
+    assertEquals(60 * S, c.cadenceMillis());
+  }
+
+  @Test
+  void probesHalfPeriodEveryEighthCycle() {
+    PollCadence c = steady(120 * S);
+    long last = 240 * S;
+    for (int i = 1; i < PollCadence.PROBE_EVERY; i++) {
+      assertEquals(115 * S, c.nextDelayMillis(T0 + last + 20 * S), "cycle " + i);
+      last += 120 * S;
+      c.polled(pub(last), null);
+    }
+    // 8. cyklus: poll už v polovině periody (last + 60 + 15 s)
+    assertEquals(55 * S, c.nextDelayMillis(T0 + last + 20 * S));
+
+    // sonda nic nového nenašla → zpátky na očekávanou publikaci, odhad zůstává
+    c.polled(pub(last), null);
+    assertEquals(60 * S, c.nextDelayMillis(T0 + last + 75 * S));
+    last += 120 * S;
+    c.polled(pub(last), null);
+    assertEquals(120 * S, c.cadenceMillis());
+    assertEquals(115 * S, c.nextDelayMillis(T0 + last + 20 * S));
+  }
+
+  @Test
+  void probeFindingEarlierPublicationRelearns() {
+    PollCadence c = steady(120 * S);
+    long last = 240 * S;
+    for (int i = 1; i < PollCadence.PROBE_EVERY; i++) {
+      c.nextDelayMillis(T0 + last + 20 * S);
+      last += 120 * S;
+      c.polled(pub(last), null);
+    }
+    assertEquals(55 * S, c.nextDelayMillis(T0 + last + 20 * S));
+    c.polled(pub(last + 60 * S), null); // perioda je ve skutečnosti 60 s
+    assertEquals(0, c.cadenceMillis());
+    assertEquals(5 * M, c.nextDelayMillis(T0 + last + 75 * S));
+  }
+
+  @Test
+  void missesBackOffUntilNextCycle() {
+    PollCadence c = steady(120 * S); // poslední publikace 240 s, očekávaná 360 s, poll v 375 s
+    c.polled(pub(240 * S), null); // 304 / stejný obsah
+    assertEquals(30 * S, c.nextDelayMillis(T0 + 375 * S));
+    c.polled(pub(240 * S), null);
+    assertEquals(60 * S, c.nextDelayMillis(T0 + 405 * S));
+    c.polled(pub(240 * S), null);
+    // 120 s by přeskočilo další cyklus (495 s) → jen do něj
+    assertEquals(30 * S, c.nextDelayMillis(T0 + 465 * S));
+
+    c.polled(pub(480 * S), null);
+    assertEquals(115 * S, c.nextDelayMillis(T0 + 500 * S));
+  }
+
+  @Test
+  void errorsBackOffExponentially() {
+    PollCadence c = steady(120 * S);
+    long[] expected = {30 * S, 60 * S, 120 * S, 240 * S, 480 * S, 15 * M, 15 * M};
+    for (long e : expected) {
+      c.failed();
+      assertEquals(e, c.nextDelayMillis(T0 + 260 * S));
+    }
+    c.polled(pub(240 * S), null); // úspěch chyby nuluje
+    assertEquals(115 * S, c.nextDelayMillis(T0 + 260 * S));
+  }
+
+  @Test
+  void clampedToMinAndMax() {
+    PollCadence c = steady(120 * S);
+    // očekávaná publikace za 1 s → aspoň min
+    assertEquals(30 * S, c.nextDelayMillis(T0 + 374 * S));
+
+    PollCadence hourly = cadence(EVERY);
+    for (long h = 0; h < 3; h++) hourly.polled(pub(h * 60 * M), null);
+    assertEquals(60 * M, hourly.cadenceMillis());
+    assertEquals(15 * M, hourly.nextDelayMillis(T0 + 120 * M));
+  }
+
+  @Test
+  void historySurvivesRestart() throws IOException {
+    PollCadence c = cadence(EVERY);
+    for (int i = 0; i < 20; i++) c.polled(pub(i * 90 * S), null);
+    assertEquals(PollCadence.HISTORY, Files.readAllLines(dir.resolve("feed.cadence")).size());
+
+    PollCadence restarted = cadence(EVERY);
+    restarted.load();
+    assertEquals(90 * S, restarted.cadenceMillis());
+    assertEquals(85 * S, restarted.nextDelayMillis(T0 + 19 * 90 * S + 20 * S));
+  }
+
+  private PollCadence cadence(Duration every) {
+    return new PollCadence(
+        "test", dir.resolve("feed.cadence"), MIN, MAX, every, LAG, Duration.ZERO);
+  }
+
+  /** Feed s ustálenou periodou: publikace v 0, 1 a 2 periodách. */
+  private PollCadence steady(long period) {
+    PollCadence c = cadence(EVERY);
+    for (int i = 0; i < 3; i++) c.polled(pub(i * period), null);
+    assertEquals(period, c.cadenceMillis());
+    return c;
+  }
+
+  private static String pub(long offset) {
+    return Instant.ofEpochMilli(T0 + offset).atOffset(ZoneOffset.ofHours(1)).toString();
+  }
+
+  private static String lastModified(long offset) {
+    return DateTimeFormatter.RFC_1123_DATE_TIME.format(
+        Instant.ofEpochMilli(T0 + offset).atOffset(ZoneOffset.UTC));
+  }
+}
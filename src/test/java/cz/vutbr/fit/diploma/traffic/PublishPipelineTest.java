@@ -0,0 +1,122 @@
+package cz.vutbr.fit.diploma.traffic;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Okno nepotvrzených zpráv, sběr chyb po dávkách a časové limity {@link PublishPipeline} proti
+ * náhradnímu {@link PublishPipeline.Sender}.
+ */
+class PublishPipelineTest {
+
+  /** Náhrada brokeru: ack (nebo chybu) posílá test ručně. */
+  private static final class StubSender implements PublishPipeline.Sender {
+    final List<CompletableFuture<Void>> acks = new ArrayList<>();
+    final List<String> keys = new ArrayList<>();
+
+    @Override
+    public synchronized CompletionStage<Void> send(String key, byte[] value) {
+      CompletableFuture<Void> f = new CompletableFuture<>();
+      keys.add(key);
+      acks.add(f);
+      return f;
+    }
+
+    synchronized CompletableFuture<Void> ack(int i) {
+      return acks.get(i);
+    }
+  }
+
+  @Test
+  void allAckedCompletes() throws IOException {
+    StubSender s = new StubSender();
+    PublishPipeline p = new PublishPipeline(s, 4, 10, Duration.ofSeconds(5));
+    for (int i = 0; i < 3; i++) p.submit("k" + i, new byte[] {1});
+    p.submit("gone", null); // tombstone
+    s.acks.forEach(f -> f.complete(null));
+    p.awaitAll();
+    assertEquals(4, p.submitted());
+    assertEquals(List.of("k0", "k1", "k2", "gone"), s.keys);
+  }
+
+  @Test
+  void fullWindowBlocksUntilAck() throws Exception {
+    StubSender s = new StubSender();
+    PublishPipeline p = new PublishPipeline(s, 2, 10, Duration.ofSeconds(5));
+    p.submit("a", null);
+    p.submit("b", null);
+
+    CompletableFuture<Void> third =
+        CompletableFuture.runAsync(
+            () -> {
+              try {
+                p.submit("c", null);
+              } catch (IOException e) {
+                throw new RuntimeException(e);
+              }
+            });
+    Thread.sleep(200);
+    assertEquals(2, s.keys.size(), "third message must wait for a free slot");
+    s.ack(0).complete(null);
+    third.get();
+    assertEquals(3, s.keys.size());
+  }
+
+  @Test
+  void stalledWindowTimesOut() throws IOException {
+    StubSender s = new StubSender();
+    PublishPipeline p = new PublishPipeline(s, 1, 10, Duration.ofMillis(100));
+    p.submit("a", null);
+    IOException e = assertThrows(IOException.class, () -> p.submit("b", null));
+    assertTrue(e.getMessage().contains("stalled"), e.getMessage());
+  }
+
+  @Test
+  void awaitAllTimesOutOnMissingAck() throws IOException {
+    StubSender s = new StubSender();
+    PublishPipeline p = new PublishPipeline(s, 4, 10, Duration.ofMillis(100));
+    p.submit("a", null);
+    p.submit("b", null);
+    s.ack(0).complete(null);
+    assertThrows(IOException.class, p::awaitAll);
+  }
+
+  @Test
+  void failuresAreCollectedPerBatch() throws IOException {
+    StubSender s = new StubSender();
+    PublishPipeline p = new PublishPipeline(s, 16, 3, Duration.ofSeconds(5));
+    for (int i = 0; i < 7; i++) p.submit("k" + i, null);
+    RuntimeException first = new RuntimeException("broker down");
+    for (int i = 0; i < 7; i++) {
+      if (i == 1) s.ack(i).completeExceptionally(first);
+      else if (i == 2 || i == 6) s.ack(i).completeExceptionally(new RuntimeException("x"));
+      else s.ack(i).complete(null);
+    }
+    IOException e = assertThrows(IOException.class, p::awaitAll);
+    assertEquals("Kafka publish failed for 3 of 7 records", e.getMessage());
+    assertSame(first, e.getCause());
+  }
+
+  @Test
+  void synchronousSendFailureFreesTheSlot() throws IOException {
+    PublishPipeline.Sender broken =
+        (k, v) -> {
+          throw new IllegalStateException("emitter overflow");
+        };
+    PublishPipeline p = new PublishPipeline(broken, 1, 10, Duration.ofMillis(200));
+    p.submit("a", null);
+    p.submit("b", null); // neblokuje – slot se po chybě uvolnil
+    IOException e = assertThrows(IOException.class, p::awaitAll);
+    assertEquals("Kafka publish failed for 2 of 2 records", e.getMessage());
+  }
+}
@@ -0,0 +1,205 @@
+package cz.vutbr.fit.diploma.traffic;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.function.Predicate;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * R-strom {@link SpatialIndex} proti průchodu všemi záznamy: výřez ({@code bbox}), okolí ({@code
+ * within}) a k nejbližších ({@code nearest}) nad náhodnými záznamy po celé ČR – lomené čáry
+ * (geometrie GN), samostatné body (Alert-C) i záznamy bez souřadnic.
+ */
+class SpatialIndexTest {
+
+  private static final double MIN_LON = 12.1, MAX_LON = 18.9, MIN_LAT = 48.55, MAX_LAT = 51.06;
+  private static final double M_PER_DEG = 6_371_008.8 * Math.PI / 180;
+  private static final int QUERIES = 200;
+
+  private static List<DatexRecord> records;
+
+  /** Body záznamu (lon, lat; víc bodů = lomená čára); záznam bez souřadnic v mapě není. */
+  private static Map<DatexRecord, double[]> points;
+
+  private static SpatialIndex index;
+
+  @BeforeAll
+  static void build() {
+    SplittableRandom rnd = new SplittableRandom(42);
+    records = new ArrayList<>();
+    points = new IdentityHashMap<>();
+    for (int i = 0; i < 3000; i++) {
+      DatexRecord r = TestRecords.record("R" + i, "1", null, null);
+      double lon = lon(rnd), lat = lat(rnd);
+      switch (i % 5) {
+        case 0 -> records.add(r); // bez souřadnic
+        case 1 -> {
+          DatexRecord.AlertCLocation l = new DatexRecord.AlertCLocation("A", null, "D1", lat, lon);
+          DatexRecord.AlertCPoint p = new DatexRecord.AlertCPoint("2", "25", "8.0", null, "1", l);
+          r = r.withLocations(List.of(), List.of(p), List.of());
+          records.add(r);
+          points.put(r, new double[] {lon, lat});
+        }
+        default -> {
+          int n = 2 + rnd.nextInt(4);
+          double[] c = new double[2 * n];
+          for (int j = 0; j < n; j++) {
+            c[2 * j] = lon + j * (rnd.nextDouble() - 0.5) * 0.05;
+            c[2 * j + 1] = lat + j * (rnd.nextDouble() - 0.5) * 0.03;
+          }
+          DatexRecord.GNLinear gn =
+              new DatexRecord.GNLinear(
+                  null,
+                  null,
+                  null,
+                  null,
+                  null,
+                  null,
+                  List.of(),
+                  Double.NaN,
+                  Double.NaN,
+                  Double.NaN,
+                  Double.NaN,
+                  new DatexRecord.LineString(c));
+          r = r.withLocations(List.of(), List.of(), List.of(gn));
+          records.add(r);
+          points.put(r, c);
+        }
+      }
+    }
+    index = SpatialIndex.build(records);
+  }
+
+  @Test
+  void skipsRecordsWithoutCoordinates() {
+    assertEquals(points.size(), index.size());
+    assertEquals(0, SpatialIndex.build(List.of()).bbox(0, 0, 90, 90).size());
+    assertEquals(0, SpatialIndex.build(List.of()).nearest(50, 15, 10).size());
+  }
+
+  @Test
+  void bboxMatchesScan() {
+    SplittableRandom rnd = new SplittableRandom(1);
+    for (int q = 0; q < QUERIES; q++) {
+      double lon = lon(rnd), lat = lat(rnd), w = rnd.nextDouble() * 0.6, h = rnd.nextDouble() * 0.4;
+      HashSet<DatexRecord> expected = new HashSet<>();
+      for (Map.Entry<DatexRecord, double[]> e : points.entrySet()) {
+        if (intersects(e.getValue(), lon, lat, lon + w, lat + h)) expected.add(e.getKey());
+      }
+      List<DatexRecord> got = index.bbox(lon, lat, lon + w, lat + h);
+      assertEquals(got.size(), new HashSet<>(got).size(), "duplicates in query " + q);
+      assertEquals(expected, new HashSet<>(got), "query " + q);
+    }
+  }
+
+  @Test
+  void withinMatchesScan() {
+    SplittableRandom rnd = new SplittableRandom(2);
+    for (int q = 0; q < QUERIES; q++) {
+      double lat = lat(rnd), lon = lon(rnd), radius = 1000 + rnd.nextDouble() * 20_000;
+      HashSet<DatexRecord> expected = new HashSet<>();
+      for (DatexRecord r : points.keySet()) {
+        if (distance(r, lat, lon) <= radius) expected.add(r);
+      }
+      List<DatexRecord> got = index.within(lat, lon, radius);
+      assertEquals(expected, new HashSet<>(got), "query " + q);
+      assertSorted(got, lat, lon, q);
+    }
+  }
+
+  @Test
+  void nearestMatchesScan() {
+    SplittableRandom rnd = new SplittableRandom(3);
+    Predicate<DatexRecord> even = r -> r.situationRecordId().hashCode() % 2 == 0;
+    for (int q = 0; q < QUERIES; q++) {
+      double lat = lat(rnd), lon = lon(rnd);
+      int k = 1 + rnd.nextInt(20);
+      assertNearest(scan(lat, lon, r -> true), index.nearest(lat, lon, k), k, lat, lon, q);
+      assertNearest(
+          scan(lat, lon, even),
+          index.nearest(lat, lon, k, Double.POSITIVE_INFINITY, even),
+          k,
+          lat,
+          lon,
+          q);
+    }
+    // k větší než index → všechny, seřazené
+    List<DatexRecord> all = index.nearest(50, 15, Integer.MAX_VALUE);
+    assertEquals(points.size(), all.size());
+    assertSorted(all, 50, 15, -1);
+  }
+
+  private static void assertNearest(
+      double[] expected, List<DatexRecord> got, int k, double lat, double lon, int q) {
+    assertEquals(Math.min(k, expected.length), got.size(), "query " + q);
+    for (int i = 0; i < got.size(); i++) {
+      assertEquals(expected[i], distance(got.get(i), lat, lon), 1e-6, "query " + q + " at " + i);
+    }
+  }
+
+  private static void assertSorted(List<DatexRecord> got, double lat, double lon, int q) {
+    for (int i = 1; i < got.size(); i++) {
+      assertTrue(
+          distance(got.get(i - 1), lat, lon) <= distance(got.get(i), lat, lon) + 1e-9,
+          "query " + q + " not sorted at " + i);
+    }
+  }
+
+  /** Seřazené vzdálenosti záznamů splňujících {@code filter}. */
+  private static double[] scan(double lat, double lon, Predicate<DatexRecord> filter) {
+    return points.keySet().stream()
+        .filter(filter)
+        .mapToDouble(r -> distance(r, lat, lon))
+        .sorted()
+        .toArray();
+  }
+
+  private static boolean intersects(
+      double[] c, double minLon, double minLat, double maxLon, double maxLat) {
+    double[] box = {
+      Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY,
+      Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY
+    };
+    for (int i = 0; i < c.length; i += 2) {
+      box[0] = Math.min(box[0], c[i]);
+      box[1] = Math.min(box[1], c[i + 1]);
+      box[2] = Math.max(box[2], c[i]);
+      box[3] = Math.max(box[3], c[i + 1]);
+    }
+    return box[0] <= maxLon && box[2] >= minLon && box[1] <= maxLat && box[3] >= minLat;
+  }
+
+  /** Metry k nejbližšímu bodu / úseku v ekvidistantní aproximaci kolem bodu dotazu. */
+  private static double distance(DatexRecord r, double lat, double lon) {
+    double[] c = points.get(r);
+    double kx = Math.cos(Math.toRadians(lat)) * M_PER_DEG;
+    double[] x = new double[c.length / 2], y = new double[c.length / 2];
+    for (int i = 0; i < x.length; i++) {
+      x[i] = (c[2 * i] - lon) * kx;
+      y[i] = (c[2 * i + 1] - lat) * M_PER_DEG;
+    }
+    double best = Math.hypot(x[0], y[0]);
+    for (int i = 1; i < x.length; i++) {
+      double dx = x[i] - x[i - 1], dy = y[i] - y[i - 1], len = dx * dx + dy * dy;
+      double t = len == 0 ? 0 : Math.max(0, Math.min(1, -(x[i - 1] * dx + y[i - 1] * dy) / len));
+      best = Math.min(best, Math.hypot(x[i - 1] + t * dx, y[i - 1] + t * dy));
+    }
+    return best;
+  }
+
+  private static double lon(SplittableRandom rnd) {
+    return MIN_LON + rnd.nextDouble() * (MAX_LON - MIN_LON);
+  }
+
+  private static double lat(SplittableRandom rnd) {
+    return MIN_LAT + rnd.nextDouble() * (MAX_LAT - MIN_LAT);
+  }
+}
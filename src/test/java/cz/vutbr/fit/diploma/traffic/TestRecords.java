@@ -0,0 +1,55 @@
+package cz.vutbr.fit.diploma.traffic;
+
+import java.util.List;
+
+/** Ručně sestavené záznamy pro testy; co se nezadá, je {@code null} / prázdné. */
+final class TestRecords {
+
+  private TestRecords() {}
+
+  /** Záznam situace {@code S-<id>} bez lokalizací. */
+  static DatexRecord record(String id, String version, String versionTime, String comment) {
+    return closure(id, version, versionTime, comment, "active", null, null, null, false);
+  }
+
+  static DatexRecord closure(
+      String id,
+      String version,
+      String versionTime,
+      String comment,
+      String validityStatus,
+      String start,
+      String end,
+      String road,
+      boolean isClosure) {
+    return new DatexRecord(
+        "S-" + id,
+        version,
+        versionTime,
+        "real",
+        "normalUrgency",
+        id,
+        "RoadOrCarriagewayOrLaneManagement",
+        validityStatus,
+        start,
+        end,
+        "certain",
+        comment,
+        null,
+        null,
+        null,
+        isClosure ? "roadClosed" : null,
+        null,
+        null,
+        null,
+        null,
+        null,
+        road,
+        null,
+        List.of(),
+        List.of(),
+        List.of(),
+        List.of(),
+        isClosure);
+  }
+}